@@ -32,4 +32,10 @@ export class BinReadingService {
   getLatestBinReadingForBin(binId: string): Observable<BinReading> {
     return this.api.get<BinReading>(`/bin-readings/bin/${binId}/latest`);
   }
+
+  getLatestBinReadingsForCollectionPoint(collectionPointId: string): Observable<BinReading[]> {
+    return this.api.get<BinReading[]>(
+      `/bin-readings/latest?collectionPointId=${encodeURIComponent(collectionPointId)}`
+    );
+  }
 }
@@ -1202,16 +1202,17 @@ export class TourneeMapComponent implements OnInit, AfterViewInit, OnDestroy {
       return;
     }
 
-    const readingRequests = bins.map((b) =>
-      this.binReadingService.getLatestBinReadingForBin(b.id).pipe(
-        catchError((err) => {
-          console.error('Error loading latest bin reading for bin', b.id, err);
-          return of(null);
-        })
-      )
-    );
+    // One call for all bins of this CP instead of one per bin
+    this.binReadingService.getLatestBinReadingsForCollectionPoint(cp.id).pipe(
+      catchError((err) => {
+        console.error('Error loading latest bin readings for collection point', cp.id, err);
+        return of([]);
+      })
+    ).subscribe((latest) => {
+      const latestByBinId = new Map<string, any>();
+      (latest || []).forEach((r) => latestByBinId.set(r.binId, r));
+      const readings = bins.map((b) => latestByBinId.get(b.id) ?? null);
 
-    forkJoin(readingRequests).subscribe((readings) => {
       const rows: string[] = [];
 
       bins.forEach((b, index) => {
@@ -0,0 +1,41 @@
+package com.wastemanagement.backend.config;
+
+import com.wastemanagement.backend.repository.collection.BinReadingTimeSeriesStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Storage mode of binReadings:
+ * - bin-readings.storage.mode=standard (default): regular collection
+ * - bin-readings.storage.mode=timeseries: MongoDB time-series collection
+ * Starting with --migrate-bin-readings-to-timeseries moves existing data.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class BinReadingStorageInitializer implements ApplicationRunner {
+
+    private final BinReadingTimeSeriesStorage timeSeriesStorage;
+
+    @Value("${bin-readings.storage.mode:standard}")
+    private String storageMode;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(BinReadingTimeSeriesStorage.MIGRATE_OPTION)) {
+            long copied = timeSeriesStorage.migrate();
+            log.info("binReadings migrated to time-series storage, {} readings copied", copied);
+            return;
+        }
+        if ("timeseries".equalsIgnoreCase(storageMode)) {
+            timeSeriesStorage.ensureCollection();
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.wastemanagement.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    // a routing engine that stops answering must not hold its caller forever
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${rest.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                     @Value("${rest.read-timeout-ms:60000}") long readTimeoutMs) {
+        return builder
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .build();
     }
 }
@@ -171,7 +171,9 @@ public class WebSecurityConfig {
 
                         // Mode CRUD -> Admin ONLY
                         .requestMatchers(HttpMethod.POST, "/api/v1/auto-planning/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/api/v1/auto-planning/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/v1/auto-planning/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.DELETE, "/api/v1/auto-planning/**").hasRole("ADMIN")
 
 
 
@@ -1,11 +1,16 @@
 package com.wastemanagement.backend.controller.collection;
 
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
 import com.wastemanagement.backend.dto.collection.BinRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinResponseDTO;
+import com.wastemanagement.backend.service.collection.BinReadingService;
 import com.wastemanagement.backend.service.collection.BinService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -13,9 +18,14 @@ import java.util.List;
 public class BinController {
 
     private final BinService binService;
+    private final BinReadingService binReadingService;
 
-    public BinController(BinService binService) {
+    @Value("${bin-readings.downsampling.max-points:5000}")
+    private int maxPoints;
+
+    public BinController(BinService binService, BinReadingService binReadingService) {
         this.binService = binService;
+        this.binReadingService = binReadingService;
     }
 
     @GetMapping
@@ -49,4 +59,18 @@ public class BinController {
                 ? ResponseEntity.noContent().build()
                 : ResponseEntity.notFound().build();
     }
+
+    // Chart series for one bin, downsampled server-side to at most `points` readings
+    @GetMapping("/{binId}/readings")
+    public ResponseEntity<BinReadingHistoryDTO> getReadings(
+            @PathVariable String binId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(defaultValue = "500") int points) {
+        Date end = to != null ? to : new Date();
+        if (from.after(end) || points < 3 || points > maxPoints) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(binReadingService.getDownsampledHistory(binId, from, end, points));
+    }
 }
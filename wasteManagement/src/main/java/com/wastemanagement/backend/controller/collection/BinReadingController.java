@@ -1,12 +1,23 @@
 package com.wastemanagement.backend.controller.collection;
 
 
+import com.wastemanagement.backend.dto.collection.BinFillForecastDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingStreamResponseDTO;
 import com.wastemanagement.backend.service.collection.BinReadingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -16,11 +27,32 @@ public class BinReadingController {
 
     private final BinReadingService service;
 
+    @Value("${bin-readings.batch.max-size:10000}")
+    private int maxBatchSize;
+
     @PostMapping
     public BinReadingResponseDTO create(@RequestBody BinReadingRequestDTO dto) {
         return service.create(dto);
     }
 
+    // Gateways replaying buffered readings: one request, one bulk insert
+    @PostMapping("/batch")
+    public ResponseEntity<BinReadingBatchResponseDTO> createBatch(@RequestBody List<BinReadingRequestDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (dtos.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(service.createBatch(dtos));
+    }
+
+    // Gateway backfills: newline-delimited JSON, one reading per line, any body size
+    @PostMapping(value = "/stream", consumes = "application/x-ndjson")
+    public BinReadingStreamResponseDTO ingestStream(Reader body) throws IOException {
+        return service.ingestStream(body);
+    }
+
     @GetMapping
     public List<BinReadingResponseDTO> getAll() {
         return service.getAll();
@@ -31,11 +63,46 @@ public class BinReadingController {
         return service.getById(id);
     }
 
+    // Latest reading of many bins in one call: ?binIds=a,b,c or ?collectionPointId=cp
+    @GetMapping("/latest")
+    public ResponseEntity<List<BinReadingResponseDTO>> getLatest(
+            @RequestParam(required = false) List<String> binIds,
+            @RequestParam(required = false) String collectionPointId) {
+        if (binIds != null && !binIds.isEmpty()) {
+            return ResponseEntity.ok(service.getLatestForBins(binIds));
+        }
+        if (collectionPointId != null && !collectionPointId.isBlank()) {
+            return ResponseEntity.ok(service.getLatestForCollectionPoint(collectionPointId));
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
     @GetMapping("/bin/{binId}/latest")
     public BinReadingResponseDTO getLatestByBinId(@PathVariable String binId) {
         return service.findTopByBinIdOrderByTsDesc(binId);
     }
 
+    // Chart data: ?from=2024-01-01T00:00:00Z&to=..., resolution picked from the range
+    @GetMapping("/bin/{binId}/history")
+    public ResponseEntity<BinReadingHistoryDTO> getHistory(
+            @PathVariable String binId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        Date end = to != null ? to : new Date();
+        if (from.after(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.getHistory(binId, from, end));
+    }
+
+    // Fill rate and expected time until the bin reaches the threshold
+    @GetMapping("/bin/{binId}/forecast")
+    public ResponseEntity<BinFillForecastDTO> getForecast(@PathVariable String binId,
+                                                          @RequestParam(defaultValue = "80") double threshold) {
+        BinFillForecastDTO forecast = service.getForecast(binId, threshold);
+        return forecast == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(forecast);
+    }
+
     @DeleteMapping("/{id}")
     public void delete(@PathVariable String id) {
         service.delete(id);
@@ -1,22 +1,34 @@
 package com.wastemanagement.backend.controller.tournee;
 
 import com.wastemanagement.backend.model.tournee.auto.AutoMode;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
 import com.wastemanagement.backend.service.tournee.auto.AutoPlanningConfigService;
 import com.wastemanagement.backend.service.tournee.auto.AutoPlanningService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRuleEngine;
+import com.wastemanagement.backend.vroom.SolutionCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/v1/auto-planning")
 public class AutoPlanningController {
 
     private final AutoPlanningService autoPlanningService;
     private final AutoPlanningConfigService autoPlanningConfigService;
+    private final EmergencyRuleEngine emergencyRuleEngine;
+    private final SolutionCache solutionCache;
 
     public AutoPlanningController(AutoPlanningService autoPlanningService,
-                                  AutoPlanningConfigService autoPlanningConfigService) {
+                                  AutoPlanningConfigService autoPlanningConfigService,
+                                  EmergencyRuleEngine emergencyRuleEngine,
+                                  SolutionCache solutionCache) {
         this.autoPlanningService = autoPlanningService;
         this.autoPlanningConfigService = autoPlanningConfigService;
+        this.emergencyRuleEngine = emergencyRuleEngine;
+        this.solutionCache = solutionCache;
     }
 
     @GetMapping("/mode")
@@ -30,17 +42,39 @@ public class AutoPlanningController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/emergency-rules")
+    public ResponseEntity<List<EmergencyRule>> getEmergencyRules() {
+        return ResponseEntity.ok(emergencyRuleEngine.getRules());
+    }
+
+    // Applied without restart; an empty body restores the built-in rules
+    @PutMapping("/emergency-rules")
+    public ResponseEntity<List<EmergencyRule>> updateEmergencyRules(
+            @RequestBody(required = false) List<EmergencyRule> rules) {
+        try {
+            return ResponseEntity.ok(emergencyRuleEngine.updateRules(rules));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Manually trigger the daily FULL cycle (respects mode internally)
     @PostMapping("/run/scheduled")
     public ResponseEntity<Void> runScheduledCycle() {
-        autoPlanningService.runScheduledCycleCore();
+        autoPlanningService.triggerScheduledCycle();
         return ResponseEntity.accepted().build();
     }
 
     // Manually trigger the emergency loop (respects mode internally)
     @PostMapping("/run/emergency")
     public ResponseEntity<Void> runEmergencyLoop() {
-        autoPlanningService.runEmergencyLoopCore();
+        autoPlanningService.triggerEmergencyLoop();
         return ResponseEntity.accepted().build();
     }
+
+    // Drops the cached VROOM solutions, e.g. after a road network update
+    @DeleteMapping("/solution-cache")
+    public ResponseEntity<Map<String, Integer>> flushSolutionCache() {
+        return ResponseEntity.ok(Map.of("flushed", solutionCache.flush()));
+    }
 }
@@ -0,0 +1,21 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinFillForecastDTO {
+    private String binId;
+    private double lastFillPct;
+    private Date lastTs;
+    // null while the bin has no usable history
+    private Double ratePctPerHour;
+    private double thresholdPct;
+    // null when the bin is not filling
+    private Double hoursToThreshold;
+    private Date thresholdReachedAt;
+}
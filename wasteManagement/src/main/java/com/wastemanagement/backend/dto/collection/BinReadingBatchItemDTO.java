@@ -0,0 +1,17 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinReadingBatchItemDTO {
+
+    public enum Status { CREATED, REJECTED }
+
+    private int index;      // position in the request array
+    private String id;      // id of the stored reading, null when rejected
+    private Status status;
+    private String error;   // reason when rejected
+}
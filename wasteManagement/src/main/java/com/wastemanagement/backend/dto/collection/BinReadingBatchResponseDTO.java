@@ -0,0 +1,18 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinReadingBatchResponseDTO {
+    private int accepted;
+    private int rejected;
+    // accepted readings over an alert threshold, not alerts raised: the alert pipeline decides
+    // those asynchronously (hysteresis, quiet period)
+    private int overThresholdReadings;
+    private List<BinReadingBatchItemDTO> items;
+}
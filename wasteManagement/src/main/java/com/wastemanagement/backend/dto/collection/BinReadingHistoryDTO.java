@@ -0,0 +1,18 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinReadingHistoryDTO {
+
+    public enum Resolution { RAW, HOURLY, DAILY }
+
+    private String binId;
+    private Resolution resolution;
+    private List<BinReadingHistoryPointDTO> points;
+}
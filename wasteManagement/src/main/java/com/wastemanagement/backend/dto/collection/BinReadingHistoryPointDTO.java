@@ -0,0 +1,22 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinReadingHistoryPointDTO {
+    // reading ts, or bucket start for rollups
+    private Date ts;
+    // reading value, or bucket average
+    private double fillPct;
+    private double minFillPct;
+    private double maxFillPct;
+    private double lastFillPct;
+    private int minBatteryPct;
+    private double maxTemperatureC;
+    private long count;
+}
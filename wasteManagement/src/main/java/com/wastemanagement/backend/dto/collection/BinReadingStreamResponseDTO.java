@@ -0,0 +1,15 @@
+package com.wastemanagement.backend.dto.collection;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BinReadingStreamResponseDTO {
+    private long accepted;
+    private long rejected;
+    // readings over an alert threshold, not alerts raised: the alert pipeline decides those
+    // asynchronously (hysteresis, quiet period)
+    private long overThresholdReadings;
+}
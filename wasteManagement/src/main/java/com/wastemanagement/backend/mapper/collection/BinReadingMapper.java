@@ -1,8 +1,10 @@
 package com.wastemanagement.backend.mapper.collection;
 
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryPointDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
 import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
 
 public class BinReadingMapper {
 
@@ -44,4 +46,32 @@ public class BinReadingMapper {
         dto.setSignalDbm(entity.getSignalDbm());
         return dto;
     }
+
+    public static BinReadingHistoryPointDTO toHistoryPoint(BinReading entity) {
+        if (entity == null) return null;
+        BinReadingHistoryPointDTO dto = new BinReadingHistoryPointDTO();
+        dto.setTs(entity.getTs());
+        dto.setFillPct(entity.getFillPct());
+        dto.setMinFillPct(entity.getFillPct());
+        dto.setMaxFillPct(entity.getFillPct());
+        dto.setLastFillPct(entity.getFillPct());
+        dto.setMinBatteryPct(entity.getBatteryPct());
+        dto.setMaxTemperatureC(entity.getTemperatureC());
+        dto.setCount(1);
+        return dto;
+    }
+
+    public static BinReadingHistoryPointDTO toHistoryPoint(BinReadingRollup rollup) {
+        if (rollup == null) return null;
+        BinReadingHistoryPointDTO dto = new BinReadingHistoryPointDTO();
+        dto.setTs(rollup.getBucketStart());
+        dto.setFillPct(rollup.getAvgFillPct());
+        dto.setMinFillPct(rollup.getMinFillPct());
+        dto.setMaxFillPct(rollup.getMaxFillPct());
+        dto.setLastFillPct(rollup.getLastFillPct());
+        dto.setMinBatteryPct(rollup.getMinBatteryPct());
+        dto.setMaxTemperatureC(rollup.getMaxTemperatureC());
+        dto.setCount(rollup.getCount());
+        return dto;
+    }
 }
@@ -0,0 +1,50 @@
+package com.wastemanagement.backend.model.collection;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alert state of one bin, checkpointed from AlertStateTracker.
+ * An alert document is written only when one of these states changes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "binAlertStates")
+public class BinAlertState {
+    // binId
+    @Id
+    private String id;
+    // null = OK, otherwise LEVEL_HIGH or LEVEL_CRITICAL
+    private AlertType fillState;
+    private boolean batteryLow;
+    private boolean sensorAnomaly;
+    // last time an alert of each type was written, for the quiet period
+    private Map<AlertType, Date> lastRaisedAt = new EnumMap<>(AlertType.class);
+    // active states whose alert the quiet period held back; written once it ends
+    private Set<AlertType> pendingRaises = EnumSet.noneOf(AlertType.class);
+    // ts of the last reading applied; older readings are ignored
+    private Date lastReadingTs;
+
+    public BinAlertState(String binId) {
+        this.id = binId;
+    }
+
+    // detached copy, for checkpointing and rolling back while the tracker keeps mutating
+    public BinAlertState copy() {
+        Map<AlertType, Date> raisedAt = new EnumMap<>(AlertType.class);
+        raisedAt.putAll(lastRaisedAt);
+        Set<AlertType> pending = EnumSet.noneOf(AlertType.class);
+        pending.addAll(pendingRaises);
+        return new BinAlertState(id, fillState, batteryLow, sensorAnomaly, raisedAt, pending, lastReadingTs);
+    }
+}
@@ -0,0 +1,33 @@
+package com.wastemanagement.backend.model.collection;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.util.Date;
+
+/**
+ * Aggregated readings of one bin over one bucket (hour or day).
+ * Stored in binReadingsHourly / binReadingsDaily, maintained by BinReadingRollupStore.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BinReadingRollup {
+    // binId|bucket
+    @Id
+    private String id;
+    private String binId;
+    private Date bucketStart;
+    private double minFillPct;
+    private double maxFillPct;
+    private double avgFillPct;
+    private double lastFillPct;
+    private Date lastTs;
+    private int minBatteryPct;
+    private double maxTemperatureC;
+    // kept so buckets can be merged incrementally
+    private double sumFillPct;
+    private long count;
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.List;
+
 @Data
 @Document(collection = "autoPlanningConfigs")
 public class AutoPlanningConfig {
@@ -12,5 +14,9 @@ public class AutoPlanningConfig {
     @Id
     private String id;
     private AutoMode autoMode = AutoMode.OFF;
+    // emergency scan interval bounds, the scheduler aims at the next predicted crossing in between
     private int emergencyScanMinute = 15;
+    private int emergencyScanMinSeconds = 60;
+    // null: built-in defaults (EmergencyRules.DEFAULT_RULES)
+    private List<EmergencyRule> emergencyRules;
 }
@@ -0,0 +1,32 @@
+package com.wastemanagement.backend.model.tournee.auto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@code field op value}, e.g. FILL_PCT GTE 95. A condition on a value the bin
+ * does not have (never collected, no forecast yet) does not hold.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmergencyCondition {
+
+    public enum Field {
+        // latest reading
+        FILL_PCT,
+        // whole hours since the bin was last collected
+        HOURS_SINCE_COLLECTION,
+        // hours until 100% at the forecast fill rate, as of the latest reading
+        HOURS_TO_FULL
+    }
+
+    public enum Operator {
+        GT, GTE, LT, LTE
+    }
+
+    private Field field;
+    private Operator op;
+    private double value;
+}
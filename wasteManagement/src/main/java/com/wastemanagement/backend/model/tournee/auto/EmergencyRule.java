@@ -0,0 +1,25 @@
+package com.wastemanagement.backend.model.tournee.auto;
+
+import com.wastemanagement.backend.model.collection.TrashType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One emergency rule of AutoPlanningConfig: a bin of one of the trash types
+ * (all types when empty) matching every condition is an emergency, reported with
+ * this reason. Rules are tried in order, the first match wins.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmergencyRule {
+    private String reason;
+    private Set<TrashType> trashTypes;
+    private List<EmergencyCondition> conditions;
+}
@@ -0,0 +1,31 @@
+package com.wastemanagement.backend.model.tournee.auto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Auto-planning leadership, one document per lease (a singleton, like AutoPlanningConfig).
+ * The token goes up by one each time the lease changes hands. Planning writes do not carry
+ * it: the holder re-reads it right before writing (PlanningLeaseService.verifyFence), a
+ * best-effort check that a node which lost the lease steps down.
+ * expiresAt is set and compared with the wall clock of whichever node reads or writes it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "planningLeases")
+public class PlanningLease {
+
+    @Id
+    private String id;
+    private String holder;
+    private long token;
+    private Date acquiredAt;
+    private Date renewedAt;
+    private Date expiresAt;
+}
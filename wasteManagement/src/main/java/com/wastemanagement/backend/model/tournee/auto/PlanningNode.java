@@ -0,0 +1,26 @@
+package com.wastemanagement.backend.model.tournee.auto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A live backend instance taking part in zone planning; refreshed by its own heartbeat
+ * and considered gone once expiresAt has passed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "planningNodes")
+public class PlanningNode {
+
+    @Id
+    private String id;
+    private Date startedAt;
+    private Date heartbeatAt;
+    private Date expiresAt;
+}
@@ -0,0 +1,39 @@
+package com.wastemanagement.backend.model.tournee.auto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Zones and vehicle split of one daily cycle, computed by the first node to start it and
+ * read by the others, so every node claims its zones from the same demand and fleet.
+ * key identifies the planned types and fill threshold.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "zonePartitions")
+public class ZonePartition {
+
+    @Id
+    private String id;
+    private String key;
+    private Date createdAt;
+    private List<ZoneEntry> zones;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ZoneEntry {
+        private String id;
+        private Set<String> collectionPointIds;
+        private double demandL;
+        private Set<String> vehicleIds;
+    }
+}
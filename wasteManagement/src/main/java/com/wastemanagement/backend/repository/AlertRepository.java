@@ -5,12 +5,20 @@ package com.wastemanagement.backend.repository;
 import com.wastemanagement.backend.model.collection.Alert;
 import com.wastemanagement.backend.model.collection.AlertType;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface AlertRepository extends MongoRepository<Alert, String> {
     List<Alert> findByBinId(String binId);
     List<Alert> findByType(AlertType type);
     List<Alert> findByCleared(boolean cleared);
+
+    // Marks every open alert of these types for the bin as cleared, in one updateMany
+    @Query("{ 'binId': ?0, 'type': { $in: ?1 }, 'cleared': false }")
+    @Update("{ '$set': { 'cleared': true } }")
+    long clearOpenAlerts(String binId, Collection<AlertType> types);
 }
@@ -0,0 +1,9 @@
+package com.wastemanagement.backend.repository;
+
+import com.wastemanagement.backend.model.collection.BinAlertState;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BinAlertStateRepository extends MongoRepository<BinAlertState, String> {
+}
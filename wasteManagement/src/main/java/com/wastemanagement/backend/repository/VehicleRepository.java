@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface VehicleRepository extends MongoRepository<Vehicle, String> {
+public interface VehicleRepository extends MongoRepository<Vehicle, String>, VehicleRepositoryCustom {
     List<Vehicle> findByStatus(VehicleStatus status);
     List<Vehicle> findByStatusAndBusyFalse(VehicleStatus status);
     List<Vehicle> findByFuelType(FuelType fuelType);
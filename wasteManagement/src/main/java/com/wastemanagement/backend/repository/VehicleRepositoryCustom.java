@@ -0,0 +1,20 @@
+package com.wastemanagement.backend.repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface VehicleRepositoryCustom {
+
+    /**
+     * Marks the given vehicles busy, each only if it is still free (a conditional update per
+     * vehicle: two planners can never both get the same one).
+     *
+     * @return the ids this call marked busy
+     */
+    Set<String> claimFree(Collection<String> vehicleIds);
+
+    /**
+     * Gives back vehicles claimed by a run that could not save its tours.
+     */
+    void release(Collection<String> vehicleIds);
+}
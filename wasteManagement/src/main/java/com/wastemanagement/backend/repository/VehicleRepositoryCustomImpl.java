@@ -0,0 +1,39 @@
+package com.wastemanagement.backend.repository;
+
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class VehicleRepositoryCustomImpl implements VehicleRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Set<String> claimFree(Collection<String> vehicleIds) {
+        Set<String> claimed = new LinkedHashSet<>();
+        for (String id : vehicleIds) {
+            Query free = Query.query(Criteria.where("_id").is(id).and("busy").is(false));
+            if (mongoTemplate.updateFirst(free, new Update().set("busy", true), Vehicle.class).getModifiedCount() > 0) {
+                claimed.add(id);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public void release(Collection<String> vehicleIds) {
+        if (vehicleIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(vehicleIds)),
+                new Update().set("busy", false), Vehicle.class);
+    }
+}
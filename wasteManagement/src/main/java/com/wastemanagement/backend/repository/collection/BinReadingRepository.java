@@ -1,13 +1,16 @@
 package com.wastemanagement.backend.repository.collection;
 
 import com.wastemanagement.backend.model.collection.BinReading;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface BinReadingRepository extends MongoRepository<BinReading, String> {
+public interface BinReadingRepository extends MongoRepository<BinReading, String>, BinReadingRepositoryCustom {
 
     // Pour récupérer toutes les lectures d’une poubelle spécifique
     List<BinReading> findByBinId(String binId);
@@ -15,5 +18,25 @@ public interface BinReadingRepository extends MongoRepository<BinReading, String
     // Tu peux ajouter des recherches par date ou par plage
     List<BinReading> findByBinIdAndTsBetween(String binId, java.util.Date start, java.util.Date end);
 
+    List<BinReading> findByBinIdAndTsBetweenOrderByTsAsc(String binId, java.util.Date start, java.util.Date end);
+
+    long countByBinIdAndTsBetween(String binId, java.util.Date start, java.util.Date end);
+
+    // Cursor-backed, caller must close the stream
+    Stream<BinReading> streamByBinIdAndTsBetweenOrderByTsAsc(String binId, java.util.Date start, java.util.Date end);
+
     BinReading findTopByBinIdOrderByTsDesc(String binId);
+
+    // Readings measured at or after the given time, cursor-backed; by ts rather than _id, which a
+    // time-series collection does not index, while its buckets are pruned by ts
+    Stream<BinReading> streamByTsGreaterThanEqual(java.util.Date from);
+
+    // Latest reading of every bin in one pass (walks bin_ts_desc_idx), used to seed LatestReadingStore
+    @Aggregation(pipeline = {
+            "{ $sort: { binId: 1, ts: -1 } }",
+            "{ $group: { _id: '$binId', latest: { $first: '$$ROOT' } } }",
+            "{ $replaceRoot: { newRoot: '$latest' } }"
+    })
+    @Meta(allowDiskUse = true)
+    List<BinReading> findLatestPerBin();
 }
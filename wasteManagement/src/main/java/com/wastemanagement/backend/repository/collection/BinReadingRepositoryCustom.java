@@ -0,0 +1,17 @@
+package com.wastemanagement.backend.repository.collection;
+
+import com.wastemanagement.backend.model.collection.BinReading;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BinReadingRepositoryCustom {
+
+    /**
+     * Inserts all readings with one unordered bulk write: a bad document
+     * does not stop the others.
+     *
+     * @return write errors keyed by the index of the failed reading (empty when all succeeded)
+     */
+    Map<Integer, String> insertUnordered(List<BinReading> readings);
+}
@@ -0,0 +1,37 @@
+package com.wastemanagement.backend.repository.collection;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.wastemanagement.backend.model.collection.BinReading;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class BinReadingRepositoryCustomImpl implements BinReadingRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<BinReading> readings) {
+        if (readings.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BinReading.class)
+                    .insert(readings)
+                    .execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<Integer, String> errors = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getMessage());
+            }
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.wastemanagement.backend.repository.collection;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.wastemanagement.backend.model.collection.BinReading;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Time-series storage for binReadings (ts = timeField, binId = metaField).
+ * - ensureCollection(): creates the collection as time-series when missing
+ * - migrate(): moves an existing regular collection into a time-series one,
+ *   copying in _id order and batch by batch, resumable after an interruption
+ *   without duplicating the batch that was in flight
+ * Deleting single readings from a time-series collection needs MongoDB 7.0+.
+ */
+@Component
+@Slf4j
+public class BinReadingTimeSeriesStorage {
+
+    // command line option that runs migrate() at startup
+    public static final String MIGRATE_OPTION = "migrate-bin-readings-to-timeseries";
+
+    static final String LEGACY_SUFFIX = "_legacy";
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+    private static final String MIGRATION_ID = "binReadings-timeseries";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${bin-readings.timeseries.granularity:MINUTES}")
+    private String granularity;
+
+    // 0 = keep readings forever
+    @Value("${bin-readings.timeseries.expire-after-days:0}")
+    private long expireAfterDays;
+
+    @Value("${bin-readings.timeseries.migration-batch-size:5000}")
+    private int migrationBatchSize;
+
+    public BinReadingTimeSeriesStorage(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void ensureCollection() {
+        String name = collectionName();
+        Document info = collectionInfo(name);
+        if (info == null) {
+            createTimeSeriesCollection(name);
+            return;
+        }
+        if (isTimeSeries(info)) {
+            return;
+        }
+        if (mongoTemplate.getCollection(name).estimatedDocumentCount() == 0) {
+            // created empty as a regular collection by index auto-creation
+            mongoTemplate.dropCollection(name);
+            createTimeSeriesCollection(name);
+            return;
+        }
+        log.warn("{} is a regular collection with data; start once with --{} to move it to time-series storage",
+                name, MIGRATE_OPTION);
+    }
+
+    /**
+     * Renames the regular collection to binReadings_legacy, creates the
+     * time-series collection and copies the legacy documents across.
+     * The legacy collection is kept; drop it once the copy is verified.
+     */
+    public long migrate() {
+        String name = collectionName();
+        String legacyName = name + LEGACY_SUFFIX;
+
+        Document info = collectionInfo(name);
+        if (info != null && !isTimeSeries(info)) {
+            if (collectionInfo(legacyName) != null) {
+                throw new IllegalStateException(legacyName + " already exists, cannot rename " + name);
+            }
+            mongoTemplate.getCollection(name)
+                    .renameCollection(new MongoNamespace(mongoTemplate.getDb().getName(), legacyName));
+            log.info("Renamed {} to {}", name, legacyName);
+            info = null;
+        }
+        if (info == null) {
+            createTimeSeriesCollection(name);
+        }
+        if (collectionInfo(legacyName) == null) {
+            log.info("No {} collection, nothing to migrate", legacyName);
+            return 0;
+        }
+
+        MongoCollection<Document> source = mongoTemplate.getCollection(legacyName);
+        MongoCollection<Document> target = mongoTemplate.getCollection(name);
+        Document progress = mongoTemplate.getCollection(MIGRATIONS_COLLECTION)
+                .find(new Document("_id", MIGRATION_ID)).first();
+        Object lastId = progress == null ? null : progress.get("lastId");
+        long copied = progress == null ? 0 : progress.get("copied", Number.class).longValue();
+        int batchSize = Math.max(1, migrationBatchSize);
+        boolean firstBatch = true;
+
+        while (true) {
+            Document filter = lastId == null ? new Document() : new Document("_id", new Document("$gt", lastId));
+            List<Document> batch = source.find(filter)
+                    .sort(new Document("_id", 1))
+                    .limit(batchSize)
+                    .into(new ArrayList<>(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Object batchLastId = batch.get(batch.size() - 1).get("_id");
+            int read = batch.size();
+            if (firstBatch) {
+                // a crash between an insert and its progress update leaves that batch partly copied,
+                // and time-series _ids are not unique: skip what the target already holds
+                batch = withoutCopied(target, batch);
+                firstBatch = false;
+            }
+            if (!batch.isEmpty()) {
+                target.insertMany(batch, new InsertManyOptions().ordered(false));
+            }
+            lastId = batchLastId;
+            copied += read;
+            saveProgress(lastId, copied);
+            log.info("Copied {} readings to time-series {}", copied, name);
+        }
+        log.info("Migration of {} done, {} readings; {} kept until dropped manually", name, copied, legacyName);
+        return copied;
+    }
+
+    // one lookup by _id, unindexed on a time-series collection, so only done for the first batch
+    private static List<Document> withoutCopied(MongoCollection<Document> target, List<Document> batch) {
+        List<Object> ids = batch.stream().map(d -> d.get("_id")).toList();
+        Set<Object> present = new HashSet<>();
+        for (Document copied : target.find(new Document("_id", new Document("$in", ids)))
+                .projection(new Document("_id", 1))
+                .into(new ArrayList<>())) {
+            present.add(copied.get("_id"));
+        }
+        if (present.isEmpty()) {
+            return batch;
+        }
+        log.info("Skipping {} readings already copied before the interruption", present.size());
+        return batch.stream().filter(d -> !present.contains(d.get("_id"))).toList();
+    }
+
+    private void createTimeSeriesCollection(String name) {
+        Granularity granularityValue = Granularity.valueOf(granularity.toUpperCase());
+        mongoTemplate.createCollection(name, CollectionOptions.timeSeries("ts", options -> {
+            options = options.metaField("binId").granularity(granularityValue);
+            return expireAfterDays > 0 ? options.expireAfter(Duration.ofDays(expireAfterDays)) : options;
+        }));
+        // secondary index on meta + time fields, same as the regular collection
+        mongoTemplate.indexOps(name).createIndex(new Index()
+                .on("binId", Sort.Direction.ASC)
+                .on("ts", Sort.Direction.DESC)
+                .named("bin_ts_desc_idx"));
+        log.info("Created time-series collection {} (granularity={}, expireAfterDays={})",
+                name, granularityValue, expireAfterDays);
+    }
+
+    private void saveProgress(Object lastId, long copied) {
+        mongoTemplate.getCollection(MIGRATIONS_COLLECTION).replaceOne(
+                new Document("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID)
+                        .append("lastId", lastId)
+                        .append("copied", copied)
+                        .append("updatedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+    }
+
+    private String collectionName() {
+        return mongoTemplate.getCollectionName(BinReading.class);
+    }
+
+    private Document collectionInfo(String name) {
+        return mongoTemplate.getDb().listCollections().filter(new Document("name", name)).first();
+    }
+
+    private static boolean isTimeSeries(Document info) {
+        return "timeseries".equals(info.getString("type"));
+    }
+}
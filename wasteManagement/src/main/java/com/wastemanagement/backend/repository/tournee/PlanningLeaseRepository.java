@@ -0,0 +1,14 @@
+package com.wastemanagement.backend.repository.tournee;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningLease;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public interface PlanningLeaseRepository extends MongoRepository<PlanningLease, String>, PlanningLeaseRepositoryCustom {
+
+    // Fencing check: the lease is still ours, under the same token, and not expired
+    boolean existsByIdAndHolderAndTokenAndExpiresAtAfter(String id, String holder, long token, Date now);
+}
@@ -0,0 +1,32 @@
+package com.wastemanagement.backend.repository.tournee;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningLease;
+
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Atomic lease transitions, each a single findAndModify on the lease document.
+ */
+public interface PlanningLeaseRepositoryCustom {
+
+    /**
+     * Extends the lease if the holder still owns it under the same token.
+     *
+     * @return the renewed lease, empty when it was taken over meanwhile
+     */
+    Optional<PlanningLease> renew(String id, String holder, long token, Date now, Date expiresAt);
+
+    /**
+     * Takes the lease if it is expired (or does not exist yet), bumping the fencing token.
+     *
+     * @return the acquired lease, empty when another node holds a live one
+     */
+    Optional<PlanningLease> acquire(String id, String holder, Date now, Date expiresAt);
+
+    /**
+     * Expires the lease right away if the holder still owns it, so another node can take over
+     * without waiting for the TTL.
+     */
+    void release(String id, String holder, long token, Date now);
+}
@@ -0,0 +1,63 @@
+package com.wastemanagement.backend.repository.tournee;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningLease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class PlanningLeaseRepositoryCustomImpl implements PlanningLeaseRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<PlanningLease> renew(String id, String holder, long token, Date now, Date expiresAt) {
+        Query owned = Query.query(Criteria.where("_id").is(id)
+                .and("holder").is(holder)
+                .and("token").is(token));
+        Update update = new Update()
+                .set("renewedAt", now)
+                .set("expiresAt", expiresAt);
+        return Optional.ofNullable(mongoTemplate.findAndModify(owned, update,
+                FindAndModifyOptions.options().returnNew(true), PlanningLease.class));
+    }
+
+    @Override
+    public Optional<PlanningLease> acquire(String id, String holder, Date now, Date expiresAt) {
+        Query expired = Query.query(Criteria.where("_id").is(id).and("expiresAt").lte(now));
+        Update update = new Update()
+                .set("holder", holder)
+                .set("acquiredAt", now)
+                .set("renewedAt", now)
+                .set("expiresAt", expiresAt)
+                .inc("token", 1);
+        PlanningLease taken = mongoTemplate.findAndModify(expired, update,
+                FindAndModifyOptions.options().returnNew(true), PlanningLease.class);
+        if (taken != null) {
+            return Optional.of(taken);
+        }
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(id)), PlanningLease.class)) {
+            return Optional.empty(); // held by a live node
+        }
+        try {
+            return Optional.of(mongoTemplate.insert(new PlanningLease(id, holder, 1, now, now, expiresAt)));
+        } catch (DuplicateKeyException e) {
+            return Optional.empty(); // another node created it first
+        }
+    }
+
+    @Override
+    public void release(String id, String holder, long token, Date now) {
+        Query owned = Query.query(Criteria.where("_id").is(id)
+                .and("holder").is(holder)
+                .and("token").is(token));
+        mongoTemplate.updateFirst(owned, new Update().set("expiresAt", now), PlanningLease.class);
+    }
+}
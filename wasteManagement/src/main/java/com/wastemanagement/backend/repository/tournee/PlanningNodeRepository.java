@@ -0,0 +1,14 @@
+package com.wastemanagement.backend.repository.tournee;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningNode;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface PlanningNodeRepository extends MongoRepository<PlanningNode, String> {
+
+    List<PlanningNode> findByExpiresAtAfter(Date now);
+}
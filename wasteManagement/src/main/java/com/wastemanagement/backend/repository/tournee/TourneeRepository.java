@@ -15,5 +15,6 @@ public interface TourneeRepository extends MongoRepository<Tournee, String> {
     List<Tournee> findByTourneeTypeAndStatus(TrashType type, TourneeStatus status);
     List<Tournee> findByStatusAndIdIn(TourneeStatus status, Collection<String> ids);
     List<Tournee> findByStatus(TourneeStatus status);
+    List<Tournee> findByStatusIn(Collection<TourneeStatus> statuses);
     List<Tournee> findByStatusAndFinishedAtBetween(TourneeStatus status, Instant from, Instant to);
 }
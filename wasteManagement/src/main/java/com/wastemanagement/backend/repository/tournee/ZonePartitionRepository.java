@@ -0,0 +1,15 @@
+package com.wastemanagement.backend.repository.tournee;
+
+import com.wastemanagement.backend.model.tournee.auto.ZonePartition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface ZonePartitionRepository extends MongoRepository<ZonePartition, String> {
+
+    // latest partition of the same cycle, if one was computed recently enough to be shared
+    Optional<ZonePartition> findFirstByKeyAndCreatedAtAfterOrderByCreatedAtDesc(String key, Date since);
+}
@@ -0,0 +1,198 @@
+package com.wastemanagement.backend.service.alert;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates alert rules off the ingestion path.
+ * - readings are offered to a bounded queue; when it is full they are dropped
+ *   (counted), never blocking the HTTP thread
+ * - one queue per worker, partitioned by binId, so a bin's readings are
+ *   evaluated in order
+ * - each worker drains up to batch-size readings, runs them through the
+ *   per-bin state machines of AlertStateTracker and writes the resulting
+ *   alerts with a single insertMany
+ * Metrics: alerts.pipeline.queue.depth, .dropped, .lag, .alerts.created,
+ * .alerts.cleared, .write.failures
+ */
+@Component
+@Slf4j
+public class AlertEvaluationPipeline {
+
+    private static final long POLL_MILLIS = 500;
+
+    private final AlertService alertService;
+    private final AlertStateTracker alertStateTracker;
+    private final int batchSize;
+    private final List<BlockingQueue<PendingReading>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Counter dropped;
+    private final Counter alertsCreated;
+    private final Counter alertsCleared;
+    private final Counter writeFailures;
+    private final Timer lag;
+
+    public AlertEvaluationPipeline(AlertService alertService,
+                                   AlertStateTracker alertStateTracker,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${alerts.pipeline.workers:2}") int workerCount,
+                                   @Value("${alerts.pipeline.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${alerts.pipeline.batch-size:500}") int batchSize) {
+        this.alertService = alertService;
+        this.alertStateTracker = alertStateTracker;
+        this.batchSize = Math.max(1, batchSize);
+        int workersCount = Math.max(1, workerCount);
+        int capacityPerWorker = Math.max(1, queueCapacity / workersCount);
+        for (int i = 0; i < workersCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(capacityPerWorker));
+        }
+
+        Gauge.builder("alerts.pipeline.queue.depth", this, AlertEvaluationPipeline::queueDepth)
+                .description("Readings waiting for alert evaluation")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("alerts.pipeline.dropped")
+                .description("Readings not evaluated because the queue was full")
+                .register(meterRegistry);
+        this.alertsCreated = Counter.builder("alerts.pipeline.alerts.created")
+                .register(meterRegistry);
+        this.alertsCleared = Counter.builder("alerts.pipeline.alerts.cleared")
+                .register(meterRegistry);
+        this.writeFailures = Counter.builder("alerts.pipeline.write.failures")
+                .register(meterRegistry);
+        this.lag = Timer.builder("alerts.pipeline.lag")
+                .description("Time from ingestion to alerts being written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < queues.size(); i++) {
+            BlockingQueue<PendingReading> queue = queues.get(i);
+            Thread worker = new Thread(() -> drain(queue), "alert-eval-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Stops accepting work; workers finish what is already queued.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    /**
+     * Queues a persisted reading for evaluation; returns false when it was dropped.
+     */
+    public boolean submit(BinReading reading) {
+        if (reading == null || reading.getBinId() == null) {
+            return false;
+        }
+        BlockingQueue<PendingReading> queue = queues.get(Math.floorMod(reading.getBinId().hashCode(), queues.size()));
+        if (queue.offer(new PendingReading(reading, System.nanoTime()))) {
+            return true;
+        }
+        dropped.increment();
+        log.debug("Alert queue full, reading {} of bin {} not evaluated", reading.getId(), reading.getBinId());
+        return false;
+    }
+
+    public void submitAll(Collection<BinReading> readings) {
+        for (BinReading reading : readings) {
+            submit(reading);
+        }
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (BlockingQueue<PendingReading> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    private void drain(BlockingQueue<PendingReading> queue) {
+        List<PendingReading> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReading first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Alert evaluation failed for {} readings", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<PendingReading> batch) {
+        AlertTransitions transitions = new AlertTransitions();
+        for (PendingReading pending : batch) {
+            alertStateTracker.apply(pending.reading(), transitions);
+        }
+        List<AlertRequestDTO> raised = transitions.getRaised();
+        try {
+            // clears first: alerts raised in this batch are not persisted yet
+            for (Map.Entry<String, Set<AlertType>> entry : transitions.getCleared().entrySet()) {
+                alertsCleared.increment(alertService.clearAlerts(entry.getKey(), entry.getValue()));
+            }
+            if (!raised.isEmpty()) {
+                alertsCreated.increment(alertService.createAlerts(raised));
+            }
+        } catch (Exception e) {
+            // the next reading of each bin raises or clears these again
+            alertStateTracker.rollback(transitions);
+            writeFailures.increment();
+            log.error("Error writing alert transitions for {} readings", batch.size(), e);
+        }
+        long now = System.nanoTime();
+        for (PendingReading pending : batch) {
+            lag.record(now - pending.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private record PendingReading(BinReading reading, long enqueuedAtNanos) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.wastemanagement.backend.service.alert;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinReading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Threshold rules applied to every sensor reading.
+ * Rules:
+ * - If fillPct >= 95 → LEVEL_CRITICAL
+ * - Else if fillPct >= 80 → LEVEL_HIGH
+ * - If batteryPct <= 20 → BATTERY_LOW
+ * - If temperatureC > 60 → SENSOR_ANOMALY
+ */
+public final class AlertRules {
+
+    public static final double FILL_HIGH_PCT = 80;
+    public static final double FILL_CRITICAL_PCT = 95;
+    public static final int BATTERY_LOW_PCT = 20;
+    public static final double TEMPERATURE_ANOMALY_C = 60;
+
+    private AlertRules() {
+    }
+
+    public static List<AlertRequestDTO> evaluate(BinReading reading) {
+        return evaluate(reading, new ArrayList<>());
+    }
+
+    /**
+     * Appends the alerts triggered by one reading to {@code sink}.
+     */
+    public static List<AlertRequestDTO> evaluate(BinReading reading, List<AlertRequestDTO> sink) {
+        // Evaluate fill level alerts
+        if (reading.getFillPct() >= FILL_CRITICAL_PCT) {
+            sink.add(toAlert(reading, AlertType.LEVEL_CRITICAL, reading.getFillPct()));
+        } else if (reading.getFillPct() >= FILL_HIGH_PCT) {
+            sink.add(toAlert(reading, AlertType.LEVEL_HIGH, reading.getFillPct()));
+        }
+
+        // Evaluate battery level alerts
+        if (reading.getBatteryPct() <= BATTERY_LOW_PCT) {
+            sink.add(toAlert(reading, AlertType.BATTERY_LOW, reading.getBatteryPct()));
+        }
+
+        // Evaluate temperature anomalies
+        if (reading.getTemperatureC() > TEMPERATURE_ANOMALY_C) {
+            sink.add(toAlert(reading, AlertType.SENSOR_ANOMALY, reading.getTemperatureC()));
+        }
+        return sink;
+    }
+
+    static AlertRequestDTO toAlert(BinReading reading, AlertType alertType, double value) {
+        AlertRequestDTO alertDTO = new AlertRequestDTO();
+        alertDTO.setBinId(reading.getBinId());
+        alertDTO.setTs(reading.getTs());
+        alertDTO.setType(alertType);
+        alertDTO.setValue(value);
+        alertDTO.setCleared(false);
+        return alertDTO;
+    }
+}
@@ -2,11 +2,15 @@ package com.wastemanagement.backend.service.alert;
 
 import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
 import com.wastemanagement.backend.dto.alert.AlertResponseDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AlertService {
     AlertResponseDTO createAlert(AlertRequestDTO dto);
+    int createAlerts(List<AlertRequestDTO> dtos);
+    long clearAlerts(String binId, Collection<AlertType> types);
     List<AlertResponseDTO> getAllAlerts();
     AlertResponseDTO getAlertById(String id);
     AlertResponseDTO updateAlert(String id, AlertRequestDTO dto);
@@ -8,6 +8,7 @@ import com.wastemanagement.backend.model.collection.AlertType;
 import com.wastemanagement.backend.repository.AlertRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,31 @@ public class AlertServiceImpl implements AlertService {
         return alertMapper.toResponseDTO(alertRepository.save(alert));
     }
 
+    /**
+     * Persists many alerts with a single insertMany.
+     */
+    @Override
+    public int createAlerts(List<AlertRequestDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            return 0;
+        }
+        List<Alert> alerts = dtos.stream()
+                .map(alertMapper::toEntity)
+                .collect(Collectors.toList());
+        return alertRepository.insert(alerts).size();
+    }
+
+    /**
+     * Clears the open alerts of the given types for one bin.
+     */
+    @Override
+    public long clearAlerts(String binId, Collection<AlertType> types) {
+        if (binId == null || types == null || types.isEmpty()) {
+            return 0;
+        }
+        return alertRepository.clearOpenAlerts(binId, types);
+    }
+
     @Override
     public List<AlertResponseDTO> getAllAlerts() {
         return alertRepository.findAll()
@@ -0,0 +1,257 @@
+package com.wastemanagement.backend.service.alert;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinAlertState;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.BinAlertStateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.wastemanagement.backend.service.alert.AlertRules.*;
+
+/**
+ * Per-bin alert state machines, so a bin sitting above a threshold produces
+ * one alert instead of one per reading.
+ * - fill: OK → LEVEL_HIGH → LEVEL_CRITICAL, one open alert for the current level
+ * - battery low and sensor anomaly: on / off
+ * Raising is immediate; clearing waits until the value is back past the
+ * threshold by a hysteresis band. An alert type cleared and raised again
+ * within the quiet period changes state right away, but its document is
+ * held back and written by the first reading after the quiet period, if
+ * the state is still active then.
+ * States live in memory and are checkpointed to binAlertStates.
+ * A batch whose alert writes fail is rolled back, so the next reading of
+ * the bin computes the same transitions again instead of losing them.
+ * Each state is mutated and copied under its own lock; checkpoints save
+ * the copies.
+ */
+@Component
+@Slf4j
+public class AlertStateTracker {
+
+    private final BinAlertStateRepository repository;
+    private final double fillBandPct;
+    private final double batteryBandPct;
+    private final double temperatureBandC;
+    private final long quietPeriodMillis;
+
+    private final Map<String, BinAlertState> states = new ConcurrentHashMap<>();
+    private final Set<String> dirtyBinIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public AlertStateTracker(BinAlertStateRepository repository,
+                             @Value("${alerts.hysteresis.fill-pct:5}") double fillBandPct,
+                             @Value("${alerts.hysteresis.battery-pct:5}") double batteryBandPct,
+                             @Value("${alerts.hysteresis.temperature-c:5}") double temperatureBandC,
+                             @Value("${alerts.quiet-period-minutes:30}") long quietPeriodMinutes) {
+        this.repository = repository;
+        this.fillBandPct = fillBandPct;
+        this.batteryBandPct = batteryBandPct;
+        this.temperatureBandC = temperatureBandC;
+        this.quietPeriodMillis = quietPeriodMinutes * 60_000L;
+    }
+
+    /**
+     * Applies one reading to its bin's state and records the resulting
+     * transitions. Readings of one bin must be applied by a single thread,
+     * which also commits or rolls back the transitions.
+     */
+    public void apply(BinReading reading, AlertTransitions transitions) {
+        if (reading == null || reading.getBinId() == null) {
+            return;
+        }
+        String binId = reading.getBinId();
+        BinAlertState state = state(binId);
+        Date ts = reading.getTs() != null ? reading.getTs() : new Date();
+        synchronized (state) {
+            apply(state, reading, ts, transitions);
+        }
+    }
+
+    private void apply(BinAlertState state, BinReading reading, Date ts, AlertTransitions transitions) {
+        if (state.getLastReadingTs() != null && ts.before(state.getLastReadingTs())) {
+            // late reading from a backfill: the state already reflects newer data
+            return;
+        }
+        transitions.remember(state);
+        state.setLastReadingTs(ts);
+        boolean changed = false;
+
+        AlertType fill = nextFillState(state.getFillState(), reading.getFillPct());
+        if (fill != state.getFillState()) {
+            if (state.getFillState() != null) {
+                clear(state, state.getFillState(), transitions);
+            }
+            if (fill != null) {
+                raise(state, reading, fill, reading.getFillPct(), ts, transitions);
+            }
+            state.setFillState(fill);
+            changed = true;
+        }
+
+        boolean batteryLow = reading.getBatteryPct()
+                <= BATTERY_LOW_PCT + (state.isBatteryLow() ? batteryBandPct : 0);
+        if (batteryLow != state.isBatteryLow()) {
+            if (batteryLow) {
+                raise(state, reading, AlertType.BATTERY_LOW, reading.getBatteryPct(), ts, transitions);
+            } else {
+                clear(state, AlertType.BATTERY_LOW, transitions);
+            }
+            state.setBatteryLow(batteryLow);
+            changed = true;
+        }
+
+        boolean anomaly = reading.getTemperatureC()
+                > TEMPERATURE_ANOMALY_C - (state.isSensorAnomaly() ? temperatureBandC : 0);
+        if (anomaly != state.isSensorAnomaly()) {
+            if (anomaly) {
+                raise(state, reading, AlertType.SENSOR_ANOMALY, reading.getTemperatureC(), ts, transitions);
+            } else {
+                clear(state, AlertType.SENSOR_ANOMALY, transitions);
+            }
+            state.setSensorAnomaly(anomaly);
+            changed = true;
+        }
+
+        // alerts held back by the quiet period, for states still active
+        for (AlertType pending : List.copyOf(state.getPendingRaises())) {
+            if (!isQuiet(state, pending, ts)) {
+                raise(state, reading, pending, value(reading, pending), ts, transitions);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            dirtyBinIds.add(state.getId());
+        }
+    }
+
+    /**
+     * Puts the states of the bins of a batch back to where they were before
+     * it, when its alert writes failed. Clears that did get written are
+     * computed again by the next reading; clearing is idempotent.
+     */
+    public void rollback(AlertTransitions transitions) {
+        for (BinAlertState before : transitions.getBefore().values()) {
+            states.put(before.getId(), before);
+            // the failed batch may have been checkpointed already
+            dirtyBinIds.add(before.getId());
+        }
+    }
+
+    public BinAlertState getState(String binId) {
+        ensureLoaded();
+        return states.get(binId);
+    }
+
+    /**
+     * Escalation is immediate; de-escalation waits until the fill level is
+     * a band below the threshold of the current level.
+     */
+    AlertType nextFillState(AlertType current, double fillPct) {
+        if (fillPct >= FILL_CRITICAL_PCT
+                || (current == AlertType.LEVEL_CRITICAL && fillPct >= FILL_CRITICAL_PCT - fillBandPct)) {
+            return AlertType.LEVEL_CRITICAL;
+        }
+        if (fillPct >= FILL_HIGH_PCT || (current != null && fillPct >= FILL_HIGH_PCT - fillBandPct)) {
+            return AlertType.LEVEL_HIGH;
+        }
+        return null;
+    }
+
+    private void raise(BinAlertState state, BinReading reading, AlertType type, double value,
+                       Date ts, AlertTransitions transitions) {
+        if (isQuiet(state, type, ts)) {
+            log.debug("Bin {} {} re-raised within quiet period, held back", state.getId(), type);
+            state.getPendingRaises().add(type);
+            return;
+        }
+        AlertRequestDTO alert = AlertRules.toAlert(reading, type, value);
+        transitions.raise(alert);
+        state.getLastRaisedAt().put(type, ts);
+        state.getPendingRaises().remove(type);
+    }
+
+    // a held-back alert was never written, so there is nothing to clear
+    private void clear(BinAlertState state, AlertType type, AlertTransitions transitions) {
+        if (!state.getPendingRaises().remove(type)) {
+            transitions.clear(state.getId(), type);
+        }
+    }
+
+    private boolean isQuiet(BinAlertState state, AlertType type, Date ts) {
+        Date lastRaised = state.getLastRaisedAt().get(type);
+        return lastRaised != null && ts.getTime() - lastRaised.getTime() < quietPeriodMillis;
+    }
+
+    private static double value(BinReading reading, AlertType type) {
+        return switch (type) {
+            case BATTERY_LOW -> reading.getBatteryPct();
+            case SENSOR_ANOMALY -> reading.getTemperatureC();
+            default -> reading.getFillPct();
+        };
+    }
+
+    /**
+     * Writes the states changed since the last checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${alerts.state.checkpoint-ms:30000}")
+    @PreDestroy
+    public void checkpoint() {
+        if (dirtyBinIds.isEmpty()) {
+            return;
+        }
+        List<BinAlertState> changed = new ArrayList<>();
+        for (Iterator<String> it = dirtyBinIds.iterator(); it.hasNext(); ) {
+            String binId = it.next();
+            // removed before saving: a concurrent change marks the bin dirty again
+            it.remove();
+            BinAlertState state = states.get(binId);
+            if (state != null) {
+                synchronized (state) {
+                    changed.add(state.copy());
+                }
+            }
+        }
+        try {
+            repository.saveAll(changed);
+        } catch (Exception e) {
+            changed.forEach(state -> dirtyBinIds.add(state.getId()));
+            log.error("Alert state checkpoint failed for {} bins", changed.size(), e);
+        }
+    }
+
+    private BinAlertState state(String binId) {
+        ensureLoaded();
+        return states.computeIfAbsent(binId, BinAlertState::new);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            for (BinAlertState state : repository.findAll()) {
+                if (state.getLastRaisedAt() == null) {
+                    state.setLastRaisedAt(new EnumMap<>(AlertType.class));
+                }
+                if (state.getPendingRaises() == null) {
+                    state.setPendingRaises(EnumSet.noneOf(AlertType.class));
+                }
+                states.putIfAbsent(state.getId(), state);
+            }
+            loaded = true;
+            log.info("Alert states loaded, bins={}", states.size());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.wastemanagement.backend.service.alert;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinAlertState;
+
+import java.util.*;
+
+/**
+ * Alerts to raise and to clear for one batch of readings.
+ * Clears are applied before inserts, so an alert raised and cleared within
+ * the same batch is written already cleared.
+ * Also keeps each bin's state as it was before the batch, so the tracker
+ * can roll the batch back when the alert writes fail.
+ */
+public class AlertTransitions {
+
+    private final List<AlertRequestDTO> raised = new ArrayList<>();
+    private final Map<String, Set<AlertType>> cleared = new LinkedHashMap<>();
+    private final Map<String, BinAlertState> before = new LinkedHashMap<>();
+
+    void remember(BinAlertState state) {
+        before.computeIfAbsent(state.getId(), k -> state.copy());
+    }
+
+    Map<String, BinAlertState> getBefore() {
+        return before;
+    }
+
+    void raise(AlertRequestDTO alert) {
+        raised.add(alert);
+    }
+
+    void clear(String binId, AlertType type) {
+        for (AlertRequestDTO alert : raised) {
+            if (alert.getType() == type && binId.equals(alert.getBinId())) {
+                alert.setCleared(true);
+            }
+        }
+        cleared.computeIfAbsent(binId, k -> EnumSet.noneOf(AlertType.class)).add(type);
+    }
+
+    public List<AlertRequestDTO> getRaised() {
+        return raised;
+    }
+
+    public Map<String, Set<AlertType>> getCleared() {
+        return cleared;
+    }
+}
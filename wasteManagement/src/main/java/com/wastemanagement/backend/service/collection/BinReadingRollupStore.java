@@ -0,0 +1,283 @@
+package com.wastemanagement.backend.service.collection;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO.Resolution;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hourly and daily rollups of binReadings, maintained incrementally.
+ * - each run aggregates the readings whose ts falls in [watermark, now - settle margin)
+ *   and $merges them into existing buckets: min / max / last are combined, avg is
+ *   recomputed from sum and count
+ * - the window is keyed on ts, the timeField of a time-series binReadings, so the
+ *   bucket index bounds it; _id only breaks ties: readings of the window must have been
+ *   inserted before the run's id mark, and readings up to
+ *   bin-readings.rollup.late-lookback-hours older than the window but inserted since the
+ *   previous id mark (backfills) are folded in too, each reading exactly once
+ * - the end of a window is saved before merging it and each bucket records the last window
+ *   it absorbed, so a run interrupted between merges redoes the same window and buckets that
+ *   already hold it are left as they are
+ * - only the planning leader rolls up, so buckets are not counted once per node
+ * - raw readings older than bin-readings.raw-retention-days and already
+ *   rolled up are deleted
+ * Readings arriving later than the lookback are kept raw but never rolled up.
+ */
+@Component
+@Slf4j
+public class BinReadingRollupStore {
+
+    public static final String HOURLY_COLLECTION = "binReadingsHourly";
+    public static final String DAILY_COLLECTION = "binReadingsDaily";
+    private static final String STATE_COLLECTION = "binReadingsRollupState";
+    private static final String STATE_ID = "binReadings";
+    // readings younger than this (by ts and by _id) are left for the next run, so
+    // readings still in flight from other nodes are not skipped
+    private static final long SETTLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final PlanningLeaseService leaseService;
+    private volatile boolean indexesEnsured;
+
+    // 0 = keep raw readings forever
+    @Value("${bin-readings.raw-retention-days:0}")
+    private long rawRetentionDays;
+
+    @Value("${bin-readings.rollup.late-lookback-hours:24}")
+    private long lateLookbackHours;
+
+    public BinReadingRollupStore(MongoTemplate mongoTemplate, PlanningLeaseService leaseService) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseService = leaseService;
+    }
+
+    @Scheduled(fixedDelayString = "${bin-readings.rollup.interval-ms:300000}",
+            initialDelayString = "${bin-readings.rollup.initial-delay-ms:60000}")
+    public synchronized void rollUp() {
+        if (!leaseService.isLeader()) {
+            return;
+        }
+        ensureIndexes();
+        Document state = loadState();
+        Window from = state == null ? null : Window.of(state, "watermark");
+        // an interrupted window is redone as it was, never widened
+        Window to = state == null ? null : Window.of(state, "pending");
+        if (to == null) {
+            Date settled = new Date(System.currentTimeMillis() - SETTLE_MILLIS);
+            to = new Window(settled, ObjectId.getSmallestWithDate(settled));
+            if (from != null && !from.ts().before(to.ts())) {
+                return;
+            }
+            saveState(from, to);
+        }
+        Document match = match(from, to);
+        long start = System.currentTimeMillis();
+        merge(HOURLY_COLLECTION, "hour", "%Y-%m-%dT%H", match, to.idMark());
+        merge(DAILY_COLLECTION, "day", "%Y-%m-%d", match, to.idMark());
+        saveState(to, null);
+        log.debug("Reading rollups updated up to {} in {} ms", to.ts(), System.currentTimeMillis() - start);
+
+        purgeRawReadings(to);
+    }
+
+    /**
+     * Readings with ts in [from, to) inserted before to's id mark, plus readings up to the
+     * late lookback older than from inserted between the two id marks: the previous run
+     * could not see those.
+     */
+    private Document match(Window from, Window to) {
+        Document window = new Document("$lt", to.ts());
+        if (from == null) {
+            return new Document("ts", window).append("_id", new Document("$lt", to.idMark()));
+        }
+        window.append("$gte", from.ts());
+        Date lookback = new Date(from.ts().getTime() - TimeUnit.HOURS.toMillis(lateLookbackHours));
+        return new Document("$or", List.of(
+                new Document("ts", window).append("_id", new Document("$lt", to.idMark())),
+                new Document("ts", new Document("$gte", lookback).append("$lt", from.ts()))
+                        .append("_id", new Document("$gte", from.idMark()).append("$lt", to.idMark()))));
+    }
+
+    public List<BinReadingRollup> find(Resolution resolution, String binId, Date from, Date to) {
+        String collection = resolution == Resolution.DAILY ? DAILY_COLLECTION : HOURLY_COLLECTION;
+        Query query = new Query(Criteria.where("binId").is(binId).and("bucketStart").gte(from).lte(to))
+                .with(Sort.by("bucketStart"));
+        return mongoTemplate.find(query, BinReadingRollup.class, collection);
+    }
+
+    /**
+     * Buckets of every bin since {@code since}, oldest first.
+     */
+    public List<BinReadingRollup> findSince(Resolution resolution, Date since) {
+        String collection = resolution == Resolution.DAILY ? DAILY_COLLECTION : HOURLY_COLLECTION;
+        Query query = new Query(Criteria.where("bucketStart").gte(since)).with(Sort.by("bucketStart"));
+        return mongoTemplate.find(query, BinReadingRollup.class, collection);
+    }
+
+    /**
+     * Oldest ts still available as raw readings, or null when nothing is purged.
+     */
+    public Date rawRetentionCutoff() {
+        if (rawRetentionDays <= 0) {
+            return null;
+        }
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(rawRetentionDays));
+    }
+
+    private void merge(String into, String unit, String bucketFormat, Document window, ObjectId to) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document(window)
+                        .append("binId", new Document("$ne", null))),
+                new Document("$group", new Document("_id", new Document("binId", "$binId")
+                        .append("bucket", new Document("$dateTrunc",
+                                new Document("date", "$ts").append("unit", unit))))
+                        .append("minFillPct", new Document("$min", "$fillPct"))
+                        .append("maxFillPct", new Document("$max", "$fillPct"))
+                        .append("sumFillPct", new Document("$sum", "$fillPct"))
+                        .append("count", new Document("$sum", 1))
+                        // documents compare field by field: the max is the one with the latest ts
+                        .append("last", new Document("$max",
+                                new Document("ts", "$ts").append("fillPct", "$fillPct")))
+                        .append("minBatteryPct", new Document("$min", "$batteryPct"))
+                        .append("maxTemperatureC", new Document("$max", "$temperatureC"))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of(
+                        "$_id.binId", "|",
+                        new Document("$dateToString",
+                                new Document("date", "$_id.bucket").append("format", bucketFormat)))))
+                        .append("binId", "$_id.binId")
+                        .append("bucketStart", "$_id.bucket")
+                        .append("minFillPct", 1)
+                        .append("maxFillPct", 1)
+                        .append("sumFillPct", 1)
+                        .append("count", 1)
+                        .append("avgFillPct", new Document("$divide", List.of("$sumFillPct", "$count")))
+                        .append("lastFillPct", "$last.fillPct")
+                        .append("lastTs", "$last.ts")
+                        .append("minBatteryPct", 1)
+                        .append("maxTemperatureC", 1)
+                        .append("windowTo", new Document("$literal", to))),
+                new Document("$merge", new Document("into", into)
+                        .append("on", "_id")
+                        .append("whenMatched", List.of(new Document("$set", mergeExistingBucket())))
+                        .append("whenNotMatched", "insert"))
+        );
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(BinReading.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .toCollection();
+    }
+
+    // $set of the $merge whenMatched pipeline: existing fields vs $$new, unless the bucket
+    // already absorbed this window
+    private static Document mergeExistingBucket() {
+        return new Document()
+                .append("minFillPct", unlessMerged("minFillPct",
+                        new Document("$min", List.of("$minFillPct", "$$new.minFillPct"))))
+                .append("maxFillPct", unlessMerged("maxFillPct",
+                        new Document("$max", List.of("$maxFillPct", "$$new.maxFillPct"))))
+                .append("sumFillPct", unlessMerged("sumFillPct",
+                        new Document("$add", List.of("$sumFillPct", "$$new.sumFillPct"))))
+                .append("count", unlessMerged("count",
+                        new Document("$add", List.of("$count", "$$new.count"))))
+                .append("avgFillPct", unlessMerged("avgFillPct", new Document("$divide", List.of(
+                        new Document("$add", List.of("$sumFillPct", "$$new.sumFillPct")),
+                        new Document("$add", List.of("$count", "$$new.count"))))))
+                .append("lastFillPct", unlessMerged("lastFillPct", new Document("$cond", List.of(
+                        new Document("$gte", List.of("$$new.lastTs", "$lastTs")),
+                        "$$new.lastFillPct", "$lastFillPct"))))
+                .append("lastTs", unlessMerged("lastTs",
+                        new Document("$max", List.of("$lastTs", "$$new.lastTs"))))
+                .append("minBatteryPct", unlessMerged("minBatteryPct",
+                        new Document("$min", List.of("$minBatteryPct", "$$new.minBatteryPct"))))
+                .append("maxTemperatureC", unlessMerged("maxTemperatureC",
+                        new Document("$max", List.of("$maxTemperatureC", "$$new.maxTemperatureC"))))
+                .append("windowTo", "$$new.windowTo");
+    }
+
+    private static Document unlessMerged(String field, Document merged) {
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of("$windowTo", "$$new.windowTo")), "$" + field, merged));
+    }
+
+    private void purgeRawReadings(Window rolledUpBefore) {
+        Date cutoff = rawRetentionCutoff();
+        if (cutoff == null) {
+            return;
+        }
+        if (rolledUpBefore.ts().before(cutoff)) {
+            cutoff = rolledUpBefore.ts();
+        }
+        // only readings already folded into the rollups
+        long deleted = mongoTemplate.getCollection(mongoTemplate.getCollectionName(BinReading.class))
+                .deleteMany(new Document("ts", new Document("$lt", cutoff))
+                        .append("_id", new Document("$lt", rolledUpBefore.idMark())))
+                .getDeletedCount();
+        if (deleted > 0) {
+            log.info("Purged {} raw readings older than {}", deleted, cutoff);
+        }
+    }
+
+    private Document loadState() {
+        return mongoTemplate.getCollection(STATE_COLLECTION).find(new Document("_id", STATE_ID)).first();
+    }
+
+    // watermark: readings below it are rolled up; pending: end of the window being merged
+    private void saveState(Window watermark, Window pending) {
+        mongoTemplate.getCollection(STATE_COLLECTION).replaceOne(
+                new Document("_id", STATE_ID),
+                new Document("_id", STATE_ID)
+                        .append("watermark", watermark == null ? null : watermark.toDocument())
+                        .append("pending", pending == null ? null : pending.toDocument())
+                        .append("updatedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+    }
+
+    // end of a window: ts bound, and the _id below which its readings were inserted
+    private record Window(Date ts, ObjectId idMark) {
+
+        static Window of(Document state, String field) {
+            Object value = state.get(field);
+            if (value instanceof ObjectId id) {
+                // saved before windows were keyed on ts
+                return new Window(id.getDate(), id);
+            }
+            if (value instanceof Document window) {
+                return new Window(window.getDate("ts"), window.getObjectId("idMark"));
+            }
+            return null;
+        }
+
+        Document toDocument() {
+            return new Document("ts", ts).append("idMark", idMark);
+        }
+    }
+
+    private void ensureIndexes() {
+        if (indexesEnsured) {
+            return;
+        }
+        for (String collection : List.of(HOURLY_COLLECTION, DAILY_COLLECTION)) {
+            mongoTemplate.indexOps(collection).createIndex(new Index()
+                    .on("binId", Sort.Direction.ASC)
+                    .on("bucketStart", Sort.Direction.ASC)
+                    .named("bin_bucket_idx"));
+        }
+        indexesEnsured = true;
+    }
+}
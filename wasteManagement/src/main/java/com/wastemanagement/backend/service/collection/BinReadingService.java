@@ -1,13 +1,29 @@
 package com.wastemanagement.backend.service.collection;
 
+import com.wastemanagement.backend.dto.collection.BinFillForecastDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingStreamResponseDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 public interface BinReadingService {
     BinReadingResponseDTO create(BinReadingRequestDTO dto);
+    BinReadingBatchResponseDTO createBatch(List<BinReadingRequestDTO> dtos);
+    BinReadingStreamResponseDTO ingestStream(Reader body) throws IOException;
     List<BinReadingResponseDTO> getAll();
     BinReadingResponseDTO getById(String id);
     void delete(String id);
     BinReadingResponseDTO findTopByBinIdOrderByTsDesc(String binId);
+    List<BinReadingResponseDTO> getLatestForBins(Collection<String> binIds);
+    List<BinReadingResponseDTO> getLatestForCollectionPoint(String collectionPointId);
+    BinReadingHistoryDTO getHistory(String binId, Date from, Date to);
+    BinReadingHistoryDTO getDownsampledHistory(String binId, Date from, Date to, int maxPoints);
+    BinFillForecastDTO getForecast(String binId, double thresholdPct);
 }
@@ -1,40 +1,265 @@
 package com.wastemanagement.backend.service.collection;
 
-import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.wastemanagement.backend.dto.collection.BinFillForecastDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchItemDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryPointDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingStreamResponseDTO;
 import com.wastemanagement.backend.mapper.collection.BinReadingMapper;
-import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.Bin;
 import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
 import com.wastemanagement.backend.repository.collection.BinReadingRepository;
-import com.wastemanagement.backend.service.alert.AlertService;
+import com.wastemanagement.backend.service.alert.AlertEvaluationPipeline;
+import com.wastemanagement.backend.service.alert.AlertRules;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BinReadingServiceImpl implements BinReadingService {
 
     private final BinReadingRepository repository;
-    private final AlertService alertService;
+    private final AlertEvaluationPipeline alertEvaluationPipeline;
+    private final LatestReadingStore latestReadingStore;
+    private final CollectionPointRepository collectionPointRepository;
+    private final BinReadingRollupStore rollupStore;
+    private final FillRateForecaster fillRateForecaster;
+    private final BinSnapshotService binSnapshotService;
 
-    public BinReadingServiceImpl(BinReadingRepository repository, AlertService alertService) {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Value("${bin-readings.stream.chunk-size:1000}")
+    private int streamChunkSize;
+
+    // History ranges up to this many days are served from raw readings
+    @Value("${bin-readings.history.raw-max-days:2}")
+    private int historyRawMaxDays;
+
+    // ... up to this many days from hourly rollups, beyond from daily rollups
+    @Value("${bin-readings.history.hourly-max-days:31}")
+    private int historyHourlyMaxDays;
+
+    public BinReadingServiceImpl(BinReadingRepository repository,
+                                 AlertEvaluationPipeline alertEvaluationPipeline,
+                                 LatestReadingStore latestReadingStore,
+                                 CollectionPointRepository collectionPointRepository,
+                                 BinReadingRollupStore rollupStore,
+                                 FillRateForecaster fillRateForecaster,
+                                 BinSnapshotService binSnapshotService) {
         this.repository = repository;
-        this.alertService = alertService;
+        this.alertEvaluationPipeline = alertEvaluationPipeline;
+        this.latestReadingStore = latestReadingStore;
+        this.collectionPointRepository = collectionPointRepository;
+        this.rollupStore = rollupStore;
+        this.fillRateForecaster = fillRateForecaster;
+        this.binSnapshotService = binSnapshotService;
     }
 
     @Override
     public BinReadingResponseDTO create(BinReadingRequestDTO dto) {
         BinReading entity = BinReadingMapper.toEntity(dto);
         BinReading savedReading = repository.save(entity);
-        
-        // Evaluate alerts after saving the reading
-        evaluateAlerts(savedReading);
-        
+        onStored(savedReading);
+
         return BinReadingMapper.toResponseDTO(savedReading);
     }
 
+    /**
+     * Bulk ingestion for gateways replaying buffered readings:
+     * one unordered insertMany for the readings and a status per input item.
+     * Accepted readings are handed to the alert evaluation pipeline.
+     */
+    @Override
+    public BinReadingBatchResponseDTO createBatch(List<BinReadingRequestDTO> dtos) {
+        BinReadingBatchItemDTO[] items = new BinReadingBatchItemDTO[dtos.size()];
+        List<BinReading> toInsert = new ArrayList<>(dtos.size());
+        List<Integer> requestIndexes = new ArrayList<>(dtos.size());
+
+        for (int i = 0; i < dtos.size(); i++) {
+            BinReadingRequestDTO dto = dtos.get(i);
+            if (dto == null || dto.getBinId() == null || dto.getBinId().isBlank()) {
+                items[i] = rejected(i, "binId is required");
+                continue;
+            }
+            BinReading entity = BinReadingMapper.toEntity(dto);
+            // ids are assigned up front so they can be reported per item
+            entity.setId(new ObjectId().toHexString());
+            toInsert.add(entity);
+            requestIndexes.add(i);
+        }
+
+        Map<Integer, String> writeErrors = repository.insertUnordered(toInsert);
+
+        int accepted = 0;
+        int overThresholdReadings = 0;
+        for (int k = 0; k < toInsert.size(); k++) {
+            int index = requestIndexes.get(k);
+            String writeError = writeErrors.get(k);
+            if (writeError != null) {
+                items[index] = rejected(index, writeError);
+                continue;
+            }
+            BinReading reading = toInsert.get(k);
+            if (onStored(reading) && !AlertRules.evaluate(reading).isEmpty()) {
+                overThresholdReadings++;
+            }
+            items[index] = BinReadingBatchItemDTO.builder()
+                    .index(index)
+                    .id(reading.getId())
+                    .status(BinReadingBatchItemDTO.Status.CREATED)
+                    .build();
+            accepted++;
+        }
+
+        return BinReadingBatchResponseDTO.builder()
+                .accepted(accepted)
+                .rejected(dtos.size() - accepted)
+                .overThresholdReadings(overThresholdReadings)
+                .items(List.of(items))
+                .build();
+    }
+
+    /**
+     * NDJSON ingestion for gateway backfills: one reading per line, parsed
+     * token by token straight into {@link BinReading} and flushed to Mongo
+     * every {@code bin-readings.stream.chunk-size} readings, so memory does not
+     * grow with the body size.
+     */
+    @Override
+    public BinReadingStreamResponseDTO ingestStream(Reader body) throws IOException {
+        BinReadingStreamResponseDTO totals = new BinReadingStreamResponseDTO();
+        int chunkSize = Math.max(1, streamChunkSize);
+        List<BinReading> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = body instanceof BufferedReader buffered ? buffered : new BufferedReader(body);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            BinReading reading = parseReading(line);
+            if (reading == null) {
+                totals.setRejected(totals.getRejected() + 1);
+                continue;
+            }
+            chunk.add(reading);
+            if (chunk.size() >= chunkSize) {
+                flushStreamChunk(chunk, totals);
+                chunk.clear();
+            }
+        }
+        flushStreamChunk(chunk, totals);
+        return totals;
+    }
+
+    private void flushStreamChunk(List<BinReading> chunk, BinReadingStreamResponseDTO totals) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (BinReading reading : chunk) {
+            reading.setId(new ObjectId().toHexString());
+        }
+        Map<Integer, String> writeErrors = repository.insertUnordered(chunk);
+
+        for (int k = 0; k < chunk.size(); k++) {
+            if (writeErrors.containsKey(k)) {
+                continue;
+            }
+            BinReading reading = chunk.get(k);
+            if (onStored(reading) && !AlertRules.evaluate(reading).isEmpty()) {
+                totals.setOverThresholdReadings(totals.getOverThresholdReadings() + 1);
+            }
+        }
+        totals.setAccepted(totals.getAccepted() + chunk.size() - writeErrors.size());
+        totals.setRejected(totals.getRejected() + writeErrors.size());
+    }
+
+    /**
+     * Parses one NDJSON line; returns null when the line is not a single
+     * reading object with a binId. {@code ts} may be epoch millis or ISO-8601.
+     */
+    private static BinReading parseReading(String line) throws IOException {
+        try (JsonParser parser = JSON.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            BinReading reading = new BinReading();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "binId" -> reading.setBinId(parser.getText());
+                    case "ts" -> reading.setTs(value == JsonToken.VALUE_NUMBER_INT
+                            ? new Date(parser.getLongValue())
+                            : Date.from(Instant.parse(parser.getText())));
+                    case "fillPct" -> reading.setFillPct(parser.getDoubleValue());
+                    case "batteryPct" -> reading.setBatteryPct(parser.getIntValue());
+                    case "temperatureC" -> reading.setTemperatureC(parser.getDoubleValue());
+                    case "signalDbm" -> reading.setSignalDbm(parser.getIntValue());
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                // more than one value on the line
+                return null;
+            }
+            if (reading.getBinId() == null || reading.getBinId().isBlank()) {
+                return null;
+            }
+            return reading;
+        } catch (JsonProcessingException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Feeds a persisted reading to the in-memory models and the alert
+     * pipeline; returns false when the alert queue dropped it.
+     */
+    private boolean onStored(BinReading reading) {
+        latestReadingStore.update(reading);
+        fillRateForecaster.update(reading);
+        binSnapshotService.onReading(reading.getBinId());
+        // Alerts are evaluated asynchronously, the sensor does not wait for them
+        return alertEvaluationPipeline.submit(reading);
+    }
+
+    private static BinReadingBatchItemDTO rejected(int index, String error) {
+        return BinReadingBatchItemDTO.builder()
+                .index(index)
+                .status(BinReadingBatchItemDTO.Status.REJECTED)
+                .error(error)
+                .build();
+    }
+
     @Override
     public List<BinReadingResponseDTO> getAll() {
         return repository.findAll().stream()
@@ -53,61 +278,123 @@ public class BinReadingServiceImpl implements BinReadingService {
 
     @Override
     public void delete(String id) {
-        repository.deleteById(id);
+        repository.findById(id).ifPresent(reading -> {
+            repository.delete(reading);
+            latestReadingStore.evict(reading);
+            binSnapshotService.onReading(reading.getBinId());
+        });
     }
 
-    /**
-     * Evaluates sensor readings and triggers appropriate alerts
-     * Rules:
-     * - If fillPct >= 95 → LEVEL_CRITICAL
-     * - Else if fillPct >= 80 → LEVEL_HIGH
-     * - If batteryPct <= 20 → BATTERY_LOW
-     * - If temperatureC > 60 → SENSOR_ANOMALY
-     */
-    private void evaluateAlerts(BinReading reading) {
-        try {
-            // Evaluate fill level alerts
-            if (reading.getFillPct() >= 95) {
-                createAlert(reading, AlertType.LEVEL_CRITICAL, reading.getFillPct());
-            } else if (reading.getFillPct() >= 80) {
-                createAlert(reading, AlertType.LEVEL_HIGH, reading.getFillPct());
-            }
-
-            // Evaluate battery level alerts
-            if (reading.getBatteryPct() <= 20) {
-                createAlert(reading, AlertType.BATTERY_LOW, reading.getBatteryPct());
-            }
+    @Override
+    public BinReadingResponseDTO findTopByBinIdOrderByTsDesc(String binId) {
+        BinReading entity = latestReadingStore.get(binId);
+        if (entity == null) {
+            return null;
+        }
+        return BinReadingMapper.toResponseDTO(entity);
+    }
 
-            // Evaluate temperature anomalies
-            if (reading.getTemperatureC() > 60) {
-                createAlert(reading, AlertType.SENSOR_ANOMALY, reading.getTemperatureC());
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the reading creation
-            System.err.println("Error evaluating alerts for reading: " + reading.getId() + " - " + e.getMessage());
+    @Override
+    public List<BinReadingResponseDTO> getLatestForBins(Collection<String> binIds) {
+        if (binIds == null || binIds.isEmpty()) {
+            return List.of();
         }
+        Map<String, BinReading> latest = latestReadingStore.getAll(binIds);
+        return binIds.stream()
+                .distinct()
+                .map(latest::get)
+                .filter(Objects::nonNull)
+                .map(BinReadingMapper::toResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BinReadingResponseDTO> getLatestForCollectionPoint(String collectionPointId) {
+        List<String> binIds = collectionPointRepository.findById(collectionPointId)
+                .filter(cp -> cp.getBins() != null)
+                .map(cp -> cp.getBins().stream()
+                        .map(Bin::getId)
+                        .filter(Objects::nonNull)
+                        .toList())
+                .orElse(List.of());
+        return getLatestForBins(binIds);
     }
 
     /**
-     * Helper method to create an alert
+     * Readings of one bin over [from, to] at the coarsest resolution that fits:
+     * raw for short recent ranges, hourly rollups up to a month, daily beyond.
      */
-    private void createAlert(BinReading reading, AlertType alertType, double value) {
-        AlertRequestDTO alertDTO = new AlertRequestDTO();
-        alertDTO.setBinId(reading.getBinId());
-        alertDTO.setTs(reading.getTs());
-        alertDTO.setType(alertType);
-        alertDTO.setValue(value);
-        alertDTO.setCleared(false);
-        
-        alertService.createAlert(alertDTO);
+    @Override
+    public BinReadingHistoryDTO getHistory(String binId, Date from, Date to) {
+        BinReadingHistoryDTO.Resolution resolution = pickResolution(from, to);
+        List<BinReadingHistoryPointDTO> points = resolution == BinReadingHistoryDTO.Resolution.RAW
+                ? repository.findByBinIdAndTsBetweenOrderByTsAsc(binId, from, to).stream()
+                        .map(BinReadingMapper::toHistoryPoint)
+                        .collect(Collectors.toList())
+                : rollupStore.find(resolution, binId, from, to).stream()
+                        .map(BinReadingMapper::toHistoryPoint)
+                        .collect(Collectors.toList());
+        return BinReadingHistoryDTO.builder()
+                .binId(binId)
+                .resolution(resolution)
+                .points(points)
+                .build();
     }
 
+    /**
+     * Readings of one bin over [from, to] reduced to at most maxPoints with LTTB.
+     * Raw readings are streamed from the cursor straight into the downsampler, so
+     * memory stays bounded by the bucket size whatever the range. Once raw readings
+     * have aged out of the range, the hourly / daily rollups are downsampled instead.
+     */
     @Override
-    public BinReadingResponseDTO findTopByBinIdOrderByTsDesc(String binId) {
-        BinReading entity = repository.findTopByBinIdOrderByTsDesc(binId);
-        if (entity == null) {
-            return null;
+    public BinReadingHistoryDTO getDownsampledHistory(String binId, Date from, Date to, int maxPoints) {
+        BinReadingHistoryDTO.Resolution resolution = pickDownsamplingResolution(from, to);
+        LttbDownsampler downsampler;
+        if (resolution == BinReadingHistoryDTO.Resolution.RAW) {
+            downsampler = new LttbDownsampler(repository.countByBinIdAndTsBetween(binId, from, to), maxPoints);
+            try (Stream<BinReading> readings = repository.streamByBinIdAndTsBetweenOrderByTsAsc(binId, from, to)) {
+                readings.map(BinReadingMapper::toHistoryPoint).forEach(downsampler::accept);
+            }
+        } else {
+            List<BinReadingRollup> rollups = rollupStore.find(resolution, binId, from, to);
+            downsampler = new LttbDownsampler(rollups.size(), maxPoints);
+            rollups.stream().map(BinReadingMapper::toHistoryPoint).forEach(downsampler::accept);
         }
-        return BinReadingMapper.toResponseDTO(entity);
+        return BinReadingHistoryDTO.builder()
+                .binId(binId)
+                .resolution(resolution)
+                .points(downsampler.finish())
+                .build();
+    }
+
+    @Override
+    public BinFillForecastDTO getForecast(String binId, double thresholdPct) {
+        return fillRateForecaster.forecast(binId, thresholdPct);
+    }
+
+    BinReadingHistoryDTO.Resolution pickResolution(Date from, Date to) {
+        long rangeMillis = to.getTime() - from.getTime();
+        Date rawCutoff = rollupStore.rawRetentionCutoff();
+        boolean rawAvailable = rawCutoff == null || !from.before(rawCutoff);
+        if (rawAvailable && rangeMillis <= TimeUnit.DAYS.toMillis(historyRawMaxDays)) {
+            return BinReadingHistoryDTO.Resolution.RAW;
+        }
+        if (rangeMillis <= TimeUnit.DAYS.toMillis(historyHourlyMaxDays)) {
+            return BinReadingHistoryDTO.Resolution.HOURLY;
+        }
+        return BinReadingHistoryDTO.Resolution.DAILY;
+    }
+
+    // Raw whenever it is still retained, LTTB keeps the response small anyway
+    BinReadingHistoryDTO.Resolution pickDownsamplingResolution(Date from, Date to) {
+        Date rawCutoff = rollupStore.rawRetentionCutoff();
+        if (rawCutoff == null || !from.before(rawCutoff)) {
+            return BinReadingHistoryDTO.Resolution.RAW;
+        }
+        long rangeMillis = to.getTime() - from.getTime();
+        return rangeMillis <= TimeUnit.DAYS.toMillis(historyHourlyMaxDays)
+                ? BinReadingHistoryDTO.Resolution.HOURLY
+                : BinReadingHistoryDTO.Resolution.DAILY;
     }
 }
@@ -0,0 +1,270 @@
+package com.wastemanagement.backend.service.collection;
+
+import com.wastemanagement.backend.dto.collection.BinFillForecastDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online fill-rate model per bin: an exponentially weighted linear regression
+ * of fillPct over time within the current fill cycle.
+ * - O(1) per reading, state kept in primitive arrays indexed by a bin slot
+ * - older points decay with a configurable half-life
+ * - a drop of more than bin-readings.forecast.emptying-drop-pct is taken as an
+ *   emptying: the regression restarts, the previous cycle's rate is kept as
+ *   fallback until the new cycle has two points
+ * Seeded at startup from the hourly rollups, then fed by the ingestion path.
+ * Readings ingested before the seed has run are held back and applied after
+ * the seeded buckets, so the older history is not rejected as out of order.
+ */
+@Component
+@Slf4j
+public class FillRateForecaster {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+    private final BinReadingRollupStore rollupStore;
+    private final double halfLifeHours;
+    private final double emptyingDropPct;
+    private final int seedHours;
+
+    private final Map<String, Integer> slotByBinId = new HashMap<>();
+    // regression sums over the current cycle, t in hours since cycleStart
+    private double[] sumW = new double[INITIAL_CAPACITY];
+    private double[] sumT = new double[INITIAL_CAPACITY];
+    private double[] sumF = new double[INITIAL_CAPACITY];
+    private double[] sumTT = new double[INITIAL_CAPACITY];
+    private double[] sumTF = new double[INITIAL_CAPACITY];
+    private long[] cycleStart = new long[INITIAL_CAPACITY];
+    private long[] lastTs = new long[INITIAL_CAPACITY];
+    private double[] lastFill = new double[INITIAL_CAPACITY];
+    // rate of the previous cycle, NaN when unknown
+    private double[] priorRate = new double[INITIAL_CAPACITY];
+    // readings ingested before seed() ran, applied once the history is in
+    private final List<Point> beforeSeed = new ArrayList<>();
+    private boolean seeded;
+
+    public FillRateForecaster(BinReadingRollupStore rollupStore,
+                              @Value("${bin-readings.forecast.half-life-hours:24}") double halfLifeHours,
+                              @Value("${bin-readings.forecast.emptying-drop-pct:25}") double emptyingDropPct,
+                              @Value("${bin-readings.forecast.seed-hours:72}") int seedHours) {
+        this.rollupStore = rollupStore;
+        this.halfLifeHours = halfLifeHours;
+        this.emptyingDropPct = emptyingDropPct;
+        this.seedHours = seedHours;
+        this.seeded = seedHours <= 0;
+        Arrays.fill(priorRate, Double.NaN);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (seedHours <= 0) {
+            return;
+        }
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(seedHours));
+        List<BinReadingRollup> buckets = List.of();
+        try {
+            buckets = rollupStore.findSince(BinReadingHistoryDTO.Resolution.HOURLY, since);
+        } catch (Exception e) {
+            log.error("Fill rate forecaster seeding failed, starting from live readings only", e);
+        }
+        synchronized (this) {
+            for (BinReadingRollup bucket : buckets) {
+                apply(bucket.getBinId(), bucket.getLastTs(), bucket.getLastFillPct());
+            }
+            beforeSeed.sort(Comparator.comparing(Point::ts));
+            for (Point point : beforeSeed) {
+                apply(point.binId(), point.ts(), point.fillPct());
+            }
+            log.info("Fill rate forecaster seeded from {} hourly buckets and {} live readings, bins={}",
+                    buckets.size(), beforeSeed.size(), size());
+            beforeSeed.clear();
+            seeded = true;
+        }
+    }
+
+    public void update(BinReading reading) {
+        if (reading != null) {
+            update(reading.getBinId(), reading.getTs(), reading.getFillPct());
+        }
+    }
+
+    synchronized void update(String binId, Date ts, double fillPct) {
+        if (binId == null || ts == null) {
+            return;
+        }
+        if (!seeded) {
+            beforeSeed.add(new Point(binId, ts, fillPct));
+            return;
+        }
+        apply(binId, ts, fillPct);
+    }
+
+    private void apply(String binId, Date ts, double fillPct) {
+        if (binId == null || ts == null) {
+            return;
+        }
+        long t = ts.getTime();
+        Integer existing = slotByBinId.get(binId);
+        if (existing == null) {
+            startCycle(newSlot(binId), t, fillPct);
+            return;
+        }
+        int slot = existing;
+        if (t <= lastTs[slot]) {
+            // out of order: the model only moves forward
+            return;
+        }
+        if (lastFill[slot] - fillPct > emptyingDropPct) {
+            double rate = rate(slot);
+            if (!Double.isNaN(rate)) {
+                priorRate[slot] = rate;
+            }
+            startCycle(slot, t, fillPct);
+            return;
+        }
+
+        double decay = Math.pow(0.5, (t - lastTs[slot]) / MILLIS_PER_HOUR / halfLifeHours);
+        double hours = (t - cycleStart[slot]) / MILLIS_PER_HOUR;
+        sumW[slot] = sumW[slot] * decay + 1;
+        sumT[slot] = sumT[slot] * decay + hours;
+        sumF[slot] = sumF[slot] * decay + fillPct;
+        sumTT[slot] = sumTT[slot] * decay + hours * hours;
+        sumTF[slot] = sumTF[slot] * decay + hours * fillPct;
+        lastTs[slot] = t;
+        lastFill[slot] = fillPct;
+    }
+
+    /**
+     * Fill rate in % per hour, NaN when the bin has no usable history.
+     */
+    public synchronized double ratePctPerHour(String binId) {
+        Integer slot = binId == null ? null : slotByBinId.get(binId);
+        return slot == null ? Double.NaN : rate(slot);
+    }
+
+    /**
+     * Expected fill level at {@code atMillis}, NaN for unknown bins. Without
+     * a rate the last known level is returned.
+     */
+    public synchronized double predictFillPct(String binId, long atMillis) {
+        Integer slot = binId == null ? null : slotByBinId.get(binId);
+        if (slot == null) {
+            return Double.NaN;
+        }
+        double rate = rate(slot);
+        double hours = Math.max(0, (atMillis - lastTs[slot]) / MILLIS_PER_HOUR);
+        if (Double.isNaN(rate) || rate <= 0) {
+            return lastFill[slot];
+        }
+        return Math.min(100.0, lastFill[slot] + rate * hours);
+    }
+
+    /**
+     * Hours from now until the bin reaches {@code thresholdPct}: 0 when already
+     * there, +Infinity when it is not filling, NaN for unknown bins.
+     */
+    public synchronized double hoursToThreshold(String binId, double thresholdPct, long nowMillis) {
+        Integer slot = binId == null ? null : slotByBinId.get(binId);
+        if (slot == null) {
+            return Double.NaN;
+        }
+        double rate = rate(slot);
+        double elapsed = Math.max(0, (nowMillis - lastTs[slot]) / MILLIS_PER_HOUR);
+        if (lastFill[slot] >= thresholdPct) {
+            return 0;
+        }
+        if (Double.isNaN(rate) || rate <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(0, (thresholdPct - lastFill[slot]) / rate - elapsed);
+    }
+
+    public BinFillForecastDTO forecast(String binId, double thresholdPct) {
+        long now = System.currentTimeMillis();
+        double rate;
+        double hours;
+        double lastFillPct;
+        Date lastReadingTs;
+        synchronized (this) {
+            Integer slot = slotByBinId.get(binId);
+            if (slot == null) {
+                return null;
+            }
+            rate = rate(slot);
+            hours = hoursToThreshold(binId, thresholdPct, now);
+            lastFillPct = lastFill[slot];
+            lastReadingTs = new Date(lastTs[slot]);
+        }
+        boolean reachable = !Double.isNaN(hours) && !Double.isInfinite(hours);
+        return BinFillForecastDTO.builder()
+                .binId(binId)
+                .lastFillPct(lastFillPct)
+                .lastTs(lastReadingTs)
+                .ratePctPerHour(Double.isNaN(rate) ? null : rate)
+                .thresholdPct(thresholdPct)
+                .hoursToThreshold(reachable ? hours : null)
+                .thresholdReachedAt(reachable ? new Date(now + (long) (hours * MILLIS_PER_HOUR)) : null)
+                .build();
+    }
+
+    public synchronized int size() {
+        return slotByBinId.size();
+    }
+
+    private double rate(int slot) {
+        double denominator = sumW[slot] * sumTT[slot] - sumT[slot] * sumT[slot];
+        if (sumW[slot] < 1.5 || denominator <= 1e-9) {
+            return priorRate[slot];
+        }
+        return (sumW[slot] * sumTF[slot] - sumT[slot] * sumF[slot]) / denominator;
+    }
+
+    private void startCycle(int slot, long t, double fillPct) {
+        cycleStart[slot] = t;
+        sumW[slot] = 1;
+        sumT[slot] = 0;
+        sumF[slot] = fillPct;
+        sumTT[slot] = 0;
+        sumTF[slot] = 0;
+        lastTs[slot] = t;
+        lastFill[slot] = fillPct;
+    }
+
+    private int newSlot(String binId) {
+        int slot = slotByBinId.size();
+        if (slot == sumW.length) {
+            int capacity = sumW.length * 2;
+            sumW = Arrays.copyOf(sumW, capacity);
+            sumT = Arrays.copyOf(sumT, capacity);
+            sumF = Arrays.copyOf(sumF, capacity);
+            sumTT = Arrays.copyOf(sumTT, capacity);
+            sumTF = Arrays.copyOf(sumTF, capacity);
+            cycleStart = Arrays.copyOf(cycleStart, capacity);
+            lastTs = Arrays.copyOf(lastTs, capacity);
+            lastFill = Arrays.copyOf(lastFill, capacity);
+            priorRate = Arrays.copyOf(priorRate, capacity);
+            Arrays.fill(priorRate, slot, capacity, Double.NaN);
+        }
+        slotByBinId.put(binId, slot);
+        return slot;
+    }
+
+    private record Point(String binId, Date ts, double fillPct) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.wastemanagement.backend.service.collection;
+
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.collection.BinReadingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory latest reading per bin, so planners and snapshots never issue
+ * one findTopByBinIdOrderByTsDesc per bin.
+ * - seeded once with a single $sort / $group aggregation
+ * - kept current by the ingestion path (write-through)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LatestReadingStore {
+
+    private final BinReadingRepository binReadingRepository;
+
+    private final Map<String, BinReading> latestByBinId = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        ensureSeeded();
+    }
+
+    public BinReading get(String binId) {
+        if (binId == null) {
+            return null;
+        }
+        ensureSeeded();
+        return latestByBinId.get(binId);
+    }
+
+    /**
+     * Latest readings for the given bins; bins without any reading are absent from the map.
+     */
+    public Map<String, BinReading> getAll(Collection<String> binIds) {
+        ensureSeeded();
+        Map<String, BinReading> result = new HashMap<>();
+        for (String binId : binIds) {
+            BinReading latest = binId == null ? null : latestByBinId.get(binId);
+            if (latest != null) {
+                result.put(binId, latest);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write-through hook for freshly persisted readings. Out-of-order readings
+     * (older than what we already hold) are ignored.
+     */
+    public void update(BinReading reading) {
+        if (reading == null || reading.getBinId() == null) {
+            return;
+        }
+        latestByBinId.merge(reading.getBinId(), reading,
+                (current, candidate) -> isNewer(candidate, current) ? candidate : current);
+    }
+
+    /**
+     * Called after a reading was deleted: if it was the latest one for its bin,
+     * reload that single bin from Mongo.
+     */
+    public void evict(BinReading deleted) {
+        if (deleted == null || deleted.getBinId() == null) {
+            return;
+        }
+        BinReading current = latestByBinId.get(deleted.getBinId());
+        if (current == null || !Objects.equals(current.getId(), deleted.getId())) {
+            return;
+        }
+        BinReading reloaded = binReadingRepository.findTopByBinIdOrderByTsDesc(deleted.getBinId());
+        if (reloaded == null) {
+            latestByBinId.remove(deleted.getBinId(), current);
+        } else {
+            latestByBinId.put(deleted.getBinId(), reloaded);
+        }
+    }
+
+    /**
+     * Reloads the latest reading of every bin, merged into what is held: catches the readings
+     * ingested by other instances, e.g. when this one becomes the planning leader.
+     */
+    public void reseed() {
+        synchronized (this) {
+            List<BinReading> latest = binReadingRepository.findLatestPerBin();
+            latest.forEach(this::update);
+            seeded = true;
+            log.info("Latest reading store reseeded, bins={}", latestByBinId.size());
+        }
+    }
+
+    private void ensureSeeded() {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (seeded) {
+                return;
+            }
+            List<BinReading> latest = binReadingRepository.findLatestPerBin();
+            // merge, not put: readings ingested while seeding must win
+            latest.forEach(this::update);
+            seeded = true;
+            log.info("Latest reading store seeded, bins={}", latestByBinId.size());
+        }
+    }
+
+    private static boolean isNewer(BinReading candidate, BinReading current) {
+        if (current.getTs() == null) {
+            return true;
+        }
+        return candidate.getTs() != null && !candidate.getTs().before(current.getTs());
+    }
+}
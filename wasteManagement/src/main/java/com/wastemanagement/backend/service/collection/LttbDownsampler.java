@@ -0,0 +1,128 @@
+package com.wastemanagement.backend.service.collection;
+
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryPointDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets over a time-ordered stream of points (x = ts, y = fillPct).
+ * Points are pushed one by one, so only the current and the next bucket are held in memory:
+ * - the first and the last point are always kept
+ * - the middle points are split into (threshold - 2) buckets sized from the expected count
+ * - from each bucket, the point forming the largest triangle with the previously kept point
+ *   and the average of the next bucket is kept
+ * If the expected count does not exceed the threshold, every point is passed through.
+ * Not thread-safe, one instance per request.
+ */
+public class LttbDownsampler {
+
+    private final int threshold;
+    private final boolean passThrough;
+    private final double bucketSize;
+    private final List<BinReadingHistoryPointDTO> selected = new ArrayList<>();
+
+    private List<BinReadingHistoryPointDTO> current = new ArrayList<>();
+    private List<BinReadingHistoryPointDTO> next = new ArrayList<>();
+    private int currentBucket;
+    private long index;
+    // last kept point, vertex "a" of the triangles
+    private BinReadingHistoryPointDTO anchor;
+    // most recent point, held back because it may be the final one
+    private BinReadingHistoryPointDTO pending;
+
+    public LttbDownsampler(long expectedCount, int threshold) {
+        this.threshold = threshold;
+        this.passThrough = threshold < 3 || expectedCount <= threshold;
+        this.bucketSize = passThrough ? 0 : (double) (expectedCount - 2) / (threshold - 2);
+    }
+
+    public void accept(BinReadingHistoryPointDTO point) {
+        if (passThrough) {
+            selected.add(point);
+            return;
+        }
+        if (index == 0) {
+            selected.add(point);
+            anchor = point;
+        } else {
+            if (pending != null) {
+                place(pending, index - 1);
+            }
+            pending = point;
+        }
+        index++;
+    }
+
+    /**
+     * Closes the remaining buckets and returns the kept points, in ts order.
+     */
+    public List<BinReadingHistoryPointDTO> finish() {
+        if (passThrough || pending == null) {
+            return selected;
+        }
+        if (!next.isEmpty()) {
+            selectFrom(current, averageX(next), averageY(next));
+            current = next;
+            next = new ArrayList<>();
+        }
+        selectFrom(current, x(pending), pending.getFillPct());
+        selected.add(pending);
+        return selected;
+    }
+
+    private void place(BinReadingHistoryPointDTO point, long pointIndex) {
+        // more points than expected (late inserts) all land in the last bucket
+        int bucket = (int) Math.min(threshold - 3, (long) ((pointIndex - 1) / bucketSize));
+        while (bucket > currentBucket + 1) {
+            selectFrom(current, averageX(next), averageY(next));
+            current = next;
+            next = new ArrayList<>();
+            currentBucket++;
+        }
+        if (bucket == currentBucket) {
+            current.add(point);
+        } else {
+            next.add(point);
+        }
+    }
+
+    private void selectFrom(List<BinReadingHistoryPointDTO> bucket, double nextX, double nextY) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        double ax = x(anchor);
+        double ay = anchor.getFillPct();
+        BinReadingHistoryPointDTO best = bucket.get(0);
+        double bestArea = -1;
+        for (BinReadingHistoryPointDTO p : bucket) {
+            double area = Math.abs((ax - nextX) * (p.getFillPct() - ay) - (ax - x(p)) * (nextY - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = p;
+            }
+        }
+        selected.add(best);
+        anchor = best;
+    }
+
+    private static double averageX(List<BinReadingHistoryPointDTO> bucket) {
+        double sum = 0;
+        for (BinReadingHistoryPointDTO p : bucket) {
+            sum += x(p);
+        }
+        return sum / bucket.size();
+    }
+
+    private static double averageY(List<BinReadingHistoryPointDTO> bucket) {
+        double sum = 0;
+        for (BinReadingHistoryPointDTO p : bucket) {
+            sum += p.getFillPct();
+        }
+        return sum / bucket.size();
+    }
+
+    private static double x(BinReadingHistoryPointDTO p) {
+        return p.getTs() == null ? 0 : p.getTs().getTime();
+    }
+}
@@ -0,0 +1,7 @@
+package com.wastemanagement.backend.service.collectionPoint;
+
+/**
+ * A collection point got new coordinates ([lon, lat]).
+ * Published by CollectionPointServiceImpl once the change is saved.
+ */
+public record CollectionPointMovedEvent(String collectionPointId, double[] location) {}
@@ -6,8 +6,10 @@ import com.wastemanagement.backend.dto.collectionPoint.CollectionPointResponseDT
 import com.wastemanagement.backend.mapper.CollectionPointMapper;
 import com.wastemanagement.backend.model.collection.CollectionPoint;
 import com.wastemanagement.backend.repository.CollectionPointRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,10 +18,13 @@ public class CollectionPointServiceImpl implements CollectionPointService {
 
     private final CollectionPointRepository repository;
     private final CollectionPointMapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CollectionPointServiceImpl(CollectionPointRepository repository, CollectionPointMapper mapper) {
+    public CollectionPointServiceImpl(CollectionPointRepository repository, CollectionPointMapper mapper,
+                                      ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.mapper = mapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -47,8 +52,14 @@ public class CollectionPointServiceImpl implements CollectionPointService {
     @Override
     public CollectionPointResponseDTO update(String id, CollectionPointRequestDTO dto) {
         return repository.findById(id).map(entity -> {
+            double[] before = entity.getLocation() == null ? null : entity.getLocation().getCoordinates();
             mapper.updateEntity(dto, entity);
             repository.save(entity);
+            double[] after = entity.getLocation() == null ? null : entity.getLocation().getCoordinates();
+            if (after != null && !Arrays.equals(before, after)) {
+                // distance matrices hold a row for this point
+                eventPublisher.publishEvent(new CollectionPointMovedEvent(id, after));
+            }
             return mapper.toResponseDTO(entity);
         }).orElse(null);
     }
@@ -0,0 +1,66 @@
+package com.wastemanagement.backend.service.tournee;
+
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares a fleet between independent solves (trash types, emergency batches) so they can run
+ * at the same time without competing for a vehicle.
+ * - while vehicles are scarce, each demand gets one in priority order (largest vehicles first)
+ * - the rest go, largest first, to the demand furthest below its proportional share of capacity
+ */
+public final class FleetSplitter {
+
+    private FleetSplitter() {
+    }
+
+    /**
+     * @param demandInPriorityOrder demand (liters) per key, highest priority first; keys without demand get nothing
+     * @return vehicles per key with demand, in the same order; lists may be empty when the fleet is short
+     */
+    public static <K> Map<K, List<Vehicle>> split(Map<K, Double> demandInPriorityOrder, List<Vehicle> fleet) {
+        Map<K, List<Vehicle>> split = new LinkedHashMap<>();
+        demandInPriorityOrder.forEach((key, demand) -> {
+            if (demand != null && demand > 0) {
+                split.put(key, new ArrayList<>());
+            }
+        });
+        if (split.isEmpty()) {
+            return split;
+        }
+        List<Vehicle> pool = new ArrayList<>(fleet);
+        pool.sort(Comparator.comparingDouble(Vehicle::getCapacityVolumeL).reversed()
+                .thenComparing(Vehicle::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        for (List<Vehicle> vehicles : split.values()) {
+            if (pool.isEmpty()) {
+                return split;
+            }
+            vehicles.add(pool.remove(0));
+        }
+
+        double totalDemand = split.keySet().stream().mapToDouble(demandInPriorityOrder::get).sum();
+        double totalCapacity = fleet.stream().mapToDouble(Vehicle::getCapacityVolumeL).sum();
+        Map<K, Double> assigned = new LinkedHashMap<>();
+        split.forEach((key, vehicles) -> assigned.put(key, vehicles.get(0).getCapacityVolumeL()));
+        for (Vehicle vehicle : pool) {
+            K neediest = null;
+            double largestGap = -Double.MAX_VALUE;
+            for (K key : split.keySet()) {
+                double gap = demandInPriorityOrder.get(key) / totalDemand * totalCapacity - assigned.get(key);
+                if (gap > largestGap) { // strict: ties go to the higher priority
+                    largestGap = gap;
+                    neediest = key;
+                }
+            }
+            split.get(neediest).add(vehicle);
+            assigned.merge(neediest, vehicle.getCapacityVolumeL(), Double::sum);
+        }
+        return split;
+    }
+}
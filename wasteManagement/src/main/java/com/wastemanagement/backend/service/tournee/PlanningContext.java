@@ -0,0 +1,85 @@
+package com.wastemanagement.backend.service.tournee;
+
+import com.wastemanagement.backend.model.collection.Bin;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+
+import java.util.*;
+
+/**
+ * Everything one planning run reads from Mongo, loaded once in bulk:
+ * active collection points, the latest reading of each of their bins,
+ * the CPs already covered by PLANNED / IN_PROGRESS tours and the vehicle pool.
+ * Shared by every trash type and helper of the run, never written back.
+ */
+class PlanningContext {
+
+    private final Map<String, CollectionPoint> collectionPoints;
+    private final Map<String, BinReading> latestReadingByBinId;
+    private final Map<TrashType, Set<String>> coveredCollectionPointIds;
+    private final Map<String, Vehicle> vehiclesById;
+    private final Map<TrashType, Double> maxFillPctByType = new EnumMap<>(TrashType.class);
+
+    PlanningContext(List<CollectionPoint> activeCollectionPoints,
+                    Map<String, BinReading> latestReadingByBinId,
+                    Map<TrashType, Set<String>> coveredCollectionPointIds,
+                    List<Vehicle> vehiclePool) {
+        this.collectionPoints = new LinkedHashMap<>();
+        for (CollectionPoint cp : activeCollectionPoints) {
+            if (cp.getId() != null) {
+                this.collectionPoints.put(cp.getId(), cp);
+            }
+        }
+        this.latestReadingByBinId = latestReadingByBinId;
+        this.coveredCollectionPointIds = coveredCollectionPointIds;
+        this.vehiclesById = new LinkedHashMap<>();
+        for (Vehicle v : vehiclePool) {
+            this.vehiclesById.put(v.getId(), v);
+        }
+    }
+
+    Collection<CollectionPoint> getCollectionPoints() {
+        return collectionPoints.values();
+    }
+
+    CollectionPoint getCollectionPoint(String cpId) {
+        return collectionPoints.get(cpId);
+    }
+
+    BinReading getLatestReading(String binId) {
+        return latestReadingByBinId.get(binId);
+    }
+
+    Set<String> getCoveredCollectionPointIds(TrashType type) {
+        return coveredCollectionPointIds.getOrDefault(type, Set.of());
+    }
+
+    Vehicle getVehicle(String vehicleId) {
+        return vehicleId == null ? null : vehiclesById.get(vehicleId);
+    }
+
+    /**
+     * Highest latest fill level among the active bins of this type.
+     * Computed once per type, so sorting types by urgency stays cheap.
+     */
+    double getMaxFillPct(TrashType type) {
+        return maxFillPctByType.computeIfAbsent(type, t -> {
+            double maxFill = 0.0;
+            for (CollectionPoint cp : collectionPoints.values()) {
+                if (cp.getBins() == null) continue;
+                for (Bin bin : cp.getBins()) {
+                    if (!bin.isActive() || !t.equals(bin.getType())) {
+                        continue;
+                    }
+                    BinReading latest = latestReadingByBinId.get(bin.getId());
+                    if (latest != null && latest.getFillPct() > maxFill) {
+                        maxFill = latest.getFillPct();
+                    }
+                }
+            }
+            return maxFill;
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.wastemanagement.backend.service.tournee;
 import com.wastemanagement.backend.dto.tournee.TourneeRequestDTO;
 import com.wastemanagement.backend.dto.tournee.TourneeResponseDTO;
 import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.Tournee;
 import com.wastemanagement.backend.model.tournee.TourneeStatus;
 
 import java.util.List;
@@ -24,10 +25,43 @@ public interface TourneeService {
 
     List<TourneeResponseDTO> planTourneesWithVroom(List<TrashType> type, double fillThreshold);
 
+    /**
+     * Multi-type planning over a part of the city: only the given CPs are considered (still subject
+     * to the fill threshold) and only the given vehicles are used. Null means no restriction.
+     */
+    List<TourneeResponseDTO> planTourneesWithVroom(List<TrashType> types,
+                                                   double fillThreshold,
+                                                   Set<String> collectionPointIds,
+                                                   Set<String> vehicleIds);
+
     List<TourneeResponseDTO> planTourneesWithVroom(TrashType type,
                                                    double fillThreshold,
                                                    Set<String> forcedCollectionPointIds);
 
+    /**
+     * Forced-CP planning restricted to the given vehicles (null = every available vehicle),
+     * so several batches can be solved at the same time without competing for a vehicle.
+     */
+    List<TourneeResponseDTO> planTourneesWithVroom(TrashType type,
+                                                   double fillThreshold,
+                                                   Set<String> forcedCollectionPointIds,
+                                                   Set<String> vehicleIds);
+
+    /**
+     * Solve step of the forced-CP planning above: the tours VROOM returns, not saved yet
+     * and without touching vehicle state.
+     * @throws IllegalStateException when there is nothing to plan or no vehicle to plan with
+     */
+    List<Tournee> solveTournees(TrashType type,
+                                double fillThreshold,
+                                Set<String> forcedCollectionPointIds,
+                                Set<String> vehicleIds);
+
+    /**
+     * Persist step: saves solved tours and marks their vehicles busy.
+     */
+    List<TourneeResponseDTO> savePlannedTournees(List<Tournee> tournees);
+
     List<TourneeResponseDTO> findByStatus(TourneeStatus status);
 
     void completeTournee(String tourneeId);
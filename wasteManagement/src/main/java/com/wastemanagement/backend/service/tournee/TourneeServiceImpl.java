@@ -13,13 +13,14 @@ import com.wastemanagement.backend.model.user.Employee;
 import com.wastemanagement.backend.model.user.EmployeeStatus;
 import com.wastemanagement.backend.model.vehicle.Vehicle;
 import com.wastemanagement.backend.model.vehicle.VehicleStatus;
-import com.wastemanagement.backend.repository.collection.BinReadingRepository;
 import com.wastemanagement.backend.repository.CollectionPointRepository;
 import com.wastemanagement.backend.repository.tournee.TourneeAssignmentRepository;
 import com.wastemanagement.backend.repository.tournee.TourneeRepository;
 import com.wastemanagement.backend.repository.VehicleRepository;
 import com.wastemanagement.backend.repository.user.EmployeeRepository;
-import com.wastemanagement.backend.vroom.VroomClient;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.vroom.RouteOptimizer;
 import com.wastemanagement.backend.vroom.dto.VroomJob;
 import com.wastemanagement.backend.vroom.dto.VroomOptions;
 import com.wastemanagement.backend.vroom.dto.VroomRequest;
@@ -27,16 +28,26 @@ import com.wastemanagement.backend.vroom.dto.VroomRoute;
 import com.wastemanagement.backend.vroom.dto.VroomSolution;
 import com.wastemanagement.backend.vroom.dto.VroomStep;
 import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @Service
@@ -52,14 +63,45 @@ public class TourneeServiceImpl implements TourneeService {
 
     private final TourneeRepository tourneeRepository;
     private final CollectionPointRepository collectionPointRepository;
-    private final BinReadingRepository binReadingRepository;
+    private final LatestReadingStore latestReadingStore;
     private final VehicleRepository vehicleRepository;
     private final DepotService depotService;
-    private final VroomClient vroomClient;
+    private final RouteOptimizer routeOptimizer;
+    private final MatrixEngine matrixEngine;
     private final EmployeeRepository employeeRepository;
     private final TourneeAssignmentRepository tourneeAssignmentRepository;
+    private final FillRateForecaster fillRateForecaster;
+
+    /**
+     * Bins expected to cross the threshold within this many hours are
+     * collected now rather than by a later emergency run. 0 disables it.
+     */
+    @Value("${planning.forecast-horizon-hours:2}")
+    private double forecastHorizonHours;
+
+    /**
+     * Per-type VROOM solves of a multi-type run go in parallel, at most this many at once.
+     */
+    @Value("${planning.solver.parallelism:4}")
+    private int solverParallelism;
+    private ExecutorService solverPool;
     private static final Logger log = LoggerFactory.getLogger(TourneeServiceImpl.class);
 
+    @PostConstruct
+    void startSolverPool() {
+        AtomicInteger count = new AtomicInteger();
+        solverPool = Executors.newFixedThreadPool(Math.max(1, solverParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "vroom-solve-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopSolverPool() {
+        solverPool.shutdownNow();
+    }
+
     @Override
     public TourneeResponseDTO createTournee(TourneeRequestDTO dto) {
         Tournee entity = TourneeMapper.toEntity(dto);
@@ -145,6 +187,22 @@ public class TourneeServiceImpl implements TourneeService {
     public List<TourneeResponseDTO> planTourneesWithVroom(TrashType type,
                                                           double fillThreshold,
                                                           Set<String> forcedCollectionPointIds) {
+        return planTourneesWithVroom(type, fillThreshold, forcedCollectionPointIds, null);
+    }
+
+    @Override
+    public List<TourneeResponseDTO> planTourneesWithVroom(TrashType type,
+                                                          double fillThreshold,
+                                                          Set<String> forcedCollectionPointIds,
+                                                          Set<String> vehicleIds) {
+        return savePlannedTournees(solveTournees(type, fillThreshold, forcedCollectionPointIds, vehicleIds));
+    }
+
+    @Override
+    public List<Tournee> solveTournees(TrashType type,
+                                       double fillThreshold,
+                                       Set<String> forcedCollectionPointIds,
+                                       Set<String> vehicleIds) {
         if (type == null) {
             throw new IllegalArgumentException("TrashType must not be null");
         }
@@ -161,19 +219,23 @@ public class TourneeServiceImpl implements TourneeService {
         List<Vehicle> vehiclesPool =
                 vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
                         .filter(v -> v.getCapacityVolumeL() > 0)
+                        .filter(v -> vehicleIds == null || vehicleIds.contains(v.getId()))
                         .toList();
 
         if (vehiclesPool.isEmpty()) {
             throw new IllegalStateException("No AVAILABLE vehicle with valid capacity");
         }
 
+        boolean forced = forcedCollectionPointIds != null && !forcedCollectionPointIds.isEmpty();
+        PlanningContext context = loadPlanningContext(vehiclesPool, forced ? forcedCollectionPointIds : null);
+
         Map<String, Double> cpIdToVolumeLiters = new HashMap<>();
         List<CollectionPoint> points;
 
-        if (forcedCollectionPointIds != null && !forcedCollectionPointIds.isEmpty()) {
-            points = findCollectionPointsForIdsAndType(type, forcedCollectionPointIds, cpIdToVolumeLiters);
+        if (forced) {
+            points = findCollectionPointsForIdsAndType(context, type, forcedCollectionPointIds, cpIdToVolumeLiters);
         } else {
-            points = findCollectionPointsNeedingCollection(type, fillThreshold, cpIdToVolumeLiters);
+            points = findCollectionPointsNeedingCollection(context, type, fillThreshold, cpIdToVolumeLiters);
         }
 
         if (points.isEmpty()) {
@@ -194,8 +256,9 @@ public class TourneeServiceImpl implements TourneeService {
                 vroomVehicleIdToVehicleId,
                 vehiclesPool
         );
-
-        VroomSolution solution = vroomClient.optimize(request);
+        // attached per solved request: a decomposed one never builds the whole matrix
+        VroomSolution solution = routeOptimizer.optimize(request,
+                r -> matrixEngine.attach(r, depot.getId(), jobIdToCollectionPointId));
         if (solution.getRoutes() == null || solution.getRoutes().isEmpty()) {
             throw new IllegalStateException("VROOM returned no routes for type " + type);
         }
@@ -218,6 +281,7 @@ public class TourneeServiceImpl implements TourneeService {
             }
 
             Tournee tournee = buildTourneeFromVroom(
+                    context,
                     type,
                     route,
                     jobIdToCollectionPointId,
@@ -229,26 +293,113 @@ public class TourneeServiceImpl implements TourneeService {
         if (tournees.isEmpty()) {
             throw new IllegalStateException("VROOM returned only empty routes (no steps)");
         }
+        return tournees;
+    }
 
-        Iterable<Tournee> savedIterable = tourneeRepository.saveAll(tournees);
-        List<Tournee> savedList = StreamSupport
-                .stream(savedIterable.spliterator(), false)
-                .toList();
-
-        markVehiclesBusy(
-                savedList.stream()
+    @Override
+    public List<TourneeResponseDTO> savePlannedTournees(List<Tournee> tournees) {
+        if (tournees == null || tournees.isEmpty()) {
+            return List.of();
+        }
+        // Claimed before saving: a vehicle taken by a concurrent run (other batch, other node)
+        // hands its tour over to another free vehicle
+        Set<String> claimed = new LinkedHashSet<>(vehicleRepository.claimFree(
+                tournees.stream()
                         .map(Tournee::getPlannedVehicleId)
                         .filter(Objects::nonNull)
-                        .collect(Collectors.toSet())
-        );
+                        .collect(Collectors.toCollection(LinkedHashSet::new))
+        ));
+        List<Tournee> taken = tournees.stream()
+                .filter(t -> t.getPlannedVehicleId() != null && !claimed.contains(t.getPlannedVehicleId()))
+                .toList();
+        if (!taken.isEmpty()) {
+            List<Tournee> unplaced = reassignToFreeVehicles(taken, claimed);
+            if (!unplaced.isEmpty()) {
+                log.warn("{} planned tours dropped, their vehicle was taken meanwhile and no free vehicle could "
+                                + "take over; collection points {} are left for the next run", unplaced.size(),
+                        unplaced.stream()
+                                .flatMap(t -> t.getSteps() == null ? Stream.empty() : t.getSteps().stream())
+                                .map(RouteStep::getCollectionPointId)
+                                .toList());
+            }
+        }
+        List<Tournee> claimedTours = tournees.stream()
+                .filter(t -> t.getPlannedVehicleId() == null || claimed.contains(t.getPlannedVehicleId()))
+                .toList();
+        if (claimedTours.isEmpty()) {
+            return List.of();
+        }
+
+        List<Tournee> savedList;
+        try {
+            Iterable<Tournee> savedIterable = tourneeRepository.saveAll(claimedTours);
+            savedList = StreamSupport
+                    .stream(savedIterable.spliterator(), false)
+                    .toList();
+        } catch (RuntimeException e) {
+            vehicleRepository.release(claimed);
+            throw e;
+        }
 
         return savedList.stream()
                 .map(TourneeMapper::toResponse)
                 .toList();
     }
 
+    /**
+     * Moves tours whose vehicle was taken onto free vehicles at least as large, smallest first:
+     * routes start and end at the depot, so such a vehicle can drive the same route.
+     * The vehicles claimed are added to {@code claimed}.
+     *
+     * @return the tours no free vehicle could take
+     */
+    private List<Tournee> reassignToFreeVehicles(List<Tournee> tours, Set<String> claimed) {
+        Map<String, Double> plannedCapacity = new HashMap<>();
+        vehicleRepository.findAllById(tours.stream().map(Tournee::getPlannedVehicleId).distinct().toList())
+                .forEach(v -> plannedCapacity.put(v.getId(), v.getCapacityVolumeL()));
+        List<Vehicle> free = vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
+                .filter(v -> v.getCapacityVolumeL() > 0 && !claimed.contains(v.getId()))
+                .sorted(Comparator.comparingDouble(Vehicle::getCapacityVolumeL))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        List<Tournee> unplaced = new ArrayList<>();
+        for (Tournee tour : tours) {
+            String previous = tour.getPlannedVehicleId();
+            double needed = plannedCapacity.getOrDefault(previous, Double.MAX_VALUE);
+            String replacement = null;
+            for (Iterator<Vehicle> it = free.iterator(); it.hasNext() && replacement == null; ) {
+                Vehicle vehicle = it.next();
+                if (vehicle.getCapacityVolumeL() < needed) {
+                    continue;
+                }
+                it.remove();
+                // may have been taken too since it was listed
+                if (!vehicleRepository.claimFree(Set.of(vehicle.getId())).isEmpty()) {
+                    replacement = vehicle.getId();
+                }
+            }
+            if (replacement == null) {
+                unplaced.add(tour);
+            } else {
+                log.info("Tour of type {} moved from vehicle {} (taken meanwhile) to {}",
+                        tour.getTourneeType(), previous, replacement);
+                tour.setPlannedVehicleId(replacement);
+                claimed.add(replacement);
+            }
+        }
+        return unplaced;
+    }
+
     @Override
     public List<TourneeResponseDTO> planTourneesWithVroom(List<TrashType> types, double fillThreshold) {
+        return planTourneesWithVroom(types, fillThreshold, null, null);
+    }
+
+    @Override
+    public List<TourneeResponseDTO> planTourneesWithVroom(List<TrashType> types,
+                                                          double fillThreshold,
+                                                          Set<String> collectionPointIds,
+                                                          Set<String> vehicleIds) {
         if (types == null || types.isEmpty()) {
             throw new IllegalArgumentException("At least one TrashType is required");
         }
@@ -265,91 +416,87 @@ public class TourneeServiceImpl implements TourneeService {
         List<Vehicle> vehiclesPool =
                 vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
                         .filter(v -> v.getCapacityVolumeL() > 0)
+                        .filter(v -> vehicleIds == null || vehicleIds.contains(v.getId()))
                         .collect(Collectors.toCollection(ArrayList::new));
 
         if (vehiclesPool.isEmpty()) {
             throw new IllegalStateException("No AVAILABLE vehicle with valid capacity");
         }
 
+        // One bulk load shared by every type below
+        PlanningContext context = loadPlanningContext(vehiclesPool, collectionPointIds);
+
+        // Fullest type first: it gets the scarce vehicles
         List<TrashType> sortedTypes = types.stream()
                 .filter(Objects::nonNull)
                 .distinct()
-                .sorted((t1, t2) -> {
-                    double max2 = computeMaxFillPctForType(t2);
-                    double max1 = computeMaxFillPctForType(t1);
-                    return Double.compare(max2, max1);
-                })
+                .sorted((t1, t2) -> Double.compare(context.getMaxFillPct(t2), context.getMaxFillPct(t1)))
                 .toList();
 
-        List<Tournee> allPlannedTours = new ArrayList<>();
-
+        // 1. Demand of every type up front, from the volumes to collect
+        Map<TrashType, List<CollectionPoint>> pointsByType = new LinkedHashMap<>();
+        Map<TrashType, Map<String, Double>> volumesByType = new EnumMap<>(TrashType.class);
+        Map<TrashType, Double> demandByType = new LinkedHashMap<>();
         for (TrashType type : sortedTypes) {
-            if (vehiclesPool.isEmpty()) {
-                break;
-            }
-
             Map<String, Double> cpIdToVolumeLiters = new HashMap<>();
             List<CollectionPoint> pointsNeedingCollection =
-                    findCollectionPointsNeedingCollection(type, fillThreshold, cpIdToVolumeLiters);
-
+                    findCollectionPointsNeedingCollection(context, type, fillThreshold, cpIdToVolumeLiters);
             if (pointsNeedingCollection.isEmpty()) {
                 continue;
             }
+            pointsByType.put(type, pointsNeedingCollection);
+            volumesByType.put(type, cpIdToVolumeLiters);
+            demandByType.put(type, cpIdToVolumeLiters.values().stream().mapToDouble(Double::doubleValue).sum());
+        }
 
-            Map<Integer, String> jobIdToCollectionPointId = new HashMap<>();
-            Map<Integer, String> vroomVehicleIdToVehicleId = new HashMap<>();
-
-            VroomRequest request = buildVroomRequestForPointsWithVehicles(
-                    depotCoords,
-                    pointsNeedingCollection,
-                    cpIdToVolumeLiters,
-                    jobIdToCollectionPointId,
-                    vroomVehicleIdToVehicleId,
-                    vehiclesPool
-            );
-
-            VroomSolution solution = vroomClient.optimize(request);
-            if (solution.getRoutes() == null || solution.getRoutes().isEmpty()) {
-                continue;
+        // 2. Disjoint fleets, so the solves below never compete for a vehicle
+        Map<TrashType, List<Vehicle>> fleetByType = FleetSplitter.split(demandByType, vehiclesPool);
+
+        // 3. One VROOM solve per type, at the same time
+        Map<TrashType, CompletableFuture<List<Tournee>>> solves = new LinkedHashMap<>();
+        List<TrashType> unplanned = new ArrayList<>();
+        fleetByType.forEach((type, fleet) -> {
+            if (fleet.isEmpty()) {
+                log.warn("No vehicle left for type {} ({} L to collect)", type, Math.round(demandByType.get(type)));
+                unplanned.add(type);
+                return;
             }
+            solves.put(type, CompletableFuture.supplyAsync(() -> solveType(context, depot.getId(), depotCoords, type,
+                    pointsByType.get(type), volumesByType.get(type), fleet), solverPool));
+        });
 
-            List<Tournee> tourneesForType = new ArrayList<>();
-            Set<String> usedVehicleIds = new HashSet<>();
-
-            for (VroomRoute route : solution.getRoutes()) {
-                if (route.getSteps() == null || route.getSteps().isEmpty()) {
-                    continue;
-                }
-
-                Integer vroomVehicleId = route.getVehicle();
-                String plannedVehicleId = null;
-                if (vroomVehicleId != null) {
-                    plannedVehicleId = vroomVehicleIdToVehicleId.get(vroomVehicleId);
-                }
-
-                if (plannedVehicleId != null) {
-                    usedVehicleIds.add(plannedVehicleId);
-                }
-
-                Tournee tournee = buildTourneeFromVroom(
-                        type,
-                        route,
-                        jobIdToCollectionPointId,
-                        plannedVehicleId
-                );
-                tourneesForType.add(tournee);
+        List<Tournee> allPlannedTours = new ArrayList<>();
+        solves.forEach((type, solve) -> {
+            try {
+                allPlannedTours.addAll(solve.join());
+            } catch (CompletionException e) {
+                log.warn("Planning failed for type {}, retrying it after the other types", type, e.getCause());
+                unplanned.add(type);
             }
-
-            if (tourneesForType.isEmpty()) {
+        });
+
+        // 3b. Types left without tours get one more solve, one at a time in priority order, on
+        // every vehicle the tours planned so far left unused
+        unplanned.sort(Comparator.comparingInt(sortedTypes::indexOf));
+        for (TrashType type : unplanned) {
+            Set<String> used = allPlannedTours.stream()
+                    .map(Tournee::getPlannedVehicleId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            List<Vehicle> fleet = vehiclesPool.stream()
+                    .filter(v -> !used.contains(v.getId()))
+                    .toList();
+            if (fleet.isEmpty()) {
+                log.error("No vehicle left to retry type {}, its {} collection points are left for the next run",
+                        type, pointsByType.get(type).size());
                 continue;
             }
-
-            allPlannedTours.addAll(tourneesForType);
-
-            if (!usedVehicleIds.isEmpty()) {
-                vehiclesPool = vehiclesPool.stream()
-                        .filter(v -> !usedVehicleIds.contains(v.getId()))
-                        .collect(Collectors.toCollection(ArrayList::new));
+            try {
+                allPlannedTours.addAll(solveType(context, depot.getId(), depotCoords, type,
+                        pointsByType.get(type), volumesByType.get(type), fleet));
+            } catch (RuntimeException e) {
+                log.error("Planning failed again for type {}, its {} collection points are left for the next run",
+                        type, pointsByType.get(type).size(), e);
             }
         }
 
@@ -359,71 +506,104 @@ public class TourneeServiceImpl implements TourneeService {
             );
         }
 
-        Iterable<Tournee> savedIterable = tourneeRepository.saveAll(allPlannedTours);
-        List<Tournee> savedList = StreamSupport
-                .stream(savedIterable.spliterator(), false)
-                .toList();
+        // 4. Merged result saved, its vehicles claimed once
+        return savePlannedTournees(allPlannedTours);
+    }
 
-        markVehiclesBusy(
-                savedList.stream()
-                        .map(Tournee::getPlannedVehicleId)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toSet())
+    // One type of a multi-type run, on its own share of the fleet; empty when VROOM found nothing
+    private List<Tournee> solveType(PlanningContext context,
+                                    String depotId,
+                                    double[] depotCoords,
+                                    TrashType type,
+                                    List<CollectionPoint> points,
+                                    Map<String, Double> cpIdToVolumeLiters,
+                                    List<Vehicle> fleet) {
+        Map<Integer, String> jobIdToCollectionPointId = new HashMap<>();
+        Map<Integer, String> vroomVehicleIdToVehicleId = new HashMap<>();
+
+        VroomRequest request = buildVroomRequestForPointsWithVehicles(
+                depotCoords,
+                points,
+                cpIdToVolumeLiters,
+                jobIdToCollectionPointId,
+                vroomVehicleIdToVehicleId,
+                fleet
         );
+        VroomSolution solution = routeOptimizer.optimize(request,
+                r -> matrixEngine.attach(r, depotId, jobIdToCollectionPointId));
+        if (solution.getRoutes() == null || solution.getRoutes().isEmpty()) {
+            return List.of();
+        }
 
-        return savedList.stream()
-                .map(TourneeMapper::toResponse)
-                .toList();
+        List<Tournee> tourneesForType = new ArrayList<>();
+        for (VroomRoute route : solution.getRoutes()) {
+            if (route.getSteps() == null || route.getSteps().isEmpty()) {
+                continue;
+            }
+
+            Integer vroomVehicleId = route.getVehicle();
+            String plannedVehicleId = null;
+            if (vroomVehicleId != null) {
+                plannedVehicleId = vroomVehicleIdToVehicleId.get(vroomVehicleId);
+            }
+
+            tourneesForType.add(buildTourneeFromVroom(
+                    context,
+                    type,
+                    route,
+                    jobIdToCollectionPointId,
+                    plannedVehicleId
+            ));
+        }
+        return tourneesForType;
     }
 
     // Helpers
-    private double computeMaxFillPctForType(TrashType type) {
-        // We no longer query BinRepository; we walk over embedded bins.
-        List<CollectionPoint> cps = collectionPointRepository.findAll();
-        double maxFill = 0.0;
-
-        for (CollectionPoint cp : cps) {
-            if (cp.getBins() == null) continue;
 
-            for (Bin bin : cp.getBins()) {
-                if (!bin.isActive() || !type.equals(bin.getType())) {
-                    continue;
-                }
+    /**
+     * Loads the shared state of one planning run in a handful of bulk queries
+     * instead of one findAll + one latest-reading lookup per bin, per type.
+     *
+     * @param collectionPointIds restrict the run to these CPs (forced mode, zone), or null for all
+     */
+    private PlanningContext loadPlanningContext(List<Vehicle> vehiclePool, Set<String> collectionPointIds) {
+        List<CollectionPoint> cps = collectionPointIds == null
+                ? collectionPointRepository.findAll()
+                : collectionPointRepository.findAllById(collectionPointIds);
 
-                BinReading latest = binReadingRepository.findTopByBinIdOrderByTsDesc(bin.getId());
-                if (latest == null) {
-                    continue;
-                }
+        List<CollectionPoint> activeCps = cps.stream()
+                .filter(CollectionPoint::isActive)
+                .toList();
 
-                double fill = latest.getFillPct();
-                if (fill > maxFill) {
-                    maxFill = fill;
-                }
-            }
-        }
+        List<String> binIds = activeCps.stream()
+                .filter(cp -> cp.getBins() != null)
+                .flatMap(cp -> cp.getBins().stream())
+                .filter(Bin::isActive)
+                .map(Bin::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
 
-        return maxFill;
+        return new PlanningContext(
+                activeCps,
+                latestReadingStore.getAll(binIds),
+                getCollectionPointIdsAlreadyCovered(),
+                vehiclePool
+        );
     }
 
-
-    private List<CollectionPoint> findCollectionPointsNeedingCollection(TrashType type,
+    private List<CollectionPoint> findCollectionPointsNeedingCollection(PlanningContext context,
+                                                                        TrashType type,
                                                                         double threshold,
                                                                         Map<String, Double> cpIdToVolumeLiters) {
 
-        Set<String> cpAlreadyCovered = getCollectionPointIdsAlreadyCoveredForType(type);
+        Set<String> cpAlreadyCovered = context.getCoveredCollectionPointIds(type);
+        long horizonMillis = System.currentTimeMillis() + (long) (forecastHorizonHours * 3_600_000L);
 
-        List<CollectionPoint> allCps = collectionPointRepository.findAll();
-        if (allCps.isEmpty()) {
-            return List.of();
-        }
-
-        Map<String, Double> cpTotalVolume = new HashMap<>();
+        Map<String, Double> cpTotalVolume = new LinkedHashMap<>();
 
-        for (CollectionPoint cp : allCps) {
+        for (CollectionPoint cp : context.getCollectionPoints()) {
             String cpId = cp.getId();
-            if (cpId == null) {
-                continue;
-            }
             if (cpAlreadyCovered.contains(cpId)) {
                 // This CP already has a PLANNED / IN_PROGRESS tour for this type
                 continue;
@@ -438,14 +618,23 @@ public class TourneeServiceImpl implements TourneeService {
                     continue;
                 }
 
-                BinReading latest = binReadingRepository.findTopByBinIdOrderByTsDesc(bin.getId());
+                BinReading latest = context.getLatestReading(bin.getId());
                 if (latest == null) {
                     continue;
                 }
 
                 double fillPct = latest.getFillPct();
                 if (fillPct < threshold) {
-                    continue;
+                    // Below threshold now, but will it be before the next cycle?
+                    double forecast = forecastHorizonHours > 0
+                            ? fillRateForecaster.predictFillPct(bin.getId(), horizonMillis)
+                            : Double.NaN;
+                    if (!(forecast >= threshold)) {
+                        continue;
+                    }
+                    log.debug("Bin {} at {}% selected, forecast {}% within {}h",
+                            bin.getId(), fillPct, forecast, forecastHorizonHours);
+                    fillPct = forecast;
                 }
 
                 double volumeL = (fillPct / 100.0) * BIN_CAPACITY_L;
@@ -456,51 +645,31 @@ public class TourneeServiceImpl implements TourneeService {
         cpIdToVolumeLiters.clear();
         cpIdToVolumeLiters.putAll(cpTotalVolume);
 
-        if (cpTotalVolume.isEmpty()) {
-            return List.of();
-        }
-
-        List<CollectionPoint> allPoints =
-                collectionPointRepository.findAllById(cpTotalVolume.keySet());
-
-        return allPoints.stream()
-                .filter(CollectionPoint::isActive)
+        return cpTotalVolume.keySet().stream()
+                .map(context::getCollectionPoint)
                 .collect(Collectors.toList());
     }
 
 
-    private List<CollectionPoint> findCollectionPointsForIdsAndType(TrashType type,
+    private List<CollectionPoint> findCollectionPointsForIdsAndType(PlanningContext context,
+                                                                    TrashType type,
                                                                     Set<String> cpIdsFilter,
                                                                     Map<String, Double> cpIdToVolumeLiters) {
         if (cpIdsFilter == null || cpIdsFilter.isEmpty()) {
             return List.of();
         }
 
-        Set<String> cpAlreadyCovered = getCollectionPointIdsAlreadyCoveredForType(type);
-        Set<String> effectiveFilter = cpIdsFilter.stream()
-                .filter(cpId -> !cpAlreadyCovered.contains(cpId))
-                .collect(Collectors.toSet());
-
-        if (effectiveFilter.isEmpty()) {
-            return List.of();
-        }
-
-        // Only load the CPs in the filter
-        List<CollectionPoint> filteredCps =
-                collectionPointRepository.findAllById(effectiveFilter);
-
-        if (filteredCps.isEmpty()) {
-            return List.of();
-        }
+        Set<String> cpAlreadyCovered = context.getCoveredCollectionPointIds(type);
 
         Map<String, Double> cpTotalVolume = new HashMap<>();
 
-        for (CollectionPoint cp : filteredCps) {
-            String cpId = cp.getId();
-            if (cpId == null) {
+        for (String cpId : cpIdsFilter) {
+            if (cpAlreadyCovered.contains(cpId)) {
                 continue;
             }
-            if (cp.getBins() == null) {
+            // Only active CPs are loaded into the context
+            CollectionPoint cp = context.getCollectionPoint(cpId);
+            if (cp == null || cp.getBins() == null) {
                 continue;
             }
 
@@ -509,7 +678,7 @@ public class TourneeServiceImpl implements TourneeService {
                     continue;
                 }
 
-                BinReading latest = binReadingRepository.findTopByBinIdOrderByTsDesc(bin.getId());
+                BinReading latest = context.getLatestReading(bin.getId());
                 if (latest == null) {
                     continue;
                 }
@@ -521,22 +690,14 @@ public class TourneeServiceImpl implements TourneeService {
         }
 
         cpIdToVolumeLiters.clear();
-        for (String cpId : effectiveFilter) {
-            double totalVol = cpTotalVolume.getOrDefault(cpId, 0.0);
-            if (totalVol > 0) {
-                cpIdToVolumeLiters.put(cpId, totalVol);
+        for (Map.Entry<String, Double> entry : cpTotalVolume.entrySet()) {
+            if (entry.getValue() > 0) {
+                cpIdToVolumeLiters.put(entry.getKey(), entry.getValue());
             }
         }
 
-        if (cpIdToVolumeLiters.isEmpty()) {
-            return List.of();
-        }
-
-        List<CollectionPoint> allPoints =
-                collectionPointRepository.findAllById(cpIdToVolumeLiters.keySet());
-
-        return allPoints.stream()
-                .filter(CollectionPoint::isActive)
+        return cpIdToVolumeLiters.keySet().stream()
+                .map(context::getCollectionPoint)
                 .collect(Collectors.toList());
     }
 
@@ -612,7 +773,8 @@ public class TourneeServiceImpl implements TourneeService {
         return request;
     }
 
-    private Tournee buildTourneeFromVroom(TrashType type,
+    private Tournee buildTourneeFromVroom(PlanningContext context,
+                                          TrashType type,
                                           VroomRoute route,
                                           Map<Integer, String> jobIdToCollectionPointId,
                                           String plannedVehicleId) {
@@ -627,16 +789,15 @@ public class TourneeServiceImpl implements TourneeService {
         tournee.setGeometry(route.getGeometry());
 
         double km = route.getDistance() / 1000.0;
-        if (plannedVehicleId != null) {
-            vehicleRepository.findById(plannedVehicleId).ifPresent(v -> {
-                double factor = getEmissionFactorForVehicle(v); // gCO2 / km
-                double co2 = km * factor;
-                tournee.setPlannedCO2(co2);
-            });
+        Vehicle plannedVehicle = context.getVehicle(plannedVehicleId);
+        if (plannedVehicle != null) {
+            double factor = getEmissionFactorForVehicle(plannedVehicle); // gCO2 / km
+            tournee.setPlannedCO2(km * factor);
         } else {
             tournee.setPlannedCO2(0);
         }
 
+        long planStartMillis = System.currentTimeMillis();
         List<RouteStep> steps = new ArrayList<>();
         int order = 0;
         for (VroomStep step : route.getSteps()) {
@@ -650,7 +811,11 @@ public class TourneeServiceImpl implements TourneeService {
 
             Integer jobId = step.getJob();
             if (jobId != null) {
-                routeStep.setCollectionPointId(jobIdToCollectionPointId.get(jobId));
+                String cpId = jobIdToCollectionPointId.get(jobId);
+                routeStep.setCollectionPointId(cpId);
+                // VROOM arrival is in seconds from the vehicle start
+                routeStep.setPredictedFillPct(predictFillAtArrival(context, type, cpId,
+                        planStartMillis + step.getArrival() * 1000L));
             }
             steps.add(routeStep);
         }
@@ -659,21 +824,41 @@ public class TourneeServiceImpl implements TourneeService {
         return tournee;
     }
 
-    private Set<String> getCollectionPointIdsAlreadyCoveredForType(TrashType type) {
-        Set<String> cpIds = new HashSet<>();
-        List<Tournee> assignedTours = tourneeRepository.findByTourneeTypeAndStatus(type, TourneeStatus.PLANNED);
-        List<Tournee> inProgressTours = tourneeRepository.findByTourneeTypeAndStatus(type, TourneeStatus.IN_PROGRESS);
-        for (Tournee t : assignedTours) {
-            if (t.getSteps() == null) continue;
-            for (RouteStep step : t.getSteps()) {
-                if (step.getCollectionPointId() != null) {
-                    cpIds.add(step.getCollectionPointId());
-                }
+    /**
+     * Expected fill of the fullest bin of this type at the CP when the truck
+     * arrives; falls back to the latest reading for bins without a forecast.
+     */
+    private double predictFillAtArrival(PlanningContext context, TrashType type, String cpId, long arrivalMillis) {
+        CollectionPoint cp = context.getCollectionPoint(cpId);
+        if (cp == null || cp.getBins() == null) {
+            return 0.0;
+        }
+        double predicted = 0.0;
+        for (Bin bin : cp.getBins()) {
+            if (!bin.isActive() || !type.equals(bin.getType())) {
+                continue;
+            }
+            double fill = fillRateForecaster.predictFillPct(bin.getId(), arrivalMillis);
+            if (Double.isNaN(fill)) {
+                BinReading latest = context.getLatestReading(bin.getId());
+                fill = latest != null ? latest.getFillPct() : 0.0;
             }
+            predicted = Math.max(predicted, fill);
         }
+        return predicted;
+    }
 
-        for (Tournee t : inProgressTours) {
-            if (t.getSteps() == null) continue;
+    /**
+     * CP ids already on a PLANNED / IN_PROGRESS tour, grouped by tour type.
+     */
+    private Map<TrashType, Set<String>> getCollectionPointIdsAlreadyCovered() {
+        Map<TrashType, Set<String>> cpIdsByType = new EnumMap<>(TrashType.class);
+        List<Tournee> openTours = tourneeRepository.findByStatusIn(
+                List.of(TourneeStatus.PLANNED, TourneeStatus.IN_PROGRESS));
+
+        for (Tournee t : openTours) {
+            if (t.getTourneeType() == null || t.getSteps() == null) continue;
+            Set<String> cpIds = cpIdsByType.computeIfAbsent(t.getTourneeType(), k -> new HashSet<>());
             for (RouteStep step : t.getSteps()) {
                 if (step.getCollectionPointId() != null) {
                     cpIds.add(step.getCollectionPointId());
@@ -681,24 +866,9 @@ public class TourneeServiceImpl implements TourneeService {
             }
         }
 
-        return cpIds;
+        return cpIdsByType;
     }
 
-    private void markVehiclesBusy(Set<String> vehicleIds) {
-        if (vehicleIds == null || vehicleIds.isEmpty()) {
-            return;
-        }
-        List<Vehicle> vehicles = vehicleRepository.findAllById(vehicleIds);
-        if (vehicles.isEmpty()) {
-            return;
-        }
-        for (Vehicle vehicle : vehicles) {
-            vehicle.setBusy(true);
-        }
-        vehicleRepository.saveAll(vehicles);
-    }
-
-
     @Override
     public List<TourneeResponseDTO> findByStatus(TourneeStatus status) {
         List<Tournee> tournees = tourneeRepository.findByStatus(status);
@@ -769,7 +939,7 @@ public class TourneeServiceImpl implements TourneeService {
 
             // Look at latest readings for each bin
             for (Bin bin : binsAtCp) {
-                BinReading latest = binReadingRepository.findTopByBinIdOrderByTsDesc(bin.getId());
+                BinReading latest = latestReadingStore.get(bin.getId());
 
                 if (latest == null) {
                     log.info("[auto-complete] tour={} cp={} bin={} type={} -> no readings (ignored)",
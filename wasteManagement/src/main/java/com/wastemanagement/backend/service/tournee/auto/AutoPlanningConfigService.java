@@ -2,11 +2,15 @@ package com.wastemanagement.backend.service.tournee.auto;
 
 import com.wastemanagement.backend.model.tournee.auto.AutoMode;
 import com.wastemanagement.backend.model.tournee.auto.AutoPlanningConfig;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
+
+import java.util.List;
 
 public interface AutoPlanningConfigService {
 
     public AutoPlanningConfig getOrCreate();
     public AutoMode getAutoMode();
     public AutoMode updateAutoMode(AutoMode autoMode);
+    public AutoPlanningConfig updateEmergencyRules(List<EmergencyRule> emergencyRules);
 
 }
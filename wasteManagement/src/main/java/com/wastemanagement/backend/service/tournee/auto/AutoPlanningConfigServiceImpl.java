@@ -2,10 +2,12 @@ package com.wastemanagement.backend.service.tournee.auto;
 
 import com.wastemanagement.backend.model.tournee.auto.AutoMode;
 import com.wastemanagement.backend.model.tournee.auto.AutoPlanningConfig;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
 import com.wastemanagement.backend.repository.tournee.AutoPlanningConfigRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -38,4 +40,11 @@ public class AutoPlanningConfigServiceImpl implements AutoPlanningConfigService
         repo.save(config);
         return config.getAutoMode();
     }
+
+    @Override
+    public AutoPlanningConfig updateEmergencyRules(List<EmergencyRule> emergencyRules) {
+        AutoPlanningConfig config = getOrCreate();
+        config.setEmergencyRules(emergencyRules);
+        return repo.save(config);
+    }
 }
@@ -7,12 +7,17 @@ import com.wastemanagement.backend.model.tournee.auto.AutoMode;
 import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
 import com.wastemanagement.backend.service.tournee.TourneeAssignmentService;
 import com.wastemanagement.backend.service.tournee.TourneeService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyClusterer.EmergencyBatch;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline.Job;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline.Stage;
+import com.wastemanagement.backend.service.tournee.auto.ZonePartitioner.Zone;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,29 +25,93 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AutoPlanningService {
 
+    // same 660 L bins as TourneeServiceImpl
+    private static final double BIN_CAPACITY_L = 660;
+
     private final AutoPlanningConfigService autoModeService;
     private final BinSnapshotService binSnapshotService;
     private final TourneeService tourneeService;
     private final TourneeAssignmentService tourneeAssignmentService;
+    private final EmergencyClusterer emergencyClusterer;
+    private final ZonePartitioner zonePartitioner;
+    private final PlanningMembershipService membership;
+
+    private final PlanningPipeline pipeline;
 
     /**
-     * Emergency loop (every 15 minutes).
+     * Emergency loop, timed by EmergencyScanScheduler (next predicted crossing, at least every emergencyScanMinute minutes).
      * - OFF          -> do nothing
-     * - EMERGENCY_ONLY or FULL -> plan emergency tours
+     * - EMERGENCY_ONLY or FULL -> plan emergency tours, in spatial batches (EmergencyClusterer)
+     * Runs on the PlanningPipeline, one timed stage at a time.
      */
 
     public void runEmergencyLoopCore(){
 
-        binSnapshotService.refreshSnapshots();
+        // snapshots are maintained incrementally, reading them is in-memory only
+        // (in a cluster, after catching up with the readings ingested by the other nodes)
         AutoMode mode = autoModeService.getAutoMode();
         log.info("AutoPlanning emergency loop, mode={}", mode);
 
-        var emergencies = binSnapshotService.getEmergencySnapshots();
+        Collection<BinSnapshot> emergencies = pipeline.stage(Job.EMERGENCY, Stage.SNAPSHOT, () -> {
+            binSnapshotService.syncFromDatabase();
+            return binSnapshotService.getEmergencySnapshots();
+        });
         if (emergencies.isEmpty()) {
             log.info("No emergency bins at this time.");
             return;
         }
 
+        List<EmergencyBatch> batches = pipeline.stage(Job.EMERGENCY, Stage.SELECT, () -> selectBatches(emergencies));
+
+        // batches with their own vehicles are disjoint and solved concurrently,
+        // the ones sharing the pool afterwards, concurrently too, on shares of what is left
+        List<EmergencyBatch> reserved = batches.stream().filter(b -> b.vehicleIds() != null).toList();
+        List<EmergencyBatch> shared = batches.stream().filter(b -> b.vehicleIds() == null).toList();
+        log.info("Emergency planning in {} batches ({} with reserved vehicles)", batches.size(), reserved.size());
+
+        List<TourneeResponseDTO> planned = new ArrayList<>();
+        if (!reserved.isEmpty()) {
+            planned.addAll(planBatches(reserved));
+        }
+        if (!shared.isEmpty()) {
+            List<EmergencyBatch> sharedOut = pipeline.stage(Job.EMERGENCY, Stage.SELECT,
+                    () -> shareFleet(shared, emergencies));
+            if (sharedOut != null) {
+                planned.addAll(planBatches(sharedOut));
+            } else {
+                for (EmergencyBatch batch : shared) {
+                    planned.addAll(planBatches(List.of(batch)));
+                }
+            }
+        }
+
+        // assignment picks free employees: sequential, never raced between batches
+        pipeline.stage(Job.EMERGENCY, Stage.ASSIGN, () -> assign(planned, "emergency"));
+    }
+
+    // scheduled by EmergencyScanScheduler
+    public void runEmergencyLoop() {
+        AutoMode mode = autoModeService.getAutoMode();
+        if (mode != AutoMode.OFF) {
+            runEmergencyLoopCore();
+        }
+    }
+
+    /**
+     * Emergency scan on the pipeline, skipped in OFF mode. Completes when the run is over.
+     */
+    public CompletableFuture<Void> submitEmergencyLoop() {
+        return pipeline.submit(Job.EMERGENCY, this::runEmergencyLoop, true);
+    }
+
+    /**
+     * Manual emergency run on the pipeline, whatever the mode.
+     */
+    public CompletableFuture<Void> triggerEmergencyLoop() {
+        return pipeline.submit(Job.EMERGENCY, this::runEmergencyLoopCore, false);
+    }
+
+    private List<EmergencyBatch> selectBatches(Collection<BinSnapshot> emergencies) {
         // group emergency bins by TrashType
         Map<TrashType, Set<String>> cpIdsByType = emergencies.stream()
                 .collect(Collectors.groupingBy(
@@ -50,33 +119,92 @@ public class AutoPlanningService {
                         Collectors.mapping(BinSnapshot::getCollectionPointId, Collectors.toSet())
                 ));
 
-        cpIdsByType.forEach((type, cpIds) -> {
-            if (cpIds == null || cpIds.isEmpty()) {
-                log.info("No emergency CPs for type={}, skipping", type);
-                return;
-            }
+        cpIdsByType.values().removeIf(cpIds -> cpIds == null || cpIds.isEmpty());
+        // liters per CP, so reserved vehicles follow demand rather than CP count
+        Map<TrashType, Map<String, Double>> litersByType = emergencies.stream()
+                .filter(s -> s.getCollectionPointId() != null)
+                .collect(Collectors.groupingBy(
+                        BinSnapshot::getTrashType,
+                        Collectors.groupingBy(BinSnapshot::getCollectionPointId,
+                                Collectors.summingDouble(s -> s.getFillPct() / 100.0 * BIN_CAPACITY_L))));
+
+        try {
+            return emergencyClusterer.cluster(cpIdsByType, litersByType);
+        } catch (Exception e) {
+            log.warn("Emergency clustering failed, planning one batch per type", e);
+            return EmergencyClusterer.byType(cpIdsByType);
+        }
+    }
 
-            log.info("Emergency planning for type={}, cpCount={}", type, cpIds.size());
+    // null when the fleet could not be shared: the batches then go one at a time over the whole pool
+    private List<EmergencyBatch> shareFleet(List<EmergencyBatch> shared, Collection<BinSnapshot> emergencies) {
+        // volume of the emergency bins of each batch, i.e. what its vehicles will have to carry
+        Map<EmergencyBatch, Double> demand = new HashMap<>();
+        for (EmergencyBatch batch : shared) {
+            double liters = emergencies.stream()
+                    .filter(s -> s.getTrashType() == batch.type()
+                            && batch.collectionPointIds().contains(s.getCollectionPointId()))
+                    .mapToDouble(s -> s.getFillPct() / 100.0 * BIN_CAPACITY_L)
+                    .sum();
+            demand.put(batch, liters);
+        }
+        try {
+            return emergencyClusterer.shareFleet(shared, demand);
+        } catch (Exception e) {
+            log.warn("Could not share the fleet between emergency batches, planning them one at a time", e);
+            return null;
+        }
+    }
 
+    // optimize then persist stage over batches that do not compete for vehicles
+    private List<TourneeResponseDTO> planBatches(List<EmergencyBatch> batches) {
+        List<Tournee> solved = pipeline.stage(Job.EMERGENCY, Stage.OPTIMIZE, () -> {
+            List<CompletableFuture<List<Tournee>>> solves = batches.stream()
+                    .map(batch -> CompletableFuture.supplyAsync(() -> solveBatch(batch), pipeline.solverExecutor()))
+                    .toList();
+            return solves.stream()
+                    .flatMap(solve -> solve.join().stream())
+                    .toList();
+        });
+        if (solved.isEmpty()) {
+            return List.of();
+        }
+        return pipeline.stage(Job.EMERGENCY, Stage.PERSIST, () -> {
             try {
-                // fillThreshold is ignored in forced-CP mode, but we pass 0.0 for clarity
-                var tours = tourneeService.planTourneesWithVroom(type, 0.0, cpIds);
-                log.info("Planned {} emergency tours for type {}", tours.size(), type);
-                for (TourneeResponseDTO tour : tours) {
-                    tourneeAssignmentService.autoAssignForTournee(tour.getId());
-                    log.info("Assigned emergency tournee id={} for type {}", tour.getId(), type);
-                }
+                var tours = tourneeService.savePlannedTournees(solved);
+                log.info("Saved {} emergency tours", tours.size());
+                return tours;
             } catch (Exception e) {
-                log.error("Error planning emergency tours for type {}", type, e);
+                log.error("Error saving {} emergency tours", solved.size(), e);
+                return List.<TourneeResponseDTO>of();
             }
         });
     }
 
-    @Scheduled(fixedDelay = 15 * 60 * 1000L)
-    public void runEmergencyLoop() {
-        AutoMode mode = autoModeService.getAutoMode();
-        if (mode != AutoMode.OFF) {
-            runEmergencyLoopCore();
+    private List<Tournee> solveBatch(EmergencyBatch batch) {
+        TrashType type = batch.type();
+        log.info("Emergency planning for type={}, cpCount={}, vehicles={}", type,
+                batch.collectionPointIds().size(),
+                batch.vehicleIds() == null ? "shared" : batch.vehicleIds().size());
+        try {
+            // fillThreshold is ignored in forced-CP mode, but we pass 0.0 for clarity
+            var tours = tourneeService.solveTournees(type, 0.0, batch.collectionPointIds(), batch.vehicleIds());
+            log.info("Planned {} emergency tours for type {}", tours.size(), type);
+            return tours;
+        } catch (Exception e) {
+            log.error("Error planning emergency tours for type {}", type, e);
+            return List.of();
+        }
+    }
+
+    private void assign(List<TourneeResponseDTO> tours, String cycle) {
+        for (TourneeResponseDTO tour : tours) {
+            try {
+                tourneeAssignmentService.autoAssignForTournee(tour.getId());
+                log.info("Assigned {} tournee id={}", cycle, tour.getId());
+            } catch (Exception e) {
+                log.error("Error assigning {} tournee id={}", cycle, tour.getId(), e);
+            }
         }
     }
 
@@ -85,33 +213,100 @@ public class AutoPlanningService {
      * - OFF / EMERGENCY_ONLY -> skip
      * - FULL                 -> run your normal daily planning
      * Second minute hour day-of-month month day-of-week
+     * The multi-type planner selects, solves and saves in one call: it is timed as the optimize stage.
+     * With zone planning on, each node only plans the zones it owns (runZonedCycle).
      */
 
     public void runScheduledCycleCore() {
-        binSnapshotService.refreshSnapshots();
         log.info("Running FULL scheduled cycle for all trash types");
         List<TrashType> allTypes = List.of(TrashType.PLASTIC, TrashType.ORGANIC,
                 TrashType.GLASS, TrashType.PAPER);
 
+        if (membership.isEnabled()) {
+            runZonedCycle(allTypes);
+            return;
+        }
+
         try {
-            var tours = tourneeService.planTourneesWithVroom(allTypes, 80.0);
+            pipeline.stage(Job.DAILY, Stage.SNAPSHOT, binSnapshotService::syncFromDatabase);
+            // this stage also saves the tours: fenced like a persist stage
+            pipeline.verifyLease();
+            var tours = pipeline.stage(Job.DAILY, Stage.OPTIMIZE,
+                    () -> tourneeService.planTourneesWithVroom(allTypes, 80.0));
             log.info("Planned {} tours in FULL scheduled cycle", tours.size());
-            for (TourneeResponseDTO tour : tours) {
-                tourneeAssignmentService.autoAssignForTournee(tour.getId());
-                log.info("Assigned tournee id={} in FULL scheduled cycle", tour.getId());
-            }
+            pipeline.stage(Job.DAILY, Stage.ASSIGN, () -> assign(tours, "FULL cycle"));
 
         } catch (Exception e) {
             log.error("Error in FULL scheduled cycle", e);
         }
     }
 
+    /**
+     * Daily cycle of this node in zone planning: every live node reads the same zones and vehicle
+     * split (computed once per cycle by ZonePartitioner), keeps the zones the ConsistentHashRing
+     * gives it and plans them concurrently, each with its own vehicles.
+     */
+    private void runZonedCycle(List<TrashType> types) {
+        try {
+            List<Zone> zones = pipeline.stage(Job.DAILY, Stage.SELECT, () -> {
+                ConsistentHashRing ring = membership.ring();
+                return zonePartitioner.partition(types, 80.0).stream()
+                        .filter(zone -> membership.getNodeId().equals(ring.ownerOf(zone.id())))
+                        .toList();
+            });
+            log.info("Node {} plans {} zones", membership.getNodeId(), zones.size());
+
+            List<TourneeResponseDTO> tours = pipeline.stage(Job.DAILY, Stage.OPTIMIZE, () -> {
+                List<CompletableFuture<List<TourneeResponseDTO>>> solves = zones.stream()
+                        .map(zone -> CompletableFuture.supplyAsync(() -> planZone(zone, types), pipeline.solverExecutor()))
+                        .toList();
+                return solves.stream()
+                        .flatMap(solve -> solve.join().stream())
+                        .toList();
+            });
+            log.info("Planned {} tours in zoned FULL cycle", tours.size());
+            pipeline.stage(Job.DAILY, Stage.ASSIGN, () -> assign(tours, "FULL cycle"));
+
+        } catch (Exception e) {
+            log.error("Error in zoned FULL scheduled cycle", e);
+        }
+    }
+
+    private List<TourneeResponseDTO> planZone(Zone zone, List<TrashType> types) {
+        if (zone.vehicleIds().isEmpty()) {
+            log.warn("Zone {} has {} L to collect but no vehicle left", zone.id(), Math.round(zone.demandL()));
+            return List.of();
+        }
+        try {
+            return tourneeService.planTourneesWithVroom(types, 80.0, zone.collectionPointIds(), zone.vehicleIds());
+        } catch (Exception e) {
+            log.error("Error planning zone {}", zone.id(), e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Manual FULL cycle on the pipeline, whatever the mode.
+     */
+    public CompletableFuture<Void> triggerScheduledCycle() {
+        return pipeline.submit(Job.DAILY, this::runScheduledCycleCore);
+    }
 
+    // only hands the run over to the pipeline: the scheduler thread is never held by a solve
     @Scheduled(cron = "0 0 6 * * *")
     public void runScheduledCycle() {
         AutoMode mode = autoModeService.getAutoMode();
         if (mode == AutoMode.FULL) {
+            pipeline.submit(Job.DAILY, this::runScheduledCycleIfFull, true);
+        }
+    }
+
+    // checked again when the run starts: the mode may have changed while it was queued
+    private void runScheduledCycleIfFull() {
+        if (autoModeService.getAutoMode() == AutoMode.FULL) {
             runScheduledCycleCore();
+        } else {
+            log.info("Daily cycle skipped: auto mode is no longer FULL");
         }
     }
 
@@ -0,0 +1,260 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.collection.TrashType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Local binary checkpoint of a BinSnapshotImage, so a restarted node serves emergencies
+ * right away instead of waiting for a full reconciliation.
+ * Layout (big-endian): magic, format, capturedAt, version, bin / CP counts, the two id
+ * dictionaries, then one block per column, then a CRC32 of everything before it.
+ * Written to a temp file and moved into place; read back memory-mapped and rejected
+ * as a whole if the checksum, header or any index does not match.
+ */
+@Component
+@Slf4j
+public class BinSnapshotCheckpoint {
+
+    private static final int MAGIC = 0x42534E50; // "BSNP"
+    private static final int FORMAT = 2;
+    private static final int TRAILER_BYTES = Long.BYTES;
+
+    public record Restored(BinSnapshotImage image, long capturedAt) {}
+
+    private final boolean enabled;
+    private final Path path;
+    private final long maxAgeMillis;
+
+    public BinSnapshotCheckpoint(
+            @Value("${auto-planning.snapshots.checkpoint.enabled:true}") boolean enabled,
+            @Value("${auto-planning.snapshots.checkpoint.path:data/bin-snapshots.ckpt}") String path,
+            @Value("${auto-planning.snapshots.checkpoint.max-age-hours:24}") long maxAgeHours) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.maxAgeMillis = TimeUnit.HOURS.toMillis(maxAgeHours);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * capturedAt must not be later than the moment the image was taken: readings
+     * inserted after it are replayed on restore.
+     */
+    public void write(BinSnapshotImage image, long capturedAt) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            String[] binIds = image.binIds();
+            String[] cpIds = image.cpIds();
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(capturedAt);
+            out.writeLong(image.version());
+            out.writeInt(binIds.length);
+            out.writeInt(cpIds.length);
+            for (String id : binIds) {
+                writeString(out, id);
+            }
+            for (String id : cpIds) {
+                writeString(out, id);
+            }
+            for (int v : image.cpIndex()) {
+                out.writeInt(v);
+            }
+            out.write(image.types());
+            for (double v : image.fillPct()) {
+                out.writeDouble(v);
+            }
+            for (double v : image.fillRate()) {
+                out.writeDouble(v);
+            }
+            for (long v : image.lastCollectedAt()) {
+                out.writeLong(v);
+            }
+            out.write(image.reasons());
+            writeBits(out, image.active());
+            writeBits(out, image.present());
+            writeBits(out, image.emergency());
+            out.flush();
+            // the trailer itself is not part of the checksum
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The last checkpoint, if there is one, it is intact and not older than max-age-hours.
+     * Its reason codes are those of the rules in force when it was written: callers
+     * rescore with the current rules before publishing it.
+     */
+    public Optional<Restored> read(long now, EmergencyRules rules) {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                return rejected("unexpected size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyBytes = (int) size - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, bodyBytes));
+            if (crc.getValue() != buffer.getLong(bodyBytes)) {
+                return rejected("checksum mismatch");
+            }
+            ByteBuffer in = buffer.slice(0, bodyBytes);
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT) {
+                return rejected("unknown header");
+            }
+            long capturedAt = in.getLong();
+            if (now - capturedAt > maxAgeMillis) {
+                return rejected("older than " + TimeUnit.MILLISECONDS.toHours(maxAgeMillis) + "h");
+            }
+            BinSnapshotImage image = readImage(in, rules);
+            if (image == null || in.hasRemaining()) {
+                return rejected("inconsistent columns");
+            }
+            return Optional.of(new Restored(image, capturedAt));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Bin snapshot checkpoint {} unreadable, ignoring it: {}", path, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static BinSnapshotImage readImage(ByteBuffer in, EmergencyRules rules) {
+        try {
+            long version = in.getLong();
+            int binCount = in.getInt();
+            int cpCount = in.getInt();
+            if (binCount < 0 || cpCount < 0 || (binCount > 0 && cpCount == 0)) {
+                return null;
+            }
+            String[] binIds = new String[binCount];
+            for (int i = 0; i < binCount; i++) {
+                binIds[i] = readString(in);
+            }
+            String[] cpIds = new String[cpCount];
+            for (int i = 0; i < cpCount; i++) {
+                cpIds[i] = readString(in);
+            }
+            int[] cpIndex = new int[binCount];
+            for (int i = 0; i < binCount; i++) {
+                cpIndex[i] = in.getInt();
+                if (cpIndex[i] < 0 || cpIndex[i] >= cpCount) {
+                    return null;
+                }
+            }
+            byte[] types = new byte[binCount];
+            in.get(types);
+            for (byte type : types) {
+                if (type != EmergencyRules.NO_TYPE && (type < 0 || type >= TrashType.values().length)) {
+                    return null;
+                }
+            }
+            double[] fillPct = new double[binCount];
+            for (int i = 0; i < binCount; i++) {
+                fillPct[i] = in.getDouble();
+            }
+            double[] fillRate = new double[binCount];
+            for (int i = 0; i < binCount; i++) {
+                fillRate[i] = in.getDouble();
+            }
+            long[] lastCollectedAt = new long[binCount];
+            for (int i = 0; i < binCount; i++) {
+                lastCollectedAt[i] = in.getLong();
+            }
+            byte[] reasons = new byte[binCount];
+            in.get(reasons);
+            for (byte reason : reasons) {
+                if (reason < EmergencyRules.NONE) {
+                    return null;
+                }
+            }
+            BitSet active = readBits(in);
+            BitSet present = readBits(in);
+            BitSet emergency = readBits(in);
+            if (active.length() > binCount || present.length() > binCount || emergency.length() > binCount) {
+                return null;
+            }
+            return new BinSnapshotImage(version, rules, binIds, cpIds, cpIndex, types, fillPct, fillRate,
+                    lastCollectedAt, reasons, active, present, emergency);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Optional<Restored> rejected(String reason) {
+        log.warn("Bin snapshot checkpoint {} rejected: {}", path, reason);
+        return Optional.empty();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private static BitSet readBits(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException("bitset length " + length);
+        }
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = in.getLong();
+        }
+        return BitSet.valueOf(words);
+    }
+}
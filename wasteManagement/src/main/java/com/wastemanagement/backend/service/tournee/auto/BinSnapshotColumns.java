@@ -0,0 +1,226 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.collection.TrashType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable working copy behind BinSnapshotImage, one row per bin ever indexed.
+ * Rows are never reused: a removed bin only loses its active bit, and the
+ * periodic reconciliation rebuilds a compact store from scratch.
+ * Not thread-safe, guarded by BinSnapshotService.
+ */
+final class BinSnapshotColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> binIndex = new HashMap<>();
+    private final Map<String, Integer> cpIndexById = new HashMap<>();
+    private final Map<Integer, int[]> binsByCp = new HashMap<>();
+
+    private String[] binIds = new String[INITIAL_CAPACITY];
+    private String[] cpIds = new String[INITIAL_CAPACITY];
+    private int[] cpIndex = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private double[] fillPct = new double[INITIAL_CAPACITY];
+    private double[] fillRate = new double[INITIAL_CAPACITY];
+    private long[] lastCollectedAt = new long[INITIAL_CAPACITY];
+    private byte[] reasons = new byte[INITIAL_CAPACITY];
+    private final BitSet active = new BitSet();
+    private final BitSet hasReading = new BitSet();
+    private final BitSet emergency = new BitSet();
+    private int binCount;
+    private int cpCount;
+    // rules the reasons column was computed with
+    private EmergencyRules rules;
+
+    BinSnapshotColumns(EmergencyRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Working store resumed from a published (or checkpointed) image.
+     */
+    static BinSnapshotColumns restore(BinSnapshotImage image, EmergencyRules rules, long now) {
+        BinSnapshotColumns columns = new BinSnapshotColumns(image.rules());
+        String[] ids = image.binIds();
+        String[] cps = image.cpIds();
+        for (String cpId : cps) {
+            columns.newCp(cpId);
+            columns.cpIndexById.put(cpId, columns.cpCount - 1);
+        }
+        Map<Integer, List<Integer>> rowsByCp = new HashMap<>();
+        for (int row = 0; row < ids.length; row++) {
+            columns.newBin(ids[row]);
+            columns.binIndex.put(ids[row], row);
+            columns.cpIndex[row] = image.cpIndex()[row];
+            columns.types[row] = image.types()[row];
+            columns.fillPct[row] = image.fillPct()[row];
+            columns.fillRate[row] = image.fillRate()[row];
+            columns.lastCollectedAt[row] = image.lastCollectedAt()[row];
+            columns.reasons[row] = image.reasons()[row];
+            if (image.active().get(row)) {
+                rowsByCp.computeIfAbsent(columns.cpIndex[row], k -> new ArrayList<>()).add(row);
+            }
+        }
+        columns.active.or(image.active());
+        columns.hasReading.or(image.present());
+        columns.emergency.or(image.emergency());
+        rowsByCp.forEach((cp, rows) -> columns.binsByCp.put(cp, rows.stream().mapToInt(Integer::intValue).toArray()));
+        columns.rescore(rules, now);
+        return columns;
+    }
+
+    /**
+     * Row of an active bin, or -1.
+     */
+    int activeIndexOf(String binId) {
+        Integer index = binIndex.get(binId);
+        return index != null && active.get(index) ? index : -1;
+    }
+
+    String binId(int index) {
+        return binIds[index];
+    }
+
+    /**
+     * Replaces the active bins of a collection point. Returns the rows now active for it;
+     * bins it no longer holds are deactivated unless another CP claimed them meanwhile.
+     */
+    int[] putCollectionPoint(String cpId, String[] ids, TrashType[] binTypes, Instant[] collectedAt) {
+        int cp = cpIndexById.computeIfAbsent(cpId, this::newCp);
+        int[] rows = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int row = binIndex.computeIfAbsent(ids[i], this::newBin);
+            cpIndex[row] = cp;
+            types[row] = EmergencyRules.encode(binTypes[i]);
+            lastCollectedAt[row] = collectedAt[i] == null ? EmergencyRules.NO_TIMESTAMP : collectedAt[i].toEpochMilli();
+            active.set(row);
+            rows[i] = row;
+        }
+        int[] previous = rows.length == 0 ? binsByCp.remove(cp) : binsByCp.put(cp, rows);
+        if (previous != null) {
+            int[] kept = rows.clone();
+            Arrays.sort(kept);
+            for (int row : previous) {
+                if (Arrays.binarySearch(kept, row) < 0 && cpIndex[row] == cp) {
+                    deactivate(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    void removeCollectionPoint(String cpId) {
+        Integer cp = cpIndexById.get(cpId);
+        int[] previous = cp == null ? null : binsByCp.remove(cp);
+        if (previous == null) {
+            return;
+        }
+        for (int row : previous) {
+            if (cpIndex[row] == cp) {
+                deactivate(row);
+            }
+        }
+    }
+
+    EmergencyRules rules() {
+        return rules;
+    }
+
+    /**
+     * @param rate forecast fill rate in % per hour, NaN when unknown
+     */
+    void setReading(int row, double fill, double rate, long now) {
+        fillPct[row] = fill;
+        fillRate[row] = rate;
+        hasReading.set(row);
+        evaluate(row, now);
+    }
+
+    /**
+     * Re-evaluates every bin with a reading against new rules. Allocation-free,
+     * a few milliseconds per million bins.
+     */
+    void rescore(EmergencyRules newRules, long now) {
+        rules = newRules;
+        for (int row = hasReading.nextSetBit(0); row >= 0; row = hasReading.nextSetBit(row + 1)) {
+            if (active.get(row)) {
+                evaluate(row, now);
+            }
+        }
+    }
+
+    boolean isEmergency(int row) {
+        return emergency.get(row);
+    }
+
+    String reason(int row) {
+        return rules.label(reasons[row]);
+    }
+
+    void clearReading(int row) {
+        hasReading.clear(row);
+        emergency.clear(row);
+        reasons[row] = EmergencyRules.NONE;
+    }
+
+    BinSnapshotImage publish(long version) {
+        BitSet present = (BitSet) active.clone();
+        present.and(hasReading);
+        BitSet flagged = (BitSet) emergency.clone();
+        flagged.and(present);
+        return new BinSnapshotImage(version, rules,
+                Arrays.copyOf(binIds, binCount),
+                Arrays.copyOf(cpIds, cpCount),
+                Arrays.copyOf(cpIndex, binCount),
+                Arrays.copyOf(types, binCount),
+                Arrays.copyOf(fillPct, binCount),
+                Arrays.copyOf(fillRate, binCount),
+                Arrays.copyOf(lastCollectedAt, binCount),
+                Arrays.copyOf(reasons, binCount),
+                (BitSet) active.clone(),
+                present,
+                flagged);
+    }
+
+    private void evaluate(int row, long now) {
+        byte reason = rules.evaluate(types[row], fillPct[row], lastCollectedAt[row], fillRate[row], now);
+        reasons[row] = reason;
+        emergency.set(row, reason != EmergencyRules.NONE);
+    }
+
+    private void deactivate(int row) {
+        active.clear(row);
+        clearReading(row);
+    }
+
+    private int newBin(String binId) {
+        if (binCount == binIds.length) {
+            int capacity = binIds.length * 2;
+            binIds = Arrays.copyOf(binIds, capacity);
+            cpIndex = Arrays.copyOf(cpIndex, capacity);
+            types = Arrays.copyOf(types, capacity);
+            fillPct = Arrays.copyOf(fillPct, capacity);
+            fillRate = Arrays.copyOf(fillRate, capacity);
+            lastCollectedAt = Arrays.copyOf(lastCollectedAt, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+        }
+        binIds[binCount] = binId;
+        return binCount++;
+    }
+
+    private int newCp(String cpId) {
+        if (cpCount == cpIds.length) {
+            cpIds = Arrays.copyOf(cpIds, cpIds.length * 2);
+        }
+        cpIds[cpCount] = cpId;
+        return cpCount++;
+    }
+}
@@ -0,0 +1,181 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable, versioned view of every bin snapshot, stored column-wise:
+ * bin / CP ids are dictionary-encoded to int indices, and each attribute lives in its own
+ * primitive array. Published by BinSnapshotService through an atomic reference swap, so a
+ * reader holding an image sees one consistent version without locking.
+ * BinSnapshot objects are only materialized for the bins a caller asks for.
+ */
+public final class BinSnapshotImage {
+
+    static BinSnapshotImage empty(EmergencyRules rules) {
+        return new BinSnapshotImage(0, rules, new String[0], new String[0], new int[0], new byte[0],
+                new double[0], new double[0], new long[0], new byte[0], new BitSet(), new BitSet(), new BitSet());
+    }
+
+    private final long version;
+    // rules the reasons were computed with, also used for the age-based re-evaluation
+    private final EmergencyRules rules;
+    private final String[] binIds;
+    private final String[] cpIds;
+    private final int[] cpIndex;
+    private final byte[] types;
+    private final double[] fillPct;
+    private final double[] fillRate;
+    private final long[] lastCollectedAt;
+    private final byte[] reasons;
+    // bins currently held by a collection point, with or without a reading
+    private final BitSet active;
+    // active bins with at least one reading
+    private final BitSet present;
+    // emergency as of the last update of the bin
+    private final BitSet emergency;
+
+    BinSnapshotImage(long version, EmergencyRules rules, String[] binIds, String[] cpIds, int[] cpIndex, byte[] types,
+                     double[] fillPct, double[] fillRate, long[] lastCollectedAt, byte[] reasons, BitSet active, BitSet present, BitSet emergency) {
+        this.version = version;
+        this.rules = rules;
+        this.binIds = binIds;
+        this.cpIds = cpIds;
+        this.cpIndex = cpIndex;
+        this.types = types;
+        this.fillPct = fillPct;
+        this.fillRate = fillRate;
+        this.lastCollectedAt = lastCollectedAt;
+        this.reasons = reasons;
+        this.active = active;
+        this.present = present;
+        this.emergency = emergency;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return present.cardinality();
+    }
+
+    public List<BinSnapshot> toSnapshots() {
+        List<BinSnapshot> result = new ArrayList<>(size());
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            result.add(materialize(i, reasons[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Emergency bins as of now. Bins that a rule on the time since collection can apply to
+     * are re-evaluated; the others keep the outcome of their last update.
+     */
+    public List<BinSnapshot> emergencies(Instant now) {
+        long nowMillis = now.toEpochMilli();
+        List<BinSnapshot> result = new ArrayList<>();
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            byte reason = rules.dependsOnTime(types[i], lastCollectedAt[i])
+                    ? rules.evaluate(types[i], fillPct[i], lastCollectedAt[i], fillRate[i], nowMillis)
+                    : reasons[i];
+            if (reason != EmergencyRules.NONE) {
+                result.add(materialize(i, reason));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Earliest moment a bin that is not an emergency now is predicted to become one,
+     * extrapolating its forecast fill rate and its age; empty if none is expected to.
+     * Bins without a known rate only cross through the passage of time.
+     */
+    public Optional<Instant> predictNextEmergency(Instant now) {
+        long nowMillis = now.toEpochMilli();
+        double earliest = Double.POSITIVE_INFINITY;
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            double hours = rules.hoursUntilMatch(types[i], fillPct[i], lastCollectedAt[i], fillRate[i], nowMillis);
+            // 0: already an emergency, the current scan is the one to handle it
+            if (hours > 0 && hours < earliest) {
+                earliest = hours;
+            }
+        }
+        if (Double.isInfinite(earliest)) {
+            return Optional.empty();
+        }
+        return Optional.of(now.plusMillis((long) Math.ceil(earliest * 3_600_000L)));
+    }
+
+    long emergencyCount() {
+        return emergency.cardinality();
+    }
+
+    // raw columns, read by BinSnapshotColumns.restore and BinSnapshotCheckpoint; callers must not modify them
+
+    EmergencyRules rules() {
+        return rules;
+    }
+
+    String[] binIds() {
+        return binIds;
+    }
+
+    String[] cpIds() {
+        return cpIds;
+    }
+
+    int[] cpIndex() {
+        return cpIndex;
+    }
+
+    byte[] types() {
+        return types;
+    }
+
+    double[] fillPct() {
+        return fillPct;
+    }
+
+    double[] fillRate() {
+        return fillRate;
+    }
+
+    long[] lastCollectedAt() {
+        return lastCollectedAt;
+    }
+
+    byte[] reasons() {
+        return reasons;
+    }
+
+    BitSet active() {
+        return active;
+    }
+
+    BitSet present() {
+        return present;
+    }
+
+    BitSet emergency() {
+        return emergency;
+    }
+
+    private BinSnapshot materialize(int i, byte reason) {
+        long collected = lastCollectedAt[i];
+        return BinSnapshot.builder()
+                .binId(binIds[i])
+                .collectionPointId(cpIds[cpIndex[i]])
+                .trashType(EmergencyRules.decode(types[i]))
+                .fillPct(fillPct[i])
+                .lastCollectedAt(collected == EmergencyRules.NO_TIMESTAMP ? null : Instant.ofEpochMilli(collected))
+                .emergency(reason != EmergencyRules.NONE)
+                .emergencyReason(rules.label(reason))
+                .build();
+    }
+}
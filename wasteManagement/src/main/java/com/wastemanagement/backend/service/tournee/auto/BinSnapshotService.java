@@ -6,114 +6,450 @@ import com.wastemanagement.backend.model.collection.CollectionPoint;
 import com.wastemanagement.backend.model.collection.TrashType;
 import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
 import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
 import com.wastemanagement.backend.repository.collection.BinReadingRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * In-memory emergency view of every active bin, kept current incrementally:
+ * - a stored reading recomputes only its bin (onReading)
+ * - a saved / deleted collection point updates its bins (CollectionPointSnapshotListener)
+ * - time-based rules are re-evaluated when emergencies are read
+ * The full rebuild from Mongo only runs as a low-frequency safety net, and at startup
+ * when no usable checkpoint is on disk (BinSnapshotCheckpoint).
+ *
+ * Writes go to a columnar working store under this service's lock. Readers get an
+ * immutable BinSnapshotImage through an atomic reference, without locking. The write side
+ * publishes new versions: the first write after a publish schedules the next one
+ * publish-delay-ms later, so a burst of readings costs a single copy.
+ *
+ * In a cluster (PlanningLeaseService) every node reconciles, followers reloading the latest
+ * readings first since most of them were ingested elsewhere; the leader also catches up with
+ * the other nodes' readings before planning (syncFromDatabase).
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BinSnapshotService {
-    private final BinReadingRepository binReadingRepository;
+    private final LatestReadingStore latestReadingStore;
     private final CollectionPointRepository collectionPointRepository;
+    private final BinReadingRepository binReadingRepository;
+    private final BinSnapshotCheckpoint checkpoint;
+    private final FillRateForecaster fillRateForecaster;
+    private final EmergencyRuleEngine ruleEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlanningLeaseService lease;
+
+    private final AtomicReference<BinSnapshotImage> image = new AtomicReference<>(BinSnapshotImage.empty(EmergencyRules.defaults()));
+    // guarded by this
+    private BinSnapshotColumns columns = new BinSnapshotColumns(EmergencyRules.defaults());
+    private long version;
+    private volatile boolean dirty;
+    private long checkpointedVersion = -1;
+    private final Object reconcileLock = new Object();
+    // non-null while a reconciliation is building its store: updates to replay onto it
+    private List<Consumer<BinSnapshotColumns>> pendingReplay;
+    // guarded by reconcileLock: lease token and start time of the last syncFromDatabase
+    private long syncedToken;
+    private long syncedAt;
 
-    private final Map<String, BinSnapshot> snapshots = new ConcurrentHashMap<>();
+    // 0 = publish on every write
+    @Value("${auto-planning.snapshots.publish-delay-ms:200}")
+    private long publishDelayMs;
+    // readings are replayed from this long before a checkpoint or sync: gateways report late
+    @Value("${auto-planning.snapshots.catch-up-margin-ms:900000}")
+    private long catchUpMarginMs;
+    // after a warm start, CP and bin edits made while the node was down; 0 = wait for the periodic one
+    @Value("${auto-planning.snapshots.reconcile-after-restore-ms:30000}")
+    private long reconcileAfterRestoreMs;
+    // guarded by this
+    private ScheduledExecutorService background;
+    private boolean publishScheduled;
+
+    /**
+     * Latest published version: at most publish-delay-ms behind the writes. Lock-free, except
+     * for the first read after an emergency rules change, which republishes.
+     */
+    public BinSnapshotImage currentImage() {
+        BinSnapshotImage current = image.get();
+        if (current.rules() != ruleEngine.current()) {
+            publish();
+            return image.get();
+        }
+        return current;
+    }
 
     public Collection<BinSnapshot> getAllSnapshots(){
-        return snapshots.values();
+        return currentImage().toSnapshots();
     }
 
+    /**
+     * Emergency bins as of now. Age-based rules are re-evaluated here, so a bin
+     * that crossed 48h / 72h without a new reading still shows up. No I/O.
+     */
     public Collection<BinSnapshot> getEmergencySnapshots(){
-        return snapshots.values().stream()
-                .filter(BinSnapshot::isEmergency)
-                .toList();
+        return currentImage().emergencies(Instant.now());
     }
 
-    @Scheduled(fixedDelay = 15 * 60 * 1000L)
-    public void refreshSnapshots() {
-        log.info("Refreshing bin snapshots for auto planning...");
+    /**
+     * Write-through hook for a stored (or deleted) reading: recomputes that bin only,
+     * from the latest reading held by LatestReadingStore. Publishes an EmergencyCrossingEvent
+     * when the bin just became an emergency.
+     */
+    public void onReading(String binId) {
+        String reason = null;
+        synchronized (this) {
+            int row = binId == null ? -1 : columns.activeIndexOf(binId);
+            if (row < 0) {
+                return; // unknown or inactive bin
+            }
+            long now = System.currentTimeMillis();
+            syncRules(now);
+            boolean wasEmergency = columns.isEmergency(row);
+            refresh(columns, row, now);
+            if (!wasEmergency && columns.isEmergency(row)) {
+                reason = columns.reason(row);
+            }
+            apply(target -> {
+                int rebuiltRow = target.activeIndexOf(binId);
+                if (rebuiltRow >= 0) {
+                    refresh(target, rebuiltRow, now);
+                }
+            });
+        }
+        // outside the lock: listeners may read the snapshots
+        if (reason != null) {
+            eventPublisher.publishEvent(new EmergencyCrossingEvent(binId, reason));
+        }
+    }
 
-        // We now work from collection points and their embedded bins
-        List<CollectionPoint> allCps = collectionPointRepository.findAll();
+    /**
+     * A collection point was saved: re-index its bins and drop the ones it no longer holds.
+     */
+    public synchronized void onCollectionPointSaved(CollectionPoint cp) {
+        if (cp == null || cp.getId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        syncRules(now);
+        index(columns, cp, now);
+        apply(target -> index(target, cp, now));
+    }
 
-        Map<String, BinSnapshot> newMap = new ConcurrentHashMap<>();
-        Instant now = Instant.now();
+    public synchronized void onCollectionPointDeleted(String cpId) {
+        if (cpId == null) {
+            return;
+        }
+        columns.removeCollectionPoint(cpId);
+        apply(target -> target.removeCollectionPoint(cpId));
+    }
 
-        for (CollectionPoint cp : allCps) {
-            if (cp.getBins() == null || cp.getBins().isEmpty()) {
-                continue;
+    /**
+     * Full rebuild from Mongo. Safety net only: incremental hooks keep the view current,
+     * this catches writes that bypassed them (e.g. direct updates in the shell).
+     * The new store is built aside and swapped in, readers never see a partial state.
+     * Followers reload the latest readings first: their API view would otherwise only know the
+     * readings they ingested themselves. Read-only on the database either way.
+     */
+    @Scheduled(fixedDelayString = "${auto-planning.snapshots.reconcile-interval-ms:3600000}",
+            initialDelayString = "${auto-planning.snapshots.reconcile-interval-ms:3600000}")
+    public void refreshSnapshots() {
+        synchronized (reconcileLock) {
+            log.info("Reconciling bin snapshots for auto planning...");
+            if (!lease.isLeader()) {
+                latestReadingStore.reseed();
             }
+            synchronized (this) {
+                pendingReplay = new ArrayList<>();
+            }
+            try {
+                List<CollectionPoint> allCps = collectionPointRepository.findAll();
+
+                BinSnapshotColumns rebuilt = new BinSnapshotColumns(ruleEngine.current());
+                long now = System.currentTimeMillis();
+                for (CollectionPoint cp : allCps) {
+                    if (cp.getId() != null) {
+                        index(rebuilt, cp, now);
+                    }
+                }
 
-            for (Bin bin : cp.getBins()) {
-                if (!bin.isActive()) {
-                    continue;
+                BinSnapshotImage published;
+                synchronized (this) {
+                    // updates that raced with the rebuild would otherwise be lost until the next one
+                    pendingReplay.forEach(update -> update.accept(rebuilt));
+                    columns = rebuilt;
+                    syncRules(System.currentTimeMillis());
+                    published = publishLocked();
+                }
+                log.info("Bin snapshots reconciled, version={}, total={}, emergencies={}",
+                        published.version(), published.size(), published.emergencyCount());
+            } finally {
+                synchronized (this) {
+                    pendingReplay = null;
                 }
+            }
+        }
+    }
 
-                BinReading latest = binReadingRepository.findTopByBinIdOrderByTsDesc(bin.getId());
-                if (latest == null) {
-                    continue;
+    /**
+     * Cluster mode only, before each planning run: readings stored by the other nodes never went
+     * through this node's write-through hooks.
+     * - first run under a new lease token: reseed the latest readings and rebuild everything
+     * - then: replay the readings measured since the previous sync (minus the clock skew and
+     *   catch-up margins, replaying a reading twice is harmless)
+     */
+    public void syncFromDatabase() {
+        if (!lease.isEnabled()) {
+            return;
+        }
+        synchronized (reconcileLock) {
+            long token = lease.fencingToken();
+            if (token == 0) {
+                return;
+            }
+            long startedAt = System.currentTimeMillis();
+            if (token != syncedToken) {
+                log.info("New planning lease token {}, rebuilding bin snapshots from the database", token);
+                latestReadingStore.reseed();
+                refreshSnapshots();
+            } else {
+                Map<String, BinReading> newest = newestMeasuredAfter(syncedAt - lease.getClockSkew().toMillis());
+                for (BinReading reading : newest.values()) {
+                    latestReadingStore.update(reading);
+                    onReading(reading.getBinId());
                 }
+                log.debug("Bin snapshots synced, replayedBins={}", newest.size());
+            }
+            // planning reads right after: no waiting for the scheduled publish
+            publish();
+            syncedToken = token;
+            syncedAt = startedAt;
+        }
+    }
 
-                double fillPct = latest.getFillPct();
-                Instant lastCollectedAt = bin.getLastCollectedAt(); // you already have this field
+    /**
+     * Startup: resume from the local checkpoint and replay the readings measured since,
+     * or fall back to a full rebuild when there is none. A restored view is reconciled
+     * reconcile-after-restore-ms later: checkpoints know nothing of CP and bin edits made
+     * while the node was down.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmStart() {
+        Optional<BinSnapshotCheckpoint.Restored> restored =
+                checkpoint.read(System.currentTimeMillis(), ruleEngine.current());
+        if (restored.isEmpty()) {
+            refreshSnapshots();
+            return;
+        }
+        BinSnapshotImage image = restored.get().image();
+        synchronized (reconcileLock) {
+            synchronized (this) {
+                // rescored on restore: rules may have changed since the checkpoint
+                columns = BinSnapshotColumns.restore(image, ruleEngine.current(), System.currentTimeMillis());
+                version = image.version();
+                checkpointedVersion = image.version();
+                publishLocked();
+                pendingReplay = new ArrayList<>();
+            }
+            try {
+                int replayed = catchUp(restored.get().capturedAt());
+                log.info("Bin snapshots restored from checkpoint, version={}, total={}, replayedBins={}",
+                        image.version(), image.size(), replayed);
+            } finally {
+                synchronized (this) {
+                    pendingReplay = null;
+                }
+            }
+        }
+        if (reconcileAfterRestoreMs > 0) {
+            background().schedule(this::reconcileAfterRestore, reconcileAfterRestoreMs, TimeUnit.MILLISECONDS);
+        }
+    }
 
-                EmergencyEval eval = evaluateEmergency(bin.getType(), fillPct, lastCollectedAt, now);
+    private void reconcileAfterRestore() {
+        try {
+            refreshSnapshots();
+        } catch (RuntimeException e) {
+            log.warn("Bin snapshot reconciliation after warm start failed, the periodic one will retry", e);
+        }
+    }
 
-                BinSnapshot snap = BinSnapshot.builder()
-                        .binId(bin.getId())
-                        // we *can* trust bin.getCollectionPointId(), but cp.getId() is always correct:
-                        .collectionPointId(cp.getId())
-                        .trashType(bin.getType())
-                        .fillPct(fillPct)
-                        .lastCollectedAt(lastCollectedAt)
-                        .emergency(eval.isEmergency)
-                        .emergencyReason(eval.reason)
-                        .build();
+    /**
+     * Periodic checkpoint of the published image, skipped when nothing changed since the last one.
+     */
+    @Scheduled(fixedDelayString = "${auto-planning.snapshots.checkpoint.interval-ms:300000}",
+            initialDelayString = "${auto-planning.snapshots.checkpoint.interval-ms:300000}")
+    @PreDestroy
+    public void checkpoint() {
+        if (!checkpoint.isEnabled()) {
+            return;
+        }
+        // taken before the image: readings inserted after it are replayed on restore
+        long capturedAt = System.currentTimeMillis();
+        // writes still waiting for their publish are part of this checkpoint
+        publish();
+        BinSnapshotImage current = currentImage();
+        if (current.version() == checkpointedVersion) {
+            return;
+        }
+        try {
+            checkpoint.write(current, capturedAt);
+            checkpointedVersion = current.version();
+            log.debug("Bin snapshot checkpoint written, version={}", current.version());
+        } catch (IOException e) {
+            log.warn("Could not write bin snapshot checkpoint", e);
+        }
+    }
 
-                newMap.put(bin.getId(), snap);
+    // Latest fill per bin among the readings measured since capturedAt; returns the bins updated
+    private int catchUp(long capturedAt) {
+        Map<String, BinReading> newest = newestMeasuredAfter(capturedAt);
+        int updated = 0;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (BinReading reading : newest.values()) {
+                int row = reading.getBinId() == null ? -1 : columns.activeIndexOf(reading.getBinId());
+                if (row >= 0) {
+                    columns.setReading(row, reading.getFillPct(),
+                            fillRateForecaster.ratePctPerHour(reading.getBinId()), now);
+                    updated++;
+                }
             }
+            // live updates received meanwhile are newer than anything replayed here
+            pendingReplay.forEach(update -> update.accept(columns));
+            markDirty();
         }
+        return updated;
+    }
 
-        snapshots.clear();
-        snapshots.putAll(newMap);
-        log.info("Bin snapshots refreshed, total={}, emergencies={}",
-                snapshots.size(),
-                snapshots.values().stream().filter(BinSnapshot::isEmergency).count());
+    private Map<String, BinReading> newestMeasuredAfter(long since) {
+        Map<String, BinReading> newest = new HashMap<>();
+        Date from = new Date(since - catchUpMarginMs);
+        try (Stream<BinReading> readings = binReadingRepository.streamByTsGreaterThanEqual(from)) {
+            readings.filter(r -> r.getBinId() != null)
+                    .forEach(r -> newest.merge(r.getBinId(), r,
+                            (current, candidate) -> isNewer(candidate, current) ? candidate : current));
+        }
+        return newest;
     }
 
-    private record EmergencyEval(boolean isEmergency, String reason) {}
+    private static boolean isNewer(BinReading candidate, BinReading current) {
+        if (current.getTs() == null) {
+            return true;
+        }
+        return candidate.getTs() != null && !candidate.getTs().before(current.getTs());
+    }
 
-    private EmergencyEval evaluateEmergency(TrashType type, double fillPct, Instant lastCollectedAt, Instant now) {
-        // rule 1: any bin > 95%
-        if (fillPct >= 95.0) {
-            return new EmergencyEval(true, "FILL>95%");
+    // caller holds the lock and has already applied the update to the live columns
+    private void apply(Consumer<BinSnapshotColumns> update) {
+        if (pendingReplay != null) {
+            pendingReplay.add(update);
         }
+        markDirty();
+    }
 
-        if (lastCollectedAt == null) {
-            return new EmergencyEval(false, "");
+    // caller holds the lock
+    private void markDirty() {
+        dirty = true;
+        if (publishDelayMs <= 0) {
+            publishLocked();
+            return;
         }
+        if (!publishScheduled) {
+            publishScheduled = true;
+            background().schedule(this::publishScheduled, publishDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized ScheduledExecutorService background() {
+        if (background == null) {
+            background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bin-snapshots");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return background;
+    }
+
+    private synchronized void publishScheduled() {
+        publishScheduled = false;
+        publish();
+    }
 
-        long hours = Duration.between(lastCollectedAt, now).toHours();
+    private synchronized void publish() {
+        syncRules(System.currentTimeMillis());
+        if (dirty) {
+            publishLocked();
+        }
+    }
 
-        // rule 2: organic > 40% and uncollected > 48h
-        if (type == TrashType.ORGANIC && fillPct > 40.0 && hours >= 48) {
-            return new EmergencyEval(true, "ORGANIC>40%&>48h");
+    // caller holds the lock: rescoring everything on a rule change is a few ms per million bins
+    private void syncRules(long now) {
+        EmergencyRules rules = ruleEngine.current();
+        if (columns.rules() != rules) {
+            columns.rescore(rules, now);
+            dirty = true;
         }
+    }
+
+    private BinSnapshotImage publishLocked() {
+        BinSnapshotImage next = columns.publish(++version);
+        image.set(next);
+        dirty = false;
+        return next;
+    }
 
-        // rule 3: organic any level, uncollected > 72h
-        if (type == TrashType.ORGANIC && hours >= 72) {
-            return new EmergencyEval(true, "ORGANIC>72h");
+    private void index(BinSnapshotColumns target, CollectionPoint cp, long now) {
+        List<Bin> bins = cp.getBins() == null ? List.of() : cp.getBins().stream()
+                .filter(b -> b.isActive() && b.getId() != null)
+                .toList();
+        String[] ids = new String[bins.size()];
+        TrashType[] types = new TrashType[bins.size()];
+        Instant[] collectedAt = new Instant[bins.size()];
+        for (int i = 0; i < bins.size(); i++) {
+            Bin bin = bins.get(i);
+            // we *can* trust bin.getCollectionPointId(), but cp.getId() is always correct
+            ids[i] = bin.getId();
+            types[i] = bin.getType();
+            collectedAt[i] = bin.getLastCollectedAt();
+        }
+        for (int row : target.putCollectionPoint(cp.getId(), ids, types, collectedAt)) {
+            refresh(target, row, now);
         }
+    }
 
-        return new EmergencyEval(false, "");
+    private void refresh(BinSnapshotColumns target, int row, long now) {
+        BinReading latest = latestReadingStore.get(target.binId(row));
+        if (latest == null) {
+            target.clearReading(row);
+        } else {
+            target.setReading(row, latest.getFillPct(), fillRateForecaster.ratePctPerHour(latest.getBinId()), now);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps BinSnapshotService in step with collection point writes. Bins are embedded
+ * in their collection point, so every bin create / update / delete, CP edit and
+ * incident (de)activation goes through a CollectionPoint save and lands here.
+ */
+@Component
+@RequiredArgsConstructor
+public class CollectionPointSnapshotListener extends AbstractMongoEventListener<CollectionPoint> {
+
+    private final BinSnapshotService binSnapshotService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<CollectionPoint> event) {
+        binSnapshotService.onCollectionPointSaved(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<CollectionPoint> event) {
+        Document query = event.getSource();
+        Object id = query == null ? null : query.get("_id");
+        if (id instanceof String || id instanceof org.bson.types.ObjectId) {
+            binSnapshotService.onCollectionPointDeleted(id.toString());
+        } else {
+            // bulk or criteria delete: we cannot tell which CPs went away
+            binSnapshotService.refreshSnapshots();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps keys (zone ids) to nodes so that every node computes the same owner from the same
+ * member list, and a node joining or leaving only moves about 1/n of the keys.
+ * Each node is placed virtualNodes times on the ring to even out the shares.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be >= 1");
+        }
+        // sorted: on a (rare) position collision every node keeps the same winner
+        for (String node : new TreeSet<>(nodes)) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    // first 8 bytes of MD5: stable across JVMs, unlike String.hashCode spreads
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
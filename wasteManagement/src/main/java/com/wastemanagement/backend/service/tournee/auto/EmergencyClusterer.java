@@ -0,0 +1,321 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import com.wastemanagement.backend.model.vehicle.VehicleStatus;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.VehicleRepository;
+import com.wastemanagement.backend.service.tournee.FleetSplitter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits the emergency collection points of each trash type into geographically compact
+ * batches that can be solved independently, and gives each batch its own nearby vehicles.
+ * - CPs are bucketed in a square grid of cell-km; touching cells (8-neighbourhood) form one cluster
+ * - clusters larger than max-cps-per-batch are cut along their longer axis
+ * - vehicles are shared out by demand against capacity, as in shareFleet: each batch, neediest
+ *   first, takes the vehicles nearest to its centroid until it holds its proportional share of
+ *   the pool's capacity
+ * CPs without a location, and batches left without a vehicle, are returned with
+ * vehicleIds == null: they are planned afterwards with whatever is still available,
+ * shared out between them by shareFleet.
+ */
+@Component
+@Slf4j
+public class EmergencyClusterer {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    /**
+     * @param vehicleIds vehicles reserved for this batch, null for the shared pool
+     */
+    public record EmergencyBatch(TrashType type, Set<String> collectionPointIds, Set<String> vehicleIds) {}
+
+    private final CollectionPointRepository collectionPointRepository;
+    private final VehicleRepository vehicleRepository;
+    private final double cellKm;
+    private final int maxCpsPerBatch;
+
+    public EmergencyClusterer(
+            CollectionPointRepository collectionPointRepository,
+            VehicleRepository vehicleRepository,
+            @Value("${auto-planning.emergency.cluster.cell-km:2.0}") double cellKm,
+            @Value("${auto-planning.emergency.cluster.max-cps-per-batch:40}") int maxCpsPerBatch) {
+        if (cellKm <= 0 || maxCpsPerBatch < 1) {
+            throw new IllegalArgumentException("cell-km must be > 0 and max-cps-per-batch >= 1");
+        }
+        this.collectionPointRepository = collectionPointRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.cellKm = cellKm;
+        this.maxCpsPerBatch = maxCpsPerBatch;
+    }
+
+    /**
+     * One batch per type over the shared vehicle pool, i.e. the behaviour without clustering.
+     */
+    public static List<EmergencyBatch> byType(Map<TrashType, Set<String>> cpIdsByType) {
+        List<EmergencyBatch> batches = new ArrayList<>();
+        cpIdsByType.forEach((type, cpIds) -> batches.add(new EmergencyBatch(type, cpIds, null)));
+        return batches;
+    }
+
+    /**
+     * Gives the shared-pool batches disjoint shares of the vehicles still free, in proportion to
+     * their volume to collect (largest first), so they can be solved at the same time.
+     * A single batch keeps the whole pool (vehicleIds == null).
+     *
+     * @param demandByBatch liters to collect per batch
+     */
+    public List<EmergencyBatch> shareFleet(List<EmergencyBatch> shared, Map<EmergencyBatch, Double> demandByBatch) {
+        if (shared.size() < 2) {
+            return shared;
+        }
+        Map<EmergencyBatch, Double> byPriority = new LinkedHashMap<>();
+        shared.stream()
+                .sorted(Comparator.comparingDouble((EmergencyBatch b) -> demandByBatch.getOrDefault(b, 0.0)).reversed())
+                // a batch without known demand still gets a share
+                .forEach(b -> byPriority.put(b, Math.max(demandByBatch.getOrDefault(b, 0.0), 1.0)));
+        List<Vehicle> fleet = vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
+                .filter(v -> v.getCapacityVolumeL() > 0)
+                .toList();
+        Map<EmergencyBatch, List<Vehicle>> split = FleetSplitter.split(byPriority, fleet);
+
+        List<EmergencyBatch> batches = new ArrayList<>();
+        split.forEach((batch, vehicles) -> {
+            Set<String> vehicleIds = new LinkedHashSet<>();
+            vehicles.forEach(v -> vehicleIds.add(v.getId()));
+            batches.add(new EmergencyBatch(batch.type(), batch.collectionPointIds(), vehicleIds));
+        });
+        return batches;
+    }
+
+    public List<EmergencyBatch> cluster(Map<TrashType, Set<String>> cpIdsByType) {
+        return cluster(cpIdsByType, Map.of());
+    }
+
+    /**
+     * @param litersByType liters to collect per CP of each type; CPs without a known demand
+     *                     weigh one liter each
+     */
+    public List<EmergencyBatch> cluster(Map<TrashType, Set<String>> cpIdsByType,
+                                        Map<TrashType, Map<String, Double>> litersByType) {
+        Set<String> allCpIds = new HashSet<>();
+        cpIdsByType.values().forEach(allCpIds::addAll);
+        Map<String, double[]> locations = new HashMap<>();
+        for (CollectionPoint cp : collectionPointRepository.findAllById(allCpIds)) {
+            double[] coords = coordinates(cp.getLocation());
+            if (coords != null) {
+                locations.put(cp.getId(), coords);
+            }
+        }
+
+        List<List<String>> located = new ArrayList<>();
+        List<TrashType> locatedTypes = new ArrayList<>();
+        List<EmergencyBatch> unlocated = new ArrayList<>();
+        cpIdsByType.forEach((type, cpIds) -> {
+            Set<String> missing = new LinkedHashSet<>();
+            List<String> known = new ArrayList<>();
+            for (String cpId : cpIds) {
+                if (locations.containsKey(cpId)) {
+                    known.add(cpId);
+                } else {
+                    missing.add(cpId);
+                }
+            }
+            for (List<String> group : groups(known, locations, cellKm, maxCpsPerBatch)) {
+                located.add(group);
+                locatedTypes.add(type);
+            }
+            if (!missing.isEmpty()) {
+                unlocated.add(new EmergencyBatch(type, missing, null));
+            }
+        });
+
+        List<EmergencyBatch> batches = new ArrayList<>(
+                assignVehicles(located, locatedTypes, locations, litersByType));
+        batches.addAll(unlocated);
+        log.debug("Emergency CPs split into {} batches ({} without location)", batches.size(), unlocated.size());
+        return batches;
+    }
+
+    private List<EmergencyBatch> assignVehicles(List<List<String>> groups, List<TrashType> types,
+                                                Map<String, double[]> locations,
+                                                Map<TrashType, Map<String, Double>> litersByType) {
+        if (groups.size() == 1) {
+            // nothing to share: keep the whole pool available to the single solve
+            return List.of(new EmergencyBatch(types.get(0), new LinkedHashSet<>(groups.get(0)), null));
+        }
+
+        List<Vehicle> pool = groups.isEmpty() ? List.of() :
+                new ArrayList<>(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
+                        .filter(v -> v.getCapacityVolumeL() > 0)
+                        .toList());
+        double[] demand = new double[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            Map<String, Double> liters = litersByType.getOrDefault(types.get(i), Map.of());
+            double sum = 0;
+            for (String cpId : groups.get(i)) {
+                // a CP without known demand still counts
+                sum += Math.max(liters.getOrDefault(cpId, 0.0), 1.0);
+            }
+            demand[i] = sum;
+        }
+        double totalDemand = Arrays.stream(demand).sum();
+        double totalCapacity = pool.stream().mapToDouble(Vehicle::getCapacityVolumeL).sum();
+
+        // neediest batches pick first, so rounding never starves the biggest emergencies
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) -> demand[i]).reversed());
+
+        EmergencyBatch[] assigned = new EmergencyBatch[groups.size()];
+        int waiting = groups.size();
+        for (int i : order) {
+            List<String> group = groups.get(i);
+            waiting--;
+            Set<String> vehicleIds = null;
+            if (!pool.isEmpty()) {
+                double[] centroid = centroid(group, locations);
+                pool.sort(Comparator.comparingDouble(v -> distanceKm(centroid, coordinates(v.getCurrentLocation()))));
+                double share = demand[i] / totalDemand * totalCapacity;
+                double capacity = 0;
+                vehicleIds = new LinkedHashSet<>();
+                // at least one vehicle, then the nearest ones as long as each brings the batch closer
+                // to its share and one is left for every batch still waiting
+                while (!pool.isEmpty() && (vehicleIds.isEmpty()
+                        || (pool.size() > waiting && capacity + pool.get(0).getCapacityVolumeL() / 2 < share))) {
+                    Vehicle vehicle = pool.remove(0);
+                    vehicleIds.add(vehicle.getId());
+                    capacity += vehicle.getCapacityVolumeL();
+                }
+            }
+            assigned[i] = new EmergencyBatch(types.get(i), new LinkedHashSet<>(group), vehicleIds);
+        }
+        return List.of(assigned);
+    }
+
+    /**
+     * Grid clustering of the given CPs, each group at most maxSize CPs.
+     */
+    static List<List<String>> groups(List<String> cpIds, Map<String, double[]> locations,
+                                     double cellKm, int maxSize) {
+        if (cpIds.isEmpty()) {
+            return List.of();
+        }
+        double meanLat = cpIds.stream().mapToDouble(id -> locations.get(id)[1]).average().orElse(0);
+        double latStep = cellKm / KM_PER_DEGREE;
+        double lonStep = cellKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(meanLat))));
+
+        Map<Long, List<String>> cells = new HashMap<>();
+        for (String id : cpIds) {
+            double[] c = locations.get(id);
+            cells.computeIfAbsent(cellKey((int) Math.floor(c[0] / lonStep), (int) Math.floor(c[1] / latStep)),
+                    k -> new ArrayList<>()).add(id);
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        for (Long start : cells.keySet()) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            List<String> component = new ArrayList<>();
+            Deque<Long> queue = new ArrayDeque<>();
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                long cell = queue.poll();
+                component.addAll(cells.get(cell));
+                int x = (int) (cell >> 32);
+                int y = (int) cell;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        long neighbour = cellKey(x + dx, y + dy);
+                        if (cells.containsKey(neighbour) && visited.add(neighbour)) {
+                            queue.add(neighbour);
+                        }
+                    }
+                }
+            }
+            split(component, locations, maxSize, groups);
+        }
+        return groups;
+    }
+
+    // cuts an oversized cluster into contiguous slices along its longer extent
+    private static void split(List<String> component, Map<String, double[]> locations,
+                              int maxSize, List<List<String>> out) {
+        if (component.size() <= maxSize) {
+            out.add(component);
+            return;
+        }
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        for (String id : component) {
+            double[] c = locations.get(id);
+            minLon = Math.min(minLon, c[0]);
+            maxLon = Math.max(maxLon, c[0]);
+            minLat = Math.min(minLat, c[1]);
+            maxLat = Math.max(maxLat, c[1]);
+        }
+        // longitude degrees shrink with latitude, compare like for like
+        double lonSpan = (maxLon - minLon) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        int axis = lonSpan >= maxLat - minLat ? 0 : 1;
+        List<String> sorted = new ArrayList<>(component);
+        sorted.sort(Comparator.comparingDouble(id -> locations.get(id)[axis]));
+        // as few slices as the bound allows, evenly sized
+        int slices = (sorted.size() + maxSize - 1) / maxSize;
+        for (int i = 0; i < slices; i++) {
+            out.add(new ArrayList<>(sorted.subList(i * sorted.size() / slices, (i + 1) * sorted.size() / slices)));
+        }
+    }
+
+    private static double[] centroid(List<String> cpIds, Map<String, double[]> locations) {
+        double lon = 0;
+        double lat = 0;
+        for (String id : cpIds) {
+            lon += locations.get(id)[0];
+            lat += locations.get(id)[1];
+        }
+        return new double[]{lon / cpIds.size(), lat / cpIds.size()};
+    }
+
+    // equirectangular approximation, plenty at city scale; unknown positions sort last
+    private static double distanceKm(double[] a, double[] b) {
+        if (b == null) {
+            return Double.MAX_VALUE;
+        }
+        double x = (b[0] - a[0]) * Math.cos(Math.toRadians((a[1] + b[1]) / 2));
+        double y = b[1] - a[1];
+        return Math.sqrt(x * x + y * y) * KM_PER_DEGREE;
+    }
+
+    private static double[] coordinates(GeoJSONPoint point) {
+        if (point == null || point.getCoordinates() == null || point.getCoordinates().length < 2) {
+            return null;
+        }
+        return point.getCoordinates();
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
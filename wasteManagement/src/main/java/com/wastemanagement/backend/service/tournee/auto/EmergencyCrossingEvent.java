@@ -0,0 +1,7 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+/**
+ * A stored reading just turned its bin into an emergency.
+ * Published by BinSnapshotService, after the new snapshot is visible.
+ */
+public record EmergencyCrossingEvent(String binId, String reason) {}
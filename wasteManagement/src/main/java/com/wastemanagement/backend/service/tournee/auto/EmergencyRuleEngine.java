@@ -0,0 +1,74 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Holds the compiled emergency rules of AutoPlanningConfig.
+ * - updates through the API are compiled (and validated) before being saved
+ * - the config is polled, so edits made on another node or directly in Mongo
+ *   are picked up without a restart
+ * BinSnapshotService rescores its bins whenever current() returns a new instance.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmergencyRuleEngine {
+
+    private final AutoPlanningConfigService autoPlanningConfigService;
+
+    private volatile EmergencyRules current = EmergencyRules.defaults();
+    // declarative source of current, null for the built-in defaults
+    private volatile List<EmergencyRule> source;
+
+    public EmergencyRules current() {
+        return current;
+    }
+
+    /**
+     * Rules in force, the built-in defaults when the config has none.
+     */
+    public List<EmergencyRule> getRules() {
+        List<EmergencyRule> rules = source;
+        return rules == null ? EmergencyRules.DEFAULT_RULES : rules;
+    }
+
+    /**
+     * Replaces the rules; null restores the defaults.
+     * @throws IllegalArgumentException if the rules do not compile, nothing is saved then
+     */
+    public synchronized List<EmergencyRule> updateRules(List<EmergencyRule> rules) {
+        EmergencyRules compiled = rules == null ? EmergencyRules.defaults() : EmergencyRules.compile(rules);
+        autoPlanningConfigService.updateEmergencyRules(rules);
+        source = rules;
+        current = compiled;
+        log.info("Emergency rules updated, rules={}", compiled.size());
+        return getRules();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${auto-planning.rules.reload-interval-ms:60000}",
+            initialDelayString = "${auto-planning.rules.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        List<EmergencyRule> rules = autoPlanningConfigService.getOrCreate().getEmergencyRules();
+        if (Objects.equals(rules, source)) {
+            return;
+        }
+        try {
+            current = rules == null ? EmergencyRules.defaults() : EmergencyRules.compile(rules);
+            source = rules;
+            log.info("Emergency rules reloaded, rules={}", current.size());
+        } catch (IllegalArgumentException e) {
+            // keep the previous rules rather than stop detecting emergencies
+            log.error("Invalid emergency rules in config, keeping the current ones: {}", e.getMessage());
+        }
+    }
+}
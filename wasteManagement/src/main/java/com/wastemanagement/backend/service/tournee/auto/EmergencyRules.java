@@ -0,0 +1,296 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyCondition;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Emergency rules compiled into flat arrays, evaluated over primitive snapshot columns
+ * without boxing or allocation. Reasons are byte codes (rule index + 1, 0 = none) so the
+ * snapshot store can keep them in a byte[]; label() turns them back into the rule reason.
+ * Immutable: a rule change compiles a new instance and the snapshot store rescores.
+ */
+public final class EmergencyRules {
+
+    public static final byte NONE = 0;
+
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    static final byte NO_TYPE = -1;
+
+    public static final List<EmergencyRule> DEFAULT_RULES = List.of(
+            // any bin > 95%
+            new EmergencyRule("FILL>95%", Set.of(), List.of(
+                    new EmergencyCondition(EmergencyCondition.Field.FILL_PCT, EmergencyCondition.Operator.GTE, 95.0))),
+            // organic > 40% and uncollected > 48h
+            new EmergencyRule("ORGANIC>40%&>48h", Set.of(TrashType.ORGANIC), List.of(
+                    new EmergencyCondition(EmergencyCondition.Field.FILL_PCT, EmergencyCondition.Operator.GT, 40.0),
+                    new EmergencyCondition(EmergencyCondition.Field.HOURS_SINCE_COLLECTION, EmergencyCondition.Operator.GTE, 48))),
+            // organic any level, uncollected > 72h
+            new EmergencyRule("ORGANIC>72h", Set.of(TrashType.ORGANIC), List.of(
+                    new EmergencyCondition(EmergencyCondition.Field.HOURS_SINCE_COLLECTION, EmergencyCondition.Operator.GTE, 72))));
+
+    private static final EmergencyRules DEFAULTS = compile(DEFAULT_RULES);
+
+    private static final int MAX_RULES = Byte.MAX_VALUE;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    // type bit of bins without a trash type, only matched by all-types rules
+    private static final int UNTYPED_BIT = 1 << 31;
+
+    private static final byte FILL_PCT = 0;
+    private static final byte HOURS_SINCE_COLLECTION = 1;
+    private static final byte HOURS_TO_FULL = 2;
+
+    private static final byte GT = 0;
+    private static final byte GTE = 1;
+    private static final byte LT = 2;
+    private static final byte LTE = 3;
+
+    private final String[] labels;
+    private final int[] typeMask;
+    // conditions of rule r are [conditionStart[r], conditionStart[r + 1])
+    private final int[] conditionStart;
+    private final byte[] field;
+    private final byte[] op;
+    private final double[] value;
+    // types for which some rule looks at the time since collection
+    private final int timeDependentTypes;
+
+    private EmergencyRules(String[] labels, int[] typeMask, int[] conditionStart,
+                           byte[] field, byte[] op, double[] value, int timeDependentTypes) {
+        this.labels = labels;
+        this.typeMask = typeMask;
+        this.conditionStart = conditionStart;
+        this.field = field;
+        this.op = op;
+        this.value = value;
+        this.timeDependentTypes = timeDependentTypes;
+    }
+
+    public static EmergencyRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Validates and compiles declarative rules.
+     * @throws IllegalArgumentException on an incomplete or out-of-range rule
+     */
+    public static EmergencyRules compile(List<EmergencyRule> rules) {
+        if (rules == null || rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("Between 0 and " + MAX_RULES + " emergency rules are supported");
+        }
+        int conditionCount = 0;
+        for (EmergencyRule rule : rules) {
+            if (rule == null || rule.getReason() == null || rule.getReason().isBlank()) {
+                throw new IllegalArgumentException("Every emergency rule needs a reason");
+            }
+            if (rule.getConditions() == null || rule.getConditions().isEmpty()) {
+                throw new IllegalArgumentException("Emergency rule " + rule.getReason() + " has no condition");
+            }
+            conditionCount += rule.getConditions().size();
+        }
+
+        String[] labels = new String[rules.size() + 1];
+        labels[NONE] = "";
+        int[] typeMask = new int[rules.size()];
+        int[] conditionStart = new int[rules.size() + 1];
+        byte[] field = new byte[conditionCount];
+        byte[] op = new byte[conditionCount];
+        double[] value = new double[conditionCount];
+        int timeDependentTypes = 0;
+
+        int c = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            EmergencyRule rule = rules.get(r);
+            labels[r + 1] = rule.getReason();
+            typeMask[r] = typeMask(rule.getTrashTypes());
+            conditionStart[r] = c;
+            for (EmergencyCondition condition : rule.getConditions()) {
+                if (condition == null || condition.getField() == null || condition.getOp() == null
+                        || !Double.isFinite(condition.getValue())) {
+                    throw new IllegalArgumentException("Emergency rule " + rule.getReason()
+                            + " has an incomplete condition");
+                }
+                field[c] = switch (condition.getField()) {
+                    case FILL_PCT -> FILL_PCT;
+                    case HOURS_SINCE_COLLECTION -> HOURS_SINCE_COLLECTION;
+                    case HOURS_TO_FULL -> HOURS_TO_FULL;
+                };
+                op[c] = switch (condition.getOp()) {
+                    case GT -> GT;
+                    case GTE -> GTE;
+                    case LT -> LT;
+                    case LTE -> LTE;
+                };
+                value[c] = condition.getValue();
+                if (field[c] == HOURS_SINCE_COLLECTION) {
+                    timeDependentTypes |= typeMask[r];
+                }
+                c++;
+            }
+        }
+        conditionStart[rules.size()] = c;
+        return new EmergencyRules(labels, typeMask, conditionStart, field, op, value, timeDependentTypes);
+    }
+
+    /**
+     * Reason code of the first matching rule, NONE if none matches.
+     */
+    byte evaluate(byte type, double fillPct, long lastCollectedAt, double ratePctPerHour, long now) {
+        int typeBit = typeBit(type);
+        double hoursSinceCollection = lastCollectedAt == NO_TIMESTAMP
+                ? Double.NaN
+                : (double) ((now - lastCollectedAt) / HOUR_MILLIS);
+        double hoursToFull = ratePctPerHour > 0 ? (100.0 - fillPct) / ratePctPerHour : Double.NaN;
+
+        for (int r = 0; r < typeMask.length; r++) {
+            if ((typeMask[r] & typeBit) == 0) {
+                continue;
+            }
+            boolean matches = true;
+            for (int c = conditionStart[r]; c < conditionStart[r + 1]; c++) {
+                double actual = switch (field[c]) {
+                    case FILL_PCT -> fillPct;
+                    case HOURS_SINCE_COLLECTION -> hoursSinceCollection;
+                    default -> hoursToFull;
+                };
+                // comparisons with NaN are false: unknown values never match
+                boolean holds = switch (op[c]) {
+                    case GT -> actual > value[c];
+                    case GTE -> actual >= value[c];
+                    case LT -> actual < value[c];
+                    default -> actual <= value[c];
+                };
+                if (!holds) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return (byte) (r + 1);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Hours from now until the first rule would match, assuming the fill keeps growing at
+     * ratePctPerHour (flat when unknown) and the bin is not collected: 0 if one matches now,
+     * +Infinity if none ever will. Every field is linear in time, so each condition holds
+     * on a half-line and a rule on the intersection of its conditions' half-lines.
+     */
+    double hoursUntilMatch(byte type, double fillPct, long lastCollectedAt, double ratePctPerHour, long now) {
+        int typeBit = typeBit(type);
+        double rate = ratePctPerHour > 0 ? ratePctPerHour : 0;
+        double hoursSinceCollection = lastCollectedAt == NO_TIMESTAMP
+                ? Double.NaN
+                : (double) (now - lastCollectedAt) / HOUR_MILLIS;
+        double hoursToFull = ratePctPerHour > 0 ? (100.0 - fillPct) / ratePctPerHour : Double.NaN;
+
+        double earliest = Double.POSITIVE_INFINITY;
+        for (int r = 0; r < typeMask.length; r++) {
+            if ((typeMask[r] & typeBit) == 0) {
+                continue;
+            }
+            double from = 0;
+            double until = Double.POSITIVE_INFINITY;
+            for (int c = conditionStart[r]; c < conditionStart[r + 1] && from <= until; c++) {
+                double threshold = value[c];
+                byte operator = op[c];
+                double start;
+                double slope;
+                switch (field[c]) {
+                    case FILL_PCT -> {
+                        start = fillPct;
+                        slope = rate;
+                    }
+                    case HOURS_SINCE_COLLECTION -> {
+                        start = hoursSinceCollection;
+                        slope = 1;
+                        // evaluate() compares whole hours: move the threshold to where that flips
+                        switch (operator) {
+                            case GT -> { threshold = Math.floor(threshold) + 1; operator = GTE; }
+                            case GTE -> threshold = Math.ceil(threshold);
+                            case LT -> threshold = Math.ceil(threshold);
+                            default -> { threshold = Math.floor(threshold) + 1; operator = LT; }
+                        }
+                    }
+                    default -> {
+                        start = hoursToFull;
+                        slope = -1;
+                    }
+                }
+                if (Double.isNaN(start)) {
+                    until = -1; // unknown values never match
+                    break;
+                }
+                boolean above = operator == GT || operator == GTE;
+                if (slope == 0) {
+                    boolean holds = switch (operator) {
+                        case GT -> start > threshold;
+                        case GTE -> start >= threshold;
+                        case LT -> start < threshold;
+                        default -> start <= threshold;
+                    };
+                    if (!holds) {
+                        until = -1;
+                    }
+                    continue;
+                }
+                double crossing = (threshold - start) / slope;
+                if (above == slope > 0) {
+                    from = Math.max(from, crossing);
+                } else {
+                    until = Math.min(until, crossing);
+                }
+            }
+            if (from <= until) {
+                earliest = Math.min(earliest, from);
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Whether the outcome can change with time alone, without a new reading or bin edit.
+     * Only those bins need re-evaluating when emergencies are read.
+     */
+    boolean dependsOnTime(byte type, long lastCollectedAt) {
+        return lastCollectedAt != NO_TIMESTAMP && (timeDependentTypes & typeBit(type)) != 0;
+    }
+
+    String label(byte reason) {
+        return labels[reason];
+    }
+
+    int size() {
+        return typeMask.length;
+    }
+
+    static byte encode(TrashType type) {
+        return type == null ? NO_TYPE : (byte) type.ordinal();
+    }
+
+    static TrashType decode(byte type) {
+        return type == NO_TYPE ? null : TrashType.values()[type];
+    }
+
+    private static int typeMask(Set<TrashType> types) {
+        if (types == null || types.isEmpty()) {
+            return -1;
+        }
+        int mask = 0;
+        for (TrashType type : types) {
+            if (type != null) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static int typeBit(byte type) {
+        return type == NO_TYPE ? UNTYPED_BIT : 1 << type;
+    }
+}
@@ -0,0 +1,136 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.tournee.auto.AutoMode;
+import com.wastemanagement.backend.model.tournee.auto.AutoPlanningConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Times the emergency loop instead of a fixed delay:
+ * - after each scan, the next one is set at the earliest predicted emergency crossing
+ *   (BinSnapshotImage.predictNextEmergency), clamped to [emergencyScanMinSeconds, emergencyScanMinute]
+ * - a reading that turns a bin into an emergency brings the scan forward to debounce-ms from now,
+ *   so a burst of crossings costs one scan
+ * - a node that just became planning leader scans within debounce-ms, for what its predecessor missed
+ * Only one scan is ever pending; a request only replaces it when it is earlier.
+ * The next scan is planned once the current run is over, so runs never pile up.
+ */
+@Component
+@Slf4j
+public class EmergencyScanScheduler {
+
+    private final AutoPlanningService autoPlanningService;
+    private final BinSnapshotService binSnapshotService;
+    private final AutoPlanningConfigService autoPlanningConfigService;
+    private final TaskScheduler taskScheduler;
+    private final Duration debounce;
+
+    // guarded by this
+    private ScheduledFuture<?> pending;
+    private Instant pendingAt;
+
+    public EmergencyScanScheduler(AutoPlanningService autoPlanningService,
+                                  BinSnapshotService binSnapshotService,
+                                  AutoPlanningConfigService autoPlanningConfigService,
+                                  TaskScheduler taskScheduler,
+                                  @Value("${auto-planning.emergency.debounce-ms:5000}") long debounceMs) {
+        this.autoPlanningService = autoPlanningService;
+        this.binSnapshotService = binSnapshotService;
+        this.autoPlanningConfigService = autoPlanningConfigService;
+        this.taskScheduler = taskScheduler;
+        this.debounce = Duration.ofMillis(debounceMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        requestScanAt(Instant.now().plus(debounce));
+    }
+
+    @EventListener
+    public void onEmergencyCrossing(EmergencyCrossingEvent event) {
+        log.info("Bin {} crossed emergency rule {}, scanning within {} ms",
+                event.binId(), event.reason(), debounce.toMillis());
+        requestScanAt(Instant.now().plus(debounce));
+    }
+
+    @EventListener
+    public void onLeadershipChange(PlanningLeadershipEvent event) {
+        if (event.leader()) {
+            requestScanAt(Instant.now().plus(debounce));
+        }
+    }
+
+    /**
+     * Scheduled time of the next scan, null if none is pending.
+     */
+    public synchronized Instant getNextScanAt() {
+        return pendingAt;
+    }
+
+    void scan() {
+        synchronized (this) {
+            // the pending scan is this one: later requests must schedule their own
+            pending = null;
+            pendingAt = null;
+        }
+        // the run itself happens on the PlanningPipeline, this thread is released right away
+        CompletableFuture<Void> run;
+        try {
+            run = autoPlanningService.submitEmergencyLoop();
+        } catch (Exception e) {
+            log.error("Emergency scan could not be submitted", e);
+            scheduleNext();
+            return;
+        }
+        run.whenComplete((ignored, error) -> scheduleNext());
+    }
+
+    private void scheduleNext() {
+        Instant now = Instant.now();
+        Duration max = Duration.ofMinutes(15);
+        try {
+            AutoPlanningConfig config = autoPlanningConfigService.getOrCreate();
+            Duration min = Duration.ofSeconds(Math.max(1, config.getEmergencyScanMinSeconds()));
+            max = Duration.ofMinutes(Math.max(1, config.getEmergencyScanMinute()));
+            if (max.compareTo(min) < 0) {
+                max = min;
+            }
+            Duration delay = max;
+            if (config.getAutoMode() != AutoMode.OFF) {
+                Optional<Instant> crossing = binSnapshotService.currentImage().predictNextEmergency(now);
+                if (crossing.isPresent()) {
+                    Duration untilCrossing = Duration.between(now, crossing.get());
+                    delay = untilCrossing.compareTo(min) < 0 ? min
+                            : untilCrossing.compareTo(max) > 0 ? max : untilCrossing;
+                }
+            }
+            requestScanAt(now.plus(delay));
+        } catch (Exception e) {
+            // never stop scanning because the config could not be read
+            log.warn("Could not compute the next emergency scan, retrying in {}", max, e);
+            requestScanAt(now.plus(max));
+        }
+    }
+
+    private synchronized void requestScanAt(Instant at) {
+        if (pending != null && !pending.isDone() && !pendingAt.isAfter(at)) {
+            return;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pendingAt = at;
+        pending = taskScheduler.schedule(this::scan, at);
+        log.debug("Next emergency scan at {}", at);
+    }
+}
@@ -0,0 +1,7 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+/**
+ * This node just gained (leader = true) or lost the auto-planning lease.
+ * Published by PlanningLeaseService from its heartbeat thread.
+ */
+public record PlanningLeadershipEvent(boolean leader, long token) {}
@@ -0,0 +1,43 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService.LeaseStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the auto-planning role of this node under /actuator/health (component planningLease).
+ * A follower is healthy: only the details tell which node leads.
+ */
+@Component("planningLease")
+@RequiredArgsConstructor
+public class PlanningLeaseHealthIndicator implements HealthIndicator {
+
+    private final PlanningLeaseService leaseService;
+
+    @Override
+    public Health health() {
+        LeaseStatus status = leaseService.status();
+        Health.Builder health = Health.up()
+                .withDetail("enabled", status.enabled())
+                .withDetail("nodeId", status.nodeId())
+                .withDetail("role", !status.enabled() ? "standalone" : status.leader() ? "leader" : "follower");
+        if (status.enabled()) {
+            health.withDetail("token", status.token());
+            if (status.holder() != null) {
+                health.withDetail("holder", status.holder());
+            }
+            if (status.expiresAt() != null) {
+                health.withDetail("expiresAt", status.expiresAt().toInstant().toString());
+            }
+            if (status.lastHeartbeatAt() != null) {
+                health.withDetail("lastHeartbeatAt", status.lastHeartbeatAt().toInstant().toString());
+            }
+            if (status.lastError() != null) {
+                health.withDetail("lastError", status.lastError());
+            }
+        }
+        return health.build();
+    }
+}
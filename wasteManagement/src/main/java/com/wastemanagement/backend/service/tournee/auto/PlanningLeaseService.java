@@ -0,0 +1,263 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningLease;
+import com.wastemanagement.backend.repository.tournee.PlanningLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leader election for auto-planning when several instances share the database.
+ * Only the holder of the lease (one document in planningLeases) plans; the others keep
+ * ingesting readings, reconciling their snapshot view and serving the API.
+ * - the holder renews every renew-interval-ms, a lease not renewed for ttl-ms can be taken
+ *   over by any node, so failover takes at most ttl-ms + renew-interval-ms
+ * - each takeover bumps the fencing token; planning checks it right before writing (verifyFence).
+ *   This is a best-effort check, not a fenced write: it stops a node that stalled past its lease,
+ *   but a pause between the check and the write itself can still let both nodes save tours
+ * - leadership is judged on the local monotonic clock, started before the renewal was sent and
+ *   cut by clock-skew-ms: a node always steps down before others may consider the lease expired
+ * - expiresAt itself is stamped and compared with each node's wall clock (new Date()), on
+ *   takeover and in verifyFence: the nodes' clocks must stay in sync (NTP) within clock-skew-ms,
+ *   or a node whose clock runs ahead can take over a lease that is still held
+ * Disabled (the default), this node is the only one and always leads.
+ */
+@Component
+@Slf4j
+public class PlanningLeaseService {
+
+    public static final String LEASE_ID = "auto-planning";
+
+    private final PlanningLeaseRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Duration renewInterval;
+    private final Duration clockSkew;
+    private ScheduledExecutorService heartbeat;
+
+    // guarded by this
+    private long token;
+    private long validUntilNanos;
+    private PlanningLease lastSeen;
+    private Date lastHeartbeatAt;
+    private String lastError;
+
+    public PlanningLeaseService(PlanningLeaseRepository repository,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${auto-planning.lease.enabled:false}") boolean enabled,
+                                @Value("${auto-planning.lease.node-id:}") String nodeId,
+                                @Value("${auto-planning.lease.ttl-ms:30000}") long ttlMs,
+                                @Value("${auto-planning.lease.renew-interval-ms:10000}") long renewIntervalMs,
+                                @Value("${auto-planning.lease.clock-skew-ms:2000}") long clockSkewMs) {
+        if (enabled && renewIntervalMs + clockSkewMs >= ttlMs) {
+            throw new IllegalArgumentException("auto-planning.lease.renew-interval-ms + clock-skew-ms must be below ttl-ms");
+        }
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.renewInterval = Duration.ofMillis(renewIntervalMs);
+        this.clockSkew = Duration.ofMillis(clockSkewMs);
+    }
+
+    /**
+     * Lease state as shown by the planningLease health indicator.
+     */
+    public record LeaseStatus(boolean enabled, String nodeId, boolean leader, long token,
+                              String holder, Date expiresAt, Date lastHeartbeatAt, String lastError) {}
+
+    // first heartbeat before the other startup listeners, so they already know the role
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!enabled) {
+            log.info("Planning lease disabled, node {} plans alone", nodeId);
+            return;
+        }
+        heartbeat();
+        // own thread: a slow job on Spring's scheduler must never delay a renewal
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "planning-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::heartbeat,
+                renewInterval.toMillis(), renewInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        long held;
+        synchronized (this) {
+            held = token;
+            token = 0;
+        }
+        if (enabled && held > 0) {
+            try {
+                repository.release(LEASE_ID, nodeId, held, new Date());
+                log.info("Planning lease released by {}", nodeId);
+            } catch (Exception e) {
+                log.warn("Could not release the planning lease, it will expire in {}", ttl, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Duration getClockSkew() {
+        return clockSkew;
+    }
+
+    /**
+     * Whether this node may plan right now. No I/O.
+     */
+    public synchronized boolean isLeader() {
+        return !enabled || (token > 0 && System.nanoTime() - validUntilNanos < 0);
+    }
+
+    /**
+     * Token of the lease this node currently holds, 0 when it does not (or when disabled).
+     */
+    public synchronized long fencingToken() {
+        return isLeader() ? token : 0;
+    }
+
+    /**
+     * Checks against the database that this node still holds the lease under the same token;
+     * called before every planning write. Best-effort: the write that follows does not carry
+     * the token, so the lease may still be lost between this check and the write. Expiry is
+     * compared with this node's wall clock.
+     *
+     * @throws IllegalStateException when the lease was lost
+     */
+    public void verifyFence() {
+        if (!enabled) {
+            return;
+        }
+        long held = fencingToken();
+        if (held == 0) {
+            throw new IllegalStateException("Node " + nodeId + " does not hold the planning lease");
+        }
+        if (!repository.existsByIdAndHolderAndTokenAndExpiresAtAfter(LEASE_ID, nodeId, held, new Date())) {
+            stepDown(held);
+            throw new IllegalStateException("Planning lease token " + held + " is stale on node " + nodeId);
+        }
+    }
+
+    public synchronized LeaseStatus status() {
+        boolean leader = isLeader();
+        String holder = lastSeen == null ? null : lastSeen.getHolder();
+        Date expiresAt = lastSeen == null ? null : lastSeen.getExpiresAt();
+        return new LeaseStatus(enabled, nodeId, leader, leader && enabled ? token : 0,
+                enabled ? holder : nodeId, expiresAt, lastHeartbeatAt, lastError);
+    }
+
+    /**
+     * Renews the lease when held, tries to take it over otherwise.
+     */
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long held;
+        synchronized (this) {
+            held = token;
+        }
+        // validity counts from before the request: the database may have stamped it any time after
+        long sentAt = System.nanoTime();
+        Date now = new Date();
+        Date expiresAt = new Date(now.getTime() + ttl.toMillis());
+        try {
+            Optional<PlanningLease> lease = Optional.empty();
+            if (held > 0) {
+                lease = repository.renew(LEASE_ID, nodeId, held, now, expiresAt);
+                if (lease.isEmpty()) {
+                    log.warn("Planning lease token {} was taken over, node {} steps down", held, nodeId);
+                    stepDown(held);
+                }
+            }
+            if (lease.isEmpty()) {
+                lease = repository.acquire(LEASE_ID, nodeId, now, expiresAt);
+            }
+            if (lease.isPresent()) {
+                hold(lease.get(), sentAt);
+            } else {
+                PlanningLease current = repository.findById(LEASE_ID).orElse(null);
+                synchronized (this) {
+                    lastSeen = current;
+                }
+            }
+            synchronized (this) {
+                lastHeartbeatAt = now;
+                lastError = null;
+            }
+        } catch (Exception e) {
+            // no renewal: leadership lapses on its own once the local validity runs out
+            log.warn("Planning lease heartbeat failed on node {}", nodeId, e);
+            synchronized (this) {
+                lastError = e.getMessage();
+            }
+        }
+    }
+
+    private void hold(PlanningLease lease, long sentAt) {
+        boolean acquired;
+        synchronized (this) {
+            acquired = token != lease.getToken();
+            token = lease.getToken();
+            validUntilNanos = sentAt + ttl.minus(clockSkew).toNanos();
+            lastSeen = lease;
+        }
+        if (acquired) {
+            log.info("Node {} is now the planning leader, token={}", nodeId, lease.getToken());
+            eventPublisher.publishEvent(new PlanningLeadershipEvent(true, lease.getToken()));
+        }
+    }
+
+    private void stepDown(long held) {
+        synchronized (this) {
+            if (token != held) {
+                return;
+            }
+            token = 0;
+        }
+        eventPublisher.publishEvent(new PlanningLeadershipEvent(false, held));
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,98 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningNode;
+import com.wastemanagement.backend.repository.tournee.PlanningNodeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Membership table for zone planning (planningNodes): every instance heartbeats its own
+ * document and the live ones share the zones through a ConsistentHashRing.
+ * Zone planning is off by default: this node is then the only member.
+ */
+@Component
+@Slf4j
+public class PlanningMembershipService {
+
+    private final PlanningNodeRepository repository;
+    private final String nodeId;
+    private final boolean enabled;
+    private final long memberTtlMs;
+    private final int virtualNodes;
+    private final Date startedAt = new Date();
+
+    public PlanningMembershipService(PlanningNodeRepository repository,
+                                     PlanningLeaseService leaseService,
+                                     @Value("${auto-planning.zones.enabled:false}") boolean enabled,
+                                     @Value("${auto-planning.zones.member-ttl-ms:60000}") long memberTtlMs,
+                                     @Value("${auto-planning.zones.virtual-nodes:64}") int virtualNodes) {
+        this.repository = repository;
+        this.nodeId = leaseService.getNodeId();
+        this.enabled = enabled;
+        this.memberTtlMs = memberTtlMs;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${auto-planning.zones.heartbeat-ms:15000}",
+            initialDelayString = "${auto-planning.zones.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        Date now = new Date();
+        try {
+            repository.save(new PlanningNode(nodeId, startedAt, now, new Date(now.getTime() + memberTtlMs)));
+        } catch (Exception e) {
+            log.warn("Planning membership heartbeat failed for node {}", nodeId, e);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            repository.deleteById(nodeId);
+        } catch (Exception e) {
+            log.warn("Node {} could not leave the planning membership, it expires in {} ms", nodeId, memberTtlMs, e);
+        }
+    }
+
+    /**
+     * Ids of the live members, this node always included, sorted.
+     */
+    public List<String> liveNodeIds() {
+        TreeSet<String> live = new TreeSet<>();
+        live.add(nodeId);
+        if (enabled) {
+            repository.findByExpiresAtAfter(new Date()).forEach(node -> live.add(node.getId()));
+        }
+        return List.copyOf(live);
+    }
+
+    /**
+     * Zone ownership for the current membership.
+     */
+    public ConsistentHashRing ring() {
+        return new ConsistentHashRing(liveNodeIds(), virtualNodes);
+    }
+}
@@ -0,0 +1,334 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs auto-planning jobs off Spring's single scheduler thread, so a slow VROOM solve
+ * never delays the snapshot reconciliation, the checkpoints or the other job.
+ * - each job kind has its own runner thread; solves inside a run go to a shared solver pool
+ * - a trigger arriving while the same job is running follows the job's OverlapPolicy
+ * - runs are split in stages (snapshot, select, optimize, persist, assign), each timed
+ * - select, optimize and persist are serialized across jobs: a run picks its collection points
+ *   only once the tours of the other job's run are saved, so both never plan the same ones
+ * - in a cluster only the PlanningLeaseService leader runs jobs, and the writing stages
+ *   (persist, assign) first check its fencing token (best-effort); with zone planning on, every node runs
+ *   the daily job for its own zones
+ * Metrics: planning.pipeline.stage (tags job, stage, outcome), planning.pipeline.run,
+ * planning.pipeline.triggers (tags job, outcome: started, skipped, coalesced, queued, not-leader)
+ */
+@Component
+@Slf4j
+public class PlanningPipeline {
+
+    public enum Job { EMERGENCY, DAILY }
+
+    public enum Stage { SNAPSHOT, SELECT, OPTIMIZE, PERSIST, ASSIGN }
+
+    /**
+     * What a trigger does while the same job is still running:
+     * SKIP drops it, COALESCE merges every such trigger into one follow-up run,
+     * QUEUE runs each of them in turn.
+     * When COALESCE merges a run that checks the planning mode with one that does not,
+     * the follow-up is the one that checks it: a manual trigger never lifts the mode
+     * of a scheduled one.
+     */
+    public enum OverlapPolicy { SKIP, COALESCE, QUEUE }
+
+    private final MeterRegistry meterRegistry;
+    private final PlanningLeaseService lease;
+    private final boolean dailyOnEveryNode;
+    private final Map<Job, OverlapPolicy> policies = new EnumMap<>(Job.class);
+    private final Map<Job, Executor> runners = new EnumMap<>(Job.class);
+    private final Executor solvers;
+    private final ExecutorService ownedSolvers;
+    // held by a run from its first select, optimize or persist stage until it assigns or ends
+    private final ReentrantLock planning = new ReentrantLock();
+    // guarded by this
+    private final Map<Job, JobState> states = new EnumMap<>(Job.class);
+
+    @Autowired
+    public PlanningPipeline(MeterRegistry meterRegistry,
+                            PlanningLeaseService lease,
+                            @Value("${auto-planning.emergency.parallelism:4}") int solverThreads,
+                            @Value("${auto-planning.pipeline.overlap.emergency:COALESCE}") OverlapPolicy emergencyPolicy,
+                            @Value("${auto-planning.pipeline.overlap.daily:SKIP}") OverlapPolicy dailyPolicy,
+                            @Value("${auto-planning.zones.enabled:false}") boolean dailyOnEveryNode) {
+        this.meterRegistry = meterRegistry;
+        this.lease = lease;
+        this.dailyOnEveryNode = dailyOnEveryNode;
+        this.ownedSolvers = Executors.newFixedThreadPool(Math.max(1, solverThreads), named("planning-solver"));
+        this.solvers = ownedSolvers;
+        for (Job job : Job.values()) {
+            runners.put(job, Executors.newSingleThreadExecutor(named("planning-" + job.name().toLowerCase(Locale.ROOT))));
+        }
+        policies.put(Job.EMERGENCY, emergencyPolicy);
+        policies.put(Job.DAILY, dailyPolicy);
+        for (Job job : Job.values()) {
+            states.put(job, new JobState());
+        }
+    }
+
+    /**
+     * Runs everything on the given executors, e.g. the calling thread in tests.
+     */
+    public PlanningPipeline(MeterRegistry meterRegistry, PlanningLeaseService lease, Executor runner, Executor solvers,
+                            OverlapPolicy emergencyPolicy, OverlapPolicy dailyPolicy, boolean dailyOnEveryNode) {
+        this.meterRegistry = meterRegistry;
+        this.lease = lease;
+        this.dailyOnEveryNode = dailyOnEveryNode;
+        this.ownedSolvers = null;
+        this.solvers = solvers;
+        for (Job job : Job.values()) {
+            runners.put(job, runner);
+            states.put(job, new JobState());
+        }
+        policies.put(Job.EMERGENCY, emergencyPolicy);
+        policies.put(Job.DAILY, dailyPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Executor runner : runners.values()) {
+            if (runner instanceof ExecutorService service) {
+                service.shutdownNow();
+            }
+        }
+        if (ownedSolvers != null) {
+            ownedSolvers.shutdownNow();
+        }
+    }
+
+    /**
+     * Requests a run of the job. The future completes when the run that covers this
+     * trigger has finished (right away when it is skipped); it never completes
+     * exceptionally, failures are logged and counted. Dropped when the job is leader-only and
+     * this node is not the leader.
+     * The body is taken as not checking the planning mode, see submit(Job, Runnable, boolean).
+     */
+    public CompletableFuture<Void> submit(Job job, Runnable body) {
+        return submit(job, body, false);
+    }
+
+    /**
+     * Same as submit(Job, Runnable); respectsMode tells whether the body skips itself
+     * according to the planning mode, which decides the body COALESCE keeps.
+     */
+    public CompletableFuture<Void> submit(Job job, Runnable body, boolean respectsMode) {
+        if (!mayRun(job)) {
+            trigger(job, "not-leader");
+            log.debug("Planning job {} not started, node {} is not the leader", job, lease.getNodeId());
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done;
+        synchronized (this) {
+            JobState state = states.get(job);
+            if (!state.running) {
+                state.running = true;
+                done = new CompletableFuture<>();
+                trigger(job, "started");
+                launch(job, new PendingRun(body, respectsMode, done));
+                return done;
+            }
+            switch (policies.get(job)) {
+                case SKIP -> {
+                    trigger(job, "skipped");
+                    log.info("Planning job {} still running, trigger skipped", job);
+                    return CompletableFuture.completedFuture(null);
+                }
+                case COALESCE -> {
+                    PendingRun queued = state.pending.peekLast();
+                    if (queued != null) {
+                        trigger(job, "coalesced");
+                        if (respectsMode && !queued.respectsMode()) {
+                            state.pending.pollLast();
+                            state.pending.add(new PendingRun(body, true, queued.done()));
+                        }
+                        return queued.done();
+                    }
+                    done = new CompletableFuture<>();
+                    state.pending.add(new PendingRun(body, respectsMode, done));
+                    trigger(job, "queued");
+                }
+                default -> {
+                    done = new CompletableFuture<>();
+                    state.pending.add(new PendingRun(body, respectsMode, done));
+                    trigger(job, "queued");
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Times one stage of a run; exceptions are recorded and rethrown.
+     * PERSIST and ASSIGN of leader-only jobs fail with IllegalStateException when the lease was lost.
+     * SELECT, OPTIMIZE and PERSIST first wait for the other job's run to save its tours.
+     */
+    public <T> T stage(Job job, Stage stage, Supplier<T> body) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            if (stage == Stage.SELECT || stage == Stage.OPTIMIZE || stage == Stage.PERSIST) {
+                holdPlanning(job);
+            } else if (stage == Stage.ASSIGN) {
+                releasePlanning();
+            }
+            if ((stage == Stage.PERSIST || stage == Stage.ASSIGN) && leaderOnly(job)) {
+                lease.verifyFence();
+            }
+            T result = body.get();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("planning.pipeline.stage")
+                    .description("Duration of one auto-planning stage")
+                    .tags("job", tag(job), "stage", tag(stage), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void stage(Job job, Stage stage, Runnable body) {
+        stage(job, stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * For stages that write without being PERSIST or ASSIGN: fails when the lease was lost.
+     */
+    public void verifyLease() {
+        lease.verifyFence();
+    }
+
+    /**
+     * Pool for the independent solves of a run (e.g. emergency batches).
+     */
+    public Executor solverExecutor() {
+        return solvers;
+    }
+
+    private void launch(Job job, PendingRun run) {
+        runners.get(job).execute(() -> {
+            try {
+                execute(job, run.body());
+            } finally {
+                // job released first: whoever waits on this run may trigger the next one
+                next(job);
+                run.done().complete(null);
+            }
+        });
+    }
+
+    private void holdPlanning(Job job) {
+        if (planning.isHeldByCurrentThread()) {
+            return;
+        }
+        if (!planning.tryLock()) {
+            log.debug("Planning job {} waits for the other job to save its tours", job);
+            planning.lock();
+        }
+    }
+
+    private void releasePlanning() {
+        if (planning.isHeldByCurrentThread()) {
+            planning.unlock();
+        }
+    }
+
+    private void next(Job job) {
+        synchronized (this) {
+            JobState state = states.get(job);
+            PendingRun run = state.pending.poll();
+            if (run == null) {
+                state.running = false;
+                return;
+            }
+            launch(job, run);
+        }
+    }
+
+    /**
+     * Whether the job only runs on the lease holder (every job but the zoned daily cycle).
+     */
+    public boolean leaderOnly(Job job) {
+        return job == Job.EMERGENCY || !dailyOnEveryNode;
+    }
+
+    private boolean mayRun(Job job) {
+        return !leaderOnly(job) || lease.isLeader();
+    }
+
+    private void execute(Job job, Runnable body) {
+        if (!mayRun(job)) {
+            // lost the lease while this run was queued
+            log.info("Planning job {} dropped, node {} is no longer the leader", job, lease.getNodeId());
+            return;
+        }
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            body.run();
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Planning job {} failed", job, e);
+        } finally {
+            releasePlanning();
+            Timer.builder("planning.pipeline.run")
+                    .description("Duration of one auto-planning run")
+                    .tags("job", tag(job), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void trigger(Job job, String outcome) {
+        Counter.builder("planning.pipeline.triggers")
+                .tags("job", tag(job), "outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record PendingRun(Runnable body, boolean respectsMode, CompletableFuture<Void> done) {}
+
+    private static final class JobState {
+        private boolean running;
+        private final Deque<PendingRun> pending = new ArrayDeque<>();
+    }
+}
@@ -0,0 +1,300 @@
+package com.wastemanagement.backend.service.tournee.auto;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.Bin;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.auto.ZonePartition;
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import com.wastemanagement.backend.model.vehicle.VehicleStatus;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.VehicleRepository;
+import com.wastemanagement.backend.repository.tournee.ZonePartitionRepository;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Cuts the city into fixed grid zones for the daily cycle and gives each zone its own vehicles.
+ * - zone ids only depend on the CP position (cell-km grid), so every node computes the same ones
+ * - demand is the volume of the bins at or above the fill threshold (660 L bins, as in TourneeServiceImpl);
+ *   zones without demand are left out
+ * - vehicles first go to the nearest zone, then are moved from zones that stay covered without them
+ *   to the zones short of capacity, neediest first and nearest vehicle first, until no such move is left
+ * - the partition is computed once per cycle, by the first node to start it, and saved in
+ *   zonePartitions; the other nodes read it instead of taking their own snapshot of readings and
+ *   free vehicles, so all of them claim zones out of the same split
+ * CPs without a location form one zone of their own.
+ */
+@Component
+@Slf4j
+public class ZonePartitioner {
+
+    public static final String NO_LOCATION_ZONE = "zone:none";
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double BIN_CAPACITY_L = 660;
+
+    /**
+     * @param demandL volume to collect in the zone, liters
+     * @param vehicleIds vehicles reserved for the zone, possibly empty
+     */
+    public record Zone(String id, Set<String> collectionPointIds, double demandL, Set<String> vehicleIds) {}
+
+    private final CollectionPointRepository collectionPointRepository;
+    private final VehicleRepository vehicleRepository;
+    private final LatestReadingStore latestReadingStore;
+    private final ZonePartitionRepository partitionRepository;
+    private final double cellKm;
+    private final long shareMillis;
+
+    public ZonePartitioner(CollectionPointRepository collectionPointRepository,
+                           VehicleRepository vehicleRepository,
+                           LatestReadingStore latestReadingStore,
+                           ZonePartitionRepository partitionRepository,
+                           @Value("${auto-planning.zones.cell-km:5.0}") double cellKm,
+                           @Value("${auto-planning.zones.partition-share-ms:600000}") long shareMillis) {
+        if (cellKm <= 0 || shareMillis <= 0) {
+            throw new IllegalArgumentException("auto-planning.zones.cell-km and partition-share-ms must be > 0");
+        }
+        this.collectionPointRepository = collectionPointRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.latestReadingStore = latestReadingStore;
+        this.partitionRepository = partitionRepository;
+        this.cellKm = cellKm;
+        this.shareMillis = shareMillis;
+    }
+
+    /**
+     * Zones with something to collect for the given types, sorted by id, each with its vehicles.
+     * A partition saved by another node less than partition-share-ms ago is reused as it is;
+     * otherwise this node computes it and saves it for the others. Two nodes computing at the
+     * same time collide on the id of their share window: the second one reads the first one's.
+     */
+    public List<Zone> partition(Collection<TrashType> types, double fillThreshold) {
+        String key = types.stream().map(Enum::name).sorted().collect(Collectors.joining(","))
+                + "@" + fillThreshold;
+        long now = System.currentTimeMillis();
+        Optional<ZonePartition> shared = partitionRepository
+                .findFirstByKeyAndCreatedAtAfterOrderByCreatedAtDesc(key, new Date(now - shareMillis));
+        if (shared.isPresent()) {
+            log.info("Daily cycle reuses zone partition {}", shared.get().getId());
+            return zones(shared.get());
+        }
+
+        List<Zone> zones = compute(types, fillThreshold);
+        String id = key + "|" + now / shareMillis;
+        try {
+            partitionRepository.insert(new ZonePartition(id, key, new Date(now), zones.stream()
+                    .map(z -> new ZonePartition.ZoneEntry(z.id(), z.collectionPointIds(), z.demandL(), z.vehicleIds()))
+                    .toList()));
+            return zones;
+        } catch (DuplicateKeyException e) {
+            log.info("Zone partition {} was saved by another node first, using it", id);
+            return partitionRepository.findById(id).map(ZonePartitioner::zones).orElse(zones);
+        }
+    }
+
+    private static List<Zone> zones(ZonePartition partition) {
+        return partition.getZones().stream()
+                .map(z -> new Zone(z.getId(), z.getCollectionPointIds(), z.getDemandL(), z.getVehicleIds()))
+                .toList();
+    }
+
+    /**
+     * Partition from this node's own view. Reseeds the latest readings first: the other nodes
+     * ingest part of them.
+     */
+    List<Zone> compute(Collection<TrashType> types, double fillThreshold) {
+        latestReadingStore.reseed();
+        List<CollectionPoint> cps = collectionPointRepository.findAll().stream()
+                .filter(CollectionPoint::isActive)
+                .filter(cp -> cp.getId() != null && cp.getBins() != null)
+                .toList();
+        List<String> binIds = cps.stream()
+                .flatMap(cp -> cp.getBins().stream())
+                .filter(b -> b.isActive() && types.contains(b.getType()))
+                .map(Bin::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, BinReading> latest = latestReadingStore.getAll(binIds);
+
+        Map<String, ZoneBuilder> builders = new TreeMap<>();
+        for (CollectionPoint cp : cps) {
+            double demand = 0;
+            for (Bin bin : cp.getBins()) {
+                BinReading reading = bin.isActive() && types.contains(bin.getType()) ? latest.get(bin.getId()) : null;
+                if (reading != null && reading.getFillPct() >= fillThreshold) {
+                    demand += reading.getFillPct() / 100.0 * BIN_CAPACITY_L;
+                }
+            }
+            if (demand <= 0) {
+                continue;
+            }
+            double[] coords = coordinates(cp.getLocation());
+            builders.computeIfAbsent(zoneOf(coords), ZoneBuilder::new).add(cp.getId(), coords, demand);
+        }
+
+        List<Vehicle> fleet = vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE).stream()
+                .filter(v -> v.getCapacityVolumeL() > 0)
+                .sorted(Comparator.comparing(Vehicle::getId))
+                .toList();
+        List<ZoneBuilder> zones = new ArrayList<>(builders.values());
+        allocate(zones, fleet);
+
+        log.info("Daily cycle split into {} zones, {} vehicles", zones.size(), fleet.size());
+        return zones.stream()
+                .map(z -> new Zone(z.id, z.cpIds, z.demand, z.vehicleIds()))
+                .toList();
+    }
+
+    /**
+     * Stable zone id of a position: a cell-km square, rows of latitude then columns of longitude
+     * scaled at the row's own latitude.
+     */
+    String zoneOf(double[] coords) {
+        if (coords == null) {
+            return NO_LOCATION_ZONE;
+        }
+        double latStep = cellKm / KM_PER_DEGREE;
+        int row = (int) Math.floor(coords[1] / latStep);
+        double rowLat = (row + 0.5) * latStep;
+        double lonStep = cellKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(rowLat))));
+        int column = (int) Math.floor(coords[0] / lonStep);
+        return "zone:" + row + ":" + column;
+    }
+
+    private static void allocate(List<ZoneBuilder> zones, List<Vehicle> fleet) {
+        if (zones.isEmpty()) {
+            return;
+        }
+        // pre-partition: nearest zone; vehicles without position go where capacity is shortest
+        for (Vehicle vehicle : fleet) {
+            double[] position = coordinates(vehicle.getCurrentLocation());
+            ZoneBuilder target = position == null ? null : zones.stream()
+                    .filter(z -> z.centroid() != null)
+                    .min(Comparator.comparingDouble(z -> distanceKm(z.centroid(), position)))
+                    .orElse(null);
+            if (target == null) {
+                target = zones.stream().max(Comparator.comparingDouble(ZoneBuilder::deficit)).orElseThrow();
+            }
+            target.vehicles.add(vehicle);
+        }
+
+        // rebalance, bounded by the fleet size; donors keep enough capacity for their own demand.
+        // A zone no donor can help is set aside and the next neediest one is served
+        Set<ZoneBuilder> unhelped = new HashSet<>();
+        for (int moves = 0; moves < fleet.size(); ) {
+            ZoneBuilder needy = zones.stream()
+                    .filter(z -> !unhelped.contains(z))
+                    .max(Comparator.comparingDouble(ZoneBuilder::deficit))
+                    .orElse(null);
+            if (needy == null || needy.deficit() <= 0) {
+                return;
+            }
+            ZoneBuilder donor = null;
+            Vehicle moved = null;
+            double best = Double.MAX_VALUE;
+            for (ZoneBuilder zone : zones) {
+                if (zone == needy) {
+                    continue;
+                }
+                for (Vehicle vehicle : zone.vehicles) {
+                    if (zone.capacity() - vehicle.getCapacityVolumeL() < zone.demand) {
+                        continue; // the donor would fall short itself
+                    }
+                    double distance = needy.centroid() == null ? 0
+                            : distanceKm(needy.centroid(), coordinates(vehicle.getCurrentLocation()));
+                    // vehicles without position still move, after every located one
+                    if (moved == null || distance < best) {
+                        best = distance;
+                        donor = zone;
+                        moved = vehicle;
+                    }
+                }
+            }
+            if (moved == null) {
+                unhelped.add(needy);
+                continue;
+            }
+            donor.vehicles.remove(moved);
+            needy.vehicles.add(moved);
+            moves++;
+        }
+    }
+
+    // equirectangular approximation, plenty at city scale; unknown positions sort last
+    private static double distanceKm(double[] a, double[] b) {
+        if (b == null) {
+            return Double.MAX_VALUE;
+        }
+        double x = (b[0] - a[0]) * Math.cos(Math.toRadians((a[1] + b[1]) / 2));
+        double y = b[1] - a[1];
+        return Math.sqrt(x * x + y * y) * KM_PER_DEGREE;
+    }
+
+    private static double[] coordinates(GeoJSONPoint point) {
+        if (point == null || point.getCoordinates() == null || point.getCoordinates().length < 2) {
+            return null;
+        }
+        return point.getCoordinates();
+    }
+
+    private static final class ZoneBuilder {
+        private final String id;
+        private final Set<String> cpIds = new LinkedHashSet<>();
+        private final List<Vehicle> vehicles = new ArrayList<>();
+        private double demand;
+        private double lonSum;
+        private double latSum;
+        private int located;
+
+        private ZoneBuilder(String id) {
+            this.id = id;
+        }
+
+        private void add(String cpId, double[] coords, double cpDemand) {
+            cpIds.add(cpId);
+            demand += cpDemand;
+            if (coords != null) {
+                lonSum += coords[0];
+                latSum += coords[1];
+                located++;
+            }
+        }
+
+        private double[] centroid() {
+            return located == 0 ? null : new double[]{lonSum / located, latSum / located};
+        }
+
+        private double capacity() {
+            return vehicles.stream().mapToDouble(Vehicle::getCapacityVolumeL).sum();
+        }
+
+        private double deficit() {
+            return demand - capacity();
+        }
+
+        private Set<String> vehicleIds() {
+            Set<String> ids = new LinkedHashSet<>();
+            vehicles.forEach(v -> ids.add(v.getId()));
+            return ids;
+        }
+    }
+}
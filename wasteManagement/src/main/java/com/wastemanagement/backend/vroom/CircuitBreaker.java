@@ -0,0 +1,103 @@
+package com.wastemanagement.backend.vroom;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker:
+ * - CLOSED: calls go through; failureThreshold failures in a row open it
+ * - OPEN: calls are refused for openMs
+ * - HALF_OPEN: after that, a single probe call goes through; its success closes the
+ *   circuit, its failure opens it again
+ * Callers that got a permit from tryAcquire must report onSuccess, onFailure or onInconclusive.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this(failureThreshold, openMs, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMs, LongSupplier nanoClock) {
+        if (failureThreshold < 1 || openMs <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be >= 1 and openMs > 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Whether a call may go through now; in HALF_OPEN only the first caller gets the probe.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    /**
+     * @return true when this failure opened the circuit
+     */
+    public synchronized boolean onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return true;
+        }
+        failures++;
+        if (state == State.CLOSED && failures >= failureThreshold) {
+            open();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The call says nothing about the service's health (e.g. it ran out of time on a slow solve):
+     * counts neither way, a probe only hands its turn to the next caller.
+     */
+    public synchronized void onInconclusive() {
+        probing = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        probing = false;
+    }
+}
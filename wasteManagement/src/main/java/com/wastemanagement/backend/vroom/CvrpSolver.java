@@ -0,0 +1,377 @@
+package com.wastemanagement.backend.vroom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Capacitated VRP on a precomputed cost matrix, for NativeRouteOptimizer.
+ * - construction: Clarke-Wright savings over each job's nearest neighbours, routes then given
+ *   to vehicles best fit first; jobs of routes left without a vehicle go to their cheapest
+ *   feasible insertion
+ * - improvement, until nothing improves or the deadline passes: 2-opt and Or-opt inside each
+ *   route (routes in parallel), then relocate between routes (sources evaluated in parallel,
+ *   non-conflicting moves applied)
+ * Nodes 0..jobs-1 are the jobs, the others are vehicle starts/ends; -1 means no start/end (free).
+ * Not thread-safe: one instance per solve.
+ */
+final class CvrpSolver {
+
+    private static final double EPS = 1e-6;
+    private static final int SAVINGS_NEIGHBOURS = 40;
+
+    private final float[] cost;
+    private final int nodes;
+    private final int[] demand;
+    private final int[] capacity;
+    private final int[] start;
+    private final int[] end;
+    private final int jobs;
+    private final int vehicles;
+
+    // per vehicle, job order; written by one task per vehicle during the parallel passes
+    private final int[][] routes;
+    private final int[] load;
+    private final List<Integer> unassigned = new ArrayList<>();
+
+    /**
+     * @param cost     row-major nodes x nodes matrix
+     * @param demand   per job
+     * @param capacity per vehicle
+     * @param start    per vehicle, start node or -1
+     * @param end      per vehicle, end node or -1
+     */
+    CvrpSolver(float[] cost, int nodes, int[] demand, int[] capacity, int[] start, int[] end) {
+        this.cost = cost;
+        this.nodes = nodes;
+        this.demand = demand;
+        this.capacity = capacity;
+        this.start = start;
+        this.end = end;
+        this.jobs = demand.length;
+        this.vehicles = capacity.length;
+        this.routes = new int[vehicles][0];
+        this.load = new int[vehicles];
+    }
+
+    record Solution(int[][] routes, List<Integer> unassigned) {}
+
+    Solution solve(ForkJoinPool pool, long deadlineNanos) {
+        construct();
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            boolean intra = pool.submit(() -> IntStream.range(0, vehicles).parallel()
+                    .map(v -> improveRoute(v, deadlineNanos) ? 1 : 0)
+                    .sum() > 0).join();
+            boolean inter = relocate(pool);
+            improved = intra || inter;
+        }
+        return new Solution(routes, List.copyOf(unassigned));
+    }
+
+    // ---------- construction ----------
+
+    private void construct() {
+        int reference = 0;
+        for (int v = 1; v < vehicles; v++) {
+            if (capacity[v] > capacity[reference]) {
+                reference = v;
+            }
+        }
+        int maxCapacity = capacity[reference];
+        int s = start[reference];
+        int e = end[reference];
+
+        // one route per job, then merge the tail of one into the head of another by savings
+        List<List<Integer>> built = new ArrayList<>();
+        int[] routeOf = new int[jobs];
+        int[] routeLoad = new int[jobs];
+        for (int j = 0; j < jobs; j++) {
+            if (demand[j] > maxCapacity) {
+                unassigned.add(j);
+                routeOf[j] = -1;
+                built.add(null);
+                continue;
+            }
+            List<Integer> single = new ArrayList<>();
+            single.add(j);
+            built.add(single);
+            routeOf[j] = j;
+            routeLoad[j] = demand[j];
+        }
+        for (Saving saving : savings(s, e)) {
+            int a = routeOf[saving.from()];
+            int b = routeOf[saving.to()];
+            if (a < 0 || b < 0 || a == b) {
+                continue;
+            }
+            List<Integer> head = built.get(a);
+            List<Integer> tail = built.get(b);
+            if (head.get(head.size() - 1) != saving.from() || tail.get(0) != saving.to()
+                    || routeLoad[a] + routeLoad[b] > maxCapacity) {
+                continue;
+            }
+            head.addAll(tail);
+            routeLoad[a] += routeLoad[b];
+            for (int job : tail) {
+                routeOf[job] = a;
+            }
+            built.set(b, null);
+        }
+
+        // heaviest routes first, each on the smallest free vehicle that carries it
+        List<Integer> order = IntStream.range(0, jobs)
+                .filter(r -> built.get(r) != null)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer r) -> routeLoad[r]).reversed())
+                .toList();
+        boolean[] used = new boolean[vehicles];
+        List<Integer> orphans = new ArrayList<>();
+        for (int r : order) {
+            int best = -1;
+            for (int v = 0; v < vehicles; v++) {
+                if (!used[v] && capacity[v] >= routeLoad[r] && (best < 0 || capacity[v] < capacity[best])) {
+                    best = v;
+                }
+            }
+            if (best < 0) {
+                orphans.addAll(built.get(r));
+                continue;
+            }
+            used[best] = true;
+            routes[best] = built.get(r).stream().mapToInt(Integer::intValue).toArray();
+            load[best] = routeLoad[r];
+        }
+        orphans.sort(Comparator.comparingInt((Integer j) -> demand[j]).reversed());
+        for (int job : orphans) {
+            if (!insertCheapest(job)) {
+                unassigned.add(job);
+            }
+        }
+    }
+
+    private record Saving(int from, int to, double value) {}
+
+    private List<Saving> savings(int s, int e) {
+        int k = Math.min(SAVINGS_NEIGHBOURS, jobs - 1);
+        List<Saving> savings = new ArrayList<>(jobs * Math.max(k, 0));
+        Integer[] others = new Integer[jobs];
+        for (int i = 0; i < jobs; i++) {
+            final int from = i;
+            for (int j = 0; j < jobs; j++) {
+                others[j] = j;
+            }
+            // granular savings: only the k nearest successors of each job
+            Arrays.sort(others, Comparator.comparingDouble(j -> c(from, j)));
+            int taken = 0;
+            for (int n = 0; n < jobs && taken < k; n++) {
+                int to = others[n];
+                if (to == from) {
+                    continue;
+                }
+                taken++;
+                double value = c(from, e) + c(s, to) - c(from, to);
+                if (value > 0) {
+                    savings.add(new Saving(from, to, value));
+                }
+            }
+        }
+        savings.sort(Comparator.comparingDouble(Saving::value).reversed());
+        return savings;
+    }
+
+    private boolean insertCheapest(int job) {
+        int bestVehicle = -1;
+        int bestPosition = -1;
+        double bestDelta = Double.MAX_VALUE;
+        for (int v = 0; v < vehicles; v++) {
+            if (load[v] + demand[job] > capacity[v]) {
+                continue;
+            }
+            int[] route = routes[v];
+            for (int p = 0; p <= route.length; p++) {
+                double delta = insertionDelta(v, route, p, job);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestVehicle = v;
+                    bestPosition = p;
+                }
+            }
+        }
+        if (bestVehicle < 0) {
+            return false;
+        }
+        routes[bestVehicle] = inserted(routes[bestVehicle], bestPosition, job);
+        load[bestVehicle] += demand[job];
+        return true;
+    }
+
+    // ---------- intra-route: 2-opt and Or-opt ----------
+
+    private boolean improveRoute(int vehicle, long deadlineNanos) {
+        boolean any = false;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            improved = twoOpt(vehicle) || orOpt(vehicle);
+            any |= improved;
+        }
+        return any;
+    }
+
+    private boolean twoOpt(int vehicle) {
+        int[] route = routes[vehicle];
+        int m = route.length;
+        for (int i = 0; i < m - 1; i++) {
+            int before = i == 0 ? start[vehicle] : route[i - 1];
+            for (int j = i + 1; j < m; j++) {
+                int after = j == m - 1 ? end[vehicle] : route[j + 1];
+                double delta = c(before, route[j]) + c(route[i], after) - c(before, route[i]) - c(route[j], after);
+                if (delta < -EPS) {
+                    int[] candidate = route.clone();
+                    reverse(candidate, i, j);
+                    // the delta assumes a symmetric matrix, the full cost settles it otherwise
+                    if (routeCost(vehicle, candidate) < routeCost(vehicle, route) - EPS) {
+                        routes[vehicle] = candidate;
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean orOpt(int vehicle) {
+        int[] route = routes[vehicle];
+        int m = route.length;
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 0; i + length <= m; i++) {
+                int before = i == 0 ? start[vehicle] : route[i - 1];
+                int after = i + length == m ? end[vehicle] : route[i + length];
+                int first = route[i];
+                int last = route[i + length - 1];
+                double gain = c(before, first) + c(last, after) - c(before, after);
+                int[] rest = removed(route, i, length);
+                for (int p = 0; p <= rest.length; p++) {
+                    if (p == i) {
+                        continue;
+                    }
+                    int prev = p == 0 ? start[vehicle] : rest[p - 1];
+                    int next = p == rest.length ? end[vehicle] : rest[p];
+                    double added = c(prev, first) + c(last, next) - c(prev, next);
+                    if (added < gain - EPS) {
+                        int[] candidate = new int[m];
+                        System.arraycopy(rest, 0, candidate, 0, p);
+                        System.arraycopy(route, i, candidate, p, length);
+                        System.arraycopy(rest, p, candidate, p + length, rest.length - p);
+                        routes[vehicle] = candidate;
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // ---------- inter-route: relocate ----------
+
+    private record Move(int from, int position, int to, int target, double gain) {}
+
+    private boolean relocate(ForkJoinPool pool) {
+        List<Move> moves = pool.submit(() -> IntStream.range(0, vehicles).parallel()
+                .mapToObj(this::bestRelocateFrom)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(Move::gain).reversed())
+                .toList()).join();
+        // moves were found on the same routes: apply the best ones that touch disjoint routes
+        boolean[] touched = new boolean[vehicles];
+        boolean applied = false;
+        for (Move move : moves) {
+            if (touched[move.from()] || touched[move.to()]) {
+                continue;
+            }
+            int job = routes[move.from()][move.position()];
+            routes[move.from()] = removed(routes[move.from()], move.position(), 1);
+            routes[move.to()] = inserted(routes[move.to()], move.target(), job);
+            load[move.from()] -= demand[job];
+            load[move.to()] += demand[job];
+            touched[move.from()] = true;
+            touched[move.to()] = true;
+            applied = true;
+        }
+        return applied;
+    }
+
+    private Move bestRelocateFrom(int from) {
+        int[] route = routes[from];
+        Move best = null;
+        for (int i = 0; i < route.length; i++) {
+            int job = route[i];
+            int before = i == 0 ? start[from] : route[i - 1];
+            int after = i == route.length - 1 ? end[from] : route[i + 1];
+            double gain = c(before, job) + c(job, after) - c(before, after);
+            for (int to = 0; to < vehicles; to++) {
+                if (to == from || load[to] + demand[job] > capacity[to]) {
+                    continue;
+                }
+                int[] target = routes[to];
+                for (int p = 0; p <= target.length; p++) {
+                    double net = gain - insertionDelta(to, target, p, job);
+                    if (net > EPS && (best == null || net > best.gain())) {
+                        best = new Move(from, i, to, p, net);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // ---------- helpers ----------
+
+    private double c(int from, int to) {
+        return from < 0 || to < 0 ? 0 : cost[from * nodes + to];
+    }
+
+    private double routeCost(int vehicle, int[] route) {
+        if (route.length == 0) {
+            return 0;
+        }
+        double total = c(start[vehicle], route[0]);
+        for (int i = 1; i < route.length; i++) {
+            total += c(route[i - 1], route[i]);
+        }
+        return total + c(route[route.length - 1], end[vehicle]);
+    }
+
+    private double insertionDelta(int vehicle, int[] route, int position, int job) {
+        int prev = position == 0 ? start[vehicle] : route[position - 1];
+        int next = position == route.length ? end[vehicle] : route[position];
+        return c(prev, job) + c(job, next) - c(prev, next);
+    }
+
+    private static int[] inserted(int[] route, int position, int job) {
+        int[] result = new int[route.length + 1];
+        System.arraycopy(route, 0, result, 0, position);
+        result[position] = job;
+        System.arraycopy(route, position, result, position + 1, route.length - position);
+        return result;
+    }
+
+    private static int[] removed(int[] route, int position, int length) {
+        int[] result = new int[route.length - length];
+        System.arraycopy(route, 0, result, 0, position);
+        System.arraycopy(route, position + length, result, position, route.length - position - length);
+        return result;
+    }
+
+    private static void reverse(int[] route, int i, int j) {
+        while (i < j) {
+            int tmp = route[i];
+            route[i++] = route[j];
+            route[j--] = tmp;
+        }
+    }
+}
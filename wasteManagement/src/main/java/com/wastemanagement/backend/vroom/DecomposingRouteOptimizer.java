@@ -0,0 +1,576 @@
+package com.wastemanagement.backend.vroom;
+
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomSummary;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The RouteOptimizer planners get. Requests of fewer than routing.decompose.min-jobs jobs go
+ * whole to FailoverRouteOptimizer; larger ones are cut into sectors solved side by side:
+ * - sweep: jobs sorted by angle around the depot, starting after the widest empty angle, are cut
+ *   into ceil(jobs / sector-jobs) wedges of equal demand (at most one per vehicle)
+ * - every sector gets one vehicle, the others go one by one, largest first, to the sector with
+ *   the most demand per unit of capacity
+ * - the sectors are solved in parallel, at most routing.decompose.parallelism at a time; a sector
+ *   that cannot be solved reports its jobs unassigned, the boundary pass then retries them
+ * - boundary pass: for each pair of neighbouring sectors (not the last and the first, which the
+ *   widest empty angle separates), the boundary-routes routes closest to their shared edge, their
+ *   idle vehicles and unassigned jobs are solved again together; the result replaces them when
+ *   it leaves fewer jobs unassigned, or as many at a lower cost
+ * Matrices are attached to each sub-request through optimize(request, attachMatrices), so no
+ * dense matrix of the whole request is ever built; a request that already carries matrices
+ * gives each sub-request only its own rows.
+ * Metrics: routing.decompose.sectors, routing.decompose.boundary.improvements
+ */
+@Component
+@Primary
+@Slf4j
+public class DecomposingRouteOptimizer implements RouteOptimizer {
+
+    private final RouteOptimizer delegate;
+    private final MeterRegistry meterRegistry;
+    private final int minJobs;
+    private final int sectorJobs;
+    private final int boundaryRoutes;
+    private final ExecutorService executor;
+
+    @Autowired
+    public DecomposingRouteOptimizer(FailoverRouteOptimizer delegate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${routing.decompose.min-jobs:3000}") int minJobs,
+                                     @Value("${routing.decompose.sector-jobs:1000}") int sectorJobs,
+                                     @Value("${routing.decompose.boundary-routes:2}") int boundaryRoutes,
+                                     @Value("${routing.decompose.parallelism:0}") int parallelism) {
+        this((RouteOptimizer) delegate, meterRegistry, minJobs, sectorJobs, boundaryRoutes, parallelism);
+    }
+
+    public DecomposingRouteOptimizer(RouteOptimizer delegate, MeterRegistry meterRegistry,
+                                     int minJobs, int sectorJobs, int boundaryRoutes, int parallelism) {
+        if (sectorJobs < 1 || boundaryRoutes < 0) {
+            throw new IllegalArgumentException("routing.decompose needs sector-jobs >= 1 and boundary-routes >= 0");
+        }
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.minJobs = minJobs;
+        this.sectorJobs = sectorJobs;
+        this.boundaryRoutes = boundaryRoutes;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "route-sector-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return "decomposing";
+    }
+
+    @Override
+    public VroomSolution optimize(VroomRequest request) {
+        return optimize(request, sub -> {});
+    }
+
+    @Override
+    public VroomSolution optimize(VroomRequest request, Consumer<VroomRequest> attachMatrices) {
+        List<VroomJob> jobs = request.getJobs() == null ? List.of() : request.getJobs();
+        List<VroomVehicle> vehicles = request.getVehicles() == null ? List.of() : request.getVehicles();
+        int sectorCount = Math.min(vehicles.size(), (jobs.size() + sectorJobs - 1) / sectorJobs);
+        if (jobs.size() < minJobs || sectorCount < 2
+                || jobs.stream().anyMatch(j -> j.getLocation() == null || j.getLocation().length < 2)) {
+            attachMatrices.accept(request);
+            return delegate.optimize(request);
+        }
+        long startedAt = System.nanoTime();
+
+        double[] center = center(jobs, vehicles);
+        double[] angles = jobs.stream().mapToDouble(j -> angle(center, j.getLocation())).toArray();
+        List<Sector> sectors = sweep(angles, jobs, sectorCount);
+        assignVehicles(sectors, jobs, vehicles);
+
+        Map<Integer, VroomJob> jobsById = jobs.stream()
+                .collect(Collectors.toMap(VroomJob::getId, Function.identity(), (a, b) -> a));
+        Map<Integer, Double> angleById = new HashMap<>();
+        for (int j = 0; j < jobs.size(); j++) {
+            angleById.put(jobs.get(j).getId(), angles[j]);
+        }
+
+        // sectors, in parallel
+        List<CompletableFuture<VroomSolution>> solves = sectors.stream()
+                .map(s -> solveAsync(subRequest(request, s.jobs(), s.fleet()), attachMatrices))
+                .toList();
+        int failed = 0;
+        RuntimeException lastFailure = null;
+        for (int s = 0; s < sectors.size(); s++) {
+            Sector sector = sectors.get(s);
+            VroomSolution solution;
+            try {
+                solution = solves.get(s).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Sector {} of {} could not be solved, its {} jobs are left to the boundary pass: {}",
+                        s + 1, sectors.size(), sector.jobs().size(), cause.getMessage());
+                sector.jobs().forEach(job -> sector.unassigned().add(unassigned(job)));
+                failed++;
+                lastFailure = cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+                continue;
+            }
+            if (solution.getRoutes() != null) {
+                sector.routes().addAll(solution.getRoutes());
+            }
+            if (solution.getUnassigned() != null) {
+                sector.unassigned().addAll(solution.getUnassigned());
+            }
+        }
+        DistributionSummary.builder("routing.decompose.sectors")
+                .description("Sectors a large routing request was cut into")
+                .register(meterRegistry)
+                .record(sectors.size());
+        if (failed == sectors.size()) {
+            throw new IllegalStateException("None of the " + sectors.size() + " sectors could be solved: "
+                    + lastFailure.getMessage(), lastFailure);
+        }
+
+        int improved = improveBoundaries(request, sectors, jobsById, angleById, attachMatrices);
+
+        VroomSolution merged = merge(sectors);
+        log.info("Decomposed solve: {} jobs in {} sectors, {} boundaries improved, {} unassigned, {} ms",
+                jobs.size(), sectors.size(), improved, merged.getUnassigned().size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return merged;
+    }
+
+    // the delegate may solve on the calling thread, so every solve starts from the pool,
+    // matrices included: at most parallelism of them are held at once
+    private CompletableFuture<VroomSolution> solveAsync(VroomRequest request, Consumer<VroomRequest> attachMatrices) {
+        return CompletableFuture.supplyAsync(() -> {
+                    if (request.getMatrices() == null) {
+                        attachMatrices.accept(request);
+                    }
+                    return delegate.optimizeAsync(request);
+                }, executor)
+                .thenCompose(Function.identity());
+    }
+
+    // ---------- sectors ----------
+
+    /**
+     * @param jobs      the request's jobs in this sector
+     * @param fleet     the vehicles it was given
+     * @param routes    its current routes
+     * @param unassigned its current unassigned jobs, as the optimizer reported them
+     * @param edge      unwrapped angle of the edge shared with the next sector
+     */
+    private record Sector(List<VroomJob> jobs, List<VroomVehicle> fleet,
+                          List<VroomRoute> routes, List<Object> unassigned, double edge) {
+
+        long demand() {
+            return jobs.stream().mapToLong(DecomposingRouteOptimizer::demand).sum();
+        }
+    }
+
+    // the depot: where vehicles start, else where they end, else the middle of the jobs
+    private static double[] center(List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        List<double[]> points = vehicles.stream().map(VroomVehicle::getStart)
+                .filter(p -> p != null && p.length >= 2).toList();
+        if (points.isEmpty()) {
+            points = vehicles.stream().map(VroomVehicle::getEnd).filter(p -> p != null && p.length >= 2).toList();
+        }
+        if (points.isEmpty()) {
+            points = jobs.stream().map(VroomJob::getLocation).toList();
+        }
+        double lon = points.stream().mapToDouble(p -> p[0]).average().orElse(0);
+        double lat = points.stream().mapToDouble(p -> p[1]).average().orElse(0);
+        return new double[]{lon, lat};
+    }
+
+    private static double angle(double[] center, double[] location) {
+        double x = (location[0] - center[0]) * Math.cos(Math.toRadians(center[1]));
+        double y = location[1] - center[1];
+        return Math.atan2(y, x);
+    }
+
+    private static List<Sector> sweep(double[] angles, List<VroomJob> jobs, int sectorCount) {
+        int n = jobs.size();
+        int[] order = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingDouble((Integer j) -> angles[j]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        // start right after the widest gap, so no sector straddles empty ground
+        int first = 0;
+        double widest = angles[order[0]] + 2 * Math.PI - angles[order[n - 1]];
+        for (int i = 1; i < n; i++) {
+            double gap = angles[order[i]] - angles[order[i - 1]];
+            if (gap > widest) {
+                widest = gap;
+                first = i;
+            }
+        }
+        int[] swept = new int[n];
+        double[] unwrapped = new double[n];
+        for (int i = 0; i < n; i++) {
+            swept[i] = order[(first + i) % n];
+            unwrapped[i] = angles[swept[i]] + (first + i >= n ? 2 * Math.PI : 0);
+        }
+
+        long total = 0;
+        for (VroomJob job : jobs) {
+            total += demand(job);
+        }
+        List<Sector> sectors = new ArrayList<>();
+        int from = 0;
+        long cumulative = 0;
+        for (int s = 0; s < sectorCount; s++) {
+            int to = from;
+            long target = total * (s + 1) / sectorCount;
+            // every sector keeps at least one job and leaves one for each sector after it
+            while (to < n - (sectorCount - s - 1)
+                    && (to == from || s == sectorCount - 1 || cumulative + demand(jobs.get(swept[to])) <= target)) {
+                cumulative += demand(jobs.get(swept[to]));
+                to++;
+            }
+            List<VroomJob> sectorJobs = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                sectorJobs.add(jobs.get(swept[i]));
+            }
+            double edge = to < n
+                    ? (unwrapped[to - 1] + unwrapped[to]) / 2
+                    : (unwrapped[n - 1] + unwrapped[0] + 2 * Math.PI) / 2;
+            sectors.add(new Sector(sectorJobs, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), edge));
+            from = to;
+        }
+        return sectors;
+    }
+
+    private static void assignVehicles(List<Sector> sectors, List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        List<VroomVehicle> byCapacity = vehicles.stream()
+                .sorted(Comparator.comparingDouble(DecomposingRouteOptimizer::capacity).reversed())
+                .toList();
+        long[] demand = sectors.stream().mapToLong(Sector::demand).toArray();
+        double[] capacity = new double[sectors.size()];
+
+        // one each, largest vehicles to the largest sectors
+        int[] byDemand = IntStream.range(0, sectors.size()).boxed()
+                .sorted(Comparator.comparingLong((Integer s) -> demand[s]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int i = 0; i < byDemand.length; i++) {
+            sectors.get(byDemand[i]).fleet().add(byCapacity.get(i));
+            capacity[byDemand[i]] += capacity(byCapacity.get(i));
+        }
+        for (int i = byDemand.length; i < byCapacity.size(); i++) {
+            int neediest = 0;
+            for (int s = 1; s < sectors.size(); s++) {
+                if (demand[s] / capacity[s] > demand[neediest] / capacity[neediest]) {
+                    neediest = s;
+                }
+            }
+            sectors.get(neediest).fleet().add(byCapacity.get(i));
+            capacity[neediest] += capacity(byCapacity.get(i));
+        }
+    }
+
+    private static long demand(VroomJob job) {
+        return job.getAmount() == null || job.getAmount().length == 0 ? 1 : Math.max(1, job.getAmount()[0]);
+    }
+
+    // unbounded vehicles count as very large ones
+    private static double capacity(VroomVehicle vehicle) {
+        return vehicle.getCapacity() == null || vehicle.getCapacity().length == 0
+                ? 1e12 : Math.max(1, vehicle.getCapacity()[0]);
+    }
+
+    // ---------- boundary pass ----------
+
+    private record Boundary(int left, int right, VroomRequest request, List<VroomRoute> replaced,
+                            long cost, int unassigned) {}
+
+    private int improveBoundaries(VroomRequest request, List<Sector> sectors, Map<Integer, VroomJob> jobsById,
+                                  Map<Integer, Double> angleById, Consumer<VroomRequest> attachMatrices) {
+        if (boundaryRoutes == 0) {
+            return 0;
+        }
+        // pairs sharing no sector are solved in the same round; the sweep starts after the
+        // widest empty angle, so the last and the first sector share no boundary worth solving
+        List<List<int[]>> rounds = new ArrayList<>();
+        List<Set<Integer>> busy = new ArrayList<>();
+        for (int s = 0; s + 1 < sectors.size(); s++) {
+            int[] pair = {s, s + 1};
+            int round = 0;
+            while (round < rounds.size() && (busy.get(round).contains(pair[0]) || busy.get(round).contains(pair[1]))) {
+                round++;
+            }
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+                busy.add(new HashSet<>());
+            }
+            rounds.get(round).add(pair);
+            busy.get(round).add(pair[0]);
+            busy.get(round).add(pair[1]);
+        }
+
+        Map<Integer, Integer> sectorOfVehicle = new HashMap<>();
+        for (int s = 0; s < sectors.size(); s++) {
+            for (VroomVehicle vehicle : sectors.get(s).fleet()) {
+                sectorOfVehicle.put(vehicle.getId(), s);
+            }
+        }
+
+        int improved = 0;
+        for (List<int[]> round : rounds) {
+            List<Boundary> boundaries = round.stream()
+                    .map(pair -> boundary(request, sectors, pair[0], pair[1], jobsById, angleById))
+                    .toList();
+            List<CompletableFuture<VroomSolution>> solves = boundaries.stream()
+                    .map(b -> solveAsync(b.request(), attachMatrices))
+                    .toList();
+            for (int i = 0; i < boundaries.size(); i++) {
+                Boundary boundary = boundaries.get(i);
+                VroomSolution solution;
+                try {
+                    solution = solves.get(i).join();
+                } catch (CompletionException e) {
+                    log.debug("Boundary {}/{} left as is: {}", boundary.left() + 1, boundary.right() + 1,
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                    continue;
+                }
+                if (apply(boundary, solution, sectors, sectorOfVehicle, jobsById, angleById)) {
+                    improved++;
+                }
+            }
+        }
+        if (improved > 0) {
+            Counter.builder("routing.decompose.boundary.improvements")
+                    .description("Sector boundaries whose joint re-solve was kept")
+                    .register(meterRegistry)
+                    .increment(improved);
+        }
+        return improved;
+    }
+
+    private Boundary boundary(VroomRequest request, List<Sector> sectors, int left, int right,
+                              Map<Integer, VroomJob> jobsById, Map<Integer, Double> angleById) {
+        double edge = sectors.get(left).edge();
+        List<VroomRoute> replaced = new ArrayList<>();
+        replaced.addAll(closestRoutes(sectors.get(left), edge, angleById));
+        replaced.addAll(closestRoutes(sectors.get(right), edge, angleById));
+
+        List<VroomJob> jobs = new ArrayList<>();
+        Set<Integer> routed = new HashSet<>();
+        long cost = 0;
+        for (VroomRoute route : replaced) {
+            routed.add(route.getVehicle());
+            cost += route.getCost();
+            for (Integer job : jobIds(route)) {
+                jobs.add(jobsById.get(job));
+            }
+        }
+        int unassigned = 0;
+        List<VroomVehicle> vehicles = new ArrayList<>();
+        for (Sector sector : List.of(sectors.get(left), sectors.get(right))) {
+            for (Object job : sector.unassigned()) {
+                Integer id = unassignedId(job);
+                if (id != null && jobsById.containsKey(id)) {
+                    jobs.add(jobsById.get(id));
+                    unassigned++;
+                }
+            }
+            // the routes being replaced, and the vehicles no route uses
+            Set<Integer> used = sector.routes().stream().map(VroomRoute::getVehicle).collect(Collectors.toSet());
+            for (VroomVehicle vehicle : sector.fleet()) {
+                if (routed.contains(vehicle.getId()) || !used.contains(vehicle.getId())) {
+                    vehicles.add(vehicle);
+                }
+            }
+        }
+        return new Boundary(left, right, subRequest(request, jobs, vehicles), replaced, cost, unassigned);
+    }
+
+    private List<VroomRoute> closestRoutes(Sector sector, double edge, Map<Integer, Double> angleById) {
+        return sector.routes().stream()
+                .filter(r -> !jobIds(r).isEmpty())
+                .sorted(Comparator.comparingDouble((VroomRoute r) -> jobIds(r).stream()
+                        .mapToDouble(id -> angularDistance(angleById.get(id), edge))
+                        .min().orElse(Double.MAX_VALUE)))
+                .limit(boundaryRoutes)
+                .toList();
+    }
+
+    private static double angularDistance(double angle, double edge) {
+        double d = Math.abs(angle - edge) % (2 * Math.PI);
+        return Math.min(d, 2 * Math.PI - d);
+    }
+
+    private static boolean apply(Boundary boundary, VroomSolution solution, List<Sector> sectors,
+                                 Map<Integer, Integer> sectorOfVehicle, Map<Integer, VroomJob> jobsById,
+                                 Map<Integer, Double> angleById) {
+        List<VroomRoute> routes = solution.getRoutes() == null ? List.of() : solution.getRoutes();
+        List<Object> unassigned = solution.getUnassigned() == null ? List.of() : solution.getUnassigned();
+        long cost = routes.stream().mapToLong(VroomRoute::getCost).sum();
+        if (unassigned.size() > boundary.unassigned()
+                || (unassigned.size() == boundary.unassigned() && cost >= boundary.cost())) {
+            return false;
+        }
+        Sector left = sectors.get(boundary.left());
+        Sector right = sectors.get(boundary.right());
+        left.routes().removeAll(boundary.replaced());
+        right.routes().removeAll(boundary.replaced());
+        for (Sector sector : List.of(left, right)) {
+            sector.unassigned().removeIf(job -> jobsById.containsKey(unassignedId(job)));
+        }
+        for (VroomRoute route : routes) {
+            sectors.get(sectorOfVehicle.get(route.getVehicle())).routes().add(route);
+        }
+        // unassigned jobs stay with the side of the edge they lie on
+        for (Object job : unassigned) {
+            Integer id = unassignedId(job);
+            boolean leftSide = id != null && angleById.containsKey(id)
+                    && Math.sin(angleById.get(id) - left.edge()) < 0;
+            (leftSide ? left : right).unassigned().add(job);
+        }
+        return true;
+    }
+
+    private static List<Integer> jobIds(VroomRoute route) {
+        if (route.getSteps() == null) {
+            return List.of();
+        }
+        return route.getSteps().stream()
+                .filter(step -> "job".equals(step.getType()) && step.getJob() != null)
+                .map(VroomStep::getJob)
+                .toList();
+    }
+
+    // same shape as the engines' unassigned entries
+    private static Object unassigned(VroomJob job) {
+        return Map.of("id", job.getId(), "location", job.getLocation());
+    }
+
+    private static Integer unassignedId(Object job) {
+        return job instanceof Map<?, ?> map && map.get("id") instanceof Number id ? id.intValue() : null;
+    }
+
+    // ---------- requests and solutions ----------
+
+    // a request over copies of some of the jobs and vehicles (attaching matrices rewrites their
+    // indexes), with the request's matrices, if any, cut down to the rows they use
+    private static VroomRequest subRequest(VroomRequest request, List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        VroomRequest sub = new VroomRequest();
+        sub.setOptions(request.getOptions());
+        boolean sliced = request.getMatrices() != null;
+        // old row -> new row, in first use order
+        Map<Integer, Integer> rows = new LinkedHashMap<>();
+        List<VroomJob> subJobs = new ArrayList<>();
+        for (VroomJob job : jobs) {
+            VroomJob copy = new VroomJob();
+            copy.setId(job.getId());
+            copy.setAmount(job.getAmount());
+            copy.setService(job.getService());
+            copy.setLocation(job.getLocation());
+            copy.setLocationIndex(sliced ? row(rows, job.getLocationIndex()) : null);
+            subJobs.add(copy);
+        }
+        List<VroomVehicle> subVehicles = new ArrayList<>();
+        for (VroomVehicle vehicle : vehicles) {
+            VroomVehicle copy = new VroomVehicle();
+            copy.setId(vehicle.getId());
+            copy.setStart(vehicle.getStart());
+            copy.setEnd(vehicle.getEnd());
+            copy.setCapacity(vehicle.getCapacity());
+            copy.setStartIndex(sliced ? row(rows, vehicle.getStartIndex()) : null);
+            copy.setEndIndex(sliced ? row(rows, vehicle.getEndIndex()) : null);
+            subVehicles.add(copy);
+        }
+        sub.setJobs(subJobs);
+        sub.setVehicles(subVehicles);
+        if (!sliced) {
+            return sub;
+        }
+        int[] kept = rows.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Map<String, VroomMatrix> matrices = new HashMap<>();
+        request.getMatrices().forEach((profile, matrix) -> matrices.put(profile,
+                new VroomMatrix(slice(matrix.getDurations(), kept), slice(matrix.getDistances(), kept))));
+        sub.setMatrices(matrices);
+        return sub;
+    }
+
+    private static Integer row(Map<Integer, Integer> rows, Integer row) {
+        return row == null ? null : rows.computeIfAbsent(row, r -> rows.size());
+    }
+
+    private static int[][] slice(int[][] matrix, int[] kept) {
+        if (matrix == null) {
+            return null;
+        }
+        int[][] slice = new int[kept.length][kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            for (int j = 0; j < kept.length; j++) {
+                slice[i][j] = matrix[kept[i]][kept[j]];
+            }
+        }
+        return slice;
+    }
+
+    private static VroomSolution merge(List<Sector> sectors) {
+        List<VroomRoute> routes = new ArrayList<>();
+        List<Object> unassigned = new ArrayList<>();
+        for (Sector sector : sectors) {
+            routes.addAll(sector.routes());
+            unassigned.addAll(sector.unassigned());
+        }
+        VroomSummary summary = new VroomSummary();
+        summary.setCost(routes.stream().mapToLong(VroomRoute::getCost).sum());
+        summary.setDuration(routes.stream().mapToLong(VroomRoute::getDuration).sum());
+        summary.setDistance(routes.stream().mapToLong(VroomRoute::getDistance).sum());
+        summary.setUnassigned(unassigned.size());
+
+        VroomSolution solution = new VroomSolution();
+        solution.setCode(0);
+        solution.setSummary(summary);
+        solution.setRoutes(routes);
+        solution.setUnassigned(unassigned);
+        return solution;
+    }
+}
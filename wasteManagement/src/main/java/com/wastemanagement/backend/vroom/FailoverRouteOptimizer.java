@@ -0,0 +1,162 @@
+package com.wastemanagement.backend.vroom;
+
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the engine for each request DecomposingRouteOptimizer passes on. Depending on
+ * routing.optimizer.mode:
+ * - VROOM: VroomClient only, failures are the caller's
+ * - NATIVE: NativeRouteOptimizer only
+ * - AUTO (default): requests of at most routing.native.max-jobs jobs are solved in-process
+ *   (0 = never, native routes have no road geometry); the others go to VROOM, and when VROOM
+ *   fails a request of at most routing.native.failover-max-jobs jobs is solved in-process instead
+ * VROOM solutions go through the SolutionCache; in-process ones are never cached, so they do not
+ * outlive a VROOM outage.
+ * Metrics: routing.optimizer.solve (tags engine, outcome), routing.optimizer.failovers
+ */
+@Component
+@Slf4j
+public class FailoverRouteOptimizer implements RouteOptimizer {
+
+    public enum Mode { AUTO, VROOM, NATIVE }
+
+    private final VroomClient vroom;
+    private final NativeRouteOptimizer nativeOptimizer;
+    private final SolutionCache solutionCache;
+    private final MeterRegistry meterRegistry;
+    private final Mode mode;
+    private final int nativeMaxJobs;
+    private final int failoverMaxJobs;
+
+    public FailoverRouteOptimizer(VroomClient vroom,
+                                  NativeRouteOptimizer nativeOptimizer,
+                                  SolutionCache solutionCache,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${routing.optimizer.mode:AUTO}") Mode mode,
+                                  @Value("${routing.native.max-jobs:0}") int nativeMaxJobs,
+                                  @Value("${routing.native.failover-max-jobs:3000}") int failoverMaxJobs) {
+        this.vroom = vroom;
+        this.nativeOptimizer = nativeOptimizer;
+        this.solutionCache = solutionCache;
+        this.meterRegistry = meterRegistry;
+        this.mode = mode;
+        this.nativeMaxJobs = nativeMaxJobs;
+        this.failoverMaxJobs = failoverMaxJobs;
+    }
+
+    @Override
+    public String name() {
+        return "failover";
+    }
+
+    @Override
+    public VroomSolution optimize(VroomRequest request) {
+        int jobs = request.getJobs() == null ? 0 : request.getJobs().size();
+        if (mode == Mode.NATIVE || (mode == Mode.AUTO && jobs <= nativeMaxJobs)) {
+            return timed(nativeOptimizer, request);
+        }
+        if (mode == Mode.VROOM) {
+            return fromVroom(request);
+        }
+        try {
+            return fromVroom(request);
+        } catch (RuntimeException e) {
+            if (jobs > failoverMaxJobs) {
+                throw e;
+            }
+            log.warn("VROOM failed for {} jobs, solving in-process instead: {}", jobs, e.getMessage());
+            failoverCounter().increment();
+            return timed(nativeOptimizer, request);
+        }
+    }
+
+    /**
+     * Same choices as optimize; VROOM calls do not hold the caller, the fallback solve runs on
+     * the thread that saw VROOM fail.
+     */
+    @Override
+    public CompletableFuture<VroomSolution> optimizeAsync(VroomRequest request) {
+        int jobs = request.getJobs() == null ? 0 : request.getJobs().size();
+        if (mode == Mode.NATIVE || (mode == Mode.AUTO && jobs <= nativeMaxJobs)) {
+            return timedAsync(nativeOptimizer, request);
+        }
+        CompletableFuture<VroomSolution> fromVroom = fromVroomAsync(request);
+        if (mode == Mode.VROOM) {
+            return fromVroom;
+        }
+        return fromVroom.exceptionallyCompose(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (jobs > failoverMaxJobs || !(cause instanceof RuntimeException)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            log.warn("VROOM failed for {} jobs, solving in-process instead: {}", jobs, cause.getMessage());
+            failoverCounter().increment();
+            return timedAsync(nativeOptimizer, request);
+        });
+    }
+
+    private VroomSolution fromVroom(VroomRequest request) {
+        Optional<VroomSolution> cached = solutionCache.lookup(request);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        VroomSolution solution = timed(vroom, request);
+        solutionCache.store(request, solution);
+        return solution;
+    }
+
+    private CompletableFuture<VroomSolution> fromVroomAsync(VroomRequest request) {
+        Optional<VroomSolution> cached = solutionCache.lookup(request);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return timedAsync(vroom, request).thenApply(solution -> {
+            solutionCache.store(request, solution);
+            return solution;
+        });
+    }
+
+    private CompletableFuture<VroomSolution> timedAsync(RouteOptimizer optimizer, VroomRequest request) {
+        long start = System.nanoTime();
+        return optimizer.optimizeAsync(request).whenComplete((solution, error) ->
+                Timer.builder("routing.optimizer.solve")
+                        .description("Duration of one route optimization")
+                        .tags("engine", optimizer.name(), "outcome", error == null ? "success" : "error")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private Counter failoverCounter() {
+        return Counter.builder("routing.optimizer.failovers")
+                .description("Requests solved in-process because VROOM failed")
+                .register(meterRegistry);
+    }
+
+    private VroomSolution timed(RouteOptimizer optimizer, VroomRequest request) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            VroomSolution solution = optimizer.optimize(request);
+            outcome = "success";
+            return solution;
+        } finally {
+            Timer.builder("routing.optimizer.solve")
+                    .description("Duration of one route optimization")
+                    .tags("engine", optimizer.name(), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
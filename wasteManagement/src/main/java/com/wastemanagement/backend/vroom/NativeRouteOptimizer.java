@@ -0,0 +1,231 @@
+package com.wastemanagement.backend.vroom;
+
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomSummary;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process solver for the requests VroomClient sends, without VROOM nor OSRM.
+ * Costs come from the request's matrices when MatrixEngine attached them; otherwise distances
+ * are straight lines times a detour factor and durations come from an average speed.
+ * Routes have no geometry.
+ * Only the first capacity dimension is used (the one buildVroomRequestForPointsWithVehicles sets);
+ * a vehicle without capacity is unbounded.
+ * The search itself is CvrpSolver, run on its own fork/join pool within time-budget-ms.
+ */
+@Component
+@Slf4j
+public class NativeRouteOptimizer implements RouteOptimizer {
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    private final double detourFactor;
+    private final double metersPerSecond;
+    private final long timeBudgetNanos;
+    private final ForkJoinPool pool;
+
+    public NativeRouteOptimizer(@Value("${routing.native.detour-factor:1.3}") double detourFactor,
+                                @Value("${routing.native.speed-kmh:25}") double speedKmh,
+                                @Value("${routing.native.time-budget-ms:2000}") long timeBudgetMs,
+                                @Value("${routing.native.parallelism:0}") int parallelism) {
+        if (detourFactor < 1 || speedKmh <= 0 || timeBudgetMs <= 0) {
+            throw new IllegalArgumentException("routing.native needs detour-factor >= 1, speed-kmh > 0 and time-budget-ms > 0");
+        }
+        this.detourFactor = detourFactor;
+        this.metersPerSecond = speedKmh / 3.6;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMs);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return "native";
+    }
+
+    @Override
+    public VroomSolution optimize(VroomRequest request) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        List<VroomJob> jobs = request.getJobs() == null ? List.of() : request.getJobs();
+        List<VroomVehicle> vehicles = request.getVehicles() == null ? List.of() : request.getVehicles();
+        if (vehicles.isEmpty()) {
+            throw new IllegalArgumentException("No vehicles in the request");
+        }
+
+        // matrices sent with the request (MatrixEngine) replace the straight-line estimates
+        VroomMatrix given = request.getMatrices() == null ? null : request.getMatrices().get(MatrixEngine.PROFILE);
+        boolean useGiven = given != null && given.getDistances() != null
+                && jobs.stream().allMatch(j -> j.getLocationIndex() != null)
+                && vehicles.stream().allMatch(v -> (v.getStart() == null || v.getStartIndex() != null)
+                        && (v.getEnd() == null || v.getEndIndex() != null));
+
+        // nodes: the jobs, then every distinct vehicle start/end
+        List<double[]> locations = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        int[] demand = new int[jobs.size()];
+        for (int j = 0; j < jobs.size(); j++) {
+            VroomJob job = jobs.get(j);
+            if (job.getLocation() == null || job.getLocation().length < 2) {
+                throw new IllegalArgumentException("Job " + job.getId() + " has no location");
+            }
+            locations.add(job.getLocation());
+            rows.add(job.getLocationIndex());
+            demand[j] = job.getAmount() == null || job.getAmount().length == 0 ? 0 : job.getAmount()[0];
+        }
+        int[] capacity = new int[vehicles.size()];
+        int[] start = new int[vehicles.size()];
+        int[] end = new int[vehicles.size()];
+        for (int v = 0; v < vehicles.size(); v++) {
+            VroomVehicle vehicle = vehicles.get(v);
+            capacity[v] = vehicle.getCapacity() == null || vehicle.getCapacity().length == 0
+                    ? Integer.MAX_VALUE : vehicle.getCapacity()[0];
+            start[v] = node(locations, rows, jobs.size(), vehicle.getStart(), useGiven ? vehicle.getStartIndex() : null);
+            end[v] = node(locations, rows, jobs.size(), vehicle.getEnd(), useGiven ? vehicle.getEndIndex() : null);
+        }
+
+        int nodes = locations.size();
+        float[] meters = new float[nodes * nodes];
+        float[] seconds = new float[nodes * nodes];
+        for (int i = 0; i < nodes; i++) {
+            for (int j = 0; j < nodes; j++) {
+                if (i == j) {
+                    continue;
+                }
+                int cell = i * nodes + j;
+                if (useGiven) {
+                    meters[cell] = given.getDistances()[rows.get(i)][rows.get(j)];
+                    seconds[cell] = given.getDurations() != null
+                            ? given.getDurations()[rows.get(i)][rows.get(j)]
+                            : (float) (meters[cell] / metersPerSecond);
+                } else {
+                    meters[cell] = (float) (haversineM(locations.get(i), locations.get(j)) * detourFactor);
+                    seconds[cell] = (float) (meters[cell] / metersPerSecond);
+                }
+            }
+        }
+
+        CvrpSolver.Solution solution = new CvrpSolver(meters, nodes, demand, capacity, start, end)
+                .solve(pool, deadline);
+        return toVroomSolution(solution, jobs, vehicles, locations, meters, seconds, nodes, start, end);
+    }
+
+    private VroomSolution toVroomSolution(CvrpSolver.Solution solution, List<VroomJob> jobs,
+                                          List<VroomVehicle> vehicles, List<double[]> locations,
+                                          float[] meters, float[] seconds, int nodes, int[] start, int[] end) {
+        List<VroomRoute> routes = new ArrayList<>();
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (int v = 0; v < vehicles.size(); v++) {
+            int[] order = solution.routes()[v];
+            if (order.length == 0) {
+                continue;
+            }
+            List<VroomStep> steps = new ArrayList<>();
+            double distance = 0;
+            double time = 0;
+            int previous = start[v];
+            steps.add(step("start", null, previous < 0 ? null : locations.get(previous), 0, 0));
+            for (int job : order) {
+                if (previous >= 0) {
+                    distance += meters[previous * nodes + job];
+                    time += seconds[previous * nodes + job];
+                }
+                VroomJob vroomJob = jobs.get(job);
+                steps.add(step("job", vroomJob.getId(), vroomJob.getLocation(), time, distance));
+                time += vroomJob.getService();
+                previous = job;
+            }
+            if (end[v] >= 0) {
+                distance += meters[previous * nodes + end[v]];
+                time += seconds[previous * nodes + end[v]];
+            }
+            steps.add(step("end", null, end[v] < 0 ? null : locations.get(end[v]), time, distance));
+
+            VroomRoute route = new VroomRoute();
+            route.setVehicle(vehicles.get(v).getId());
+            route.setDistance(Math.round(distance));
+            route.setDuration(Math.round(time));
+            route.setCost(Math.round(distance));
+            route.setSteps(steps);
+            routes.add(route);
+            totalDistance += route.getDistance();
+            totalDuration += route.getDuration();
+        }
+
+        List<Object> unassigned = new ArrayList<>();
+        for (int job : solution.unassigned()) {
+            unassigned.add(Map.of("id", jobs.get(job).getId(), "location", jobs.get(job).getLocation()));
+        }
+
+        VroomSummary summary = new VroomSummary();
+        summary.setCost(totalDistance);
+        summary.setDistance(totalDistance);
+        summary.setDuration(totalDuration);
+        summary.setUnassigned(unassigned.size());
+
+        VroomSolution result = new VroomSolution();
+        result.setCode(0);
+        result.setSummary(summary);
+        result.setUnassigned(unassigned);
+        result.setRoutes(routes);
+        log.debug("Native solve: {} jobs, {} routes, {} unassigned, {} m",
+                jobs.size(), routes.size(), unassigned.size(), totalDistance);
+        return result;
+    }
+
+    // row is the location's index in the request's matrices, null when they are not used
+    private static int node(List<double[]> locations, List<Integer> rows, int jobCount, double[] location, Integer row) {
+        if (location == null || location.length < 2) {
+            return -1;
+        }
+        for (int n = jobCount; n < locations.size(); n++) {
+            if (row != null ? row.equals(rows.get(n)) : Arrays.equals(locations.get(n), location)) {
+                return n;
+            }
+        }
+        locations.add(location);
+        rows.add(row);
+        return locations.size() - 1;
+    }
+
+    private static VroomStep step(String type, Integer job, double[] location, double time, double distance) {
+        VroomStep step = new VroomStep();
+        step.setType(type);
+        step.setJob(job);
+        step.setLocation(location);
+        step.setArrival(Math.round(time));
+        step.setDistance(Math.round(distance));
+        return step;
+    }
+
+    private static double haversineM(double[] a, double[] b) {
+        double lat1 = Math.toRadians(a[1]);
+        double lat2 = Math.toRadians(b[1]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b[0] - a[0]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
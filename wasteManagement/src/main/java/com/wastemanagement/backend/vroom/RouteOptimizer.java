@@ -0,0 +1,46 @@
+package com.wastemanagement.backend.vroom;
+
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Solves a vehicle routing request. Every engine takes and returns VROOM's shapes,
+ * so planners build one request whatever solves it.
+ */
+public interface RouteOptimizer {
+
+    /**
+     * Short engine name, used in logs and metric tags.
+     */
+    String name();
+
+    /**
+     * @throws IllegalStateException when the engine could not produce a solution
+     */
+    VroomSolution optimize(VroomRequest request);
+
+    /**
+     * Same as optimize, for a request whose matrices are not attached yet: attachMatrices is
+     * called on each request actually solved, so an engine that splits the request only builds
+     * the matrices of its parts (e.g. MatrixEngine.attach).
+     */
+    default VroomSolution optimize(VroomRequest request, Consumer<VroomRequest> attachMatrices) {
+        attachMatrices.accept(request);
+        return optimize(request);
+    }
+
+    /**
+     * Same as optimize, for fanning out several solves at once. Engines that would only block
+     * a thread anyway solve on the calling thread and return a completed future.
+     */
+    default CompletableFuture<VroomSolution> optimizeAsync(VroomRequest request) {
+        try {
+            return CompletableFuture.completedFuture(optimize(request));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
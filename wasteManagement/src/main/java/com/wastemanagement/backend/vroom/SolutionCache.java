@@ -0,0 +1,263 @@
+package com.wastemanagement.backend.vroom;
+
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomSummary;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * VROOM solutions by content, so resubmitting an unchanged problem costs no solve.
+ * - the key is a SHA-256 over the jobs (location, amount, service), vehicles (start, end,
+ *   capacity), options and whether matrices were sent, each list sorted: the same problem in
+ *   another order, or with other ids, hits
+ * - solutions are stored with job and vehicle ids replaced by their rank in that order, and
+ *   translated back to the ids of the request that hits
+ * - LRU bounded by routing.cache.max-entries, entries older than routing.cache.ttl-ms are misses
+ * flush() empties it, e.g. after a road network change.
+ * Metrics: routing.cache.lookups (tag result: hit, miss), routing.cache.size
+ */
+@Component
+@Slf4j
+public class SolutionCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final MeterRegistry meterRegistry;
+
+    // guarded by this; access order, eldest evicted beyond maxEntries
+    private final LinkedHashMap<String, Entry> entries;
+
+    public SolutionCache(MeterRegistry meterRegistry,
+                         @Value("${routing.cache.enabled:true}") boolean enabled,
+                         @Value("${routing.cache.max-entries:256}") int maxEntries,
+                         @Value("${routing.cache.ttl-ms:1800000}") long ttlMs) {
+        if (maxEntries < 1 || ttlMs <= 0) {
+            throw new IllegalArgumentException("routing.cache needs max-entries >= 1 and ttl-ms > 0");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SolutionCache.this.maxEntries;
+            }
+        };
+        Gauge.builder("routing.cache.size", this, SolutionCache::size)
+                .description("VROOM solutions held by the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stored solution for an identical problem, in the ids of this request.
+     */
+    public Optional<VroomSolution> lookup(VroomRequest request) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Canonical canonical = canonical(request);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(canonical.key());
+            if (entry != null && System.nanoTime() - entry.storedAt() > ttlNanos) {
+                entries.remove(canonical.key());
+                entry = null;
+            }
+        }
+        count(entry == null ? "miss" : "hit");
+        if (entry == null) {
+            return Optional.empty();
+        }
+        // rank -> this request's ids
+        return Optional.of(translate(entry.solution(),
+                rank -> request.getJobs().get(canonical.jobOrder()[rank - 1]).getId(),
+                rank -> request.getVehicles().get(canonical.vehicleOrder()[rank - 1]).getId()));
+    }
+
+    public void store(VroomRequest request, VroomSolution solution) {
+        if (!enabled) {
+            return;
+        }
+        Canonical canonical = canonical(request);
+        Map<Integer, Integer> jobRank = ranks(canonical.jobOrder(), i -> request.getJobs().get(i).getId());
+        Map<Integer, Integer> vehicleRank = ranks(canonical.vehicleOrder(), i -> request.getVehicles().get(i).getId());
+        VroomSolution stored = translate(solution,
+                id -> jobRank.getOrDefault(id, 0), id -> vehicleRank.getOrDefault(id, 0));
+        synchronized (this) {
+            entries.put(canonical.key(), new Entry(stored, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops every stored solution.
+     *
+     * @return how many there were
+     */
+    public synchronized int flush() {
+        int flushed = entries.size();
+        entries.clear();
+        log.info("Solution cache flushed, {} entries dropped", flushed);
+        return flushed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void count(String result) {
+        Counter.builder("routing.cache.lookups")
+                .description("Solution cache lookups, by result")
+                .tags("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // ---------- canonical form ----------
+
+    private record Entry(VroomSolution solution, long storedAt) {}
+
+    /**
+     * @param jobOrder     rank -> index in the request's jobs
+     * @param vehicleOrder rank -> index in the request's vehicles
+     */
+    private record Canonical(String key, int[] jobOrder, int[] vehicleOrder) {}
+
+    private static Canonical canonical(VroomRequest request) {
+        List<VroomJob> jobs = request.getJobs() == null ? List.of() : request.getJobs();
+        List<VroomVehicle> vehicles = request.getVehicles() == null ? List.of() : request.getVehicles();
+        String[] jobKeys = jobs.stream()
+                .map(j -> coordinates(j.getLocation()) + "|" + Arrays.toString(j.getAmount()) + "|" + j.getService())
+                .toArray(String[]::new);
+        String[] vehicleKeys = vehicles.stream()
+                .map(v -> coordinates(v.getStart()) + "|" + coordinates(v.getEnd()) + "|" + Arrays.toString(v.getCapacity()))
+                .toArray(String[]::new);
+        int[] jobOrder = sortedOrder(jobKeys);
+        int[] vehicleOrder = sortedOrder(vehicleKeys);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, "jobs");
+            for (int i : jobOrder) {
+                update(digest, jobKeys[i]);
+            }
+            update(digest, "vehicles");
+            for (int i : vehicleOrder) {
+                update(digest, vehicleKeys[i]);
+            }
+            update(digest, "g=" + (request.getOptions() != null && request.getOptions().isG()));
+            update(digest, "matrices=" + (request.getMatrices() != null));
+            return new Canonical(HexFormat.of().formatHex(digest.digest()), jobOrder, vehicleOrder);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static int[] sortedOrder(String[] keys) {
+        return IntStream.range(0, keys.length).boxed()
+                .sorted(Comparator.comparing((Integer i) -> keys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static Map<Integer, Integer> ranks(int[] order, IntUnaryOperator idAt) {
+        Map<Integer, Integer> ranks = new HashMap<>();
+        for (int rank = 0; rank < order.length; rank++) {
+            ranks.put(idAt.applyAsInt(order[rank]), rank + 1);
+        }
+        return ranks;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static String coordinates(double[] location) {
+        return location == null ? "-" : String.format(Locale.ROOT, "%.6f,%.6f", location[0], location[1]);
+    }
+
+    // copy of the solution with job and vehicle ids mapped; the cache never shares instances
+    private static VroomSolution translate(VroomSolution source, IntUnaryOperator jobId, IntUnaryOperator vehicleId) {
+        VroomSolution copy = new VroomSolution();
+        copy.setCode(source.getCode());
+        copy.setError(source.getError());
+        if (source.getSummary() != null) {
+            VroomSummary summary = new VroomSummary();
+            summary.setCost(source.getSummary().getCost());
+            summary.setUnassigned(source.getSummary().getUnassigned());
+            summary.setDuration(source.getSummary().getDuration());
+            summary.setDistance(source.getSummary().getDistance());
+            copy.setSummary(summary);
+        }
+        if (source.getUnassigned() != null) {
+            List<Object> unassigned = new ArrayList<>();
+            for (Object job : source.getUnassigned()) {
+                if (job instanceof Map<?, ?> map && map.get("id") instanceof Number id) {
+                    Map<String, Object> mapped = new LinkedHashMap<>();
+                    map.forEach((k, v) -> mapped.put(String.valueOf(k), v));
+                    mapped.put("id", jobId.applyAsInt(id.intValue()));
+                    unassigned.add(mapped);
+                } else {
+                    unassigned.add(job);
+                }
+            }
+            copy.setUnassigned(unassigned);
+        }
+        if (source.getRoutes() != null) {
+            List<VroomRoute> routes = new ArrayList<>();
+            for (VroomRoute route : source.getRoutes()) {
+                VroomRoute r = new VroomRoute();
+                r.setVehicle(vehicleId.applyAsInt(route.getVehicle()));
+                r.setCost(route.getCost());
+                r.setDuration(route.getDuration());
+                r.setDistance(route.getDistance());
+                r.setGeometry(route.getGeometry());
+                if (route.getSteps() != null) {
+                    List<VroomStep> steps = new ArrayList<>();
+                    for (VroomStep step : route.getSteps()) {
+                        VroomStep s = new VroomStep();
+                        s.setType(step.getType());
+                        s.setJob(step.getJob() == null ? null : jobId.applyAsInt(step.getJob()));
+                        s.setLocation(step.getLocation());
+                        s.setArrival(step.getArrival());
+                        s.setDuration(step.getDuration());
+                        s.setDistance(step.getDistance());
+                        steps.add(s);
+                    }
+                    r.setSteps(steps);
+                }
+                routes.add(r);
+            }
+            copy.setRoutes(routes);
+        }
+        return copy;
+    }
+}
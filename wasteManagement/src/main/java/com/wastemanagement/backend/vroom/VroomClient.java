@@ -1,36 +1,323 @@
 package com.wastemanagement.backend.vroom;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wastemanagement.backend.vroom.dto.VroomRequest;
 import com.wastemanagement.backend.vroom.dto.VroomSolution;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VROOM over a pooled, keep-alive JDK HttpClient.
+ * - each request gets a deadline of timeout.base-ms + timeout.per-job-ms per job, capped at timeout.max-ms
+ * - at most max-concurrent requests are in flight, up to max-queued more wait for a slot;
+ *   beyond that requests are refused. The deadline runs from the call: a request still queued
+ *   when it passes fails, one that gets a slot only has what is left of it
+ * - a CircuitBreaker opens after circuit.failure-threshold consecutive failures (I/O errors,
+ *   connect timeouts, 5xx) and refuses calls for circuit.open-ms, then lets one probe through.
+ *   A response timeout does not count: VROOM is up, the solve just outlived its deadline
+ * Refusals and failures surface as IllegalStateException, so FailoverRouteOptimizer can take over.
+ * Metrics: vroom.client.requests (tag outcome: success, error, timeout, expired, rejected),
+ * vroom.client.timeouts, vroom.client.circuit.opened, vroom.client.circuit.rejections,
+ * vroom.client.circuit.state (0 closed, 1 half-open, 2 open), vroom.client.in-flight, vroom.client.queued
+ */
 @Component
-@RequiredArgsConstructor
-public class VroomClient {
+@Slf4j
+public class VroomClient implements RouteOptimizer {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final URI vroomUri;
+    private final long baseTimeoutMs;
+    private final long perJobTimeoutMs;
+    private final long maxTimeoutMs;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final CircuitBreaker breaker;
+    private final ExecutorService httpExecutor;
+    private final HttpClient httpClient;
+
+    // guarded by this
+    private int inFlight;
+    private final Deque<Queued> waiting = new ArrayDeque<>();
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    public VroomClient(ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       // URL of VROOM server (vroom-docker default)
+                       @Value("${vroom.url:http://localhost:3000}") String vroomUrl,
+                       @Value("${vroom.connect-timeout-ms:2000}") long connectTimeoutMs,
+                       @Value("${vroom.timeout.base-ms:10000}") long baseTimeoutMs,
+                       @Value("${vroom.timeout.per-job-ms:50}") long perJobTimeoutMs,
+                       @Value("${vroom.timeout.max-ms:300000}") long maxTimeoutMs,
+                       @Value("${vroom.max-concurrent:4}") int maxConcurrent,
+                       @Value("${vroom.max-queued:64}") int maxQueued,
+                       @Value("${vroom.circuit.failure-threshold:5}") int failureThreshold,
+                       @Value("${vroom.circuit.open-ms:30000}") long openMs) {
+        this(objectMapper, meterRegistry, vroomUrl, connectTimeoutMs, baseTimeoutMs, perJobTimeoutMs, maxTimeoutMs,
+                maxConcurrent, maxQueued, new CircuitBreaker(failureThreshold, openMs));
+    }
+
+    public VroomClient(ObjectMapper objectMapper, MeterRegistry meterRegistry, String vroomUrl,
+                       long connectTimeoutMs, long baseTimeoutMs, long perJobTimeoutMs, long maxTimeoutMs,
+                       int maxConcurrent, int maxQueued, CircuitBreaker breaker) {
+        if (maxConcurrent < 1 || maxQueued < 0 || baseTimeoutMs <= 0 || maxTimeoutMs < baseTimeoutMs) {
+            throw new IllegalArgumentException("vroom needs max-concurrent >= 1, max-queued >= 0 and 0 < timeout.base-ms <= timeout.max-ms");
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.vroomUri = URI.create(vroomUrl);
+        this.baseTimeoutMs = baseTimeoutMs;
+        this.perJobTimeoutMs = perJobTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.breaker = breaker;
+        AtomicInteger threads = new AtomicInteger();
+        this.httpExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "vroom-http-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(httpExecutor)
+                .build();
 
-    // URL of VROOM server (vroom-docker default)
-    @Value("${vroom.url:http://localhost:3000}")
-    private String vroomUrl;
+        Gauge.builder("vroom.client.circuit.state", breaker, b -> b.state() == CircuitBreaker.State.CLOSED ? 0
+                        : b.state() == CircuitBreaker.State.HALF_OPEN ? 1 : 2)
+                .description("VROOM circuit: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        Gauge.builder("vroom.client.in-flight", this, c -> c.counts()[0]).register(meterRegistry);
+        Gauge.builder("vroom.client.queued", this, c -> c.counts()[1]).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return "vroom";
+    }
 
+    @Override
     public VroomSolution optimize(VroomRequest request) {
-        ResponseEntity<VroomSolution> response =
-                restTemplate.postForEntity(vroomUrl, request, VroomSolution.class);
+        try {
+            return optimizeAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to call VROOM", e.getCause());
+        }
+    }
 
-        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-            throw new IllegalStateException("Failed to call VROOM, status: " + response.getStatusCode());
+    /**
+     * Sends the request without blocking; the future fails with IllegalStateException.
+     */
+    @Override
+    public CompletableFuture<VroomSolution> optimizeAsync(VroomRequest request) {
+        CompletableFuture<VroomSolution> result = new CompletableFuture<>();
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("VROOM request is not serializable", e));
+        }
+        int jobs = request.getJobs() == null ? 0 : request.getJobs().size();
+        Duration deadline = Duration.ofMillis(Math.min(maxTimeoutMs, baseTimeoutMs + perJobTimeoutMs * jobs));
+        long now = System.nanoTime();
+        Queued entry = new Queued(body, now, now + deadline.toNanos(), result);
+        boolean queued;
+        synchronized (this) {
+            queued = inFlight >= maxConcurrent;
+            if (queued && waiting.size() >= maxQueued) {
+                record("rejected", 0);
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "VROOM busy: " + inFlight + " requests in flight, " + waiting.size() + " queued"));
+            }
+            if (queued) {
+                waiting.add(entry);
+            } else {
+                inFlight++;
+            }
         }
+        if (queued) {
+            CompletableFuture.delayedExecutor(deadline.toNanos(), TimeUnit.NANOSECONDS, httpExecutor)
+                    .execute(() -> expire(entry));
+        } else {
+            send(body, deadline, result);
+        }
+        return result;
+    }
 
-        VroomSolution solution = response.getBody();
+    private void expire(Queued entry) {
+        synchronized (this) {
+            if (!waiting.remove(entry)) {
+                return; // got a slot in time
+            }
+        }
+        expired(entry);
+    }
+
+    private void expired(Queued entry) {
+        long waited = System.nanoTime() - entry.queuedAt();
+        record("expired", waited);
+        entry.result().completeExceptionally(new IllegalStateException(
+                "VROOM request spent its " + TimeUnit.NANOSECONDS.toMillis(entry.deadline() - entry.queuedAt())
+                        + " ms deadline waiting for a slot"));
+    }
+
+    private void send(byte[] body, Duration deadline, CompletableFuture<VroomSolution> result) {
+        if (!breaker.tryAcquire()) {
+            Counter.builder("vroom.client.circuit.rejections")
+                    .description("VROOM calls refused while the circuit was open")
+                    .register(meterRegistry)
+                    .increment();
+            record("rejected", 0);
+            release();
+            result.completeExceptionally(new IllegalStateException("VROOM circuit open, call refused"));
+            return;
+        }
+        long startedAt = System.nanoTime();
+        HttpRequest http = HttpRequest.newBuilder(vroomUri)
+                .timeout(deadline)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        httpClient.sendAsync(http, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    long elapsed = System.nanoTime() - startedAt;
+                    try {
+                        if (error != null) {
+                            result.completeExceptionally(failed(error, deadline, elapsed));
+                        } else {
+                            result.complete(parse(response, elapsed));
+                        }
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        release();
+                    }
+                });
+    }
+
+    private VroomSolution parse(HttpResponse<byte[]> response, long elapsed) {
+        int status = response.statusCode();
+        if (status >= 500) {
+            onBreakerFailure();
+            record("error", elapsed);
+            throw new IllegalStateException("Failed to call VROOM, status: " + status);
+        }
+        // VROOM answered: the service is up even when it rejects this request
+        breaker.onSuccess();
+        if (status < 200 || status >= 300 || response.body() == null || response.body().length == 0) {
+            record("error", elapsed);
+            throw new IllegalStateException("Failed to call VROOM, status: " + status);
+        }
+        VroomSolution solution;
+        try {
+            solution = objectMapper.readValue(response.body(), VroomSolution.class);
+        } catch (IOException e) {
+            record("error", elapsed);
+            throw new IllegalStateException("Unreadable VROOM response", e);
+        }
         if (solution.getCode() != 0) {
+            record("error", elapsed);
             throw new IllegalStateException("VROOM error: " + solution.getError());
         }
-
+        record("success", elapsed);
         return solution;
     }
+
+    private IllegalStateException failed(Throwable error, Duration deadline, long elapsed) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException && !(cause instanceof HttpConnectTimeoutException)) {
+            // VROOM accepted the call and is still solving: says nothing about its health
+            breaker.onInconclusive();
+        } else {
+            onBreakerFailure();
+        }
+        if (cause instanceof HttpTimeoutException) {
+            Counter.builder("vroom.client.timeouts")
+                    .description("VROOM calls that missed their deadline")
+                    .register(meterRegistry)
+                    .increment();
+            record("timeout", elapsed);
+            return new IllegalStateException("VROOM timed out after " + deadline.toMillis() + " ms", cause);
+        }
+        record("error", elapsed);
+        return new IllegalStateException("Failed to call VROOM: " + cause.getMessage(), cause);
+    }
+
+    private void onBreakerFailure() {
+        if (breaker.onFailure()) {
+            log.warn("VROOM circuit opened, calls are refused until a probe succeeds");
+            Counter.builder("vroom.client.circuit.opened")
+                    .description("Times the VROOM circuit opened")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private void release() {
+        while (true) {
+            Queued next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            long left = next.deadline() - System.nanoTime();
+            if (left > 0) {
+                // the slot passes to the next waiting request, with what is left of its deadline
+                httpExecutor.execute(() -> send(next.body(), Duration.ofNanos(left), next.result()));
+                return;
+            }
+            expired(next);
+        }
+    }
+
+    private synchronized int[] counts() {
+        return new int[]{inFlight, waiting.size()};
+    }
+
+    // deadline and queuedAt on the System.nanoTime() clock
+    private record Queued(byte[] body, long queuedAt, long deadline, CompletableFuture<VroomSolution> result) {}
+
+    private void record(String outcome, long nanos) {
+        Timer.builder("vroom.client.requests")
+                .description("VROOM calls, by outcome")
+                .tags("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
 }
@@ -1,5 +1,7 @@
 package com.wastemanagement.backend.vroom.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
@@ -8,4 +10,9 @@ public class VroomJob {
     private int[] amount;      // e.g. [1]
     private long service;      // seconds spent at location, e.g. 300
     private double[] location; // [lon, lat]
+
+    // row of the request's matrices, when they are sent
+    @JsonProperty("location_index")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer locationIndex;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.wastemanagement.backend.vroom.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class VroomMatrix {
+    // VROOM only takes integer costs: int halves the request's memory next to long
+    private int[][] durations;  // seconds, [from][to] by location index
+    private int[][] distances;  // meters
+}
@@ -1,12 +1,18 @@
 package com.wastemanagement.backend.vroom.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class VroomRequest {
     private List<VroomVehicle> vehicles;
     private List<VroomJob> jobs;
     private VroomOptions options;
+
+    // per routing profile ("car"); VROOM then asks the routing engine for geometry at most
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, VroomMatrix> matrices;
 }
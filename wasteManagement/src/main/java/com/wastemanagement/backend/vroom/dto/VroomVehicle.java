@@ -1,5 +1,7 @@
 package com.wastemanagement.backend.vroom.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 @Data
@@ -8,4 +10,13 @@ public class VroomVehicle {
     private double[] start;    // [lon, lat]
     private double[] end;      // [lon, lat]
     private int[] capacity;    // e.g. [numberOfJobs] or any capacity metric
+
+    // rows of the request's matrices, when they are sent
+    @JsonProperty("start_index")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer startIndex;
+
+    @JsonProperty("end_index")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer endIndex;
 }
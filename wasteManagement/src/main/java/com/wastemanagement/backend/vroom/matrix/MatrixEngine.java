@@ -0,0 +1,587 @@
+package com.wastemanagement.backend.vroom.matrix;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.tournee.Depot;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.tournee.DepotRepository;
+import com.wastemanagement.backend.service.collectionPoint.CollectionPointMovedEvent;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Distances and durations between every collection point and depot, kept so that requests
+ * can carry their matrices and VROOM skips the routing engine's table computation.
+ * - the matrix is a TiledMatrix in routing.matrix.dir, named after a hash of the location ids,
+ *   so a restart reuses it; rows whose coordinates changed since are recomputed
+ * - when locations are added or removed, the new file copies the cells between the locations the
+ *   previous one already held, only the new locations' rows and columns are computed
+ * - each tile comes from the RoadNetworkSource when available, otherwise (or where it has no
+ *   route) from haversine x detour factor and an average speed, both calibrated on the road
+ *   tiles seen so far; tiles are computed on a fork/join pool
+ * - a CollectionPointMovedEvent invalidates that location's row and column, recomputed on the
+ *   background thread; a request touching a stale row goes without matrices until it is done
+ * - a request naming a location the matrix does not know triggers a rebuild in the background
+ *   and goes without matrices meanwhile
+ * Off unless routing.matrix.enabled; matrices larger than max-locations are not built, and
+ * requests of more than max-attach-jobs jobs go without matrices (each is a dense (n+1)² copy).
+ */
+@Component
+@Slf4j
+public class MatrixEngine {
+
+    public static final String PROFILE = "car";
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    // pairs closer than this say more about GPS noise than about the road network
+    private static final double CALIBRATION_MIN_M = 200;
+    private static final long CALIBRATION_MIN_SAMPLES = 100;
+
+    private final CollectionPointRepository collectionPointRepository;
+    private final DepotRepository depotRepository;
+    private final RoadNetworkSource roadNetwork;
+    private final boolean enabled;
+    private final Path directory;
+    private final int tileSize;
+    private final int maxLocations;
+    private final int maxAttachJobs;
+    private final double defaultDetourFactor;
+    private final double defaultMetersPerSecond;
+    private final ForkJoinPool pool;
+    private final ExecutorService builder;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    private final DoubleAdder detourSum = new DoubleAdder();
+    private final DoubleAdder speedSum = new DoubleAdder();
+    private final LongAdder samples = new LongAdder();
+
+    private volatile Snapshot current;
+
+    public MatrixEngine(CollectionPointRepository collectionPointRepository,
+                        DepotRepository depotRepository,
+                        RoadNetworkSource roadNetwork,
+                        @Value("${routing.matrix.enabled:false}") boolean enabled,
+                        @Value("${routing.matrix.dir:${java.io.tmpdir}/wastemanagement-matrix}") Path directory,
+                        @Value("${routing.matrix.tile-size:100}") int tileSize,
+                        @Value("${routing.matrix.max-locations:5000}") int maxLocations,
+                        @Value("${routing.matrix.max-attach-jobs:3000}") int maxAttachJobs,
+                        @Value("${routing.matrix.detour-factor:1.3}") double detourFactor,
+                        @Value("${routing.matrix.speed-kmh:25}") double speedKmh,
+                        @Value("${routing.matrix.parallelism:0}") int parallelism) {
+        if (tileSize <= 0 || detourFactor < 1 || speedKmh <= 0) {
+            throw new IllegalArgumentException("routing.matrix needs tile-size > 0, detour-factor >= 1 and speed-kmh > 0");
+        }
+        this.collectionPointRepository = collectionPointRepository;
+        this.depotRepository = depotRepository;
+        this.roadNetwork = roadNetwork;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.tileSize = tileSize;
+        this.maxLocations = maxLocations;
+        this.maxAttachJobs = maxAttachJobs;
+        this.defaultDetourFactor = detourFactor;
+        this.defaultMetersPerSecond = speedKmh / 3.6;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "matrix-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            requestRebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+        pool.shutdownNow();
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            closeQuietly(snapshot);
+        }
+    }
+
+    @EventListener
+    public void onCollectionPointMoved(CollectionPointMovedEvent event) {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            return;
+        }
+        Integer index = snapshot.index().get(cpKey(event.collectionPointId()));
+        if (index == null || event.location() == null) {
+            requestRebuild();
+            return;
+        }
+        synchronized (snapshot) {
+            snapshot.coordinates()[index] = event.location().clone();
+            snapshot.stale().set(index);
+        }
+        requestRefresh();
+    }
+
+    /**
+     * Adds the matrices of the request's locations, the depot at index 0 and the jobs after it
+     * in job order, and points jobs and vehicles at them. Vehicles must start and end at the depot.
+     *
+     * @return false, leaving the request untouched, when the engine is off, does not know
+     * every location yet, one of them is still being recomputed or the request has more than
+     * max-attach-jobs jobs
+     */
+    public boolean attach(VroomRequest request, String depotId, Map<Integer, String> jobIdToCollectionPointId) {
+        Snapshot snapshot = current;
+        if (!enabled || snapshot == null) {
+            if (enabled) {
+                requestRebuild();
+            }
+            return false;
+        }
+        List<VroomJob> jobs = request.getJobs();
+        if (jobs.size() > maxAttachJobs) {
+            log.debug("{} jobs exceed routing.matrix.max-attach-jobs={}, request sent without matrices",
+                    jobs.size(), maxAttachJobs);
+            return false;
+        }
+        int[] rows = new int[jobs.size() + 1];
+        Integer depot = snapshot.index().get(depotKey(depotId));
+        if (depot == null) {
+            requestRebuild();
+            return false;
+        }
+        rows[0] = depot;
+        for (int k = 0; k < jobs.size(); k++) {
+            Integer row = snapshot.index().get(cpKey(jobIdToCollectionPointId.get(jobs.get(k).getId())));
+            if (row == null) {
+                requestRebuild();
+                return false;
+            }
+            rows[k + 1] = row;
+        }
+        boolean stale;
+        synchronized (snapshot) {
+            stale = IntStream.of(rows).anyMatch(snapshot.stale()::get);
+        }
+        if (stale) {
+            // never computed on the planning thread: VROOM asks the routing engine meanwhile
+            requestRefresh();
+            return false;
+        }
+
+        int[][] distances = new int[rows.length][rows.length];
+        int[][] durations = new int[rows.length][rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < rows.length; j++) {
+                if (i != j) {
+                    distances[i][j] = Math.round(snapshot.matrix().distance(rows[i], rows[j]));
+                    durations[i][j] = Math.round(snapshot.matrix().duration(rows[i], rows[j]));
+                }
+            }
+        }
+        for (int k = 0; k < jobs.size(); k++) {
+            jobs.get(k).setLocationIndex(k + 1);
+        }
+        for (VroomVehicle vehicle : request.getVehicles()) {
+            vehicle.setStartIndex(vehicle.getStart() == null ? null : 0);
+            vehicle.setEndIndex(vehicle.getEnd() == null ? null : 0);
+        }
+        request.setMatrices(Map.of(PROFILE, new VroomMatrix(durations, distances)));
+        return true;
+    }
+
+    /**
+     * Queues a rebuild on the background thread; requests arriving meanwhile share it.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.error("Distance matrix rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues a recomputation of the stale rows on the background thread.
+     */
+    private void requestRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                refreshQueued.set(false);
+                Snapshot snapshot = current;
+                try {
+                    if (snapshot != null) {
+                        refreshStale(snapshot);
+                    }
+                } catch (Exception e) {
+                    log.error("Distance matrix refresh failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the locations and maps their matrix, computing whatever the file does not hold yet.
+     */
+    public synchronized void rebuild() {
+        Map<String, double[]> locations = new HashMap<>();
+        for (Depot depot : depotRepository.findAll()) {
+            double[] c = coordinates(depot.getLocation());
+            if (c != null) {
+                locations.put(depotKey(depot.getId()), c);
+            }
+        }
+        for (CollectionPoint cp : collectionPointRepository.findAll()) {
+            double[] c = coordinates(cp.getLocation());
+            if (c != null) {
+                locations.put(cpKey(cp.getId()), c);
+            }
+        }
+        if (locations.isEmpty()) {
+            return;
+        }
+        if (locations.size() > maxLocations) {
+            log.warn("{} locations exceed routing.matrix.max-locations={}, no distance matrix",
+                    locations.size(), maxLocations);
+            return;
+        }
+
+        String[] keys = locations.keySet().stream().sorted().toArray(String[]::new);
+        String hash = hash(keys);
+        Snapshot previous = current;
+        if (previous != null && previous.hash().equals(hash)) {
+            // same locations: only refresh the ones that moved
+            synchronized (previous) {
+                for (int i = 0; i < keys.length; i++) {
+                    double[] c = locations.get(keys[i]);
+                    if (!Arrays.equals(previous.coordinates()[i], c)) {
+                        previous.coordinates()[i] = c;
+                        previous.stale().set(i);
+                    }
+                }
+            }
+            refreshStale(previous);
+            return;
+        }
+
+        Snapshot snapshot;
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve("matrix-" + hash + ".bin");
+            TiledMatrix matrix = TiledMatrix.open(file, keys.length, tileSize);
+            Map<String, Integer> index = new HashMap<>();
+            double[][] coordinates = new double[keys.length][];
+            BitSet stale = new BitSet(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                index.put(keys[i], i);
+                coordinates[i] = locations.get(keys[i]);
+                if (!matrix.isComputedFor(i, coordinates[i])) {
+                    stale.set(i);
+                }
+            }
+            snapshot = new Snapshot(hash, Map.copyOf(index), coordinates, matrix, stale);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the distance matrix in " + directory, e);
+        }
+
+        long start = System.nanoTime();
+        int reused = previous == null ? 0 : reuse(previous, snapshot);
+        int staleRows = snapshot.stale().cardinality();
+        if (staleRows > keys.length / 2) {
+            computeAll(snapshot);
+        } else {
+            refreshStale(snapshot);
+        }
+        current = snapshot;
+        log.info("Distance matrix {} ready: {} locations, {} rows reused, {} computed in {} ms", hash, keys.length,
+                reused, staleRows, (System.nanoTime() - start) / 1_000_000);
+        if (previous != null) {
+            closeQuietly(previous);
+        }
+        deleteOtherFiles(hash);
+    }
+
+    // ---------- computation ----------
+
+    // copies the cells between locations the previous matrix holds for the same coordinates,
+    // leaving only the others stale; returns the number of rows reused
+    private int reuse(Snapshot previous, Snapshot snapshot) {
+        TiledMatrix matrix = snapshot.matrix();
+        int[] from = new int[matrix.size()];
+        Arrays.fill(from, -1);
+        synchronized (previous) {
+            TiledMatrix old = previous.matrix();
+            for (Map.Entry<String, Integer> entry : snapshot.index().entrySet()) {
+                int i = entry.getValue();
+                Integer p = previous.index().get(entry.getKey());
+                if (snapshot.stale().get(i) && p != null && !previous.stale().get(p)
+                        && old.isComputedFor(p, snapshot.coordinates()[i])) {
+                    from[i] = p;
+                }
+            }
+            int[] shared = IntStream.range(0, from.length).filter(i -> from[i] >= 0).toArray();
+            if (shared.length == 0) {
+                return 0;
+            }
+            pool.submit(() -> IntStream.of(shared).parallel().forEach(i -> {
+                for (int j : shared) {
+                    matrix.put(i, j, old.distance(from[i], from[j]), old.duration(from[i], from[j]));
+                }
+            })).join();
+            for (int i : shared) {
+                matrix.markComputed(i, snapshot.coordinates()[i]);
+                snapshot.stale().clear(i);
+            }
+            return shared.length;
+        }
+    }
+
+    private void computeAll(Snapshot snapshot) {
+        TiledMatrix matrix = snapshot.matrix();
+        int tiles = matrix.tilesPerSide() * matrix.tilesPerSide();
+        pool.invoke(new TileTask(snapshot, 0, tiles));
+        synchronized (snapshot) {
+            for (int i = 0; i < matrix.size(); i++) {
+                matrix.markComputed(i, snapshot.coordinates()[i]);
+            }
+            snapshot.stale().clear();
+        }
+        matrix.force();
+    }
+
+    private final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot snapshot;
+        private final int from;
+        private final int to;
+
+        TileTask(Snapshot snapshot, int from, int to) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                int side = snapshot.matrix().tilesPerSide();
+                int rowStart = (from / side) * tileSize;
+                int colStart = (from % side) * tileSize;
+                int size = snapshot.matrix().size();
+                computeBlock(snapshot, range(rowStart, Math.min(size, rowStart + tileSize)),
+                        range(colStart, Math.min(size, colStart + tileSize)));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileTask(snapshot, from, middle), new TileTask(snapshot, middle, to));
+        }
+    }
+
+    // computes outside the snapshot lock, so attach is never held up by the routing engine;
+    // a row that moved again meanwhile stays stale for the next refresh
+    private void refreshStale(Snapshot snapshot) {
+        int[] rows;
+        double[][] computedFor;
+        synchronized (snapshot) {
+            BitSet stale = snapshot.stale();
+            if (stale.isEmpty()) {
+                return;
+            }
+            rows = stale.stream().toArray();
+            computedFor = new double[rows.length][];
+            for (int k = 0; k < rows.length; k++) {
+                computedFor[k] = snapshot.coordinates()[rows[k]].clone();
+            }
+        }
+        TiledMatrix matrix = snapshot.matrix();
+        int size = matrix.size();
+        // row then column of each moved location, one tile-wide block at a time
+        pool.submit(() -> IntStream.of(rows).parallel().forEach(row -> {
+            for (int start = 0; start < size; start += tileSize) {
+                int[] block = range(start, Math.min(size, start + tileSize));
+                computeBlock(snapshot, new int[]{row}, block);
+                computeBlock(snapshot, block, new int[]{row});
+            }
+        })).join();
+        synchronized (snapshot) {
+            for (int k = 0; k < rows.length; k++) {
+                if (Arrays.equals(snapshot.coordinates()[rows[k]], computedFor[k])) {
+                    matrix.markComputed(rows[k], computedFor[k]);
+                    snapshot.stale().clear(rows[k]);
+                }
+            }
+        }
+        matrix.force();
+    }
+
+    private void computeBlock(Snapshot snapshot, int[] rows, int[] columns) {
+        double[][] coordinates = snapshot.coordinates();
+        RoadNetworkSource.Table table = null;
+        if (roadNetwork.isAvailable()) {
+            try {
+                table = roadNetwork.table(select(coordinates, rows), select(coordinates, columns));
+            } catch (RuntimeException e) {
+                log.warn("Road network table failed for a {}x{} block, estimating it: {}",
+                        rows.length, columns.length, e.getMessage());
+            }
+        }
+        TiledMatrix matrix = snapshot.matrix();
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < columns.length; c++) {
+                int from = rows[r];
+                int to = columns[c];
+                if (from == to) {
+                    matrix.put(from, to, 0, 0);
+                    continue;
+                }
+                double straight = haversineM(coordinates[from], coordinates[to]);
+                float distance = table == null ? Float.NaN : table.distances()[r * columns.length + c];
+                float duration = table == null ? Float.NaN : table.durations()[r * columns.length + c];
+                if (Float.isNaN(distance) || Float.isNaN(duration)) {
+                    distance = (float) (straight * detourFactor());
+                    duration = (float) (distance / metersPerSecond());
+                } else if (straight >= CALIBRATION_MIN_M && duration > 0) {
+                    detourSum.add(distance / straight);
+                    speedSum.add(distance / duration);
+                    samples.increment();
+                }
+                matrix.put(from, to, distance, duration);
+            }
+        }
+    }
+
+    /**
+     * Road distance over straight-line distance, from road tiles once there are enough of them.
+     */
+    public double detourFactor() {
+        long n = samples.sum();
+        return n < CALIBRATION_MIN_SAMPLES ? defaultDetourFactor : detourSum.sum() / n;
+    }
+
+    public double metersPerSecond() {
+        long n = samples.sum();
+        return n < CALIBRATION_MIN_SAMPLES ? defaultMetersPerSecond : speedSum.sum() / n;
+    }
+
+    // ---------- helpers ----------
+
+    private record Snapshot(String hash, Map<String, Integer> index, double[][] coordinates,
+                            TiledMatrix matrix, BitSet stale) {}
+
+    private void deleteOtherFiles(String hash) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "matrix-*.bin")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().equals("matrix-" + hash + ".bin")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean old distance matrices in {}", directory, e);
+        }
+    }
+
+    private static void closeQuietly(Snapshot snapshot) {
+        synchronized (snapshot) {
+            try {
+                snapshot.matrix().close();
+            } catch (IOException e) {
+                log.warn("Could not close distance matrix {}", snapshot.hash(), e);
+            }
+        }
+    }
+
+    private static String hash(String[] sortedKeys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String key : sortedKeys) {
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String cpKey(String id) {
+        return "cp:" + id;
+    }
+
+    private static String depotKey(String id) {
+        return "depot:" + id;
+    }
+
+    private static int[] range(int from, int to) {
+        return IntStream.range(from, to).toArray();
+    }
+
+    private static List<double[]> select(double[][] coordinates, int[] indexes) {
+        List<double[]> selected = new ArrayList<>(indexes.length);
+        for (int i : indexes) {
+            selected.add(coordinates[i]);
+        }
+        return selected;
+    }
+
+    private static double[] coordinates(GeoJSONPoint point) {
+        if (point == null || point.getCoordinates() == null || point.getCoordinates().length < 2) {
+            return null;
+        }
+        return point.getCoordinates();
+    }
+
+    private static double haversineM(double[] a, double[] b) {
+        double lat1 = Math.toRadians(a[1]);
+        double lat2 = Math.toRadians(b[1]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b[0] - a[0]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
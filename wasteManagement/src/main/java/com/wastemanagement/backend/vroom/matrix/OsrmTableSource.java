@@ -0,0 +1,75 @@
+package com.wastemanagement.backend.vroom.matrix;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * OSRM's table service at routing.matrix.osrm-url (e.g. the OSRM VROOM itself uses);
+ * unavailable when the property is empty.
+ */
+@Component
+@RequiredArgsConstructor
+public class OsrmTableSource implements RoadNetworkSource {
+
+    private final RestTemplate restTemplate;
+
+    @Value("${routing.matrix.osrm-url:}")
+    private String osrmUrl;
+
+    @Value("${routing.matrix.osrm-profile:driving}")
+    private String profile;
+
+    @Override
+    public boolean isAvailable() {
+        return osrmUrl != null && !osrmUrl.isBlank();
+    }
+
+    @Override
+    public Table table(List<double[]> sources, List<double[]> destinations) {
+        List<double[]> coordinates = new ArrayList<>(sources);
+        coordinates.addAll(destinations);
+        StringJoiner path = new StringJoiner(";");
+        for (double[] c : coordinates) {
+            path.add(String.format(Locale.ROOT, "%.6f,%.6f", c[0], c[1]));
+        }
+        String sourceIndexes = IntStream.range(0, sources.size())
+                .mapToObj(Integer::toString).collect(Collectors.joining(";"));
+        String destinationIndexes = IntStream.range(sources.size(), coordinates.size())
+                .mapToObj(Integer::toString).collect(Collectors.joining(";"));
+        URI uri = URI.create(osrmUrl.replaceAll("/+$", "") + "/table/v1/" + profile + "/" + path
+                + "?sources=" + sourceIndexes + "&destinations=" + destinationIndexes
+                + "&annotations=distance,duration");
+
+        OsrmTable response = restTemplate.getForObject(uri, OsrmTable.class);
+        if (response == null || !"Ok".equals(response.code())
+                || response.distances() == null || response.durations() == null) {
+            throw new IllegalStateException("OSRM table failed: " + (response == null ? "no body" : response.code()));
+        }
+        int columns = destinations.size();
+        float[] distances = new float[sources.size() * columns];
+        float[] durations = new float[sources.size() * columns];
+        for (int i = 0; i < sources.size(); i++) {
+            for (int j = 0; j < columns; j++) {
+                Double distance = response.distances().get(i).get(j);
+                Double duration = response.durations().get(i).get(j);
+                distances[i * columns + j] = distance == null ? Float.NaN : distance.floatValue();
+                durations[i * columns + j] = duration == null ? Float.NaN : duration.floatValue();
+            }
+        }
+        return new Table(distances, durations);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record OsrmTable(String code, List<List<Double>> distances, List<List<Double>> durations) {}
+}
@@ -0,0 +1,26 @@
+package com.wastemanagement.backend.vroom.matrix;
+
+import java.util.List;
+
+/**
+ * Road distances and durations between locations, e.g. from OSRM.
+ */
+public interface RoadNetworkSource {
+
+    /**
+     * Whether a routing engine is configured; when not, MatrixEngine only estimates.
+     */
+    boolean isAvailable();
+
+    /**
+     * Costs from every source to every destination, row-major by source; NaN where there
+     * is no route.
+     *
+     * @param sources      [lon, lat] each
+     * @param destinations [lon, lat] each
+     * @throws IllegalStateException when the routing engine failed
+     */
+    Table table(List<double[]> sources, List<double[]> destinations);
+
+    record Table(float[] distances, float[] durations) {}
+}
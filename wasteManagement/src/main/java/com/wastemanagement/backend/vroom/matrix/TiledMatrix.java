@@ -0,0 +1,159 @@
+package com.wastemanagement.backend.vroom.matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Square distance/duration matrix in a memory-mapped file, split in tileSize x tileSize tiles
+ * so each block of work (and each OSRM table call) maps to one compact float region.
+ * Layout: header (magic, version, size, tileSize), then per location the [lon, lat] its row was
+ * computed for (NaN until it is), then the tiles row by row, each tile being tileSize² distances
+ * (m) followed by tileSize² durations (s); edge tiles are padded.
+ * Cells may be written concurrently as long as no two threads write the same one.
+ */
+public final class TiledMatrix implements Closeable {
+
+    private static final int MAGIC = 0x574D4D58; // "WMMX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int tileSize;
+    private final int tilesPerSide;
+    private final DoubleBuffer computedFor;
+    private final FloatBuffer[] tiles;
+    private final List<MappedByteBuffer> mappings = new ArrayList<>();
+
+    private TiledMatrix(FileChannel channel, int size, int tileSize, boolean fresh) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.tileSize = tileSize;
+        this.tilesPerSide = (size + tileSize - 1) / tileSize;
+
+        MappedByteBuffer header = map(0, HEADER_BYTES);
+        if (fresh) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, size).putInt(12, tileSize);
+        }
+        this.computedFor = map(HEADER_BYTES, (long) size * 2 * Double.BYTES).asDoubleBuffer();
+        if (fresh) {
+            for (int i = 0; i < size * 2; i++) {
+                computedFor.put(i, Double.NaN);
+            }
+        }
+        long tileBytes = 2L * tileSize * tileSize * Float.BYTES;
+        long offset = HEADER_BYTES + (long) size * 2 * Double.BYTES;
+        this.tiles = new FloatBuffer[tilesPerSide * tilesPerSide];
+        for (int t = 0; t < tiles.length; t++) {
+            tiles[t] = map(offset + t * tileBytes, tileBytes).asFloatBuffer();
+        }
+    }
+
+    /**
+     * Maps the file, reusing its content when it holds a matrix of the same shape.
+     */
+    public static TiledMatrix open(Path file, int size, int tileSize) throws IOException {
+        if (size <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("size and tileSize must be > 0");
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = !matches(channel, size, tileSize);
+            if (fresh) {
+                channel.truncate(0);
+            }
+            return new TiledMatrix(channel, size, tileSize, fresh);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean matches(FileChannel channel, int size, int tileSize) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && header.getInt(8) == size && header.getInt(12) == tileSize;
+    }
+
+    private MappedByteBuffer map(long position, long bytes) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+        mappings.add(buffer);
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int tilesPerSide() {
+        return tilesPerSide;
+    }
+
+    public float distance(int from, int to) {
+        return tile(from, to).get(cell(from, to));
+    }
+
+    public float duration(int from, int to) {
+        return tile(from, to).get(tileSize * tileSize + cell(from, to));
+    }
+
+    public void put(int from, int to, float distance, float duration) {
+        FloatBuffer tile = tile(from, to);
+        int cell = cell(from, to);
+        tile.put(cell, distance);
+        tile.put(tileSize * tileSize + cell, duration);
+    }
+
+    /**
+     * Whether row and column of the location were computed for these coordinates.
+     */
+    public boolean isComputedFor(int location, double[] coordinates) {
+        return computedFor.get(location * 2) == coordinates[0] && computedFor.get(location * 2 + 1) == coordinates[1];
+    }
+
+    public void markComputed(int location, double[] coordinates) {
+        computedFor.put(location * 2, coordinates[0]);
+        computedFor.put(location * 2 + 1, coordinates[1]);
+    }
+
+    /**
+     * Writes the pages back to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private FloatBuffer tile(int from, int to) {
+        return tiles[(from / tileSize) * tilesPerSide + to / tileSize];
+    }
+
+    private int cell(int from, int to) {
+        return (from % tileSize) * tileSize + to % tileSize;
+    }
+}
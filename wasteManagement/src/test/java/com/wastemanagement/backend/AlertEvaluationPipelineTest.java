@@ -0,0 +1,115 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.BinAlertStateRepository;
+import com.wastemanagement.backend.service.alert.AlertEvaluationPipeline;
+import com.wastemanagement.backend.service.alert.AlertService;
+import com.wastemanagement.backend.service.alert.AlertStateTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Alert evaluation pipeline")
+class AlertEvaluationPipelineTest {
+
+    @Mock
+    private AlertService alertService;
+
+    @Mock
+    private BinAlertStateRepository binAlertStateRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AlertEvaluationPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    private AlertStateTracker tracker() {
+        return new AlertStateTracker(binAlertStateRepository, 5, 5, 5, 30);
+    }
+
+    private static BinReading reading(String binId, double fillPct) {
+        return new BinReading(null, binId, new Date(), fillPct, 90, 20.0, -70);
+    }
+
+    @Test
+    @DisplayName("Drops readings once the queue is full and counts them")
+    void testDropsWhenQueueIsFull() {
+        // workers not started: nothing drains the queue
+        pipeline = new AlertEvaluationPipeline(alertService, tracker(), meterRegistry, 1, 2, 10);
+
+        assertTrue(pipeline.submit(reading("bin-1", 90)));
+        assertTrue(pipeline.submit(reading("bin-1", 91)));
+        assertFalse(pipeline.submit(reading("bin-1", 92)));
+
+        assertEquals(2, pipeline.queueDepth());
+        assertEquals(2.0, meterRegistry.get("alerts.pipeline.queue.depth").gauge().value());
+        assertEquals(1.0, meterRegistry.get("alerts.pipeline.dropped").counter().count());
+        verifyNoInteractions(alertService);
+    }
+
+    @Test
+    @DisplayName("Workers write the alerts of queued readings in batches")
+    void testWorkersWriteAlertsInBatches() {
+        pipeline = new AlertEvaluationPipeline(alertService, tracker(), meterRegistry, 1, 100, 100);
+        List<AlertRequestDTO> written = new ArrayList<>();
+        when(alertService.createAlerts(anyList())).thenAnswer(inv -> {
+            List<AlertRequestDTO> alerts = inv.getArgument(0);
+            synchronized (written) {
+                written.addAll(alerts);
+            }
+            return alerts.size();
+        });
+
+        pipeline.submitAll(List.of(reading("bin-1", 96), reading("bin-2", 10), reading("bin-3", 85)));
+        pipeline.start();
+
+        verify(alertService, timeout(5000).atLeastOnce()).createAlerts(anyList());
+        pipeline.stop();
+
+        assertEquals(List.of(AlertType.LEVEL_CRITICAL, AlertType.LEVEL_HIGH),
+                written.stream().map(AlertRequestDTO::getType).toList());
+        verify(alertService, never()).createAlert(any());
+        verify(alertService, never()).clearAlerts(any(), any());
+        assertEquals(0, pipeline.queueDepth());
+        assertEquals(3, meterRegistry.get("alerts.pipeline.lag").timer().count());
+    }
+
+    @Test
+    @DisplayName("Alerts whose write failed are raised again by the next reading")
+    void testFailedWriteIsRetriedByNextReading() {
+        pipeline = new AlertEvaluationPipeline(alertService, tracker(), meterRegistry, 1, 100, 100);
+        when(alertService.createAlerts(anyList()))
+                .thenThrow(new IllegalStateException("mongo down"))
+                .thenAnswer(inv -> inv.<List<AlertRequestDTO>>getArgument(0).size());
+        pipeline.start();
+
+        pipeline.submit(reading("bin-1", 96));
+        verify(alertService, timeout(5000).times(1)).createAlerts(anyList());
+        pipeline.submit(reading("bin-1", 97));
+        verify(alertService, timeout(5000).times(2)).createAlerts(anyList());
+        pipeline.stop();
+
+        assertEquals(1.0, meterRegistry.get("alerts.pipeline.write.failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("alerts.pipeline.alerts.created").counter().count());
+    }
+}
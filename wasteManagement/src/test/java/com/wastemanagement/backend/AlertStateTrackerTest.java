@@ -0,0 +1,228 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.model.collection.AlertType;
+import com.wastemanagement.backend.model.collection.BinAlertState;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.BinAlertStateRepository;
+import com.wastemanagement.backend.service.alert.AlertStateTracker;
+import com.wastemanagement.backend.service.alert.AlertTransitions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Alert state tracker - hysteresis and quiet period")
+class AlertStateTrackerTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Mock
+    private BinAlertStateRepository repository;
+
+    private AlertStateTracker tracker;
+    private long clock;
+
+    @BeforeEach
+    void setup() {
+        // 5% fill band, 5% battery band, 5°C temperature band, 30 min quiet period
+        tracker = new AlertStateTracker(repository, 5, 5, 5, 30);
+        clock = 1_700_000_000_000L;
+    }
+
+    private AlertTransitions apply(double fillPct) {
+        return apply(fillPct, 90, 20.0);
+    }
+
+    private AlertTransitions apply(double fillPct, int batteryPct, double temperatureC) {
+        clock += 5 * MINUTE;
+        AlertTransitions transitions = new AlertTransitions();
+        tracker.apply(new BinReading(null, "bin-1", new Date(clock), fillPct, batteryPct, temperatureC, -70), transitions);
+        return transitions;
+    }
+
+    private static List<AlertType> raisedTypes(AlertTransitions transitions) {
+        return transitions.getRaised().stream().map(AlertRequestDTO::getType).toList();
+    }
+
+    @Test
+    @DisplayName("A bin staying above the threshold raises a single alert")
+    void testOneAlertWhileAboveThreshold() {
+        assertEquals(List.of(AlertType.LEVEL_HIGH), raisedTypes(apply(85)));
+        for (int i = 0; i < 10; i++) {
+            AlertTransitions transitions = apply(86);
+            assertTrue(transitions.getRaised().isEmpty());
+            assertTrue(transitions.getCleared().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Clearing waits for the hysteresis band")
+    void testClearUsesHysteresisBand() {
+        apply(85);
+
+        assertTrue(apply(77).getCleared().isEmpty());
+        assertEquals(Map.of("bin-1", Set.of(AlertType.LEVEL_HIGH)), apply(74).getCleared());
+        assertNull(tracker.getState("bin-1").getFillState());
+    }
+
+    @Test
+    @DisplayName("Escalation clears the lower level and raises the higher one")
+    void testEscalationToCritical() {
+        apply(85);
+
+        AlertTransitions escalation = apply(96);
+        assertEquals(List.of(AlertType.LEVEL_CRITICAL), raisedTypes(escalation));
+        assertEquals(Set.of(AlertType.LEVEL_HIGH), escalation.getCleared().get("bin-1"));
+
+        // 91% is inside the critical band: still critical
+        assertTrue(apply(91).getCleared().isEmpty());
+        assertEquals(AlertType.LEVEL_CRITICAL, tracker.getState("bin-1").getFillState());
+    }
+
+    @Test
+    @DisplayName("Re-raising within the quiet period changes state without writing")
+    void testQuietPeriodSuppressesReRaise() {
+        apply(85);
+        apply(70);
+
+        // 10 minutes after the first alert
+        assertTrue(apply(85).getRaised().isEmpty());
+        assertEquals(AlertType.LEVEL_HIGH, tracker.getState("bin-1").getFillState());
+
+        apply(70);
+        clock += 30 * MINUTE;
+        assertEquals(List.of(AlertType.LEVEL_HIGH), raisedTypes(apply(85)));
+    }
+
+    @Test
+    @DisplayName("A held-back alert is written once the quiet period ends")
+    void testFlappingInsideQuietPeriodLeavesAnOpenAlert() {
+        apply(85);                                     // t+5: raised
+        assertEquals(Set.of(AlertType.LEVEL_HIGH), apply(70).getCleared().get("bin-1"));
+        assertTrue(apply(85).getRaised().isEmpty());   // t+15: held back
+        assertTrue(apply(86).getRaised().isEmpty());   // t+20
+        assertTrue(apply(86).getRaised().isEmpty());   // t+25
+        assertTrue(apply(86).getRaised().isEmpty());   // t+30
+
+        // t+35: 30 minutes after the first alert, the bin is still high
+        assertEquals(List.of(AlertType.LEVEL_HIGH), raisedTypes(apply(86)));
+        assertTrue(apply(86).getRaised().isEmpty());
+        assertTrue(tracker.getState("bin-1").getPendingRaises().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A held-back alert is dropped when its state clears, without a clear")
+    void testHeldBackAlertDroppedOnClear() {
+        apply(85);
+        apply(70);
+        apply(85);
+
+        assertTrue(apply(70).getCleared().isEmpty());
+        clock += 30 * MINUTE;
+        assertTrue(apply(70).getRaised().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Escalating within the quiet period of the last critical alert still ends critical")
+    void testEscalationInsideQuietPeriod() {
+        apply(96);                                    // critical raised
+        apply(80);                                    // down to high
+        AlertTransitions escalation = apply(96);      // critical again, held back
+        assertTrue(escalation.getRaised().isEmpty());
+        assertEquals(Set.of(AlertType.LEVEL_HIGH), escalation.getCleared().get("bin-1"));
+
+        clock += 20 * MINUTE;
+        assertEquals(List.of(AlertType.LEVEL_CRITICAL), raisedTypes(apply(96)));
+    }
+
+    @Test
+    @DisplayName("Battery and anomaly channels are tracked independently")
+    void testBatteryAndAnomalyChannels() {
+        assertEquals(List.of(AlertType.BATTERY_LOW, AlertType.SENSOR_ANOMALY),
+                raisedTypes(apply(10, 15, 65.0)));
+
+        // inside both bands
+        AlertTransitions stillActive = apply(10, 24, 57.0);
+        assertTrue(stillActive.getRaised().isEmpty());
+        assertTrue(stillActive.getCleared().isEmpty());
+
+        assertEquals(Set.of(AlertType.BATTERY_LOW, AlertType.SENSOR_ANOMALY),
+                apply(10, 30, 50.0).getCleared().get("bin-1"));
+    }
+
+    @Test
+    @DisplayName("Late readings do not move the state backwards")
+    void testLateReadingIgnored() {
+        apply(85);
+        AlertTransitions transitions = new AlertTransitions();
+        tracker.apply(new BinReading(null, "bin-1", new Date(clock - 60 * MINUTE), 10, 90, 20.0, -70), transitions);
+
+        assertTrue(transitions.getCleared().isEmpty());
+        assertEquals(AlertType.LEVEL_HIGH, tracker.getState("bin-1").getFillState());
+    }
+
+    @Test
+    @DisplayName("Only changed states are checkpointed")
+    void testCheckpointWritesChangedStates() {
+        apply(85);
+        apply(86);
+
+        tracker.checkpoint();
+        tracker.checkpoint();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BinAlertState>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(AlertType.LEVEL_HIGH, captor.getValue().get(0).getFillState());
+    }
+
+    @Test
+    @DisplayName("An alert raised and cleared in the same batch is written cleared")
+    void testRaiseAndClearInSameBatch() {
+        AlertTransitions transitions = new AlertTransitions();
+        tracker.apply(new BinReading(null, "bin-1", new Date(clock), 85, 90, 20.0, -70), transitions);
+        tracker.apply(new BinReading(null, "bin-1", new Date(clock + MINUTE), 60, 90, 20.0, -70), transitions);
+
+        assertEquals(1, transitions.getRaised().size());
+        assertTrue(transitions.getRaised().get(0).isCleared());
+    }
+
+    @Test
+    @DisplayName("A rolled-back batch raises its alert again on the next reading")
+    void testRollbackRestoresStateForRetry() {
+        AlertTransitions failed = apply(85);
+        assertEquals(List.of(AlertType.LEVEL_HIGH), raisedTypes(failed));
+
+        tracker.rollback(failed);
+
+        assertNull(tracker.getState("bin-1").getFillState());
+        assertEquals(List.of(AlertType.LEVEL_HIGH), raisedTypes(apply(86)));
+    }
+
+    @Test
+    @DisplayName("Checkpoints save copies, not the live states")
+    void testCheckpointSavesCopies() {
+        apply(85);
+
+        tracker.checkpoint();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BinAlertState>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(captor.capture());
+        BinAlertState saved = captor.getValue().get(0);
+        apply(96);
+        assertEquals(AlertType.LEVEL_HIGH, saved.getFillState());
+        assertEquals(Set.of(AlertType.LEVEL_HIGH), saved.getLastRaisedAt().keySet());
+    }
+}
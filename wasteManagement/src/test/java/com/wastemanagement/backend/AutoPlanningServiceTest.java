@@ -2,17 +2,29 @@ package com.wastemanagement.backend;
 
 import com.wastemanagement.backend.dto.tournee.TourneeResponseDTO;
 import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.Tournee;
 import com.wastemanagement.backend.model.tournee.auto.AutoMode;
 import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
+import com.wastemanagement.backend.service.tournee.TourneeAssignmentService;
 import com.wastemanagement.backend.service.tournee.TourneeService;
 import com.wastemanagement.backend.service.tournee.auto.AutoPlanningConfigService;
 import com.wastemanagement.backend.service.tournee.auto.AutoPlanningService;
+import com.wastemanagement.backend.service.tournee.auto.ConsistentHashRing;
 import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyClusterer;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import com.wastemanagement.backend.service.tournee.auto.PlanningMembershipService;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline;
+import com.wastemanagement.backend.service.tournee.auto.ZonePartitioner;
+import com.wastemanagement.backend.service.tournee.auto.ZonePartitioner.Zone;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
@@ -33,9 +45,38 @@ class AutoPlanningServiceTest {
     @Mock
     private TourneeService tourneeService;
 
+    @Mock
+    private TourneeAssignmentService tourneeAssignmentService;
+
+    @Mock
+    private EmergencyClusterer emergencyClusterer;
+
+    @Mock
+    private ZonePartitioner zonePartitioner;
+
+    @Mock
+    private PlanningMembershipService membership;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // single node, runs jobs and solves on the calling thread
+    @Spy
+    private PlanningPipeline pipeline = new PlanningPipeline(meterRegistry,
+            new PlanningLeaseService(null, null, false, "node-1", 30000, 10000, 2000), Runnable::run, Runnable::run,
+            PlanningPipeline.OverlapPolicy.COALESCE, PlanningPipeline.OverlapPolicy.SKIP, false);
+
     @InjectMocks
     private AutoPlanningService autoPlanningService;
 
+    @BeforeEach
+    void setUp() {
+        // no spatial split unless a test says otherwise
+        lenient().when(emergencyClusterer.cluster(anyMap(), anyMap()))
+                .thenAnswer(inv -> EmergencyClusterer.byType(inv.getArgument(0)));
+        lenient().when(emergencyClusterer.shareFleet(anyList(), anyMap()))
+                .thenAnswer(inv -> inv.getArgument(0));
+    }
+
     @Test
     void runEmergencyLoop_offMode_doesNothing() {
         // given
@@ -64,11 +105,12 @@ class AutoPlanningServiceTest {
         when(binSnapshotService.getEmergencySnapshots())
                 .thenReturn(List.of(s1, s2));
 
-        when(tourneeService.planTourneesWithVroom(
+        when(tourneeService.solveTournees(
                 any(TrashType.class),
                 anyDouble(),
-                anySet()
-        )).thenReturn(List.<TourneeResponseDTO>of());
+                anySet(),
+                isNull()
+        )).thenReturn(List.<Tournee>of());
 
         // when
         autoPlanningService.runEmergencyLoop();
@@ -80,10 +122,11 @@ class AutoPlanningServiceTest {
         ArgumentCaptor<Set<String>> cpIdsCaptor = ArgumentCaptor.forClass(Set.class);
 
         verify(tourneeService, times(1))
-                .planTourneesWithVroom(
+                .solveTournees(
                         typeCaptor.capture(),
                         thresholdCaptor.capture(),
-                        cpIdsCaptor.capture()
+                        cpIdsCaptor.capture(),
+                        isNull()
                 );
 
         assertThat(typeCaptor.getValue()).isEqualTo(TrashType.PLASTIC);
@@ -118,11 +161,12 @@ class AutoPlanningServiceTest {
         when(binSnapshotService.getEmergencySnapshots())
                 .thenReturn(List.of(p1, p1dup, o1, o2));
 
-        when(tourneeService.planTourneesWithVroom(
+        when(tourneeService.solveTournees(
                 any(TrashType.class),
                 anyDouble(),
-                anySet()
-        )).thenReturn(List.<TourneeResponseDTO>of());
+                anySet(),
+                isNull()
+        )).thenReturn(List.<Tournee>of());
 
         // when
         autoPlanningService.runEmergencyLoop();
@@ -134,10 +178,11 @@ class AutoPlanningServiceTest {
         ArgumentCaptor<Set<String>> cpIdsCaptor = ArgumentCaptor.forClass(Set.class);
 
         verify(tourneeService, times(2))
-                .planTourneesWithVroom(
+                .solveTournees(
                         typeCaptor.capture(),
                         thresholdCaptor.capture(),
-                        cpIdsCaptor.capture()
+                        cpIdsCaptor.capture(),
+                        isNull()
                 );
 
         // We don't know the invocation order for sure, so we inspect all values
@@ -169,6 +214,63 @@ class AutoPlanningServiceTest {
         assertThat(organicOk).as("ORGANIC emergency CP set").isTrue();
     }
 
+    @Test
+    void runEmergencyLoop_spatialBatches_plannedWithTheirOwnVehiclesThenAssigned() {
+        when(autoModeService.getAutoMode()).thenReturn(AutoMode.EMERGENCIES_ONLY);
+
+        BinSnapshot north = new BinSnapshot();
+        north.setTrashType(TrashType.PLASTIC);
+        north.setCollectionPointId("cp-north");
+        BinSnapshot south = new BinSnapshot();
+        south.setTrashType(TrashType.PLASTIC);
+        south.setCollectionPointId("cp-south");
+        when(binSnapshotService.getEmergencySnapshots()).thenReturn(List.of(north, south));
+
+        when(emergencyClusterer.cluster(anyMap(), anyMap())).thenReturn(List.of(
+                new EmergencyClusterer.EmergencyBatch(TrashType.PLASTIC, Set.of("cp-north"), Set.of("v-1")),
+                new EmergencyClusterer.EmergencyBatch(TrashType.PLASTIC, Set.of("cp-south"), Set.of("v-2"))));
+
+        Tournee northTour = new Tournee();
+        northTour.setId("t-north");
+        when(tourneeService.solveTournees(TrashType.PLASTIC, 0.0, Set.of("cp-north"), Set.of("v-1")))
+                .thenReturn(List.of(northTour));
+        when(tourneeService.solveTournees(TrashType.PLASTIC, 0.0, Set.of("cp-south"), Set.of("v-2")))
+                .thenThrow(new IllegalStateException("VROOM down"));
+        TourneeResponseDTO saved = new TourneeResponseDTO();
+        saved.setId("t-north");
+        when(tourneeService.savePlannedTournees(List.of(northTour))).thenReturn(List.of(saved));
+
+        autoPlanningService.runEmergencyLoop();
+
+        // one failed batch does not cancel the other; both solves are saved in one go
+        verify(tourneeService).savePlannedTournees(List.of(northTour));
+        verify(tourneeAssignmentService).autoAssignForTournee("t-north");
+        verifyNoMoreInteractions(tourneeAssignmentService);
+        assertThat(meterRegistry.get("planning.pipeline.stage")
+                .tags("job", "emergency", "stage", "optimize", "outcome", "success").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("planning.pipeline.stage")
+                .tags("job", "emergency", "stage", "assign").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void runEmergencyLoop_clusteringFails_fallsBackToOneBatchPerType() {
+        when(autoModeService.getAutoMode()).thenReturn(AutoMode.EMERGENCIES_ONLY);
+
+        BinSnapshot s1 = new BinSnapshot();
+        s1.setTrashType(TrashType.GLASS);
+        s1.setCollectionPointId("cp-1");
+        when(binSnapshotService.getEmergencySnapshots()).thenReturn(List.of(s1));
+        when(emergencyClusterer.cluster(anyMap(), anyMap())).thenThrow(new RuntimeException("mongo down"));
+        when(tourneeService.solveTournees(any(TrashType.class), anyDouble(), anySet(), isNull()))
+                .thenReturn(List.of());
+
+        autoPlanningService.runEmergencyLoop();
+
+        verify(tourneeService).solveTournees(TrashType.GLASS, 0.0, Set.of("cp-1"), null);
+    }
+
     @Test
     void runScheduledCycle_fullMode_callsMultiTypePlanner() {
         // given
@@ -209,4 +311,78 @@ class AutoPlanningServiceTest {
         // then
         verifyNoInteractions(tourneeService);
     }
+
+    @Test
+    void runScheduledCycle_modeSwitchedOffWhileQueued_doesNothing() {
+        // FULL when the scheduler fires, OFF by the time the pipeline starts the run
+        when(autoModeService.getAutoMode()).thenReturn(AutoMode.FULL, AutoMode.OFF);
+
+        autoPlanningService.runScheduledCycle();
+
+        verify(autoModeService, times(2)).getAutoMode();
+        verifyNoInteractions(tourneeService, binSnapshotService);
+    }
+
+    @Test
+    void runScheduledCycle_zoned_plansOnlyTheOwnedZonesWithTheirVehicles() {
+        when(autoModeService.getAutoMode()).thenReturn(AutoMode.FULL);
+        when(membership.isEnabled()).thenReturn(true);
+        when(membership.getNodeId()).thenReturn("node-1");
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-1", "node-2"), 16);
+        when(membership.ring()).thenReturn(ring);
+        // enough zones for both nodes to own some
+        List<Zone> zones = new java.util.ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            zones.add(new Zone("zone:" + i + ":0", Set.of("cp-" + i), 1000, Set.of("v-" + i)));
+        }
+        when(zonePartitioner.partition(anyCollection(), eq(80.0))).thenReturn(zones);
+        when(tourneeService.planTourneesWithVroom(anyList(), anyDouble(), anySet(), anySet())).thenReturn(List.of());
+
+        autoPlanningService.runScheduledCycle();
+
+        List<Zone> owned = zones.stream().filter(z -> ring.ownerOf(z.id()).equals("node-1")).toList();
+        assertThat(owned).isNotEmpty().hasSizeLessThan(zones.size());
+        for (Zone zone : owned) {
+            verify(tourneeService).planTourneesWithVroom(anyList(), eq(80.0), eq(zone.collectionPointIds()), eq(zone.vehicleIds()));
+        }
+        verify(tourneeService, times(owned.size())).planTourneesWithVroom(anyList(), anyDouble(), anySet(), anySet());
+        verify(tourneeService, never()).planTourneesWithVroom(anyList(), anyDouble());
+    }
+
+    @Test
+    void runEmergencyLoop_sharedBatches_splitTheFleetByVolumeAndSolveTogether() {
+        when(autoModeService.getAutoMode()).thenReturn(AutoMode.EMERGENCIES_ONLY);
+
+        BinSnapshot plastic = new BinSnapshot();
+        plastic.setTrashType(TrashType.PLASTIC);
+        plastic.setCollectionPointId("cp-1");
+        plastic.setFillPct(100.0);
+        BinSnapshot glass = new BinSnapshot();
+        glass.setTrashType(TrashType.GLASS);
+        glass.setCollectionPointId("cp-2");
+        glass.setFillPct(50.0);
+        when(binSnapshotService.getEmergencySnapshots()).thenReturn(List.of(plastic, glass));
+        EmergencyClusterer.EmergencyBatch plasticBatch =
+                new EmergencyClusterer.EmergencyBatch(TrashType.PLASTIC, Set.of("cp-1"), null);
+        EmergencyClusterer.EmergencyBatch glassBatch =
+                new EmergencyClusterer.EmergencyBatch(TrashType.GLASS, Set.of("cp-2"), null);
+        when(emergencyClusterer.cluster(anyMap(), anyMap())).thenReturn(List.of(plasticBatch, glassBatch));
+        when(emergencyClusterer.shareFleet(anyList(), anyMap())).thenReturn(List.of(
+                new EmergencyClusterer.EmergencyBatch(TrashType.PLASTIC, Set.of("cp-1"), Set.of("v-1")),
+                new EmergencyClusterer.EmergencyBatch(TrashType.GLASS, Set.of("cp-2"), Set.of("v-2"))));
+        Tournee plasticTour = new Tournee();
+        Tournee glassTour = new Tournee();
+        when(tourneeService.solveTournees(TrashType.PLASTIC, 0.0, Set.of("cp-1"), Set.of("v-1"))).thenReturn(List.of(plasticTour));
+        when(tourneeService.solveTournees(TrashType.GLASS, 0.0, Set.of("cp-2"), Set.of("v-2"))).thenReturn(List.of(glassTour));
+
+        autoPlanningService.runEmergencyLoop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<java.util.Map<EmergencyClusterer.EmergencyBatch, Double>> demand =
+                ArgumentCaptor.forClass(java.util.Map.class);
+        verify(emergencyClusterer).shareFleet(eq(List.of(plasticBatch, glassBatch)), demand.capture());
+        assertThat(demand.getValue()).containsEntry(plasticBatch, 660.0).containsEntry(glassBatch, 330.0);
+        // both solves persisted in one go
+        verify(tourneeService).savePlannedTournees(List.of(plasticTour, glassTour));
+    }
 }
@@ -2,11 +2,13 @@ package com.wastemanagement.backend;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wastemanagement.backend.controller.collection.BinController;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
 import com.wastemanagement.backend.dto.collection.BinRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinResponseDTO;
 import com.wastemanagement.backend.model.collection.TrashType;
 import com.wastemanagement.backend.security.JwtUtil;
 import com.wastemanagement.backend.service.CustomUserDetailsService;
+import com.wastemanagement.backend.service.collection.BinReadingService;
 import com.wastemanagement.backend.service.collection.BinService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -49,6 +51,9 @@ class BinControllerTests {
     @MockBean
     private BinService binService;
 
+    @MockBean
+    private BinReadingService binReadingService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private BinRequestDTO requestDTO;
@@ -142,4 +147,36 @@ class BinControllerTests {
 
         verify(binService).deleteBin("1");
     }
+
+    @Test
+    void testGetDownsampledReadingsController() throws Exception {
+        BinReadingHistoryDTO history = BinReadingHistoryDTO.builder()
+                .binId("1")
+                .resolution(BinReadingHistoryDTO.Resolution.RAW)
+                .points(List.of())
+                .build();
+        when(binReadingService.getDownsampledHistory(eq("1"), any(), any(), eq(200))).thenReturn(history);
+
+        mockMvc.perform(get("/api/v1/bins/1/readings")
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z")
+                        .param("points", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.binId").value("1"))
+                .andExpect(jsonPath("$.resolution").value("RAW"));
+    }
+
+    @Test
+    void testGetDownsampledReadingsRejectsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/bins/1/readings")
+                        .param("from", "2025-02-01T00:00:00Z")
+                        .param("to", "2025-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/bins/1/readings")
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("points", "2"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(binReadingService);
+    }
 }
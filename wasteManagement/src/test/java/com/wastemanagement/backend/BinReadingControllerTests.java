@@ -2,8 +2,13 @@ package com.wastemanagement.backend;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wastemanagement.backend.controller.collection.BinReadingController;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchItemDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryPointDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingStreamResponseDTO;
 import com.wastemanagement.backend.service.collection.BinReadingService;
 import com.wastemanagement.backend.security.JwtUtil;
 import com.wastemanagement.backend.service.CustomUserDetailsService;
@@ -21,6 +26,7 @@ import java.util.Date;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -123,6 +129,107 @@ class BinReadingControllerTests {
                 .andExpect(jsonPath("$[1].id").value("reading2"));
     }
 
+    @Test
+    void testGetLatestForBins() throws Exception {
+        when(binReadingService.getLatestForBins(List.of("bin1", "bin2")))
+                .thenReturn(List.of(responseDTO));
+
+        mockMvc.perform(get("/api/v1/bin-readings/latest")
+                        .param("binIds", "bin1,bin2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].binId").value("bin1"))
+                .andExpect(jsonPath("$[0].fillPct").value(50));
+    }
+
+    @Test
+    void testGetLatestForCollectionPoint() throws Exception {
+        when(binReadingService.getLatestForCollectionPoint("cp1"))
+                .thenReturn(List.of(responseDTO));
+
+        mockMvc.perform(get("/api/v1/bin-readings/latest")
+                        .param("collectionPointId", "cp1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("reading1"));
+    }
+
+    @Test
+    void testGetLatestWithoutFilterIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/bin-readings/latest"))
+                .andExpect(status().isBadRequest());
+
+        verify(binReadingService, never()).getLatestForBins(any());
+    }
+
+    @Test
+    void testCreateBatch() throws Exception {
+        BinReadingBatchResponseDTO batchResponse = BinReadingBatchResponseDTO.builder()
+                .accepted(2)
+                .rejected(0)
+                .overThresholdReadings(1)
+                .items(List.of(
+                        BinReadingBatchItemDTO.builder().index(0).id("r1")
+                                .status(BinReadingBatchItemDTO.Status.CREATED).build(),
+                        BinReadingBatchItemDTO.builder().index(1).id("r2")
+                                .status(BinReadingBatchItemDTO.Status.CREATED).build()))
+                .build();
+        when(binReadingService.createBatch(any())).thenReturn(batchResponse);
+
+        mockMvc.perform(post("/api/v1/bin-readings/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(requestDTO, requestDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.overThresholdReadings").value(1))
+                .andExpect(jsonPath("$.items[1].id").value("r2"));
+    }
+
+    @Test
+    void testCreateEmptyBatchIsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/bin-readings/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verify(binReadingService, never()).createBatch(any());
+    }
+
+    @Test
+    void testIngestStream() throws Exception {
+        when(binReadingService.ingestStream(any())).thenReturn(
+                BinReadingStreamResponseDTO.builder().accepted(2).rejected(1).overThresholdReadings(1).build());
+
+        mockMvc.perform(post("/api/v1/bin-readings/stream")
+                        .contentType("application/x-ndjson")
+                        .content("{\"binId\":\"bin1\"}\n{\"binId\":\"bin2\"}\nbad\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1));
+    }
+
+    @Test
+    void testGetHistory() throws Exception {
+        when(binReadingService.getHistory(eq("bin1"), any(), any())).thenReturn(BinReadingHistoryDTO.builder()
+                .binId("bin1")
+                .resolution(BinReadingHistoryDTO.Resolution.DAILY)
+                .points(List.of(BinReadingHistoryPointDTO.builder().fillPct(42.5).count(288).build()))
+                .build());
+
+        mockMvc.perform(get("/api/v1/bin-readings/bin/bin1/history")
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("to", "2024-04-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resolution").value("DAILY"))
+                .andExpect(jsonPath("$.points[0].fillPct").value(42.5));
+    }
+
+    @Test
+    void testGetHistoryWithInvertedRangeIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/bin-readings/bin/bin1/history")
+                        .param("from", "2024-04-01T00:00:00Z")
+                        .param("to", "2024-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testDeleteBinReading() throws Exception {
         doNothing().when(binReadingService).delete("reading1");
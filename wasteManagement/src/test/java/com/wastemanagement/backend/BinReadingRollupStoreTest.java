@@ -0,0 +1,143 @@
+package com.wastemanagement.backend;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.service.collection.BinReadingRollupStore;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BinReadingRollupStoreTest {
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private PlanningLeaseService leaseService;
+    @Mock
+    private MongoCollection<Document> readings;
+    @Mock
+    private MongoCollection<Document> state;
+    @Mock
+    private FindIterable<Document> stateFind;
+    @Mock
+    private AggregateIterable<Document> aggregation;
+
+    private BinReadingRollupStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new BinReadingRollupStore(mongoTemplate, leaseService);
+        ReflectionTestUtils.setField(store, "lateLookbackHours", 24L);
+    }
+
+    private void stubCollections(Document savedState) {
+        when(mongoTemplate.getCollectionName(BinReading.class)).thenReturn("binReadings");
+        when(mongoTemplate.getCollection("binReadings")).thenReturn(readings);
+        when(mongoTemplate.getCollection("binReadingsRollupState")).thenReturn(state);
+        when(state.find(any(Bson.class))).thenReturn(stateFind);
+        when(stateFind.first()).thenReturn(savedState);
+        when(readings.aggregate(anyList())).thenReturn(aggregation);
+        when(aggregation.allowDiskUse(true)).thenReturn(aggregation);
+    }
+
+    @Test
+    void followers_doNotRollUp() {
+        when(leaseService.isLeader()).thenReturn(false);
+
+        store.rollUp();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void newWindow_isSavedAsPendingBeforeMerging_thenBecomesTheWatermark() {
+        when(leaseService.isLeader()).thenReturn(true);
+        stubCollections(null);
+
+        store.rollUp();
+
+        ArgumentCaptor<Document> saved = ArgumentCaptor.forClass(Document.class);
+        var order = inOrder(state, aggregation);
+        order.verify(state).replaceOne(any(Bson.class), saved.capture(), any(ReplaceOptions.class));
+        order.verify(aggregation, times(2)).toCollection();
+        order.verify(state).replaceOne(any(Bson.class), saved.capture(), any(ReplaceOptions.class));
+        Document window = saved.getAllValues().get(0).get("pending", Document.class);
+        assertNotNull(window.getDate("ts"));
+        assertEquals(window, saved.getAllValues().get(1).get("watermark", Document.class));
+        assertNull(saved.getAllValues().get(1).get("pending"));
+    }
+
+    private static Document window(Date ts) {
+        return new Document("ts", ts).append("idMark", ObjectId.getSmallestWithDate(ts));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void interruptedWindow_isRedoneAsItWas_andMarkedOnEveryBucket() {
+        Date watermarkTs = new Date(System.currentTimeMillis() - 3_600_000);
+        Date pendingTs = new Date(System.currentTimeMillis() - 1_800_000);
+        Document watermark = window(watermarkTs);
+        Document pending = window(pendingTs);
+        when(leaseService.isLeader()).thenReturn(true);
+        stubCollections(new Document("_id", "binReadings").append("watermark", watermark).append("pending", pending));
+
+        store.rollUp();
+
+        ArgumentCaptor<List<Document>> pipelines = ArgumentCaptor.forClass(List.class);
+        verify(readings, times(2)).aggregate(pipelines.capture());
+        for (List<Document> pipeline : pipelines.getAllValues()) {
+            List<Document> branches = pipeline.get(0).get("$match", Document.class).getList("$or", Document.class);
+            // the window itself, bounded on ts
+            Document tsRange = branches.get(0).get("ts", Document.class);
+            assertEquals(watermarkTs, tsRange.get("$gte"));
+            assertEquals(pendingTs, tsRange.get("$lt"));
+            assertEquals(pending.get("idMark"), branches.get(0).get("_id", Document.class).get("$lt"));
+            // late readings: older ts, inserted since the previous id mark
+            assertEquals(watermarkTs, branches.get(1).get("ts", Document.class).get("$lt"));
+            Document idRange = branches.get(1).get("_id", Document.class);
+            assertEquals(watermark.get("idMark"), idRange.get("$gte"));
+            assertEquals(pending.get("idMark"), idRange.get("$lt"));
+            Document project = pipeline.get(2).get("$project", Document.class);
+            assertEquals(new Document("$literal", pending.get("idMark")), project.get("windowTo"));
+        }
+        // only the final watermark update: the pending window was already recorded
+        ArgumentCaptor<Document> saved = ArgumentCaptor.forClass(Document.class);
+        verify(state).replaceOne(any(Bson.class), saved.capture(), any(ReplaceOptions.class));
+        assertEquals(pending, saved.getValue().get("watermark", Document.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void firstRun_isBoundedOnTs() {
+        when(leaseService.isLeader()).thenReturn(true);
+        stubCollections(null);
+
+        store.rollUp();
+
+        ArgumentCaptor<List<Document>> pipelines = ArgumentCaptor.forClass(List.class);
+        verify(readings, times(2)).aggregate(pipelines.capture());
+        Document match = pipelines.getValue().get(0).get("$match", Document.class);
+        assertNotNull(match.get("ts", Document.class).get("$lt"));
+        assertNull(match.get("$or"));
+    }
+}
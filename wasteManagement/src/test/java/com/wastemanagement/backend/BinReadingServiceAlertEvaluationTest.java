@@ -1,14 +1,25 @@
 package com.wastemanagement.backend;
 
 import com.wastemanagement.backend.dto.alert.AlertRequestDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchItemDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingBatchResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingRequestDTO;
 import com.wastemanagement.backend.dto.collection.BinReadingResponseDTO;
+import com.wastemanagement.backend.dto.collection.BinReadingStreamResponseDTO;
 import com.wastemanagement.backend.mapper.collection.BinReadingMapper;
 import com.wastemanagement.backend.model.collection.AlertType;
 import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
 import com.wastemanagement.backend.repository.collection.BinReadingRepository;
-import com.wastemanagement.backend.service.alert.AlertService;
+import com.wastemanagement.backend.service.alert.AlertEvaluationPipeline;
+import com.wastemanagement.backend.service.alert.AlertRules;
 import com.wastemanagement.backend.service.collection.BinReadingServiceImpl;
+import com.wastemanagement.backend.service.collection.BinReadingRollupStore;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,11 +28,17 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.StringReader;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +49,22 @@ class BinReadingServiceAlertEvaluationTest {
     private BinReadingRepository binReadingRepository;
 
     @Mock
-    private AlertService alertService;
+    private AlertEvaluationPipeline alertEvaluationPipeline;
+
+    @Mock
+    private LatestReadingStore latestReadingStore;
+
+    @Mock
+    private CollectionPointRepository collectionPointRepository;
+
+    @Mock
+    private BinReadingRollupStore rollupStore;
+
+    @Mock
+    private FillRateForecaster fillRateForecaster;
+
+    @Mock
+    private BinSnapshotService binSnapshotService;
 
     @InjectMocks
     private BinReadingServiceImpl binReadingService;
@@ -54,6 +86,21 @@ class BinReadingServiceAlertEvaluationTest {
         savedReading.setId("reading-001");
     }
 
+    /**
+     * Alerts the rules produce for the reading handed to the evaluation pipeline.
+     */
+    private List<AlertRequestDTO> submittedAlerts() {
+        ArgumentCaptor<BinReading> readingCaptor = ArgumentCaptor.forClass(BinReading.class);
+        verify(alertEvaluationPipeline).submit(readingCaptor.capture());
+        return AlertRules.evaluate(readingCaptor.getValue());
+    }
+
+    private AlertRequestDTO singleSubmittedAlert() {
+        List<AlertRequestDTO> alerts = submittedAlerts();
+        assertEquals(1, alerts.size());
+        return alerts.get(0);
+    }
+
     @Test
     @DisplayName("Should trigger LEVEL_CRITICAL alert when fillPct >= 95")
     void testLevelCriticalAlert() {
@@ -67,10 +114,7 @@ class BinReadingServiceAlertEvaluationTest {
 
         // Assert
         assertNotNull(result);
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.LEVEL_CRITICAL, capturedAlert.getType());
         assertEquals(95.5, capturedAlert.getValue());
         assertEquals("bin-001", capturedAlert.getBinId());
@@ -90,10 +134,7 @@ class BinReadingServiceAlertEvaluationTest {
 
         // Assert
         assertNotNull(result);
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.LEVEL_HIGH, capturedAlert.getType());
         assertEquals(85.0, capturedAlert.getValue());
     }
@@ -111,10 +152,7 @@ class BinReadingServiceAlertEvaluationTest {
 
         // Assert
         assertNotNull(result);
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.BATTERY_LOW, capturedAlert.getType());
         assertEquals(15, capturedAlert.getValue());
     }
@@ -132,10 +170,7 @@ class BinReadingServiceAlertEvaluationTest {
 
         // Assert
         assertNotNull(result);
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.SENSOR_ANOMALY, capturedAlert.getType());
         assertEquals(65.5, capturedAlert.getValue());
     }
@@ -160,7 +195,7 @@ class BinReadingServiceAlertEvaluationTest {
         // Assert
         assertNotNull(result);
         // Should create 3 alerts: LEVEL_CRITICAL + BATTERY_LOW + SENSOR_ANOMALY
-        verify(alertService, times(3)).createAlert(any(AlertRequestDTO.class));
+        assertEquals(3, submittedAlerts().size());
     }
 
     @Test
@@ -182,18 +217,18 @@ class BinReadingServiceAlertEvaluationTest {
 
         // Assert
         assertNotNull(result);
-        verify(alertService, never()).createAlert(any());
+        assertTrue(submittedAlerts().isEmpty());
     }
 
     @Test
-    @DisplayName("Should handle alert creation error gracefully")
-    void testAlertCreationErrorDoesNotFailReading() {
-        // Arrange: Mock alert service to throw exception
+    @DisplayName("Should not fail the reading when the alert queue is full")
+    void testFullAlertQueueDoesNotFailReading() {
+        // Arrange: the pipeline drops the reading
         requestDTO.setFillPct(95.0);
         savedReading.setFillPct(95.0);
         
         when(binReadingRepository.save(any())).thenReturn(savedReading);
-        doThrow(new RuntimeException("Alert service error")).when(alertService).createAlert(any());
+        when(alertEvaluationPipeline.submit(any())).thenReturn(false);
 
         // Act & Assert: Should not throw exception
         assertDoesNotThrow(() -> {
@@ -219,10 +254,7 @@ class BinReadingServiceAlertEvaluationTest {
         BinReadingResponseDTO result = binReadingService.create(requestDTO);
 
         // Assert
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(readingTime, capturedAlert.getTs());
     }
 
@@ -243,10 +275,7 @@ class BinReadingServiceAlertEvaluationTest {
         BinReadingResponseDTO result = binReadingService.create(requestDTO);
 
         // Assert
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(binId, capturedAlert.getBinId());
     }
 
@@ -263,10 +292,7 @@ class BinReadingServiceAlertEvaluationTest {
         BinReadingResponseDTO result = binReadingService.create(requestDTO);
 
         // Assert
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertFalse(capturedAlert.isCleared());
     }
 
@@ -283,10 +309,7 @@ class BinReadingServiceAlertEvaluationTest {
         BinReadingResponseDTO result = binReadingService.create(requestDTO);
 
         // Assert
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.LEVEL_HIGH, capturedAlert.getType());
     }
 
@@ -303,10 +326,149 @@ class BinReadingServiceAlertEvaluationTest {
         BinReadingResponseDTO result = binReadingService.create(requestDTO);
 
         // Assert
-        ArgumentCaptor<AlertRequestDTO> alertCaptor = ArgumentCaptor.forClass(AlertRequestDTO.class);
-        verify(alertService).createAlert(alertCaptor.capture());
-        
-        AlertRequestDTO capturedAlert = alertCaptor.getValue();
+        AlertRequestDTO capturedAlert = singleSubmittedAlert();
         assertEquals(AlertType.BATTERY_LOW, capturedAlert.getType());
     }
+
+    @Test
+    @DisplayName("Batch ingestion queues accepted readings and reports rejected items")
+    void testCreateBatchQueuesAcceptedReadings() {
+        // Arrange
+        BinReadingRequestDTO critical = new BinReadingRequestDTO();
+        critical.setBinId("bin-002");
+        critical.setTs(new Date());
+        critical.setFillPct(97.0);
+        critical.setBatteryPct(10);
+
+        BinReadingRequestDTO missingBin = new BinReadingRequestDTO();
+        missingBin.setFillPct(99.0);
+
+        BinReadingRequestDTO duplicate = new BinReadingRequestDTO();
+        duplicate.setBinId("bin-003");
+        duplicate.setFillPct(99.0);
+        duplicate.setBatteryPct(90);
+
+        // third inserted document (request index 3) fails on the server
+        when(binReadingRepository.insertUnordered(anyList())).thenReturn(Map.of(2, "E11000 duplicate key"));
+        when(alertEvaluationPipeline.submit(any())).thenReturn(true);
+
+        // Act
+        BinReadingBatchResponseDTO result = binReadingService.createBatch(
+                List.of(requestDTO, critical, missingBin, duplicate));
+
+        // Assert
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(1, result.getOverThresholdReadings());
+        assertEquals(BinReadingBatchItemDTO.Status.CREATED, result.getItems().get(0).getStatus());
+        assertNotNull(result.getItems().get(1).getId());
+        assertEquals(BinReadingBatchItemDTO.Status.REJECTED, result.getItems().get(2).getStatus());
+        assertEquals("E11000 duplicate key", result.getItems().get(3).getError());
+
+        verify(alertEvaluationPipeline, times(2)).submit(any());
+        verify(latestReadingStore, times(2)).update(any());
+    }
+
+    @Test
+    @DisplayName("NDJSON stream is flushed in chunks and bad lines are counted as rejected")
+    void testIngestStreamFlushesInChunks() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(binReadingService, "streamChunkSize", 2);
+        String body = String.join("\n",
+                "{\"binId\":\"bin-1\",\"ts\":1700000000000,\"fillPct\":96.0,\"batteryPct\":90}",
+                "{\"binId\":\"bin-2\",\"ts\":\"2024-01-01T10:00:00Z\",\"fillPct\":40.0,\"batteryPct\":90}",
+                "not json",
+                "",
+                "{\"fillPct\":99.0}",
+                "{\"binId\":\"bin-3\",\"fillPct\":10.0,\"batteryPct\":5,\"extra\":{\"a\":1}}");
+        when(binReadingRepository.insertUnordered(anyList())).thenReturn(Map.of());
+        when(alertEvaluationPipeline.submit(any())).thenReturn(true);
+
+        // Act
+        BinReadingStreamResponseDTO result = binReadingService.ingestStream(new StringReader(body));
+
+        // Assert
+        assertEquals(3, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(2, result.getOverThresholdReadings());
+        verify(binReadingRepository, times(2)).insertUnordered(anyList());
+        verify(alertEvaluationPipeline, times(3)).submit(any());
+        verify(latestReadingStore, times(3)).update(any());
+        verify(fillRateForecaster, times(3)).update(any(BinReading.class));
+    }
+
+    @Test
+    @DisplayName("History picks raw readings, hourly or daily rollups from the range")
+    void testHistoryResolutionFollowsRange() {
+        // Arrange
+        ReflectionTestUtils.setField(binReadingService, "historyRawMaxDays", 2);
+        ReflectionTestUtils.setField(binReadingService, "historyHourlyMaxDays", 31);
+        Date to = new Date();
+        long day = 24 * 3600 * 1000L;
+        BinReadingRollup rollup = new BinReadingRollup("bin-001|2024-01-01", "bin-001", to,
+                10, 90, 50, 90, to, 60, 30, 500, 10);
+        when(rollupStore.find(eq(BinReadingHistoryDTO.Resolution.HOURLY), eq("bin-001"), any(), eq(to)))
+                .thenReturn(List.of(rollup));
+        when(rollupStore.find(eq(BinReadingHistoryDTO.Resolution.DAILY), eq("bin-001"), any(), eq(to)))
+                .thenReturn(List.of(rollup));
+        when(binReadingRepository.findByBinIdAndTsBetweenOrderByTsAsc(eq("bin-001"), any(), eq(to)))
+                .thenReturn(List.of(savedReading));
+
+        // Act
+        BinReadingHistoryDTO raw = binReadingService.getHistory("bin-001", new Date(to.getTime() - day), to);
+        BinReadingHistoryDTO hourly = binReadingService.getHistory("bin-001", new Date(to.getTime() - 7 * day), to);
+        BinReadingHistoryDTO daily = binReadingService.getHistory("bin-001", new Date(to.getTime() - 90 * day), to);
+
+        // Assert
+        assertEquals(BinReadingHistoryDTO.Resolution.RAW, raw.getResolution());
+        assertEquals(50.0, raw.getPoints().get(0).getFillPct());
+        assertEquals(BinReadingHistoryDTO.Resolution.HOURLY, hourly.getResolution());
+        assertEquals(BinReadingHistoryDTO.Resolution.DAILY, daily.getResolution());
+        assertEquals(90.0, daily.getPoints().get(0).getMaxFillPct());
+        assertEquals(10, daily.getPoints().get(0).getCount());
+    }
+
+    @Test
+    @DisplayName("History falls back to rollups once raw readings have aged out")
+    void testHistoryUsesRollupsPastRawRetention() {
+        // Arrange
+        ReflectionTestUtils.setField(binReadingService, "historyRawMaxDays", 2);
+        ReflectionTestUtils.setField(binReadingService, "historyHourlyMaxDays", 31);
+        Date to = new Date(System.currentTimeMillis() - 40 * 24 * 3600 * 1000L);
+        Date from = new Date(to.getTime() - 3600 * 1000L);
+        when(rollupStore.rawRetentionCutoff()).thenReturn(new Date(System.currentTimeMillis() - 30 * 24 * 3600 * 1000L));
+        when(rollupStore.find(BinReadingHistoryDTO.Resolution.HOURLY, "bin-001", from, to)).thenReturn(List.of());
+
+        // Act
+        BinReadingHistoryDTO history = binReadingService.getHistory("bin-001", from, to);
+
+        // Assert
+        assertEquals(BinReadingHistoryDTO.Resolution.HOURLY, history.getResolution());
+        verify(binReadingRepository, never()).findByBinIdAndTsBetweenOrderByTsAsc(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Downsampled history streams raw readings through LTTB")
+    void testDownsampledHistoryStreamsRawReadings() {
+        // Arrange
+        Date from = new Date(System.currentTimeMillis() - 3600 * 1000L);
+        Date to = new Date();
+        List<BinReading> readings = new java.util.ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            readings.add(new BinReading("r" + i, "bin-001", new Date(from.getTime() + i * 1000L), i % 7, 90, 20, -70));
+        }
+        when(rollupStore.rawRetentionCutoff()).thenReturn(null);
+        when(binReadingRepository.countByBinIdAndTsBetween("bin-001", from, to)).thenReturn(100L);
+        when(binReadingRepository.streamByBinIdAndTsBetweenOrderByTsAsc("bin-001", from, to)).thenReturn(readings.stream());
+
+        // Act
+        BinReadingHistoryDTO history = binReadingService.getDownsampledHistory("bin-001", from, to, 10);
+
+        // Assert
+        assertEquals(BinReadingHistoryDTO.Resolution.RAW, history.getResolution());
+        assertEquals(10, history.getPoints().size());
+        assertEquals(readings.get(0).getTs(), history.getPoints().get(0).getTs());
+        assertEquals(readings.get(99).getTs(), history.getPoints().get(9).getTs());
+        verify(binReadingRepository, never()).findByBinIdAndTsBetweenOrderByTsAsc(any(), any(), any());
+    }
 }
@@ -0,0 +1,145 @@
+package com.wastemanagement.backend;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.collection.BinReadingTimeSeriesStorage;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BinReadingTimeSeriesStorageTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private MongoDatabase db;
+    @Mock
+    private ListCollectionsIterable<Document> collections;
+    @Mock
+    private MongoCollection<Document> legacy;
+    @Mock
+    private MongoCollection<Document> target;
+    @Mock
+    private MongoCollection<Document> migrations;
+
+    private BinReadingTimeSeriesStorage storage;
+
+    // ids 1..5 in the legacy collection
+    private final List<Document> legacyReadings = new ArrayList<>();
+    private final List<Document> targetReadings = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        storage = new BinReadingTimeSeriesStorage(mongoTemplate);
+        ReflectionTestUtils.setField(storage, "migrationBatchSize", 2);
+        for (int id = 1; id <= 5; id++) {
+            legacyReadings.add(new Document("_id", id).append("binId", "bin-1"));
+        }
+
+        when(mongoTemplate.getCollectionName(BinReading.class)).thenReturn("binReadings");
+        when(mongoTemplate.getDb()).thenReturn(db);
+        when(db.listCollections()).thenReturn(collections);
+        // already renamed and created by the interrupted run
+        ListCollectionsIterable<Document> timeSeries =
+                listing(new Document("name", "binReadings").append("type", "timeseries"));
+        ListCollectionsIterable<Document> regular =
+                listing(new Document("name", "binReadings_legacy").append("type", "collection"));
+        when(collections.filter(new Document("name", "binReadings"))).thenReturn(timeSeries);
+        when(collections.filter(new Document("name", "binReadings_legacy"))).thenReturn(regular);
+        when(mongoTemplate.getCollection("binReadings")).thenReturn(target);
+        when(mongoTemplate.getCollection("binReadings_legacy")).thenReturn(legacy);
+        when(mongoTemplate.getCollection("migrations")).thenReturn(migrations);
+
+        when(legacy.find(any(Bson.class))).thenAnswer(inv -> {
+            Document filter = inv.getArgument(0);
+            Document gt = filter.get("_id", Document.class);
+            int after = gt == null ? 0 : gt.getInteger("$gt");
+            return iterable(legacyReadings.stream().filter(d -> d.getInteger("_id") > after).toList());
+        });
+        lenient().when(target.find(any(Bson.class))).thenAnswer(inv -> {
+            List<?> ids = inv.<Document>getArgument(0).get("_id", Document.class).getList("$in", Object.class);
+            return iterable(targetReadings.stream().filter(d -> ids.contains(d.get("_id"))).toList());
+        });
+        lenient().when(target.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(inv -> {
+            targetReadings.addAll(inv.getArgument(0));
+            return null;
+        });
+    }
+
+    @Test
+    void freshMigration_copiesEveryReadingInBatches() {
+        FindIterable<Document> noProgress = iterable(List.of());
+        when(migrations.find(any(Bson.class))).thenReturn(noProgress);
+
+        assertEquals(5, storage.migrate());
+
+        assertEquals(legacyReadings, targetReadings);
+        verify(target, times(3)).insertMany(anyList(), any(InsertManyOptions.class));
+    }
+
+    @Test
+    void resumedMigration_doesNotDuplicateThePartlyCopiedBatch() {
+        // batch {3, 4} was being copied: 3 made it, its progress update did not
+        targetReadings.addAll(legacyReadings.subList(0, 3));
+        FindIterable<Document> progress = iterable(List.of(new Document("_id", "binReadings-timeseries")
+                .append("lastId", 2).append("copied", 2L)));
+        when(migrations.find(any(Bson.class))).thenReturn(progress);
+
+        assertEquals(5, storage.migrate());
+
+        assertEquals(legacyReadings, targetReadings);
+        ArgumentCaptor<Document> saved = ArgumentCaptor.forClass(Document.class);
+        verify(migrations, times(2)).replaceOne(any(Bson.class), saved.capture(), any(ReplaceOptions.class));
+        assertEquals(5, saved.getValue().get("lastId"));
+    }
+
+    private ListCollectionsIterable<Document> listing(Document info) {
+        @SuppressWarnings("unchecked")
+        ListCollectionsIterable<Document> listing = mock(ListCollectionsIterable.class);
+        when(listing.first()).thenReturn(info);
+        return listing;
+    }
+
+    // sort / limit / projection / into / first over a fixed list
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> iterable(List<Document> documents) {
+        FindIterable<Document> iterable = mock(FindIterable.class);
+        AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE);
+        Function<Integer, List<Document>> limited = n -> documents.subList(0, Math.min(n, documents.size()));
+        lenient().when(iterable.sort(any())).thenReturn(iterable);
+        lenient().when(iterable.projection(any())).thenReturn(iterable);
+        lenient().when(iterable.limit(anyInt())).thenAnswer(inv -> {
+            limit.set(inv.getArgument(0));
+            return iterable;
+        });
+        lenient().when(iterable.into(any())).thenAnswer(inv -> {
+            Collection<Document> into = inv.getArgument(0);
+            into.addAll(limited.apply(limit.get()));
+            return into;
+        });
+        lenient().when(iterable.first()).thenReturn(documents.isEmpty() ? null : documents.get(0));
+        return iterable;
+    }
+}
@@ -0,0 +1,115 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.collection.Bin;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.collection.BinReadingRepository;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotCheckpoint;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotImage;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRuleEngine;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRules;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BinSnapshotCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    private BinSnapshotImage image;
+
+    @BeforeEach
+    void setup() {
+        LatestReadingStore store = mock(LatestReadingStore.class);
+        when(store.get(anyString())).thenAnswer(inv -> {
+            String binId = inv.getArgument(0);
+            return "b2".equals(binId) ? null
+                    : new BinReading(null, binId, new Date(), "b1".equals(binId) ? 97.0 : 20.0, 90, 20, -70);
+        });
+        EmergencyRuleEngine ruleEngine = mock(EmergencyRuleEngine.class);
+        when(ruleEngine.current()).thenReturn(EmergencyRules.defaults());
+        FillRateForecaster forecaster = mock(FillRateForecaster.class);
+        when(forecaster.ratePctPerHour(anyString())).thenReturn(1.5);
+        BinSnapshotService service = new BinSnapshotService(store, mock(CollectionPointRepository.class),
+                mock(BinReadingRepository.class), checkpoint(true, 24), forecaster, ruleEngine, mock(ApplicationEventPublisher.class),
+                new PlanningLeaseService(null, null, false, "node-1", 30000, 10000, 2000));
+
+        CollectionPoint cp = new CollectionPoint();
+        cp.setId("cp-1");
+        cp.setBins(new ArrayList<>(List.of(
+                new Bin("b1", "cp-1", true, TrashType.PLASTIC, null),
+                new Bin("b2", "cp-1", true, TrashType.GLASS, null),
+                new Bin("b3", "cp-1", true, TrashType.ORGANIC, Instant.now().minus(Duration.ofHours(80))))));
+        service.onCollectionPointSaved(cp);
+        image = service.currentImage();
+    }
+
+    private BinSnapshotCheckpoint checkpoint(boolean enabled, long maxAgeHours) {
+        return new BinSnapshotCheckpoint(enabled, dir.resolve("snap/bins.ckpt").toString(), maxAgeHours);
+    }
+
+    @Test
+    void writeThenRead_roundTripsTheImage() throws Exception {
+        BinSnapshotCheckpoint checkpoint = checkpoint(true, 24);
+        long capturedAt = System.currentTimeMillis();
+
+        checkpoint.write(image, capturedAt);
+        Optional<BinSnapshotCheckpoint.Restored> restored = checkpoint.read(capturedAt + 1000, EmergencyRules.defaults());
+
+        assertThat(restored).isPresent();
+        assertThat(restored.get().capturedAt()).isEqualTo(capturedAt);
+        BinSnapshotImage read = restored.get().image();
+        assertThat(read.version()).isEqualTo(image.version());
+        assertThat(read.toSnapshots()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(image.toSnapshots());
+        assertThat(read.emergencies(Instant.now())).extracting(BinSnapshot::getBinId)
+                .containsExactlyInAnyOrder("b1", "b3");
+    }
+
+    @Test
+    void read_rejectsCorruptedFile() throws Exception {
+        BinSnapshotCheckpoint checkpoint = checkpoint(true, 24);
+        checkpoint.write(image, System.currentTimeMillis());
+
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("snap/bins.ckpt").toFile(), "rw")) {
+            file.seek(40);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        assertThat(checkpoint.read(System.currentTimeMillis(), EmergencyRules.defaults())).isEmpty();
+    }
+
+    @Test
+    void read_rejectsStaleOrMissingCheckpoint() throws Exception {
+        BinSnapshotCheckpoint checkpoint = checkpoint(true, 1);
+        assertThat(checkpoint.read(System.currentTimeMillis(), EmergencyRules.defaults())).isEmpty();
+
+        long capturedAt = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+        checkpoint.write(image, capturedAt);
+
+        assertThat(checkpoint.read(System.currentTimeMillis(), EmergencyRules.defaults())).isEmpty();
+    }
+}
@@ -0,0 +1,399 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.collection.Bin;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.auto.BinSnapshot;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyCondition;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.collection.BinReadingRepository;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotCheckpoint;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotImage;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyCrossingEvent;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRuleEngine;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRules;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BinSnapshotServiceTest {
+
+    @Mock
+    private LatestReadingStore latestReadingStore;
+
+    @Mock
+    private CollectionPointRepository collectionPointRepository;
+
+    @Mock
+    private BinReadingRepository binReadingRepository;
+
+    @Mock
+    private BinSnapshotCheckpoint checkpoint;
+
+    @Mock
+    private FillRateForecaster fillRateForecaster;
+
+    @Mock
+    private EmergencyRuleEngine ruleEngine;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // single node: always the leader
+    @Spy
+    private PlanningLeaseService lease = new PlanningLeaseService(null, null, false, "node-1", 30000, 10000, 2000);
+
+    @InjectMocks
+    private BinSnapshotService binSnapshotService;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(ruleEngine.current()).thenReturn(EmergencyRules.defaults());
+        lenient().when(fillRateForecaster.ratePctPerHour(anyString())).thenReturn(Double.NaN);
+    }
+
+    private static CollectionPoint cp(String id, Bin... bins) {
+        CollectionPoint cp = new CollectionPoint();
+        cp.setId(id);
+        cp.setActive(true);
+        cp.setBins(new ArrayList<>(List.of(bins)));
+        return cp;
+    }
+
+    private static Bin bin(String id, TrashType type, Instant lastCollectedAt) {
+        return new Bin(id, null, true, type, lastCollectedAt);
+    }
+
+    private static BinReading reading(String binId, double fillPct) {
+        return new BinReading(null, binId, new Date(), fillPct, 90, 20, -70);
+    }
+
+    @Test
+    void onReading_recomputesOnlyThatBin() {
+        binSnapshotService.onCollectionPointSaved(cp("cp-1",
+                bin("b1", TrashType.PLASTIC, null), bin("b2", TrashType.PLASTIC, null)));
+        assertThat(binSnapshotService.getAllSnapshots()).isEmpty();
+
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 97.0));
+        binSnapshotService.onReading("b1");
+
+        assertThat(binSnapshotService.getEmergencySnapshots())
+                .extracting(BinSnapshot::getBinId, BinSnapshot::getCollectionPointId, BinSnapshot::getEmergencyReason)
+                .containsExactly(tuple("b1", "cp-1", "FILL>95%"));
+        verify(latestReadingStore, never()).get("b3");
+        verifyNoInteractions(collectionPointRepository);
+    }
+
+    @Test
+    void onReading_ignoresUnknownBins() {
+        binSnapshotService.onReading("unknown");
+
+        assertThat(binSnapshotService.getAllSnapshots()).isEmpty();
+        verifyNoInteractions(latestReadingStore);
+    }
+
+    @Test
+    void collectionPointEdits_dropRemovedAndDeactivatedBins() {
+        when(latestReadingStore.get(anyString())).thenAnswer(inv -> reading(inv.getArgument(0), 50.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1",
+                bin("b1", TrashType.GLASS, null), bin("b2", TrashType.GLASS, null)));
+        assertThat(binSnapshotService.getAllSnapshots()).hasSize(2);
+
+        Bin deactivated = bin("b2", TrashType.GLASS, null);
+        deactivated.setActive(false);
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.GLASS, null), deactivated));
+        assertThat(binSnapshotService.getAllSnapshots()).extracting(BinSnapshot::getBinId).containsExactly("b1");
+
+        binSnapshotService.onCollectionPointDeleted("cp-1");
+        assertThat(binSnapshotService.getAllSnapshots()).isEmpty();
+        binSnapshotService.onReading("b1");
+        assertThat(binSnapshotService.getAllSnapshots()).isEmpty();
+    }
+
+    @Test
+    void getEmergencySnapshots_reevaluatesAgeRulesWithoutNewReading() {
+        // 47h50 ago: not yet an emergency, crosses 48h without any new event
+        Instant lastCollected = Instant.now().minus(Duration.ofHours(47)).minus(Duration.ofMinutes(50));
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 50.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.ORGANIC, lastCollected)));
+        assertThat(binSnapshotService.getEmergencySnapshots()).isEmpty();
+
+        Instant older = Instant.now().minus(Duration.ofHours(49));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.ORGANIC, older)));
+
+        assertThat(binSnapshotService.getEmergencySnapshots())
+                .extracting(BinSnapshot::getEmergencyReason)
+                .containsExactly("ORGANIC>40%&>48h");
+    }
+
+    @Test
+    void refreshSnapshots_reconcilesFromRepository() {
+        binSnapshotService.onCollectionPointSaved(cp("stale", bin("old", TrashType.PAPER, null)));
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("cp-2", bin("b9", TrashType.PAPER, null))));
+        when(latestReadingStore.get("b9")).thenReturn(reading("b9", 99.0));
+
+        binSnapshotService.refreshSnapshots();
+
+        assertThat(binSnapshotService.getAllSnapshots()).extracting(BinSnapshot::getBinId).containsExactly("b9");
+        binSnapshotService.onReading("old");
+        assertThat(binSnapshotService.getAllSnapshots()).hasSize(1);
+    }
+
+    @Test
+    void currentImage_isImmutableAndVersioned() {
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 30.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+        BinSnapshotImage first = binSnapshotService.currentImage();
+
+        // no write since: same version, nothing copied
+        assertThat(binSnapshotService.currentImage()).isSameAs(first);
+
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 99.0));
+        binSnapshotService.onReading("b1");
+        BinSnapshotImage second = binSnapshotService.currentImage();
+
+        assertThat(second.version()).isGreaterThan(first.version());
+        assertThat(first.emergencies(Instant.now())).isEmpty();
+        assertThat(first.toSnapshots()).extracting(BinSnapshot::getFillPct).containsExactly(30.0);
+        assertThat(second.emergencies(Instant.now())).extracting(BinSnapshot::getBinId).containsExactly("b1");
+    }
+
+    @Test
+    void writes_arePublishedInBatches_readsDoNotCopy() throws InterruptedException {
+        ReflectionTestUtils.setField(binSnapshotService, "publishDelayMs", 50L);
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 30.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+        BinSnapshotImage first = awaitVersionAfter(0);
+
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 60.0));
+        binSnapshotService.onReading("b1");
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 99.0));
+        binSnapshotService.onReading("b1");
+
+        // not yet published: the read returns the previous image as is
+        assertThat(binSnapshotService.currentImage()).isSameAs(first);
+        BinSnapshotImage second = awaitVersionAfter(first.version());
+        assertThat(second.version()).isEqualTo(first.version() + 1);
+        assertThat(second.toSnapshots()).extracting(BinSnapshot::getFillPct).containsExactly(99.0);
+    }
+
+    private BinSnapshotImage awaitVersionAfter(long version) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            BinSnapshotImage current = binSnapshotService.currentImage();
+            if (current.version() > version) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No version published after " + version);
+    }
+
+    @Test
+    void refreshSnapshots_replaysUpdatesThatRacedWithTheRebuild() {
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 10.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+        when(collectionPointRepository.findAll()).thenAnswer(inv -> {
+            // the CP is deleted while the scan is running, the scan still returns it
+            binSnapshotService.onCollectionPointDeleted("cp-1");
+            return List.of(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+        });
+
+        binSnapshotService.refreshSnapshots();
+
+        assertThat(binSnapshotService.getAllSnapshots()).isEmpty();
+    }
+
+    @Test
+    void warmStart_restoresCheckpointAndReplaysNewerReadings() {
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 20.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+        BinSnapshotImage saved = binSnapshotService.currentImage();
+        long capturedAt = System.currentTimeMillis();
+        when(checkpoint.read(anyLong(), any())).thenReturn(Optional.of(new BinSnapshotCheckpoint.Restored(saved, capturedAt)));
+        when(binReadingRepository.streamByTsGreaterThanEqual(any())).thenReturn(java.util.stream.Stream.of(
+                reading("b1", 60.0), reading("b1", 96.0), reading("unknown", 99.0)));
+
+        binSnapshotService.warmStart();
+
+        assertThat(binSnapshotService.getEmergencySnapshots()).extracting(BinSnapshot::getBinId).containsExactly("b1");
+        assertThat(binSnapshotService.currentImage().version()).isGreaterThan(saved.version());
+        verifyNoInteractions(collectionPointRepository);
+    }
+
+    @Test
+    void warmStart_reconcilesShortlyAfterRestoring() {
+        ReflectionTestUtils.setField(binSnapshotService, "reconcileAfterRestoreMs", 20L);
+        ReflectionTestUtils.setField(binSnapshotService, "catchUpMarginMs", 60_000L);
+        long capturedAt = System.currentTimeMillis();
+        BinSnapshotImage empty = binSnapshotService.currentImage();
+        when(checkpoint.read(anyLong(), any())).thenReturn(Optional.of(new BinSnapshotCheckpoint.Restored(empty, capturedAt)));
+        when(binReadingRepository.streamByTsGreaterThanEqual(any())).thenReturn(java.util.stream.Stream.of());
+        // a CP created while the node was down
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("cp-new", bin("b1", TrashType.PLASTIC, null))));
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 97.0));
+
+        binSnapshotService.warmStart();
+
+        verify(binReadingRepository).streamByTsGreaterThanEqual(new Date(capturedAt - 60_000L));
+        verify(collectionPointRepository, timeout(2000)).findAll();
+        verify(latestReadingStore, timeout(2000)).get("b1");
+    }
+
+    @Test
+    void warmStart_withoutCheckpointRebuildsFromRepository() {
+        when(checkpoint.read(anyLong(), any())).thenReturn(Optional.empty());
+        when(collectionPointRepository.findAll()).thenReturn(List.of());
+
+        binSnapshotService.warmStart();
+
+        verify(collectionPointRepository).findAll();
+        verifyNoInteractions(binReadingRepository);
+    }
+
+    @Test
+    void ruleChange_rescoresAllBinsWithoutNewReadings() {
+        when(latestReadingStore.get(anyString())).thenAnswer(inv -> reading(inv.getArgument(0), 60.0));
+        binSnapshotService.onCollectionPointSaved(cp("cp-1",
+                bin("b1", TrashType.GLASS, null), bin("b2", TrashType.PAPER, null)));
+        assertThat(binSnapshotService.getEmergencySnapshots()).isEmpty();
+
+        EmergencyRules stricter = EmergencyRules.compile(List.of(new EmergencyRule("GLASS>=50%", Set.of(TrashType.GLASS),
+                List.of(new EmergencyCondition(EmergencyCondition.Field.FILL_PCT, EmergencyCondition.Operator.GTE, 50)))));
+        when(ruleEngine.current()).thenReturn(stricter);
+
+        assertThat(binSnapshotService.getEmergencySnapshots())
+                .extracting(BinSnapshot::getBinId, BinSnapshot::getEmergencyReason)
+                .containsExactly(tuple("b1", "GLASS>=50%"));
+    }
+
+    @Test
+    void forecastRule_usesFillRateAtReadingTime() {
+        when(ruleEngine.current()).thenReturn(EmergencyRules.compile(List.of(new EmergencyRule("FULL<6h", Set.of(),
+                List.of(new EmergencyCondition(EmergencyCondition.Field.HOURS_TO_FULL, EmergencyCondition.Operator.LTE, 6))))));
+        when(latestReadingStore.get(anyString())).thenAnswer(inv -> reading(inv.getArgument(0), 60.0));
+        // 40% left: 4h at 10%/h, 20h at 2%/h, unknown without history
+        when(fillRateForecaster.ratePctPerHour("fast")).thenReturn(10.0);
+        when(fillRateForecaster.ratePctPerHour("slow")).thenReturn(2.0);
+
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("fast", TrashType.PLASTIC, null),
+                bin("slow", TrashType.PLASTIC, null), bin("new", TrashType.PLASTIC, null)));
+
+        assertThat(binSnapshotService.getEmergencySnapshots()).extracting(BinSnapshot::getBinId).containsExactly("fast");
+    }
+
+    @Test
+    void onReading_publishesCrossingOnlyWhenTheBinBecomesAnEmergency() {
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.PLASTIC, null)));
+
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 80.0));
+        binSnapshotService.onReading("b1");
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 96.0));
+        binSnapshotService.onReading("b1");
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 98.0));
+        binSnapshotService.onReading("b1");
+
+        verify(eventPublisher, times(1)).publishEvent(new EmergencyCrossingEvent("b1", "FILL>95%"));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    void predictNextEmergency_extrapolatesFillRateAndAge() {
+        Instant now = Instant.now();
+        when(latestReadingStore.get(anyString())).thenAnswer(inv -> reading(inv.getArgument(0), 50.0));
+        // 50% at 5%/h reaches 95% in 9h
+        when(fillRateForecaster.ratePctPerHour("filling")).thenReturn(5.0);
+        // organic above 40%, collected 40h ago: crosses the 48h rule in 8h
+        binSnapshotService.onCollectionPointSaved(cp("cp-1",
+                bin("filling", TrashType.PLASTIC, null),
+                bin("ageing", TrashType.ORGANIC, now.minus(Duration.ofHours(40)))));
+
+        Instant predicted = binSnapshotService.currentImage().predictNextEmergency(now).orElseThrow();
+        assertThat(Duration.between(now, predicted)).isEqualTo(Duration.ofHours(8));
+
+        when(fillRateForecaster.ratePctPerHour("filling")).thenReturn(45.0);
+        binSnapshotService.onReading("filling");
+        predicted = binSnapshotService.currentImage().predictNextEmergency(now).orElseThrow();
+        assertThat(Duration.between(now, predicted)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void predictNextEmergency_emptyWhenNothingCanCross() {
+        when(latestReadingStore.get(anyString())).thenAnswer(inv -> reading(inv.getArgument(0), 50.0));
+        // no rate, never collected, not organic: nothing moves
+        binSnapshotService.onCollectionPointSaved(cp("cp-1", bin("b1", TrashType.GLASS, null)));
+
+        assertThat(binSnapshotService.currentImage().predictNextEmergency(Instant.now())).isEmpty();
+    }
+
+    @Test
+    void follower_reconcilesAfterReloadingTheLatestReadings() {
+        doReturn(false).when(lease).isLeader();
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("cp-1", bin("b1", TrashType.PLASTIC, null))));
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 97.0));
+
+        binSnapshotService.refreshSnapshots();
+
+        verify(latestReadingStore).reseed();
+        assertThat(binSnapshotService.getEmergencySnapshots()).extracting(BinSnapshot::getBinId).containsExactly("b1");
+    }
+
+    @Test
+    void leader_reconcilesWithoutReloadingTheReadings() {
+        when(collectionPointRepository.findAll()).thenReturn(List.of());
+
+        binSnapshotService.refreshSnapshots();
+
+        verify(latestReadingStore, never()).reseed();
+    }
+
+    @Test
+    void syncFromDatabase_rebuildsUnderANewTokenThenReplaysOtherNodesReadings() {
+        doReturn(true).when(lease).isEnabled();
+        doReturn(3L).when(lease).fencingToken();
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("cp-1", bin("b1", TrashType.PLASTIC, null))));
+        when(latestReadingStore.get("b1")).thenReturn(reading("b1", 20.0));
+
+        binSnapshotService.syncFromDatabase();
+
+        verify(latestReadingStore).reseed();
+        verify(collectionPointRepository).findAll();
+        assertThat(binSnapshotService.getEmergencySnapshots()).isEmpty();
+
+        // same token: only the readings another node stored meanwhile
+        BinReading stored = reading("b1", 97.0);
+        when(binReadingRepository.streamByTsGreaterThanEqual(any())).thenReturn(java.util.stream.Stream.of(stored));
+        when(latestReadingStore.get("b1")).thenReturn(stored);
+
+        binSnapshotService.syncFromDatabase();
+
+        verify(latestReadingStore).update(stored);
+        verify(latestReadingStore).reseed();
+        verify(collectionPointRepository).findAll();
+        assertThat(binSnapshotService.getEmergencySnapshots()).extracting(BinSnapshot::getBinId).containsExactly("b1");
+    }
+}
@@ -0,0 +1,57 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.service.tournee.auto.ConsistentHashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static Map<String, String> owners(ConsistentHashRing ring, int keys) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            owners.put("zone:" + i, ring.ownerOf("zone:" + i));
+        }
+        return owners;
+    }
+
+    @Test
+    void sameMembers_sameOwnersWhateverTheOrder() {
+        ConsistentHashRing a = new ConsistentHashRing(List.of("n1", "n2", "n3"), 64);
+        ConsistentHashRing b = new ConsistentHashRing(List.of("n3", "n1", "n2"), 64);
+
+        assertThat(owners(a, 500)).isEqualTo(owners(b, 500));
+    }
+
+    @Test
+    void keysAreSharedFairly() {
+        Map<String, String> owners = owners(new ConsistentHashRing(List.of("n1", "n2", "n3"), 64), 3000);
+
+        for (String node : List.of("n1", "n2", "n3")) {
+            long share = owners.values().stream().filter(node::equals).count();
+            assertThat(share).isBetween(700L, 1300L);
+        }
+    }
+
+    @Test
+    void joiningNode_onlyTakesKeysOver() {
+        Map<String, String> before = owners(new ConsistentHashRing(List.of("n1", "n2", "n3"), 64), 3000);
+        Map<String, String> after = owners(new ConsistentHashRing(List.of("n1", "n2", "n3", "n4"), 64), 3000);
+
+        long moved = before.keySet().stream().filter(k -> !before.get(k).equals(after.get(k))).count();
+        // every moved key went to the new node, about a quarter of them
+        assertThat(before.keySet().stream().filter(k -> !before.get(k).equals(after.get(k))))
+                .allMatch(k -> after.get(k).equals("n4"));
+        assertThat(moved).isBetween(450L, 1100L);
+    }
+
+    @Test
+    void emptyMembership_isRejected() {
+        assertThatThrownBy(() -> new ConsistentHashRing(List.of(), 64)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
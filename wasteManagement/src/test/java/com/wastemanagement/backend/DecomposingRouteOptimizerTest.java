@@ -0,0 +1,248 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.vroom.DecomposingRouteOptimizer;
+import com.wastemanagement.backend.vroom.NativeRouteOptimizer;
+import com.wastemanagement.backend.vroom.RouteOptimizer;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DecomposingRouteOptimizerTest {
+
+    private static final double[] DEPOT = {10.18, 36.85};
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NativeRouteOptimizer nativeOptimizer = new NativeRouteOptimizer(1.0, 36, 300, 2);
+    private final RecordingOptimizer recording = new RecordingOptimizer();
+
+    @AfterEach
+    void tearDown() {
+        nativeOptimizer.shutdown();
+    }
+
+    @Test
+    void smallRequests_areSolvedWhole() {
+        VroomRequest request = request(randomJobs(50, new Random(1)), vehicles(4, 8000));
+
+        decomposing(recording, 100).optimize(request);
+
+        assertThat(recording.requests).containsExactly(request);
+    }
+
+    @Test
+    void largeRequest_isSolvedBySectors_servingEveryJobOnceWithinCapacity() {
+        List<VroomJob> jobs = randomJobs(600, new Random(7));
+        List<VroomVehicle> vehicles = vehicles(40, 8000);
+        DecomposingRouteOptimizer optimizer = decomposing(nativeOptimizer, 100);
+
+        VroomSolution solution = optimizer.optimize(request(jobs, vehicles));
+        optimizer.shutdown();
+
+        assertThat(solution.getCode()).isZero();
+        assertThat(solution.getUnassigned()).isEmpty();
+        List<Integer> served = solution.getRoutes().stream()
+                .flatMap(r -> r.getSteps().stream())
+                .map(VroomStep::getJob)
+                .filter(Objects::nonNull)
+                .toList();
+        assertThat(served).doesNotHaveDuplicates().hasSize(600);
+        assertThat(solution.getRoutes()).extracting(VroomRoute::getVehicle).doesNotHaveDuplicates();
+        for (VroomRoute route : solution.getRoutes()) {
+            int load = route.getSteps().stream()
+                    .filter(s -> s.getJob() != null)
+                    .mapToInt(s -> jobs.get(s.getJob() - 1).getAmount()[0])
+                    .sum();
+            assertThat(load).isLessThanOrEqualTo(8000);
+        }
+        assertThat(solution.getSummary().getDistance())
+                .isEqualTo(solution.getRoutes().stream().mapToLong(VroomRoute::getDistance).sum());
+        assertThat(meterRegistry.get("routing.decompose.sectors").summary().max()).isEqualTo(6);
+    }
+
+    @Test
+    void sectors_getTheirShareOfVehicles_andOnlyTheirMatrixRows() {
+        // depot at row 0, job i at row i, cost between rows a and b: 1000 * a + b
+        List<VroomJob> jobs = randomJobs(400, new Random(3));
+        int[][] durations = new int[401][401];
+        for (int a = 0; a <= 400; a++) {
+            for (int b = 0; b <= 400; b++) {
+                durations[a][b] = 1000 * a + b;
+            }
+        }
+        for (VroomJob job : jobs) {
+            job.setLocationIndex(job.getId());
+        }
+        List<VroomVehicle> vehicles = vehicles(8, 8000);
+        vehicles.forEach(v -> {
+            v.setStartIndex(0);
+            v.setEndIndex(0);
+        });
+        VroomRequest request = request(jobs, vehicles);
+        request.setMatrices(Map.of(MatrixEngine.PROFILE, new VroomMatrix(durations, null)));
+
+        DecomposingRouteOptimizer optimizer = decomposing(recording, 100);
+        optimizer.optimize(request);
+        optimizer.shutdown();
+
+        // 4 sectors of 100 jobs with 2 vehicles each, then the boundary re-solves
+        List<VroomRequest> sectors = recording.requests.subList(0, 4);
+        assertThat(sectors).allSatisfy(sub -> {
+            assertThat(sub.getJobs()).hasSize(100);
+            assertThat(sub.getVehicles()).hasSize(2);
+            int[][] sliced = sub.getMatrices().get(MatrixEngine.PROFILE).getDurations();
+            assertThat(sliced).hasDimensions(101, 101);
+            int depot = sub.getVehicles().get(0).getStartIndex();
+            assertThat(sub.getVehicles()).allSatisfy(v -> assertThat(v.getEndIndex()).isEqualTo(depot));
+            for (VroomJob job : sub.getJobs()) {
+                assertThat(sliced[depot][job.getLocationIndex()]).isEqualTo(job.getId());
+                assertThat(sliced[job.getLocationIndex()][depot]).isEqualTo(1000L * job.getId());
+            }
+        });
+        assertThat(recording.requests).hasSizeGreaterThan(4);
+        assertThat(jobs).allSatisfy(j -> assertThat(j.getLocationIndex()).isEqualTo(j.getId()));
+    }
+
+    @Test
+    void matrices_areAttachedPerSubRequest_andTheWrapBoundaryIsSkipped() {
+        List<VroomJob> jobs = randomJobs(400, new Random(5));
+        List<Integer> attached = new CopyOnWriteArrayList<>();
+        DecomposingRouteOptimizer optimizer = decomposing(recording, 100);
+
+        optimizer.optimize(request(jobs, vehicles(8, 8000)), sub -> {
+            attached.add(sub.getJobs().size());
+            sub.setMatrices(Map.of());
+        });
+        optimizer.shutdown();
+
+        // 4 sectors, then the 3 boundaries between neighbours: not the one across the empty angle
+        assertThat(recording.requests).hasSize(4 + 3)
+                .allSatisfy(sub -> assertThat(sub.getMatrices()).isNotNull());
+        assertThat(attached).hasSize(7).allSatisfy(size -> assertThat(size).isLessThan(400));
+        assertThat(jobs).allSatisfy(j -> assertThat(j.getLocationIndex()).isNull());
+    }
+
+    @Test
+    void failedSector_reportsItsJobsUnassigned_andKeepsTheOthers() {
+        DecomposingRouteOptimizer optimizer = new DecomposingRouteOptimizer(failingOnce(1), meterRegistry, 200, 100, 0, 4);
+
+        VroomSolution solution = optimizer.optimize(request(randomJobs(400, new Random(5)), vehicles(8, 8000)));
+        optimizer.shutdown();
+
+        assertThat(solution.getRoutes()).hasSize(3);
+        assertThat(solution.getUnassigned()).hasSize(100)
+                .anySatisfy(job -> assertThat(job).isInstanceOf(Map.class).extracting("id").isEqualTo(1));
+    }
+
+    @Test
+    void failedSector_isRetriedByTheBoundaryPass() {
+        DecomposingRouteOptimizer optimizer = decomposing(failingOnce(1), 100);
+
+        VroomSolution solution = optimizer.optimize(request(randomJobs(400, new Random(5)), vehicles(8, 8000)));
+        optimizer.shutdown();
+
+        assertThat(solution.getUnassigned()).isEmpty();
+        assertThat(solution.getRoutes().stream().flatMap(r -> r.getSteps().stream()).map(VroomStep::getJob))
+                .doesNotHaveDuplicates().hasSize(400);
+    }
+
+    // fails the first request holding the job, solves the others like the recording optimizer
+    private static RouteOptimizer failingOnce(int jobId) {
+        AtomicBoolean failed = new AtomicBoolean();
+        return new RecordingOptimizer() {
+            @Override
+            public VroomSolution optimize(VroomRequest request) {
+                if (request.getJobs().stream().anyMatch(j -> j.getId() == jobId) && failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("VROOM down");
+                }
+                return super.optimize(request);
+            }
+        };
+    }
+
+    private DecomposingRouteOptimizer decomposing(RouteOptimizer delegate, int sectorJobs) {
+        return new DecomposingRouteOptimizer(delegate, meterRegistry, 200, sectorJobs, 2, 4);
+    }
+
+    private static List<VroomJob> randomJobs(int count, Random random) {
+        List<VroomJob> jobs = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            VroomJob job = new VroomJob();
+            job.setId(i);
+            job.setAmount(new int[]{100});
+            job.setService(60);
+            job.setLocation(new double[]{
+                    DEPOT[0] + (random.nextDouble() - 0.5) * 0.2, DEPOT[1] + (random.nextDouble() - 0.5) * 0.2});
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private static List<VroomVehicle> vehicles(int count, int capacity) {
+        List<VroomVehicle> vehicles = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            VroomVehicle vehicle = new VroomVehicle();
+            vehicle.setId(i);
+            vehicle.setStart(DEPOT);
+            vehicle.setEnd(DEPOT);
+            vehicle.setCapacity(new int[]{capacity});
+            vehicles.add(vehicle);
+        }
+        return vehicles;
+    }
+
+    private static VroomRequest request(List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        VroomRequest request = new VroomRequest();
+        request.setJobs(jobs);
+        request.setVehicles(vehicles);
+        return request;
+    }
+
+    // puts every job on the first vehicle, in the order given, and remembers what it was asked
+    private static class RecordingOptimizer implements RouteOptimizer {
+
+        private final List<VroomRequest> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public VroomSolution optimize(VroomRequest request) {
+            requests.add(request);
+            List<VroomStep> steps = new ArrayList<>();
+            for (VroomJob job : request.getJobs()) {
+                VroomStep step = new VroomStep();
+                step.setType("job");
+                step.setJob(job.getId());
+                steps.add(step);
+            }
+            VroomRoute route = new VroomRoute();
+            route.setVehicle(request.getVehicles().get(0).getId());
+            route.setCost(steps.size());
+            route.setSteps(steps);
+            VroomSolution solution = new VroomSolution();
+            solution.setRoutes(List.of(route));
+            solution.setUnassigned(List.of());
+            return solution;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import com.wastemanagement.backend.model.vehicle.VehicleStatus;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.VehicleRepository;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyClusterer;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyClusterer.EmergencyBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmergencyClustererTest {
+
+    @Mock
+    private CollectionPointRepository collectionPointRepository;
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private EmergencyClusterer clusterer;
+
+    @BeforeEach
+    void setUp() {
+        // 1 km cells, at most 3 CPs per batch
+        clusterer = new EmergencyClusterer(collectionPointRepository, vehicleRepository, 1.0, 3);
+    }
+
+    @Test
+    void farApartCps_areSplitAndGetTheirNearestVehicles() {
+        // two neighbourhoods ~10 km apart (lat 36.80 vs 36.89)
+        when(collectionPointRepository.findAllById(anyIterable())).thenReturn(List.of(
+                cp("n1", 10.18, 36.890), cp("n2", 10.181, 36.891),
+                cp("s1", 10.18, 36.800), cp("s2", 10.182, 36.801)));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v-north", 10.18, 36.88), vehicle("v-south", 10.18, 36.81)));
+
+        List<EmergencyBatch> batches = clusterer.cluster(Map.of(
+                TrashType.PLASTIC, Set.of("n1", "n2", "s1", "s2")));
+
+        assertThat(batches).hasSize(2);
+        EmergencyBatch north = batches.stream().filter(b -> b.collectionPointIds().contains("n1")).findFirst().orElseThrow();
+        EmergencyBatch south = batches.stream().filter(b -> b.collectionPointIds().contains("s1")).findFirst().orElseThrow();
+        assertThat(north.collectionPointIds()).containsExactlyInAnyOrder("n1", "n2");
+        assertThat(north.vehicleIds()).containsExactly("v-north");
+        assertThat(south.collectionPointIds()).containsExactlyInAnyOrder("s1", "s2");
+        assertThat(south.vehicleIds()).containsExactly("v-south");
+    }
+
+    @Test
+    void singleCompactCluster_keepsTheSharedPool() {
+        when(collectionPointRepository.findAllById(anyIterable())).thenReturn(List.of(
+                cp("a", 10.18, 36.890), cp("b", 10.181, 36.890)));
+
+        List<EmergencyBatch> batches = clusterer.cluster(Map.of(TrashType.GLASS, Set.of("a", "b")));
+
+        assertThat(batches).containsExactly(new EmergencyBatch(TrashType.GLASS, Set.of("a", "b"), null));
+        verifyNoInteractions(vehicleRepository);
+    }
+
+    @Test
+    void oversizedCluster_isCutIntoBoundedContiguousBatches() {
+        // a street of 7 CPs ~100 m apart: one grid cluster, max 3 per batch
+        List<CollectionPoint> street = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            street.add(cp("c" + i, 10.18 + i * 0.001, 36.85));
+        }
+        when(collectionPointRepository.findAllById(anyIterable())).thenReturn(street);
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v-1", 10.18, 36.85), vehicle("v-2", 10.18, 36.85), vehicle("v-3", 10.18, 36.85)));
+
+        List<EmergencyBatch> batches = clusterer.cluster(Map.of(TrashType.PAPER,
+                Set.of("c0", "c1", "c2", "c3", "c4", "c5", "c6")));
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches).allSatisfy(b -> {
+            assertThat(b.collectionPointIds().size()).isBetween(2, 3);
+            assertThat(b.vehicleIds()).hasSize(1);
+        });
+        // slices are contiguous along the street
+        List<EmergencyBatch> sorted = batches.stream()
+                .sorted(Comparator.comparing(b -> b.collectionPointIds().stream().sorted().findFirst().orElseThrow()))
+                .toList();
+        assertThat(sorted.get(0).collectionPointIds()).containsExactlyInAnyOrder("c0", "c1");
+        assertThat(sorted.get(1).collectionPointIds()).containsExactlyInAnyOrder("c2", "c3");
+        assertThat(sorted.get(2).collectionPointIds()).containsExactlyInAnyOrder("c4", "c5", "c6");
+    }
+
+    @Test
+    void cpsWithoutLocation_andBatchesBeyondTheFleet_shareThePool() {
+        CollectionPoint noLocation = new CollectionPoint();
+        noLocation.setId("x");
+        when(collectionPointRepository.findAllById(anyIterable())).thenReturn(List.of(
+                cp("n1", 10.18, 36.89), cp("s1", 10.18, 36.80), noLocation));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v-1", 10.18, 36.89)));
+
+        List<EmergencyBatch> batches = clusterer.cluster(Map.of(TrashType.ORGANIC, Set.of("n1", "s1", "x")));
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches.stream().filter(b -> b.vehicleIds() != null).toList())
+                .singleElement()
+                .satisfies(b -> assertThat(b.vehicleIds()).containsExactly("v-1"));
+        assertThat(batches).anySatisfy(b -> {
+            assertThat(b.collectionPointIds()).containsExactly("x");
+            assertThat(b.vehicleIds()).isNull();
+        });
+    }
+
+    @Test
+    void reservedVehicles_followDemandAgainstCapacity_notCpCount() {
+        // north: one overflowing CP; south: three nearly empty ones
+        when(collectionPointRepository.findAllById(anyIterable())).thenReturn(List.of(
+                cp("n1", 10.18, 36.890),
+                cp("s1", 10.18, 36.800), cp("s2", 10.181, 36.800), cp("s3", 10.182, 36.800)));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v-1", 10.18, 36.85), vehicle("v-2", 10.18, 36.85),
+                vehicle("v-3", 10.18, 36.85), vehicle("v-4", 10.18, 36.85)));
+
+        List<EmergencyBatch> batches = new EmergencyClusterer(collectionPointRepository, vehicleRepository, 1.0, 5)
+                .cluster(Map.of(TrashType.PLASTIC, Set.of("n1", "s1", "s2", "s3")),
+                        Map.of(TrashType.PLASTIC, Map.of("n1", 9000.0, "s1", 100.0, "s2", 100.0, "s3", 100.0)));
+
+        EmergencyBatch north = batches.stream().filter(b -> b.collectionPointIds().contains("n1")).findFirst().orElseThrow();
+        EmergencyBatch south = batches.stream().filter(b -> b.collectionPointIds().contains("s1")).findFirst().orElseThrow();
+        assertThat(north.vehicleIds()).hasSize(3);
+        assertThat(south.vehicleIds()).hasSize(1).doesNotContainAnyElementsOf(north.vehicleIds());
+    }
+
+    @Test
+    void shareFleet_givesSharedBatchesDisjointShares_largestDemandFirst() {
+        EmergencyBatch small = new EmergencyBatch(TrashType.GLASS, Set.of("g"), null);
+        EmergencyBatch large = new EmergencyBatch(TrashType.PLASTIC, Set.of("p1", "p2"), null);
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v-1", 10.18, 36.85), vehicle("v-2", 10.18, 36.85), vehicle("v-3", 10.18, 36.85)));
+
+        List<EmergencyBatch> batches = clusterer.shareFleet(List.of(small, large), Map.of(small, 300.0, large, 9000.0));
+
+        assertThat(batches).extracting(EmergencyBatch::type).containsExactly(TrashType.PLASTIC, TrashType.GLASS);
+        assertThat(batches.get(0).vehicleIds()).hasSize(2);
+        assertThat(batches.get(1).vehicleIds()).hasSize(1).doesNotContainAnyElementsOf(batches.get(0).vehicleIds());
+    }
+
+    @Test
+    void shareFleet_singleBatchKeepsThePool() {
+        EmergencyBatch only = new EmergencyBatch(TrashType.GLASS, Set.of("g"), null);
+
+        assertThat(clusterer.shareFleet(List.of(only), Map.of(only, 300.0))).containsExactly(only);
+        verifyNoInteractions(vehicleRepository);
+    }
+
+    private static CollectionPoint cp(String id, double lon, double lat) {
+        CollectionPoint cp = new CollectionPoint();
+        cp.setId(id);
+        cp.setLocation(new GeoJSONPoint(lon, lat));
+        return cp;
+    }
+
+    private static Vehicle vehicle(String id, double lon, double lat) {
+        Vehicle v = new Vehicle();
+        v.setId(id);
+        v.setCapacityVolumeL(5000);
+        v.setStatus(VehicleStatus.AVAILABLE);
+        v.setCurrentLocation(new GeoJSONPoint(lon, lat));
+        return v;
+    }
+}
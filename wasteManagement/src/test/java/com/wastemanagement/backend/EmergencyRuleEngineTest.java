@@ -0,0 +1,93 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.tournee.auto.AutoPlanningConfig;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyCondition;
+import com.wastemanagement.backend.model.tournee.auto.EmergencyRule;
+import com.wastemanagement.backend.service.tournee.auto.AutoPlanningConfigService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRuleEngine;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyRules;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmergencyRuleEngineTest {
+
+    @Mock
+    private AutoPlanningConfigService autoPlanningConfigService;
+
+    @InjectMocks
+    private EmergencyRuleEngine emergencyRuleEngine;
+
+    private static EmergencyRule paperRule() {
+        return new EmergencyRule("PAPER>=90%", Set.of(TrashType.PAPER), List.of(
+                new EmergencyCondition(EmergencyCondition.Field.FILL_PCT, EmergencyCondition.Operator.GTE, 90)));
+    }
+
+    @Test
+    void defaultsApplyWhenConfigHasNoRules() {
+        when(autoPlanningConfigService.getOrCreate()).thenReturn(new AutoPlanningConfig());
+
+        emergencyRuleEngine.reload();
+
+        assertThat(emergencyRuleEngine.current()).isSameAs(EmergencyRules.defaults());
+        assertThat(emergencyRuleEngine.getRules()).extracting(EmergencyRule::getReason)
+                .containsExactly("FILL>95%", "ORGANIC>40%&>48h", "ORGANIC>72h");
+    }
+
+    @Test
+    void reload_compilesOnlyWhenConfigChanged() {
+        AutoPlanningConfig config = new AutoPlanningConfig();
+        config.setEmergencyRules(List.of(paperRule()));
+        when(autoPlanningConfigService.getOrCreate()).thenReturn(config);
+
+        emergencyRuleEngine.reload();
+        EmergencyRules compiled = emergencyRuleEngine.current();
+        emergencyRuleEngine.reload();
+
+        assertThat(compiled).isNotSameAs(EmergencyRules.defaults());
+        assertThat(emergencyRuleEngine.current()).isSameAs(compiled);
+        assertThat(emergencyRuleEngine.getRules()).containsExactly(paperRule());
+    }
+
+    @Test
+    void reload_keepsCurrentRulesWhenConfigIsInvalid() {
+        AutoPlanningConfig config = new AutoPlanningConfig();
+        config.setEmergencyRules(List.of(new EmergencyRule("NO-CONDITION", Set.of(), List.of())));
+        when(autoPlanningConfigService.getOrCreate()).thenReturn(config);
+
+        emergencyRuleEngine.reload();
+
+        assertThat(emergencyRuleEngine.current()).isSameAs(EmergencyRules.defaults());
+    }
+
+    @Test
+    void updateRules_rejectsInvalidRulesWithoutSaving() {
+        EmergencyRule incomplete = new EmergencyRule("BAD", Set.of(), List.of(
+                new EmergencyCondition(null, EmergencyCondition.Operator.GT, 1)));
+
+        assertThatThrownBy(() -> emergencyRuleEngine.updateRules(List.of(incomplete)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(autoPlanningConfigService, never()).updateEmergencyRules(any());
+    }
+
+    @Test
+    void updateRules_savesAndSwapsCompiledRules() {
+        List<EmergencyRule> rules = emergencyRuleEngine.updateRules(List.of(paperRule()));
+
+        verify(autoPlanningConfigService).updateEmergencyRules(List.of(paperRule()));
+        assertThat(rules).containsExactly(paperRule());
+        assertThat(emergencyRuleEngine.current()).isNotSameAs(EmergencyRules.defaults());
+    }
+}
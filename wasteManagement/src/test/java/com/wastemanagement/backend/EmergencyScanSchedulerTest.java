@@ -0,0 +1,140 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.tournee.auto.AutoMode;
+import com.wastemanagement.backend.model.tournee.auto.AutoPlanningConfig;
+import com.wastemanagement.backend.service.tournee.auto.AutoPlanningConfigService;
+import com.wastemanagement.backend.service.tournee.auto.AutoPlanningService;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotImage;
+import com.wastemanagement.backend.service.tournee.auto.BinSnapshotService;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyCrossingEvent;
+import com.wastemanagement.backend.service.tournee.auto.EmergencyScanScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmergencyScanSchedulerTest {
+
+    @Mock
+    private AutoPlanningService autoPlanningService;
+
+    @Mock
+    private BinSnapshotService binSnapshotService;
+
+    @Mock
+    private AutoPlanningConfigService autoPlanningConfigService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private ScheduledFuture<Object> future;
+
+    @Mock
+    private BinSnapshotImage image;
+
+    private EmergencyScanScheduler scheduler;
+    private AutoPlanningConfig config;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new EmergencyScanScheduler(autoPlanningService, binSnapshotService,
+                autoPlanningConfigService, taskScheduler, 5000);
+        config = new AutoPlanningConfig();
+        config.setAutoMode(AutoMode.EMERGENCIES_ONLY);
+        config.setEmergencyScanMinSeconds(60);
+        config.setEmergencyScanMinute(15);
+        lenient().when(autoPlanningConfigService.getOrCreate()).thenReturn(config);
+        lenient().when(binSnapshotService.currentImage()).thenReturn(image);
+        lenient().doReturn(future).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        lenient().when(autoPlanningService.submitEmergencyLoop()).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    // runs the scan scheduled by start() and returns the delay chosen for the next one
+    private Duration scanAndGetNextDelay() {
+        scheduler.start();
+        ArgumentCaptor<Runnable> scan = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(scan.capture(), any(Instant.class));
+        Instant before = Instant.now();
+        scan.getValue().run();
+        verify(autoPlanningService).submitEmergencyLoop();
+        return Duration.between(before, scheduler.getNextScanAt());
+    }
+
+    @Test
+    void nextScan_isAtThePredictedCrossing() {
+        when(image.predictNextEmergency(any())).thenAnswer(inv ->
+                Optional.of(inv.<Instant>getArgument(0).plus(Duration.ofMinutes(4))));
+
+        assertThat(scanAndGetNextDelay().toMillis()).isCloseTo(Duration.ofMinutes(4).toMillis(), within(1000L));
+    }
+
+    @Test
+    void nextScan_isClampedToTheConfiguredBounds() {
+        when(image.predictNextEmergency(any())).thenAnswer(inv ->
+                Optional.of(inv.<Instant>getArgument(0).plusSeconds(5)));
+
+        assertThat(scanAndGetNextDelay().toMillis()).isCloseTo(60_000L, within(1000L));
+    }
+
+    @Test
+    void quietNight_scansAtTheMaximumInterval() {
+        when(image.predictNextEmergency(any())).thenReturn(Optional.empty());
+
+        assertThat(scanAndGetNextDelay().toMillis()).isCloseTo(Duration.ofMinutes(15).toMillis(), within(1000L));
+    }
+
+    @Test
+    void offMode_skipsThePrediction() {
+        config.setAutoMode(AutoMode.OFF);
+
+        assertThat(scanAndGetNextDelay().toMillis()).isCloseTo(Duration.ofMinutes(15).toMillis(), within(1000L));
+        verifyNoInteractions(binSnapshotService);
+    }
+
+    @Test
+    void crossings_bringTheScanForwardOnce() {
+        when(image.predictNextEmergency(any())).thenReturn(Optional.empty());
+        scanAndGetNextDelay();
+
+        scheduler.onEmergencyCrossing(new EmergencyCrossingEvent("b1", "FILL>95%"));
+        scheduler.onEmergencyCrossing(new EmergencyCrossingEvent("b2", "FILL>95%"));
+
+        // start, the 15 min scan, then a single debounced one replacing it
+        verify(taskScheduler, times(3)).schedule(any(Runnable.class), any(Instant.class));
+        verify(future).cancel(false);
+        assertThat(Duration.between(Instant.now(), scheduler.getNextScanAt()).toMillis())
+                .isCloseTo(5000L, within(1000L));
+    }
+
+    @Test
+    void nextScan_waitsForTheRunToFinish() {
+        CompletableFuture<Void> run = new CompletableFuture<>();
+        when(autoPlanningService.submitEmergencyLoop()).thenReturn(run);
+        when(image.predictNextEmergency(any())).thenReturn(Optional.empty());
+        scheduler.start();
+        ArgumentCaptor<Runnable> scan = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(scan.capture(), any(Instant.class));
+
+        scan.getValue().run();
+        assertThat(scheduler.getNextScanAt()).isNull();
+
+        run.complete(null);
+        assertThat(scheduler.getNextScanAt()).isNotNull();
+    }
+}
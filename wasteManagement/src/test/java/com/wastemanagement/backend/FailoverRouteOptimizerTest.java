@@ -0,0 +1,113 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.vroom.FailoverRouteOptimizer;
+import com.wastemanagement.backend.vroom.FailoverRouteOptimizer.Mode;
+import com.wastemanagement.backend.vroom.NativeRouteOptimizer;
+import com.wastemanagement.backend.vroom.SolutionCache;
+import com.wastemanagement.backend.vroom.VroomClient;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FailoverRouteOptimizerTest {
+
+    @Mock
+    private VroomClient vroom;
+
+    @Mock
+    private NativeRouteOptimizer nativeOptimizer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SolutionCache solutionCache = new SolutionCache(meterRegistry, true, 16, 60_000);
+    private final VroomSolution fromVroom = new VroomSolution();
+    private final VroomSolution fromNative = new VroomSolution();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(vroom.name()).thenReturn("vroom");
+        lenient().when(nativeOptimizer.name()).thenReturn("native");
+    }
+
+    private FailoverRouteOptimizer optimizer(Mode mode, int nativeMaxJobs) {
+        return new FailoverRouteOptimizer(vroom, nativeOptimizer, solutionCache, meterRegistry, mode, nativeMaxJobs, 100);
+    }
+
+    @Test
+    void vroomDown_fallsBackToTheNativeSolver() {
+        VroomRequest request = request(20);
+        when(vroom.optimize(request)).thenThrow(new ResourceAccessException("Connection refused"));
+        when(nativeOptimizer.optimize(request)).thenReturn(fromNative);
+
+        assertThat(optimizer(Mode.AUTO, 0).optimize(request)).isSameAs(fromNative);
+        assertThat(meterRegistry.get("routing.optimizer.failovers").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("routing.optimizer.solve")
+                .tags("engine", "vroom", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void smallInstances_neverReachVroom() {
+        VroomRequest request = request(5);
+        when(nativeOptimizer.optimize(request)).thenReturn(fromNative);
+
+        assertThat(optimizer(Mode.AUTO, 10).optimize(request)).isSameAs(fromNative);
+        verifyNoInteractions(vroom);
+    }
+
+    @Test
+    void healthyVroom_isUsedForLargerInstances() {
+        VroomRequest request = request(20);
+        when(vroom.optimize(request)).thenReturn(fromVroom);
+
+        assertThat(optimizer(Mode.AUTO, 10).optimize(request)).isSameAs(fromVroom);
+        verify(nativeOptimizer, never()).optimize(any());
+    }
+
+    @Test
+    void vroomMode_andOversizedRequests_keepTheFailure() {
+        VroomRequest small = request(20);
+        VroomRequest large = request(200);
+        when(vroom.optimize(any())).thenThrow(new IllegalStateException("VROOM error: timeout"));
+
+        assertThatThrownBy(() -> optimizer(Mode.VROOM, 0).optimize(small)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> optimizer(Mode.AUTO, 0).optimize(large)).isInstanceOf(IllegalStateException.class);
+        verify(nativeOptimizer, never()).optimize(any());
+    }
+
+    @Test
+    void vroomSolutions_areCached_nativeOnesAreNot() {
+        VroomRequest request = request(20);
+        when(vroom.optimize(request)).thenThrow(new IllegalStateException("VROOM circuit open, call refused"))
+                .thenReturn(fromVroom);
+        when(nativeOptimizer.optimize(request)).thenReturn(fromNative);
+        FailoverRouteOptimizer optimizer = optimizer(Mode.AUTO, 0);
+
+        assertThat(optimizer.optimize(request)).isSameAs(fromNative);
+        assertThat(optimizer.optimize(request)).isSameAs(fromVroom);
+        optimizer.optimize(request);
+
+        verify(vroom, times(2)).optimize(request);
+        assertThat(meterRegistry.get("routing.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    private static VroomRequest request(int jobs) {
+        VroomRequest request = new VroomRequest();
+        request.setJobs(Collections.nCopies(jobs, new VroomJob()));
+        request.setVehicles(List.of());
+        return request;
+    }
+}
@@ -0,0 +1,123 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryDTO;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.BinReadingRollup;
+import com.wastemanagement.backend.service.collection.BinReadingRollupStore;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Fill rate forecaster")
+class FillRateForecasterTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Mock
+    private BinReadingRollupStore rollupStore;
+
+    private FillRateForecaster forecaster;
+
+    @BeforeEach
+    void setup() {
+        // 24h half-life, 25% drop = emptying, no seeding
+        forecaster = new FillRateForecaster(rollupStore, 24, 25, 0);
+    }
+
+    private void reading(String binId, long ts, double fillPct) {
+        forecaster.update(new BinReading(null, binId, new Date(ts), fillPct, 90, 20.0, -70));
+    }
+
+    @Test
+    @DisplayName("Learns a steady fill rate and extrapolates it")
+    void testSteadyRate() {
+        for (int h = 0; h <= 10; h++) {
+            reading("bin-1", T0 + h * HOUR, 10 + 2.0 * h);
+        }
+
+        assertEquals(2.0, forecaster.ratePctPerHour("bin-1"), 1e-6);
+        assertEquals(50.0, forecaster.predictFillPct("bin-1", T0 + 20 * HOUR), 1e-6);
+        // 30% now, 80% in 25h
+        assertEquals(25.0, forecaster.hoursToThreshold("bin-1", 80, T0 + 10 * HOUR), 1e-6);
+        assertEquals(100.0, forecaster.predictFillPct("bin-1", T0 + 1000 * HOUR));
+    }
+
+    @Test
+    @DisplayName("Emptying restarts the cycle and keeps the previous rate as fallback")
+    void testEmptyingResetsCycle() {
+        for (int h = 0; h <= 5; h++) {
+            reading("bin-1", T0 + h * HOUR, 60 + 5.0 * h);
+        }
+        reading("bin-1", T0 + 6 * HOUR, 3);
+
+        // one point in the new cycle: previous rate is used
+        assertEquals(5.0, forecaster.ratePctPerHour("bin-1"), 1e-6);
+        assertEquals(13.0, forecaster.predictFillPct("bin-1", T0 + 8 * HOUR), 1e-6);
+
+        reading("bin-1", T0 + 7 * HOUR, 4);
+        reading("bin-1", T0 + 8 * HOUR, 5);
+        assertEquals(1.0, forecaster.ratePctPerHour("bin-1"), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Unknown bins and idle bins have no threshold crossing")
+    void testUnknownAndIdleBins() {
+        assertTrue(Double.isNaN(forecaster.predictFillPct("missing", T0)));
+        assertNull(forecaster.forecast("missing", 80));
+
+        reading("bin-2", T0, 30);
+        reading("bin-2", T0 + HOUR, 30);
+        assertEquals(Double.POSITIVE_INFINITY, forecaster.hoursToThreshold("bin-2", 80, T0 + HOUR));
+        assertNull(forecaster.forecast("bin-2", 80).getHoursToThreshold());
+    }
+
+    @Test
+    @DisplayName("Keeps working past the initial array capacity")
+    void testGrowsBeyondInitialCapacity() {
+        for (int i = 0; i < 3000; i++) {
+            reading("bin-" + i, T0, i % 100);
+            reading("bin-" + i, T0 + HOUR, i % 100 + 1);
+        }
+
+        assertEquals(3000, forecaster.size());
+        assertEquals(1.0, forecaster.ratePctPerHour("bin-2999"), 1e-6);
+        assertTrue(Double.isNaN(new FillRateForecaster(rollupStore, 24, 25, 0).ratePctPerHour("bin-1")));
+    }
+
+    @Test
+    @DisplayName("Live readings ingested before the seed do not shut out the seeded history")
+    void testReadingsBeforeSeedAreAppliedAfterIt() {
+        List<BinReadingRollup> buckets = new ArrayList<>();
+        for (int h = 0; h < 5; h++) {
+            BinReadingRollup bucket = new BinReadingRollup();
+            bucket.setBinId("bin-1");
+            bucket.setLastTs(new Date(T0 + h * HOUR));
+            bucket.setLastFillPct(10 + 2.0 * h);
+            buckets.add(bucket);
+        }
+        when(rollupStore.findSince(eq(BinReadingHistoryDTO.Resolution.HOURLY), any(Date.class))).thenReturn(buckets);
+        forecaster = new FillRateForecaster(rollupStore, 24, 25, 72);
+
+        reading("bin-1", T0 + 5 * HOUR, 20);
+        assertEquals(0, forecaster.size());
+        forecaster.seed();
+
+        assertEquals(2.0, forecaster.ratePctPerHour("bin-1"), 1e-6);
+        assertEquals(20.0, forecaster.predictFillPct("bin-1", T0 + 5 * HOUR), 1e-6);
+    }
+}
@@ -0,0 +1,62 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import com.wastemanagement.backend.service.tournee.FleetSplitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetSplitterTest {
+
+    @Test
+    void fleetIsSharedInProportionToDemand() {
+        Map<String, Double> demand = new LinkedHashMap<>();
+        demand.put("PLASTIC", 6000.0);
+        demand.put("GLASS", 2000.0);
+        List<Vehicle> fleet = List.of(vehicle("v1", 1000), vehicle("v2", 1000), vehicle("v3", 1000),
+                vehicle("v4", 1000), vehicle("v5", 1000), vehicle("v6", 1000), vehicle("v7", 1000), vehicle("v8", 1000));
+
+        Map<String, List<Vehicle>> split = FleetSplitter.split(demand, fleet);
+
+        assertThat(split.get("PLASTIC")).hasSize(6);
+        assertThat(split.get("GLASS")).hasSize(2);
+    }
+
+    @Test
+    void scarceVehicles_followThePriorityOrder_largestFirst() {
+        Map<String, Double> demand = new LinkedHashMap<>();
+        demand.put("ORGANIC", 500.0);
+        demand.put("PAPER", 9000.0);
+        demand.put("GLASS", 100.0);
+
+        Map<String, List<Vehicle>> split = FleetSplitter.split(demand,
+                List.of(vehicle("small", 500), vehicle("big", 5000)));
+
+        assertThat(split.get("ORGANIC")).extracting(Vehicle::getId).containsExactly("big");
+        assertThat(split.get("PAPER")).extracting(Vehicle::getId).containsExactly("small");
+        assertThat(split.get("GLASS")).isEmpty();
+    }
+
+    @Test
+    void keysWithoutDemand_getNothing() {
+        Map<String, Double> demand = new LinkedHashMap<>();
+        demand.put("PLASTIC", 0.0);
+        demand.put("GLASS", 300.0);
+
+        Map<String, List<Vehicle>> split = FleetSplitter.split(demand, List.of(vehicle("v1", 1000), vehicle("v2", 1000)));
+
+        assertThat(split).containsOnlyKeys("GLASS");
+        assertThat(split.get("GLASS")).hasSize(2);
+    }
+
+    private static Vehicle vehicle(String id, double capacityL) {
+        Vehicle v = new Vehicle();
+        v.setId(id);
+        v.setCapacityVolumeL(capacityL);
+        return v;
+    }
+}
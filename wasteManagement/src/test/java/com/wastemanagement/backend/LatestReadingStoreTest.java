@@ -0,0 +1,92 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.repository.collection.BinReadingRepository;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LatestReadingStoreTest {
+
+    @Mock
+    private BinReadingRepository binReadingRepository;
+
+    @InjectMocks
+    private LatestReadingStore store;
+
+    private static BinReading reading(String id, String binId, long ts) {
+        return new BinReading(id, binId, new Date(ts), 50, 90, 20.0, -70);
+    }
+
+    @Test
+    void seed_runsOnce() {
+        BinReading seeded = reading("r1", "bin-1", 1_000);
+        when(binReadingRepository.findLatestPerBin()).thenReturn(List.of(seeded));
+
+        store.seed();
+        store.seed();
+        assertSame(seeded, store.get("bin-1"));
+        store.getAll(List.of("bin-1", "bin-2"));
+
+        verify(binReadingRepository, times(1)).findLatestPerBin();
+    }
+
+    @Test
+    void newerReading_wins_lateReadingIsIgnored() {
+        when(binReadingRepository.findLatestPerBin()).thenReturn(List.of(reading("r1", "bin-1", 1_000)));
+        BinReading newer = reading("r2", "bin-1", 2_000);
+
+        store.update(newer);
+        store.update(reading("r0", "bin-1", 500));
+
+        assertSame(newer, store.get("bin-1"));
+    }
+
+    @Test
+    void getAll_leavesOutBinsWithoutReadings() {
+        when(binReadingRepository.findLatestPerBin()).thenReturn(List.of(reading("r1", "bin-1", 1_000)));
+
+        Map<String, BinReading> latest = store.getAll(List.of("bin-1", "bin-2"));
+
+        assertEquals(List.of("bin-1"), List.copyOf(latest.keySet()));
+    }
+
+    @Test
+    void deletingTheLatestReading_reloadsOrEvictsTheBin() {
+        BinReading latest = reading("r2", "bin-1", 2_000);
+        BinReading previous = reading("r1", "bin-1", 1_000);
+        when(binReadingRepository.findLatestPerBin()).thenReturn(List.of(latest, reading("r9", "bin-2", 1_000)));
+        when(binReadingRepository.findTopByBinIdOrderByTsDesc("bin-1")).thenReturn(previous);
+        when(binReadingRepository.findTopByBinIdOrderByTsDesc("bin-2")).thenReturn(null);
+        store.seed();
+
+        store.evict(latest);
+        store.evict(reading("r9", "bin-2", 1_000));
+
+        assertSame(previous, store.get("bin-1"));
+        assertNull(store.get("bin-2"));
+    }
+
+    @Test
+    void deletingAnOlderReading_keepsTheLatest() {
+        BinReading latest = reading("r2", "bin-1", 2_000);
+        when(binReadingRepository.findLatestPerBin()).thenReturn(List.of(latest));
+        store.seed();
+
+        store.evict(reading("r1", "bin-1", 1_000));
+
+        assertSame(latest, store.get("bin-1"));
+        verify(binReadingRepository, never()).findTopByBinIdOrderByTsDesc(any());
+    }
+}
@@ -0,0 +1,63 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.dto.collection.BinReadingHistoryPointDTO;
+import com.wastemanagement.backend.service.collection.LttbDownsampler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTest {
+
+    private static BinReadingHistoryPointDTO point(long ts, double fillPct) {
+        return BinReadingHistoryPointDTO.builder().ts(new Date(ts)).fillPct(fillPct).count(1).build();
+    }
+
+    @Test
+    @DisplayName("Small series are passed through untouched")
+    void testPassThroughBelowThreshold() {
+        LttbDownsampler lttb = new LttbDownsampler(5, 10);
+        for (int i = 0; i < 5; i++) {
+            lttb.accept(point(i, i));
+        }
+
+        assertEquals(5, lttb.finish().size());
+    }
+
+    @Test
+    @DisplayName("Keeps first, last and the spike of each bucket")
+    void testKeepsExtremes() {
+        int n = 1000;
+        LttbDownsampler lttb = new LttbDownsampler(n, 50);
+        for (int i = 0; i < n; i++) {
+            lttb.accept(point(i * 1000L, i == 500 ? 100 : 10));
+        }
+
+        List<BinReadingHistoryPointDTO> out = lttb.finish();
+
+        assertEquals(50, out.size());
+        assertEquals(0L, out.get(0).getTs().getTime());
+        assertEquals((n - 1) * 1000L, out.get(out.size() - 1).getTs().getTime());
+        assertTrue(out.stream().anyMatch(p -> p.getFillPct() == 100));
+        for (int i = 1; i < out.size(); i++) {
+            assertTrue(out.get(i).getTs().after(out.get(i - 1).getTs()));
+        }
+    }
+
+    @Test
+    @DisplayName("More points than expected stay within the threshold")
+    void testLateExtraPointsStayBounded() {
+        LttbDownsampler lttb = new LttbDownsampler(100, 10);
+        for (int i = 0; i < 150; i++) {
+            lttb.accept(point(i, i % 13));
+        }
+
+        List<BinReadingHistoryPointDTO> out = lttb.finish();
+
+        assertEquals(10, out.size());
+        assertEquals(149L, out.get(9).getTs().getTime());
+    }
+}
@@ -0,0 +1,287 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.tournee.Depot;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.repository.tournee.DepotRepository;
+import com.wastemanagement.backend.service.collectionPoint.CollectionPointMovedEvent;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
+import com.wastemanagement.backend.vroom.matrix.RoadNetworkSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatrixEngineTest {
+
+    @Mock
+    private CollectionPointRepository collectionPointRepository;
+
+    @Mock
+    private DepotRepository depotRepository;
+
+    @TempDir
+    Path dir;
+
+    private final FakeRoads roads = new FakeRoads();
+    private final List<MatrixEngine> engines = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(depotRepository.findAll()).thenReturn(List.of(new Depot("D", "Main", "addr", new GeoJSONPoint(10.18, 36.85))));
+        lenient().when(collectionPointRepository.findAll()).thenReturn(List.of(
+                cp("a", 10.19, 36.85), cp("b", 10.20, 36.86), cp("c", 10.17, 36.84)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(MatrixEngine::shutdown);
+    }
+
+    // tile size 2 so the 4 locations span several tiles
+    private MatrixEngine engine(RoadNetworkSource source) {
+        return engine(source, 100);
+    }
+
+    private MatrixEngine engine(RoadNetworkSource source, int maxAttachJobs) {
+        MatrixEngine engine = new MatrixEngine(collectionPointRepository, depotRepository, source,
+                true, dir, 2, 100, maxAttachJobs, 1.3, 36, 2);
+        engines.add(engine);
+        return engine;
+    }
+
+    @Test
+    void withoutRoadNetwork_attachesCalibratedEstimates() {
+        MatrixEngine engine = engine(new FakeRoads(false));
+        engine.rebuild();
+        VroomRequest request = request("a", "b");
+
+        assertThat(engine.attach(request, "D", jobIds("a", "b"))).isTrue();
+
+        VroomMatrix matrix = request.getMatrices().get(MatrixEngine.PROFILE);
+        // depot -> a: 0.01 degree of longitude at 36.85N, times the detour factor
+        double straight = 0.01 * 111_195 * Math.cos(Math.toRadians(36.85));
+        assertThat((double) matrix.getDistances()[0][1]).isCloseTo(straight * 1.3, within(2.0));
+        assertThat((double) matrix.getDurations()[0][1]).isCloseTo(straight * 1.3 / 10, within(1.0));
+        assertThat(matrix.getDistances()[1][1]).isZero();
+        assertThat(matrix.getDistances()[1][2]).isEqualTo(matrix.getDistances()[2][1]);
+        assertThat(request.getJobs()).extracting(VroomJob::getLocationIndex).containsExactly(1, 2);
+        assertThat(request.getVehicles().get(0).getStartIndex()).isZero();
+        assertThat(request.getVehicles().get(0).getEndIndex()).isZero();
+    }
+
+    @Test
+    void restart_reusesTheMappedFile() {
+        engine(roads).rebuild();
+        int computed = roads.cells();
+        assertThat(computed).isEqualTo(16);
+
+        MatrixEngine restarted = engine(roads);
+        restarted.rebuild();
+        VroomRequest request = request("a", "c");
+        restarted.attach(request, "D", jobIds("a", "c"));
+
+        assertThat(roads.cells()).isEqualTo(computed);
+        assertThat(request.getMatrices().get(MatrixEngine.PROFILE).getDistances()[1][2])
+                .isEqualTo(Math.round(FakeRoads.distance(new double[]{10.19, 36.85}, new double[]{10.17, 36.84})));
+    }
+
+    @Test
+    void movedCollectionPoint_recomputesOnlyItsRowAndColumn() {
+        MatrixEngine engine = engine(roads);
+        engine.rebuild();
+        roads.blocks.clear();
+        roads.threads.clear();
+
+        engine.onCollectionPointMoved(new CollectionPointMovedEvent("b", new double[]{10.25, 36.90}));
+        VroomRequest request = attachWhenReady(engine, "a", "b");
+
+        assertThat(roads.blocks).isNotEmpty().allSatisfy(block -> assertThat(block).contains(1));
+        assertThat(roads.threads).isNotEmpty().doesNotContain(Thread.currentThread().getName());
+        assertThat(request.getMatrices().get(MatrixEngine.PROFILE).getDistances()[0][2])
+                .isEqualTo(Math.round(FakeRoads.distance(new double[]{10.18, 36.85}, new double[]{10.25, 36.90})));
+    }
+
+    @Test
+    void staleRow_goesWithoutMatricesWhileTheBuilderRecomputesIt() throws Exception {
+        MatrixEngine engine = engine(roads);
+        engine.rebuild();
+        roads.hold = new CountDownLatch(1);
+
+        engine.onCollectionPointMoved(new CollectionPointMovedEvent("b", new double[]{10.25, 36.90}));
+        VroomRequest touchingB = request("a", "b");
+        VroomRequest elsewhere = request("a", "c");
+
+        // neither blocked by the refresh in flight nor computing on this thread
+        assertThat(engine.attach(touchingB, "D", jobIds("a", "b"))).isFalse();
+        assertThat(touchingB.getMatrices()).isNull();
+        assertThat(engine.attach(elsewhere, "D", jobIds("a", "c"))).isTrue();
+
+        roads.hold.countDown();
+        assertThat(attachWhenReady(engine, "a", "b").getMatrices()).isNotNull();
+    }
+
+    // the refresh runs on the builder thread: retries until the request gets its matrices
+    private static VroomRequest attachWhenReady(MatrixEngine engine, String... cpIds) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            VroomRequest request = request(cpIds);
+            if (engine.attach(request, "D", jobIds(cpIds))) {
+                return request;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("matrix rows never refreshed");
+    }
+
+    @Test
+    void addedCollectionPoint_copiesTheKnownCellsAndComputesOnlyItsRowAndColumn() {
+        MatrixEngine engine = engine(roads);
+        engine.rebuild();
+        roads.blocks.clear();
+
+        when(collectionPointRepository.findAll()).thenReturn(List.of(
+                cp("a", 10.19, 36.85), cp("b", 10.20, 36.86), cp("c", 10.17, 36.84), cp("d", 10.21, 36.83)));
+        engine.rebuild();
+
+        // 5 locations in tiles of 2: d's row and column, 3 blocks each
+        assertThat(roads.blocks).hasSize(6).allSatisfy(block -> assertThat(block).contains(1));
+        VroomRequest request = request("a", "c", "d");
+        engine.attach(request, "D", jobIds("a", "c", "d"));
+        int[][] distances = request.getMatrices().get(MatrixEngine.PROFILE).getDistances();
+        assertThat(distances[1][2])
+                .isEqualTo(Math.round(FakeRoads.distance(new double[]{10.19, 36.85}, new double[]{10.17, 36.84})));
+        assertThat(distances[0][3])
+                .isEqualTo(Math.round(FakeRoads.distance(new double[]{10.18, 36.85}, new double[]{10.21, 36.83})));
+    }
+
+    @Test
+    void requestAboveMaxAttachJobs_goesWithoutMatrices() {
+        MatrixEngine engine = engine(roads, 1);
+        engine.rebuild();
+        VroomRequest request = request("a", "b");
+
+        assertThat(engine.attach(request, "D", jobIds("a", "b"))).isFalse();
+        assertThat(request.getMatrices()).isNull();
+    }
+
+    @Test
+    void unknownCollectionPoint_leavesTheRequestAlone() {
+        MatrixEngine engine = engine(roads);
+        engine.rebuild();
+        VroomRequest request = request("a", "new");
+
+        assertThat(engine.attach(request, "D", jobIds("a", "new"))).isFalse();
+        assertThat(request.getMatrices()).isNull();
+        assertThat(request.getJobs()).extracting(VroomJob::getLocationIndex).containsOnlyNulls();
+    }
+
+    private static Map<Integer, String> jobIds(String... cpIds) {
+        Map<Integer, String> ids = new HashMap<>();
+        for (int i = 0; i < cpIds.length; i++) {
+            ids.put(i + 1, cpIds[i]);
+        }
+        return ids;
+    }
+
+    private static VroomRequest request(String... cpIds) {
+        List<VroomJob> jobs = new ArrayList<>();
+        for (int i = 0; i < cpIds.length; i++) {
+            VroomJob job = new VroomJob();
+            job.setId(i + 1);
+            job.setLocation(new double[]{10.19, 36.85});
+            jobs.add(job);
+        }
+        VroomVehicle vehicle = new VroomVehicle();
+        vehicle.setId(1);
+        vehicle.setStart(new double[]{10.18, 36.85});
+        vehicle.setEnd(new double[]{10.18, 36.85});
+        VroomRequest request = new VroomRequest();
+        request.setJobs(jobs);
+        request.setVehicles(List.of(vehicle));
+        return request;
+    }
+
+    private static CollectionPoint cp(String id, double lon, double lat) {
+        CollectionPoint cp = new CollectionPoint();
+        cp.setId(id);
+        cp.setLocation(new GeoJSONPoint(lon, lat));
+        return cp;
+    }
+
+    // manhattan metres on a 100 km degree grid; records the size of every block asked for
+    private static final class FakeRoads implements RoadNetworkSource {
+        private final boolean available;
+        private final List<List<Integer>> blocks = new CopyOnWriteArrayList<>();
+        // threads that asked for tables
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+        private volatile CountDownLatch hold;
+
+        FakeRoads() {
+            this(true);
+        }
+
+        FakeRoads(boolean available) {
+            this.available = available;
+        }
+
+        static float distance(double[] a, double[] b) {
+            return (float) ((Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1])) * 100_000);
+        }
+
+        int cells() {
+            return blocks.stream().mapToInt(b -> b.get(0) * b.get(1)).sum();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public Table table(List<double[]> sources, List<double[]> destinations) {
+            CountDownLatch latch = hold;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            blocks.add(List.of(sources.size(), destinations.size()));
+            threads.add(Thread.currentThread().getName());
+            float[] distances = new float[sources.size() * destinations.size()];
+            float[] durations = new float[distances.length];
+            for (int i = 0; i < sources.size(); i++) {
+                for (int j = 0; j < destinations.size(); j++) {
+                    distances[i * destinations.size() + j] = distance(sources.get(i), destinations.get(j));
+                    durations[i * destinations.size() + j] = distances[i * destinations.size() + j] / 10;
+                }
+            }
+            return new Table(distances, durations);
+        }
+    }
+}
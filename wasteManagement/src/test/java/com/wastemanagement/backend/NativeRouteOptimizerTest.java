@@ -0,0 +1,148 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.vroom.NativeRouteOptimizer;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomMatrix;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class NativeRouteOptimizerTest {
+
+    private static final double[] DEPOT = {10.18, 36.85};
+
+    // detour factor 1 so distances are plain great-circle ones
+    private final NativeRouteOptimizer optimizer = new NativeRouteOptimizer(1.0, 36, 500, 2);
+
+    @AfterEach
+    void tearDown() {
+        optimizer.shutdown();
+    }
+
+    @Test
+    void randomInstance_servesEveryJobOnceWithinCapacity() {
+        Random random = new Random(7);
+        List<VroomJob> jobs = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            jobs.add(job(i, 100 + random.nextInt(500),
+                    DEPOT[0] + (random.nextDouble() - 0.5) * 0.1, DEPOT[1] + (random.nextDouble() - 0.5) * 0.1));
+        }
+        List<VroomVehicle> vehicles = List.of(vehicle(1, 8000), vehicle(2, 8000), vehicle(3, 6000), vehicle(4, 6000));
+
+        VroomSolution solution = optimizer.optimize(request(jobs, vehicles));
+
+        assertThat(solution.getCode()).isZero();
+        assertThat(solution.getUnassigned()).isEmpty();
+        List<Integer> served = solution.getRoutes().stream()
+                .flatMap(r -> r.getSteps().stream())
+                .map(VroomStep::getJob)
+                .filter(Objects::nonNull)
+                .toList();
+        assertThat(served).doesNotHaveDuplicates().hasSize(60);
+        for (VroomRoute route : solution.getRoutes()) {
+            int capacity = vehicles.get(route.getVehicle() - 1).getCapacity()[0];
+            int load = route.getSteps().stream()
+                    .filter(s -> s.getJob() != null)
+                    .mapToInt(s -> jobs.get(s.getJob() - 1).getAmount()[0])
+                    .sum();
+            assertThat(load).isLessThanOrEqualTo(capacity);
+            assertThat(route.getSteps().get(0).getType()).isEqualTo("start");
+            assertThat(route.getSteps().get(route.getSteps().size() - 1).getType()).isEqualTo("end");
+            assertThat(route.getSteps()).isSortedAccordingTo((a, b) -> Long.compare(a.getArrival(), b.getArrival()));
+            assertThat(route.getGeometry()).isNull();
+        }
+    }
+
+    @Test
+    void jobsAlongAStreet_areCollectedInOneOutAndBackTrip() {
+        // shuffled along a line east of the depot: a best tour never turns back twice
+        List<VroomJob> jobs = List.of(
+                job(1, 10, DEPOT[0] + 0.03, DEPOT[1]),
+                job(2, 10, DEPOT[0] + 0.01, DEPOT[1]),
+                job(3, 10, DEPOT[0] + 0.04, DEPOT[1]),
+                job(4, 10, DEPOT[0] + 0.02, DEPOT[1]));
+
+        VroomSolution solution = optimizer.optimize(request(jobs, List.of(vehicle(1, 1000))));
+
+        VroomRoute route = solution.getRoutes().get(0);
+        List<Integer> order = route.getSteps().stream().map(VroomStep::getJob).filter(Objects::nonNull).toList();
+        assertThat(order).containsExactlyInAnyOrder(1, 2, 3, 4);
+        // 0.04 degree of longitude at 36.85N, out and back
+        double oneWay = 0.04 * 111_195 * Math.cos(Math.toRadians(DEPOT[1]));
+        assertThat((double) route.getDistance()).isCloseTo(2 * oneWay, within(5.0));
+        // 300 s of service per job at 10 m/s
+        assertThat(route.getDuration()).isCloseTo(Math.round(2 * oneWay / 10 + 4 * 300), within(2L));
+    }
+
+    @Test
+    void jobsNoVehicleCarries_areUnassigned() {
+        List<VroomJob> jobs = List.of(job(1, 500, DEPOT[0] + 0.01, DEPOT[1]), job(2, 5000, DEPOT[0], DEPOT[1] + 0.01));
+
+        VroomSolution solution = optimizer.optimize(request(jobs, List.of(vehicle(1, 1000))));
+
+        assertThat(solution.getCode()).isZero();
+        assertThat(solution.getUnassigned()).singleElement()
+                .satisfies(u -> assertThat(((Map<?, ?>) u).get("id")).isEqualTo(2));
+        assertThat(solution.getRoutes()).singleElement()
+                .satisfies(r -> assertThat(r.getSteps()).extracting(VroomStep::getJob).contains(1));
+    }
+
+    @Test
+    void matricesSentWithTheRequest_replaceTheEstimates() {
+        // both jobs sit on the depot, but the matrix puts them 1 km away
+        List<VroomJob> jobs = List.of(job(1, 10, DEPOT[0], DEPOT[1]), job(2, 10, DEPOT[0], DEPOT[1]));
+        jobs.get(0).setLocationIndex(1);
+        jobs.get(1).setLocationIndex(2);
+        VroomVehicle vehicle = vehicle(1, 1000);
+        vehicle.setStartIndex(0);
+        vehicle.setEndIndex(0);
+        VroomRequest request = request(jobs, List.of(vehicle));
+        int[][] distances = {{0, 1000, 1000}, {1000, 0, 50}, {1000, 50, 0}};
+        int[][] durations = {{0, 100, 100}, {100, 0, 5}, {100, 5, 0}};
+        request.setMatrices(Map.of(MatrixEngine.PROFILE, new VroomMatrix(durations, distances)));
+
+        VroomRoute route = optimizer.optimize(request).getRoutes().get(0);
+
+        assertThat(route.getDistance()).isEqualTo(2050);
+        assertThat(route.getDuration()).isEqualTo(205 + 2 * 300);
+    }
+
+    private static VroomRequest request(List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        VroomRequest request = new VroomRequest();
+        request.setJobs(jobs);
+        request.setVehicles(vehicles);
+        return request;
+    }
+
+    private static VroomJob job(int id, int amount, double lon, double lat) {
+        VroomJob job = new VroomJob();
+        job.setId(id);
+        job.setAmount(new int[]{amount});
+        job.setService(300);
+        job.setLocation(new double[]{lon, lat});
+        return job;
+    }
+
+    private static VroomVehicle vehicle(int id, int capacity) {
+        VroomVehicle vehicle = new VroomVehicle();
+        vehicle.setId(id);
+        vehicle.setStart(DEPOT);
+        vehicle.setEnd(DEPOT);
+        vehicle.setCapacity(new int[]{capacity});
+        return vehicle;
+    }
+}
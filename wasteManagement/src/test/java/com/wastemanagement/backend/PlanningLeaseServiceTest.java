@@ -0,0 +1,149 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.tournee.auto.PlanningLease;
+import com.wastemanagement.backend.repository.tournee.PlanningLeaseRepository;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseHealthIndicator;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeadershipEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService.LEASE_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlanningLeaseServiceTest {
+
+    @Mock
+    private PlanningLeaseRepository repository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private PlanningLeaseService lease;
+
+    @BeforeEach
+    void setUp() {
+        lease = new PlanningLeaseService(repository, eventPublisher, true, "node-1", 30000, 10000, 2000);
+    }
+
+    private static PlanningLease held(String holder, long token) {
+        Date now = new Date();
+        return new PlanningLease(LEASE_ID, holder, token, now, now, new Date(now.getTime() + 30000));
+    }
+
+    @Test
+    void freeLease_isAcquiredWithANewToken() {
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any())).thenReturn(Optional.of(held("node-1", 4)));
+
+        lease.heartbeat();
+
+        assertThat(lease.isLeader()).isTrue();
+        assertThat(lease.fencingToken()).isEqualTo(4);
+        verify(eventPublisher).publishEvent(new PlanningLeadershipEvent(true, 4));
+    }
+
+    @Test
+    void heldLease_isRenewedUnderTheSameToken() {
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any())).thenReturn(Optional.of(held("node-1", 4)));
+        lease.heartbeat();
+        when(repository.renew(eq(LEASE_ID), eq("node-1"), eq(4L), any(), any())).thenReturn(Optional.of(held("node-1", 4)));
+
+        lease.heartbeat();
+
+        assertThat(lease.fencingToken()).isEqualTo(4);
+        verify(repository).acquire(any(), any(), any(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(PlanningLeadershipEvent.class));
+    }
+
+    @Test
+    void takenOverLease_stepsDownAndFollows() {
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any()))
+                .thenReturn(Optional.of(held("node-1", 4)), Optional.empty());
+        lease.heartbeat();
+        when(repository.renew(eq(LEASE_ID), eq("node-1"), eq(4L), any(), any())).thenReturn(Optional.empty());
+        when(repository.findById(LEASE_ID)).thenReturn(Optional.of(held("node-2", 5)));
+
+        lease.heartbeat();
+
+        assertThat(lease.isLeader()).isFalse();
+        assertThat(lease.fencingToken()).isZero();
+        assertThat(lease.status().holder()).isEqualTo("node-2");
+        verify(eventPublisher).publishEvent(new PlanningLeadershipEvent(false, 4));
+    }
+
+    @Test
+    void staleFence_refusesTheWriteAndStepsDown() {
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any())).thenReturn(Optional.of(held("node-1", 4)));
+        lease.heartbeat();
+        when(repository.existsByIdAndHolderAndTokenAndExpiresAtAfter(eq(LEASE_ID), eq("node-1"), eq(4L), any()))
+                .thenReturn(false);
+
+        assertThatThrownBy(lease::verifyFence).isInstanceOf(IllegalStateException.class);
+        assertThat(lease.isLeader()).isFalse();
+    }
+
+    @Test
+    void failedRenewals_letLeadershipLapseLocally() throws Exception {
+        lease = new PlanningLeaseService(repository, eventPublisher, true, "node-1", 300, 100, 50);
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any())).thenReturn(Optional.of(held("node-1", 1)));
+        lease.heartbeat();
+        when(repository.renew(any(), any(), anyLong(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+
+        lease.heartbeat();
+        assertThat(lease.isLeader()).isTrue();
+        Thread.sleep(300);
+
+        // stepped down before the lease (ttl minus skew margin) can be taken over elsewhere
+        assertThat(lease.isLeader()).isFalse();
+        assertThat(lease.status().lastError()).isEqualTo("mongo down");
+    }
+
+    @Test
+    void disabled_isAlwaysLeaderWithoutTouchingMongo() {
+        PlanningLeaseService standalone = new PlanningLeaseService(repository, eventPublisher, false, "node-1", 30000, 10000, 2000);
+
+        standalone.heartbeat();
+        standalone.verifyFence();
+
+        assertThat(standalone.isLeader()).isTrue();
+        verifyNoInteractions(repository, eventPublisher);
+    }
+
+    @Test
+    void renewIntervalMustLeaveRoomBeforeExpiry() {
+        assertThatThrownBy(() -> new PlanningLeaseService(repository, eventPublisher, true, "node-1", 10000, 9000, 2000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void healthIndicator_showsTheRoleAndTheHolder() {
+        when(repository.acquire(eq(LEASE_ID), eq("node-1"), any(), any())).thenReturn(Optional.of(held("node-1", 7)));
+        lease.heartbeat();
+
+        Health health = new PlanningLeaseHealthIndicator(lease).health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry("role", "leader")
+                .containsEntry("holder", "node-1")
+                .containsEntry("token", 7L)
+                .containsKey("expiresAt");
+    }
+}
@@ -0,0 +1,245 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.service.tournee.auto.PlanningLeaseService;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline.Job;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline.OverlapPolicy;
+import com.wastemanagement.backend.service.tournee.auto.PlanningPipeline.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class PlanningPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor();
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final PlanningLeaseService lease = mock(PlanningLeaseService.class);
+
+    @BeforeEach
+    void setUp() {
+        when(lease.isLeader()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdownNow();
+    }
+
+    private PlanningPipeline pipeline(OverlapPolicy emergencyPolicy) {
+        return new PlanningPipeline(meterRegistry, lease, runner, Runnable::run, emergencyPolicy, OverlapPolicy.SKIP, false);
+    }
+
+    // a run that holds the job until release is counted down
+    private Runnable blocking(String name) {
+        return () -> {
+            ran.add(name);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private double triggers(String job, String outcome) {
+        return meterRegistry.get("planning.pipeline.triggers").tags("job", job, "outcome", outcome).counter().count();
+    }
+
+    @Test
+    void coalesce_mergesTriggersWhileRunningIntoOneFollowUp() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        CompletableFuture<Void> first = pipeline.submit(Job.EMERGENCY, blocking("first"));
+        CompletableFuture<Void> second = pipeline.submit(Job.EMERGENCY, () -> ran.add("second"));
+        CompletableFuture<Void> third = pipeline.submit(Job.EMERGENCY, () -> ran.add("third"));
+
+        assertThat(third).isSameAs(second);
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("first", "second");
+        assertThat(triggers("emergency", "started")).isEqualTo(1);
+        assertThat(triggers("emergency", "queued")).isEqualTo(1);
+        assertThat(triggers("emergency", "coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    void coalesce_keepsTheRunThatRespectsTheMode_whenItComesFirst() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        CompletableFuture<Void> first = pipeline.submit(Job.EMERGENCY, blocking("first"));
+        CompletableFuture<Void> scheduled = pipeline.submit(Job.EMERGENCY, () -> ran.add("scheduled"), true);
+        CompletableFuture<Void> manual = pipeline.submit(Job.EMERGENCY, () -> ran.add("manual"), false);
+
+        assertThat(manual).isSameAs(scheduled);
+        release.countDown();
+        CompletableFuture.allOf(first, scheduled).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("first", "scheduled");
+    }
+
+    @Test
+    void coalesce_keepsTheRunThatRespectsTheMode_whenItComesLast() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        CompletableFuture<Void> first = pipeline.submit(Job.EMERGENCY, blocking("first"));
+        CompletableFuture<Void> manual = pipeline.submit(Job.EMERGENCY, () -> ran.add("manual"), false);
+        CompletableFuture<Void> scheduled = pipeline.submit(Job.EMERGENCY, () -> ran.add("scheduled"), true);
+
+        assertThat(scheduled).isSameAs(manual);
+        release.countDown();
+        CompletableFuture.allOf(first, manual).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("first", "scheduled");
+        assertThat(triggers("emergency", "coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    void selectToPersist_isSerializedAcrossJobs() throws Exception {
+        ExecutorService runners = Executors.newCachedThreadPool();
+        try {
+            PlanningPipeline pipeline = new PlanningPipeline(meterRegistry, lease, runners, Runnable::run,
+                    OverlapPolicy.COALESCE, OverlapPolicy.SKIP, false);
+            CountDownLatch selected = new CountDownLatch(1);
+
+            CompletableFuture<Void> daily = pipeline.submit(Job.DAILY, () -> {
+                pipeline.stage(Job.DAILY, Stage.SELECT, () -> ran.add("daily select"));
+                ran.add("daily optimize");
+                selected.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                pipeline.stage(Job.DAILY, Stage.PERSIST, () -> ran.add("daily persist"));
+            });
+            assertThat(selected.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<Void> emergency = pipeline.submit(Job.EMERGENCY, () -> {
+                pipeline.stage(Job.EMERGENCY, Stage.SNAPSHOT, () -> ran.add("emergency snapshot"));
+                pipeline.stage(Job.EMERGENCY, Stage.SELECT, () -> ran.add("emergency select"));
+                pipeline.stage(Job.EMERGENCY, Stage.PERSIST, () -> ran.add("emergency persist"));
+            });
+
+            // the snapshot does not wait, the selection does
+            Thread.sleep(200);
+            assertThat(ran).containsExactly("daily select", "daily optimize", "emergency snapshot");
+            release.countDown();
+            CompletableFuture.allOf(daily, emergency).get(5, TimeUnit.SECONDS);
+
+            assertThat(ran).containsExactly("daily select", "daily optimize", "emergency snapshot",
+                    "daily persist", "emergency select", "emergency persist");
+        } finally {
+            runners.shutdownNow();
+        }
+    }
+
+    @Test
+    void skip_dropsTriggersWhileRunning() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.SKIP);
+
+        CompletableFuture<Void> first = pipeline.submit(Job.DAILY, blocking("first"));
+        CompletableFuture<Void> skipped = pipeline.submit(Job.DAILY, () -> ran.add("skipped"));
+
+        assertThat(skipped).isDone();
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("first");
+        assertThat(triggers("daily", "skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void queue_runsEveryTriggerInOrder() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.QUEUE);
+
+        pipeline.submit(Job.EMERGENCY, blocking("first"));
+        pipeline.submit(Job.EMERGENCY, () -> ran.add("second"));
+        CompletableFuture<Void> last = pipeline.submit(Job.EMERGENCY, () -> ran.add("third"));
+        release.countDown();
+        last.get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void failedRun_completesNormallyAndFreesTheJob() throws Exception {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        pipeline.submit(Job.EMERGENCY, () -> {
+            throw new IllegalStateException("VROOM down");
+        }).get(5, TimeUnit.SECONDS);
+        pipeline.submit(Job.EMERGENCY, () -> ran.add("next")).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("next");
+        assertThat(meterRegistry.get("planning.pipeline.run")
+                .tags("job", "emergency", "outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(triggers("emergency", "started")).isEqualTo(2);
+    }
+
+    @Test
+    void stage_isTimedPerOutcomeAndRethrows() {
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        assertThat(pipeline.stage(Job.EMERGENCY, Stage.SELECT, () -> 42)).isEqualTo(42);
+        assertThatThrownBy(() -> pipeline.stage(Job.EMERGENCY, Stage.PERSIST, () -> {
+            throw new IllegalStateException("mongo down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("planning.pipeline.stage")
+                .tags("job", "emergency", "stage", "select", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("planning.pipeline.stage")
+                .tags("job", "emergency", "stage", "persist", "outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void follower_dropsTriggers() throws Exception {
+        when(lease.isLeader()).thenReturn(false);
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        pipeline.submit(Job.EMERGENCY, () -> ran.add("run")).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).isEmpty();
+        assertThat(triggers("emergency", "not-leader")).isEqualTo(1);
+    }
+
+    @Test
+    void writingStages_failOnceTheLeaseIsLost() {
+        doThrow(new IllegalStateException("stale token")).when(lease).verifyFence();
+        PlanningPipeline pipeline = pipeline(OverlapPolicy.COALESCE);
+
+        assertThat(pipeline.stage(Job.EMERGENCY, Stage.OPTIMIZE, () -> 1)).isEqualTo(1);
+        assertThatThrownBy(() -> pipeline.stage(Job.EMERGENCY, Stage.PERSIST, () -> ran.add("saved")))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(ran).isEmpty();
+    }
+
+    @Test
+    void zonedDaily_runsOnFollowersWithoutFencing() throws Exception {
+        when(lease.isLeader()).thenReturn(false);
+        PlanningPipeline pipeline = new PlanningPipeline(meterRegistry, lease, runner, Runnable::run,
+                OverlapPolicy.COALESCE, OverlapPolicy.SKIP, true);
+
+        pipeline.submit(Job.DAILY, () -> pipeline.stage(Job.DAILY, Stage.PERSIST, () -> ran.add("daily")))
+                .get(5, TimeUnit.SECONDS);
+        pipeline.submit(Job.EMERGENCY, () -> ran.add("emergency")).get(5, TimeUnit.SECONDS);
+
+        assertThat(ran).containsExactly("daily");
+        verify(lease, never()).verifyFence();
+    }
+}
@@ -0,0 +1,122 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.vroom.SolutionCache;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomRoute;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.dto.VroomVehicle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SolutionCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SolutionCache cache = new SolutionCache(meterRegistry, true, 2, 60_000);
+
+    @Test
+    void sameProblemInAnotherOrder_hitsInItsOwnIds() {
+        // jobs 1 (a) and 2 (b) on vehicle 1, b unassigned
+        VroomRequest first = request(List.of(job(1, 10.1), job(2, 10.2)), List.of(vehicle(1, 5000)));
+        cache.store(first, solution(1, List.of(1), 2));
+
+        // same jobs, listed the other way round with other ids
+        VroomRequest second = request(List.of(job(7, 10.2), job(8, 10.1)), List.of(vehicle(3, 5000)));
+        VroomSolution hit = cache.lookup(second).orElseThrow();
+
+        assertThat(hit.getRoutes()).singleElement().satisfies(r -> {
+            assertThat(r.getVehicle()).isEqualTo(3);
+            assertThat(r.getSteps()).extracting(VroomStep::getJob).containsExactly(8);
+        });
+        assertThat(hit.getUnassigned()).singleElement()
+                .satisfies(u -> assertThat(((Map<?, ?>) u).get("id")).isEqualTo(7));
+        assertThat(meterRegistry.get("routing.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void anyChange_isAMiss() {
+        cache.store(request(List.of(job(1, 10.1)), List.of(vehicle(1, 5000))), solution(1, List.of(1), null));
+
+        assertThat(cache.lookup(request(List.of(job(1, 10.1)), List.of(vehicle(1, 4000))))).isEmpty();
+        VroomJob heavier = job(1, 10.1);
+        heavier.setAmount(new int[]{500});
+        assertThat(cache.lookup(request(List.of(heavier), List.of(vehicle(1, 5000))))).isEmpty();
+        assertThat(meterRegistry.get("routing.cache.lookups").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyUsed_isEvicted_andFlushEmptiesTheCache() {
+        VroomRequest a = request(List.of(job(1, 10.1)), List.of(vehicle(1, 5000)));
+        VroomRequest b = request(List.of(job(1, 10.2)), List.of(vehicle(1, 5000)));
+        VroomRequest c = request(List.of(job(1, 10.3)), List.of(vehicle(1, 5000)));
+        cache.store(a, solution(1, List.of(1), null));
+        cache.store(b, solution(1, List.of(1), null));
+        cache.lookup(a);
+        cache.store(c, solution(1, List.of(1), null));
+
+        assertThat(cache.lookup(b)).isEmpty();
+        assertThat(cache.lookup(a)).isPresent();
+        assertThat(cache.flush()).isEqualTo(2);
+        assertThat(cache.lookup(c)).isEmpty();
+    }
+
+    @Test
+    void expiredEntries_areMisses() throws InterruptedException {
+        SolutionCache shortLived = new SolutionCache(meterRegistry, true, 2, 1);
+        VroomRequest request = request(List.of(job(1, 10.1)), List.of(vehicle(1, 5000)));
+        shortLived.store(request, solution(1, List.of(1), null));
+        Thread.sleep(5);
+
+        assertThat(shortLived.lookup(request)).isEmpty();
+        assertThat(shortLived.size()).isZero();
+    }
+
+    private static VroomRequest request(List<VroomJob> jobs, List<VroomVehicle> vehicles) {
+        VroomRequest request = new VroomRequest();
+        request.setJobs(jobs);
+        request.setVehicles(vehicles);
+        return request;
+    }
+
+    private static VroomJob job(int id, double lon) {
+        VroomJob job = new VroomJob();
+        job.setId(id);
+        job.setAmount(new int[]{100});
+        job.setService(300);
+        job.setLocation(new double[]{lon, 36.85});
+        return job;
+    }
+
+    private static VroomVehicle vehicle(int id, int capacity) {
+        VroomVehicle vehicle = new VroomVehicle();
+        vehicle.setId(id);
+        vehicle.setStart(new double[]{10.0, 36.8});
+        vehicle.setEnd(new double[]{10.0, 36.8});
+        vehicle.setCapacity(new int[]{capacity});
+        return vehicle;
+    }
+
+    private static VroomSolution solution(int vehicle, List<Integer> jobs, Integer unassigned) {
+        List<VroomStep> steps = new ArrayList<>();
+        for (int job : jobs) {
+            VroomStep step = new VroomStep();
+            step.setType("job");
+            step.setJob(job);
+            steps.add(step);
+        }
+        VroomRoute route = new VroomRoute();
+        route.setVehicle(vehicle);
+        route.setSteps(steps);
+        VroomSolution solution = new VroomSolution();
+        solution.setRoutes(List.of(route));
+        solution.setUnassigned(unassigned == null ? List.of() : List.of(Map.of("id", unassigned)));
+        return solution;
+    }
+}
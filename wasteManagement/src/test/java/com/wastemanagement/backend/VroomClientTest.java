@@ -0,0 +1,182 @@
+package com.wastemanagement.backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.wastemanagement.backend.vroom.CircuitBreaker;
+import com.wastemanagement.backend.vroom.VroomClient;
+import com.wastemanagement.backend.vroom.dto.VroomJob;
+import com.wastemanagement.backend.vroom.dto.VroomRequest;
+import com.wastemanagement.backend.vroom.dto.VroomSolution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VroomClientTest {
+
+    private static final String SOLUTION = "{\"code\":0,\"routes\":[{\"vehicle\":1,\"distance\":1200}]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int status = 200;
+    private volatile boolean hold;
+    private HttpServer server;
+    private VroomClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            calls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            if (hold) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = (status == 200 ? SOLUTION : "{\"code\":1,\"error\":\"boom\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (client != null) {
+            client.shutdown();
+        }
+        server.stop(0);
+    }
+
+    // 1 s deadline, 1 in flight, 1 queued, circuit opens after 2 failures for 1 s of the test clock
+    private VroomClient client(int maxQueued) {
+        client = new VroomClient(objectMapper, meterRegistry, "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 1000, 0, 1000, 1, maxQueued, new CircuitBreaker(2, 1000, clock::get));
+        return client;
+    }
+
+    @Test
+    void solution_isReadAndTimed() {
+        VroomSolution solution = client(1).optimize(new VroomRequest());
+
+        assertThat(solution.getRoutes()).singleElement().satisfies(r -> assertThat(r.getDistance()).isEqualTo(1200));
+        assertThat(meterRegistry.get("vroom.client.requests").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void hungVroom_failsAtTheDeadline() {
+        hold = true;
+
+        assertThatThrownBy(() -> client(1).optimize(new VroomRequest()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("timed out");
+        assertThat(meterRegistry.get("vroom.client.timeouts").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void timeouts_doNotOpenTheCircuit() {
+        VroomClient client = client(1);
+        hold = true;
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.optimize(new VroomRequest())).hasMessageContaining("timed out");
+        }
+
+        assertThat(meterRegistry.get("vroom.client.circuit.state").gauge().value()).isZero();
+        hold = false;
+        release.countDown();
+        assertThat(client.optimize(new VroomRequest())).isNotNull();
+    }
+
+    @Test
+    void queuedRequest_failsOnceItsDeadlinePasses() throws Exception {
+        // 200 ms + 100 ms per job: the 10-job request holds the only slot past the empty one's deadline
+        client = new VroomClient(objectMapper, meterRegistry, "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 200, 100, 2000, 1, 1, new CircuitBreaker(2, 1000, clock::get));
+        hold = true;
+        VroomRequest large = new VroomRequest();
+        large.setJobs(IntStream.range(0, 10).mapToObj(i -> new VroomJob()).toList());
+
+        CompletableFuture<VroomSolution> first = client.optimizeAsync(large);
+        CompletableFuture<VroomSolution> queued = client.optimizeAsync(new VroomRequest());
+
+        assertThatThrownBy(() -> queued.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("waiting for a slot");
+        assertThat(first).isNotDone();
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("vroom.client.requests").tag("outcome", "expired").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failures_openTheCircuit_thenOneProbeClosesIt() {
+        VroomClient client = client(1);
+        status = 500;
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.optimize(new VroomRequest())).isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThatThrownBy(() -> client.optimize(new VroomRequest())).hasMessageContaining("circuit open");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.get("vroom.client.circuit.rejections").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vroom.client.circuit.state").gauge().value()).isEqualTo(2);
+
+        status = 200;
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(client.optimize(new VroomRequest())).isNotNull();
+        assertThat(meterRegistry.get("vroom.client.circuit.state").gauge().value()).isZero();
+    }
+
+    @Test
+    void vroomRejectingTheInput_doesNotCountAgainstTheCircuit() {
+        VroomClient client = client(1);
+        status = 400;
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.optimize(new VroomRequest())).hasMessageContaining("status: 400");
+        }
+
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void requestsBeyondTheLimit_waitThenAreRefused() throws Exception {
+        VroomClient client = client(1);
+        hold = true;
+
+        CompletableFuture<VroomSolution> first = client.optimizeAsync(new VroomRequest());
+        CompletableFuture<VroomSolution> second = client.optimizeAsync(new VroomRequest());
+        CompletableFuture<VroomSolution> third = client.optimizeAsync(new VroomRequest());
+
+        assertThat(third).isCompletedExceptionally();
+        assertThat(meterRegistry.get("vroom.client.queued").gauge().value()).isEqualTo(1);
+        hold = false;
+        release.countDown();
+        assertThat(CompletableFuture.allOf(first, second).handle((r, e) -> List.of(first, second))
+                .get(5, TimeUnit.SECONDS)).allSatisfy(f -> assertThat(f).isDone());
+        assertThat(second.get()).isNotNull();
+    }
+}
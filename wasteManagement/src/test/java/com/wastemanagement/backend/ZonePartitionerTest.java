@@ -0,0 +1,179 @@
+package com.wastemanagement.backend;
+
+import com.wastemanagement.backend.model.GeoJSONPoint;
+import com.wastemanagement.backend.model.collection.Bin;
+import com.wastemanagement.backend.model.collection.BinReading;
+import com.wastemanagement.backend.model.collection.CollectionPoint;
+import com.wastemanagement.backend.model.collection.TrashType;
+import com.wastemanagement.backend.model.vehicle.Vehicle;
+import com.wastemanagement.backend.model.vehicle.VehicleStatus;
+import com.wastemanagement.backend.repository.CollectionPointRepository;
+import com.wastemanagement.backend.model.tournee.auto.ZonePartition;
+import com.wastemanagement.backend.repository.VehicleRepository;
+import com.wastemanagement.backend.repository.tournee.ZonePartitionRepository;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.service.tournee.auto.ZonePartitioner;
+import com.wastemanagement.backend.service.tournee.auto.ZonePartitioner.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ZonePartitionerTest {
+
+    @Mock
+    private CollectionPointRepository collectionPointRepository;
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private LatestReadingStore latestReadingStore;
+
+    @Mock
+    private ZonePartitionRepository partitionRepository;
+
+    private ZonePartitioner partitioner;
+    private final Map<String, BinReading> readings = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        partitioner = new ZonePartitioner(collectionPointRepository, vehicleRepository, latestReadingStore,
+                partitionRepository, 5.0, 600_000);
+        lenient().when(latestReadingStore.getAll(anyCollection())).thenAnswer(inv -> {
+            Map<String, BinReading> found = new HashMap<>();
+            for (String binId : inv.<Collection<String>>getArgument(0)) {
+                if (readings.containsKey(binId)) {
+                    found.put(binId, readings.get(binId));
+                }
+            }
+            return found;
+        });
+    }
+
+    @Test
+    void zonesWithoutDemandAreDropped_andShortZonesGetVehiclesFromCoveredOnes() {
+        // north: 3 full bins (1980 L), south: one bin at 90% (594 L) and one below threshold
+        when(collectionPointRepository.findAll()).thenReturn(List.of(
+                cp("n1", 10.18, 36.89, bin("bn1", 100), bin("bn2", 100)),
+                cp("n2", 10.181, 36.891, bin("bn3", 100)),
+                cp("s1", 10.18, 36.80, bin("bs1", 90)),
+                cp("s2", 10.181, 36.801, bin("bs2", 30))));
+        // every truck parked in the south
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v1", 10.18, 36.80), vehicle("v2", 10.18, 36.80), vehicle("v3", 10.18, 36.80)));
+
+        List<Zone> zones = partitioner.partition(List.of(TrashType.PLASTIC), 80.0);
+
+        verify(latestReadingStore).reseed();
+        assertThat(zones).hasSize(2);
+        Zone north = zones.stream().filter(z -> z.collectionPointIds().contains("n1")).findFirst().orElseThrow();
+        Zone south = zones.stream().filter(z -> z.collectionPointIds().contains("s1")).findFirst().orElseThrow();
+        assertThat(north.collectionPointIds()).containsExactlyInAnyOrder("n1", "n2");
+        assertThat(north.demandL()).isEqualTo(1980.0);
+        assertThat(south.collectionPointIds()).containsExactly("s1");
+        assertThat(north.vehicleIds()).hasSize(2);
+        assertThat(south.vehicleIds()).hasSize(1);
+    }
+
+    @Test
+    void zoneIds_dependOnlyOnThePosition() {
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("a", 10.18, 36.89, bin("b1", 95))));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of());
+        String first = partitioner.partition(List.of(TrashType.PLASTIC), 80.0).get(0).id();
+
+        when(collectionPointRepository.findAll()).thenReturn(List.of(
+                cp("a", 10.18, 36.89, bin("b1", 95)), cp("far", 11.5, 35.2, bin("b2", 95))));
+        List<Zone> zones = partitioner.partition(List.of(TrashType.PLASTIC), 80.0);
+
+        assertThat(zones).extracting(Zone::id).contains(first).hasSize(2);
+        assertThat(zones).allSatisfy(z -> assertThat(z.vehicleIds()).isEmpty());
+    }
+
+    @Test
+    void computedPartition_isSavedForTheOtherNodes() {
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("a", 10.18, 36.89, bin("b1", 95))));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(
+                vehicle("v1", 10.18, 36.89)));
+
+        List<Zone> zones = partitioner.partition(List.of(TrashType.PLASTIC, TrashType.GLASS), 80.0);
+
+        ArgumentCaptor<ZonePartition> saved = ArgumentCaptor.forClass(ZonePartition.class);
+        verify(partitionRepository).insert(saved.capture());
+        assertThat(saved.getValue().getKey()).isEqualTo("GLASS,PLASTIC@80.0");
+        assertThat(saved.getValue().getZones()).singleElement().satisfies(z -> {
+            assertThat(z.getId()).isEqualTo(zones.get(0).id());
+            assertThat(z.getVehicleIds()).containsExactly("v1");
+        });
+    }
+
+    @Test
+    void recentPartition_isReusedWithoutTakingAnotherSnapshot() {
+        ZonePartition shared = new ZonePartition("p", "PLASTIC@80.0", new Date(), List.of(
+                new ZonePartition.ZoneEntry("zone:1:2", Set.of("cp-1"), 660, Set.of("v-1"))));
+        when(partitionRepository.findFirstByKeyAndCreatedAtAfterOrderByCreatedAtDesc(eq("PLASTIC@80.0"), any()))
+                .thenReturn(Optional.of(shared));
+
+        List<Zone> zones = partitioner.partition(List.of(TrashType.PLASTIC), 80.0);
+
+        assertThat(zones).containsExactly(new Zone("zone:1:2", Set.of("cp-1"), 660, Set.of("v-1")));
+        verifyNoInteractions(latestReadingStore, vehicleRepository, collectionPointRepository);
+        verify(partitionRepository, never()).insert(any(ZonePartition.class));
+    }
+
+    @Test
+    void concurrentlyComputedPartition_yieldsToTheOneSavedFirst() {
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp("a", 10.18, 36.89, bin("b1", 95))));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of());
+        when(partitionRepository.insert(any(ZonePartition.class))).thenThrow(new DuplicateKeyException("taken"));
+        ZonePartition first = new ZonePartition("p", "PLASTIC@80.0", new Date(), List.of(
+                new ZonePartition.ZoneEntry("zone:9:9", Set.of("a"), 627, Set.of("v-9"))));
+        when(partitionRepository.findById(anyString())).thenReturn(Optional.of(first));
+
+        List<Zone> zones = partitioner.partition(List.of(TrashType.PLASTIC), 80.0);
+
+        assertThat(zones).extracting(Zone::vehicleIds).containsExactly(Set.of("v-9"));
+    }
+
+    private CollectionPoint cp(String id, double lon, double lat, Bin... bins) {
+        CollectionPoint cp = new CollectionPoint();
+        cp.setId(id);
+        cp.setActive(true);
+        cp.setLocation(new GeoJSONPoint(lon, lat));
+        cp.setBins(new ArrayList<>(List.of(bins)));
+        return cp;
+    }
+
+    private Bin bin(String id, double fillPct) {
+        readings.put(id, new BinReading(null, id, new Date(), fillPct, 90, 20, -70));
+        return new Bin(id, null, true, TrashType.PLASTIC, null);
+    }
+
+    private static Vehicle vehicle(String id, double lon, double lat) {
+        Vehicle v = new Vehicle();
+        v.setId(id);
+        v.setCapacityVolumeL(1000);
+        v.setStatus(VehicleStatus.AVAILABLE);
+        v.setCurrentLocation(new GeoJSONPoint(lon, lat));
+        return v;
+    }
+}
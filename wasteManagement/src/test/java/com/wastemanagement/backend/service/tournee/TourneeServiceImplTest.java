@@ -7,19 +7,21 @@ import com.wastemanagement.backend.model.collection.BinReading;
 import com.wastemanagement.backend.model.collection.CollectionPoint;
 import com.wastemanagement.backend.model.collection.TrashType;
 import com.wastemanagement.backend.model.tournee.Depot;
-import com.wastemanagement.backend.model.tournee.TourneeStatus;
+import com.wastemanagement.backend.model.tournee.Tournee;
 import com.wastemanagement.backend.model.vehicle.Vehicle;
 import com.wastemanagement.backend.model.vehicle.VehicleStatus;
 import com.wastemanagement.backend.repository.CollectionPointRepository;
 import com.wastemanagement.backend.repository.VehicleRepository;
-import com.wastemanagement.backend.repository.collection.BinReadingRepository;
 import com.wastemanagement.backend.repository.tournee.TourneeRepository;
-import com.wastemanagement.backend.vroom.VroomClient;
+import com.wastemanagement.backend.service.collection.FillRateForecaster;
+import com.wastemanagement.backend.service.collection.LatestReadingStore;
+import com.wastemanagement.backend.vroom.RouteOptimizer;
 import com.wastemanagement.backend.vroom.dto.VroomJob;
 import com.wastemanagement.backend.vroom.dto.VroomRequest;
 import com.wastemanagement.backend.vroom.dto.VroomRoute;
 import com.wastemanagement.backend.vroom.dto.VroomSolution;
 import com.wastemanagement.backend.vroom.dto.VroomStep;
+import com.wastemanagement.backend.vroom.matrix.MatrixEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,17 +29,28 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.anySet;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.anyCollection;
+import static org.mockito.Mockito.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,13 +61,17 @@ class TourneeServiceImplTest {
     @Mock
     private CollectionPointRepository collectionPointRepository;
     @Mock
-    private BinReadingRepository binReadingRepository;
+    private LatestReadingStore latestReadingStore;
     @Mock
     private VehicleRepository vehicleRepository;
     @Mock
     private DepotService depotService;
     @Mock
-    private VroomClient vroomClient;
+    private RouteOptimizer routeOptimizer;
+    @Mock
+    private MatrixEngine matrixEngine;
+    @Mock
+    private FillRateForecaster fillRateForecaster;
 
     @InjectMocks
     private TourneeServiceImpl tourneeService;
@@ -87,16 +104,13 @@ class TourneeServiceImplTest {
 
         // Service now reads bins from CollectionPoint, so we stub findAll()
         when(collectionPointRepository.findAll()).thenReturn(List.of(cp));
-        // It may also call findAllById for selected CPs
-        when(collectionPointRepository.findAllById(Set.of("cp1"))).thenReturn(List.of(cp));
 
-        when(binReadingRepository.findTopByBinIdOrderByTsDesc("bin1"))
-                .thenReturn(new BinReading("br1", "bin1", new Date(), 80.0, 0, 0.0, 0));
+        // Latest readings are loaded once, in bulk, for every active bin
+        when(latestReadingStore.getAll(List.of("bin1")))
+                .thenReturn(Map.of("bin1", new BinReading("br1", "bin1", new Date(), 80.0, 0, 0.0, 0)));
 
         // No planned / in-progress tours that already cover this CP
-        when(tourneeRepository.findByTourneeTypeAndStatus(TrashType.PLASTIC, TourneeStatus.PLANNED))
-                .thenReturn(Collections.emptyList());
-        when(tourneeRepository.findByTourneeTypeAndStatus(TrashType.PLASTIC, TourneeStatus.IN_PROGRESS))
+        when(tourneeRepository.findByStatusIn(anyCollection()))
                 .thenReturn(Collections.emptyList());
 
         // VROOM returns one route with one job
@@ -111,26 +125,144 @@ class TourneeServiceImplTest {
         VroomSolution solution = new VroomSolution();
         solution.setRoutes(List.of(route));
         solution.setCode(0);
-        when(vroomClient.optimize(any(VroomRequest.class))).thenReturn(solution);
+        when(routeOptimizer.optimize(any(VroomRequest.class), any())).thenReturn(solution);
 
         // saveAll(tournees) just returns its argument
         when(tourneeRepository.saveAll(any(Iterable.class)))
                 .thenAnswer(inv -> inv.getArgument(0, Iterable.class));
 
-        // markVehiclesBusy() will call findAllById and saveAll on vehicleRepository
-        when(vehicleRepository.findAllById(anySet())).thenReturn(List.of(vehicle));
-
-        ArgumentCaptor<List<Vehicle>> saveAllCaptor = ArgumentCaptor.forClass(List.class);
-        when(vehicleRepository.saveAll(saveAllCaptor.capture())).thenReturn(List.of(vehicle));
+        // planned vehicles are claimed (busy=false -> true) in one conditional update each
+        when(vehicleRepository.claimFree(anyCollection())).thenAnswer(inv -> Set.copyOf(inv.getArgument(0, Collection.class)));
 
         List<TourneeResponseDTO> result = tourneeService.planTourneesWithVroom(TrashType.PLASTIC, 50.0);
 
         assertEquals(1, result.size());
         assertEquals("veh1", result.get(0).getPlannedVehicleId());
+        verify(vehicleRepository).claimFree(Set.of("veh1"));
+    }
+
+    @Test
+    void planSingleType_vehicleTakenMeanwhile_dropsItsTour() {
+        Tournee tour = new Tournee();
+        tour.setPlannedVehicleId("veh1");
+        when(vehicleRepository.claimFree(anyCollection())).thenReturn(Set.of());
+
+        assertTrue(tourneeService.savePlannedTournees(List.of(tour)).isEmpty());
+        verify(tourneeRepository, never()).saveAll(any(Iterable.class));
+    }
+
+    @Test
+    void save_vehicleTakenMeanwhile_movesTheTourToAFreeVehicleLargeEnough() {
+        Tournee tour = new Tournee();
+        tour.setPlannedVehicleId("veh1");
+        Vehicle small = new Vehicle("veh-small", "S-1", 1000, null, null, VehicleStatus.AVAILABLE, false);
+        Vehicle large = new Vehicle("veh-large", "L-1", 8000, null, null, VehicleStatus.AVAILABLE, false);
+        when(vehicleRepository.claimFree(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return ids.contains("veh1") ? Set.of() : Set.copyOf(ids);
+        });
+        when(vehicleRepository.findAllById(anyIterable())).thenReturn(List.of(vehicle));
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(large, small));
+        when(tourneeRepository.saveAll(any(Iterable.class))).thenAnswer(inv -> inv.getArgument(0, Iterable.class));
+
+        List<TourneeResponseDTO> saved = tourneeService.savePlannedTournees(List.of(tour));
+
+        assertEquals(1, saved.size());
+        assertEquals("veh-large", saved.get(0).getPlannedVehicleId());
+        verify(vehicleRepository, never()).claimFree(Set.of("veh-small"));
+    }
 
-        List<Vehicle> savedVehicles = saveAllCaptor.getValue();
-        assertEquals(1, savedVehicles.size());
-        assertTrue(savedVehicles.get(0).isBusy(), "Planned vehicle should be marked busy");
+    @Test
+    void planMultiType_failedTypeIsRetriedOnTheVehiclesLeft() {
+        tourneeService.startSolverPool();
+        try {
+            when(depotService.getMainDepotEntityOrThrow()).thenReturn(mainDepot);
+            Vehicle second = new Vehicle("veh2", "DEF-456", 5000, null, null, VehicleStatus.AVAILABLE, false);
+            when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(vehicle, second));
+            CollectionPoint cp = new CollectionPoint("cp1", new GeoJSONPoint(1.5, 2.5), true, "addr", new ArrayList<>(List.of(
+                    new Bin("bin1", "cp1", true, TrashType.PLASTIC, null),
+                    new Bin("bin2", "cp1", true, TrashType.GLASS, null))));
+            when(collectionPointRepository.findAll()).thenReturn(List.of(cp));
+            when(latestReadingStore.getAll(List.of("bin1", "bin2"))).thenReturn(Map.of(
+                    "bin1", new BinReading("br1", "bin1", new Date(), 90.0, 0, 0.0, 0),
+                    "bin2", new BinReading("br2", "bin2", new Date(), 85.0, 0, 0.0, 0)));
+            when(tourneeRepository.findByStatusIn(anyCollection())).thenReturn(Collections.emptyList());
+            AtomicInteger glassSolves = new AtomicInteger();
+            when(routeOptimizer.optimize(any(VroomRequest.class), any())).thenAnswer(inv -> {
+                VroomRequest request = inv.getArgument(0);
+                // glass: 85% of a 660 L bin
+                boolean glass = request.getJobs().stream().anyMatch(j -> j.getAmount()[0] == 561);
+                if (glass && glassSolves.getAndIncrement() == 0) {
+                    throw new IllegalStateException("VROOM timeout");
+                }
+                VroomStep step = new VroomStep();
+                step.setType("job");
+                step.setJob(1);
+                VroomRoute route = new VroomRoute();
+                route.setVehicle(1);
+                route.setSteps(List.of(step));
+                VroomSolution solution = new VroomSolution();
+                solution.setRoutes(List.of(route));
+                return solution;
+            });
+            when(tourneeRepository.saveAll(any(Iterable.class))).thenAnswer(inv -> inv.getArgument(0, Iterable.class));
+            when(vehicleRepository.claimFree(anyCollection())).thenAnswer(inv -> Set.copyOf(inv.getArgument(0, Collection.class)));
+
+            List<TourneeResponseDTO> result = tourneeService.planTourneesWithVroom(
+                    List.of(TrashType.PLASTIC, TrashType.GLASS), 80.0);
+
+            assertEquals(2, glassSolves.get());
+            assertEquals(Set.of(TrashType.PLASTIC, TrashType.GLASS), result.stream()
+                    .map(TourneeResponseDTO::getTourneeType).collect(java.util.stream.Collectors.toSet()));
+            assertEquals(2, result.stream().map(TourneeResponseDTO::getPlannedVehicleId).distinct().count());
+        } finally {
+            tourneeService.stopSolverPool();
+        }
+    }
+
+    @Test
+    void planMultiType_solvesTypesOnDisjointFleetsAndClaimsOnce() {
+        tourneeService.startSolverPool();
+        try {
+            when(depotService.getMainDepotEntityOrThrow()).thenReturn(mainDepot);
+            Vehicle second = new Vehicle("veh2", "DEF-456", 5000, null, null, VehicleStatus.AVAILABLE, false);
+            when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE)).thenReturn(List.of(vehicle, second));
+            CollectionPoint cp = new CollectionPoint("cp1", new GeoJSONPoint(1.5, 2.5), true, "addr", new ArrayList<>(List.of(
+                    new Bin("bin1", "cp1", true, TrashType.PLASTIC, null),
+                    new Bin("bin2", "cp1", true, TrashType.GLASS, null))));
+            when(collectionPointRepository.findAll()).thenReturn(List.of(cp));
+            when(latestReadingStore.getAll(List.of("bin1", "bin2"))).thenReturn(Map.of(
+                    "bin1", new BinReading("br1", "bin1", new Date(), 90.0, 0, 0.0, 0),
+                    "bin2", new BinReading("br2", "bin2", new Date(), 85.0, 0, 0.0, 0)));
+            when(tourneeRepository.findByStatusIn(anyCollection())).thenReturn(Collections.emptyList());
+            List<VroomRequest> requests = new CopyOnWriteArrayList<>();
+            when(routeOptimizer.optimize(any(VroomRequest.class), any())).thenAnswer(inv -> {
+                requests.add(inv.getArgument(0));
+                VroomStep step = new VroomStep();
+                step.setType("job");
+                step.setJob(1);
+                VroomRoute route = new VroomRoute();
+                route.setVehicle(1);
+                route.setSteps(List.of(step));
+                VroomSolution solution = new VroomSolution();
+                solution.setRoutes(List.of(route));
+                return solution;
+            });
+            when(tourneeRepository.saveAll(any(Iterable.class))).thenAnswer(inv -> inv.getArgument(0, Iterable.class));
+            when(vehicleRepository.claimFree(anyCollection())).thenAnswer(inv -> Set.copyOf(inv.getArgument(0, Collection.class)));
+
+            List<TourneeResponseDTO> result = tourneeService.planTourneesWithVroom(
+                    List.of(TrashType.PLASTIC, TrashType.GLASS), 80.0);
+
+            // one vehicle per type, never the same one twice
+            assertEquals(2, requests.size());
+            assertTrue(requests.stream().allMatch(r -> r.getVehicles().size() == 1));
+            assertEquals(Set.of("veh1", "veh2"), result.stream()
+                    .map(TourneeResponseDTO::getPlannedVehicleId).collect(java.util.stream.Collectors.toSet()));
+            verify(vehicleRepository, times(1)).claimFree(anyCollection());
+        } finally {
+            tourneeService.stopSolverPool();
+        }
     }
 
     @Test
@@ -163,22 +295,67 @@ class TourneeServiceImplTest {
         cp.getBins().add(bin);
 
         when(collectionPointRepository.findAll()).thenReturn(List.of(cp));
-        when(collectionPointRepository.findAllById(Set.of("cp1"))).thenReturn(List.of(cp));
 
-        when(binReadingRepository.findTopByBinIdOrderByTsDesc("bin1"))
-                .thenReturn(new BinReading("br1", "bin1", new Date(), 80.0, 0, 0.0, 0));
+        when(latestReadingStore.getAll(List.of("bin1")))
+                .thenReturn(Map.of("bin1", new BinReading("br1", "bin1", new Date(), 80.0, 0, 0.0, 0)));
 
-        when(tourneeRepository.findByTourneeTypeAndStatus(TrashType.PLASTIC, TourneeStatus.PLANNED))
-                .thenReturn(Collections.emptyList());
-        when(tourneeRepository.findByTourneeTypeAndStatus(TrashType.PLASTIC, TourneeStatus.IN_PROGRESS))
+        when(tourneeRepository.findByStatusIn(anyCollection()))
                 .thenReturn(Collections.emptyList());
 
         VroomSolution solution = new VroomSolution();
         solution.setRoutes(Collections.emptyList());
         solution.setCode(0);
-        when(vroomClient.optimize(any(VroomRequest.class))).thenReturn(solution);
+        when(routeOptimizer.optimize(any(VroomRequest.class), any())).thenReturn(solution);
 
         assertThrows(IllegalStateException.class,
                 () -> tourneeService.planTourneesWithVroom(TrashType.PLASTIC, 50.0));
     }
+
+    @Test
+    void planSingleType_includesBinForecastToCrossThreshold() {
+        ReflectionTestUtils.setField(tourneeService, "forecastHorizonHours", 2.0);
+        when(depotService.getMainDepotEntityOrThrow()).thenReturn(mainDepot);
+        when(vehicleRepository.findByStatusAndBusyFalse(VehicleStatus.AVAILABLE))
+                .thenReturn(List.of(vehicle));
+
+        Bin bin = new Bin("bin1", "cp1", true, TrashType.PLASTIC, null);
+        CollectionPoint cp = new CollectionPoint(
+                "cp1",
+                new GeoJSONPoint(1.5, 2.5),
+                true,
+                "addr",
+                new ArrayList<>()
+        );
+        cp.getBins().add(bin);
+        when(collectionPointRepository.findAll()).thenReturn(List.of(cp));
+
+        // 40% now, below the 50% threshold, but filling fast
+        when(latestReadingStore.getAll(List.of("bin1")))
+                .thenReturn(Map.of("bin1", new BinReading("br1", "bin1", new Date(), 40.0, 0, 0.0, 0)));
+        when(fillRateForecaster.predictFillPct(eq("bin1"), anyLong())).thenReturn(62.0);
+        when(tourneeRepository.findByStatusIn(anyCollection()))
+                .thenReturn(Collections.emptyList());
+
+        VroomRoute route = new VroomRoute();
+        route.setVehicle(1);
+        VroomStep step = new VroomStep();
+        step.setType("job");
+        step.setJob(1);
+        step.setArrival(1800);
+        route.setSteps(List.of(step));
+        VroomSolution solution = new VroomSolution();
+        solution.setRoutes(List.of(route));
+        ArgumentCaptor<VroomRequest> requestCaptor = ArgumentCaptor.forClass(VroomRequest.class);
+        when(routeOptimizer.optimize(requestCaptor.capture(), any())).thenReturn(solution);
+        when(tourneeRepository.saveAll(any(Iterable.class)))
+                .thenAnswer(inv -> inv.getArgument(0, Iterable.class));
+        when(vehicleRepository.claimFree(anyCollection())).thenAnswer(inv -> Set.copyOf(inv.getArgument(0, Collection.class)));
+
+        List<TourneeResponseDTO> result = tourneeService.planTourneesWithVroom(TrashType.PLASTIC, 50.0);
+
+        // volume is sized on the forecast, not on the current 40%
+        VroomJob job = requestCaptor.getValue().getJobs().get(0);
+        assertEquals(Math.round(0.62 * 660), job.getAmount()[0]);
+        assertEquals(62.0, result.get(0).getSteps().get(0).getPredictedFillPct());
+    }
 }